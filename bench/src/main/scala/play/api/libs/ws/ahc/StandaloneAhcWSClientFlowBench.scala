@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc
+
+import java.util.concurrent.TimeUnit
+
+import org.apache.pekko.actor.ActorSystem
+import org.apache.pekko.stream.Materializer
+import org.apache.pekko.stream.scaladsl.Sink
+import org.apache.pekko.stream.scaladsl.Source
+import org.openjdk.jmh.annotations._
+import org.openjdk.jmh.infra.Blackhole
+import play.api.BuiltInComponents
+import play.api.Mode
+import play.api.mvc.Results
+import play.core.server.NettyServer
+import play.core.server.ServerConfig
+
+import scala.concurrent.Await
+import scala.concurrent.duration._
+
+/**
+ * Compares sending a batch of requests to a local Netty server through [[StandaloneAhcWSClient.flow]] with sending
+ * them through `mapAsync`, to measure the cost of bounding the requests in flight per host.
+ *
+ * ==Quick Run from sbt==
+ *
+ * > bench/jmh:run .*StandaloneAhcWSClientFlowBench
+ *
+ * Compare your results before/after on your machine.
+ *
+ * @see https://github.com/ktoso/sbt-jmh
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@BenchmarkMode(Array(Mode.AverageTime))
+@Fork(jvmArgsAppend = Array("-Xmx350m", "-XX:+HeapDumpOnOutOfMemoryError"), value = 1)
+@State(Scope.Benchmark)
+class StandaloneAhcWSClientFlowBench {
+
+  private var system: ActorSystem           = _
+  private var server: NettyServer           = _
+  private var client: StandaloneAhcWSClient = _
+  private var url: String                   = _
+
+  @Param(Array("8", "64"))
+  private var parallelism: Int = _
+
+  @Param(Array("1000"))
+  private var requests: Int = _
+
+  @Setup def setup(): Unit = {
+    system = ActorSystem("StandaloneAhcWSClientFlowBench")
+    server = NettyServer.fromRouterWithComponents(ServerConfig(port = Some(0), mode = Mode.Prod)) {
+      (components: BuiltInComponents) => { case _ => components.defaultActionBuilder(Results.Ok("ok")) }
+    }
+    url = s"http://localhost:${server.httpPort.get}/"
+    client = StandaloneAhcWSClient()(Materializer.matFromSystem(system))
+  }
+
+  @TearDown def tearDown(): Unit = {
+    client.close()
+    server.stop()
+    Await.ready(system.terminate(), 10.seconds)
+  }
+
+  @Benchmark
+  def mapAsync(bh: Blackhole): Unit = {
+    val done = Source(1 to requests)
+      .mapAsync(parallelism)(_ => client.url(url).get())
+      .runWith(Sink.foreach(bh.consume))(Materializer.matFromSystem(system))
+    Await.result(done, 1.minute)
+  }
+
+  @Benchmark
+  def flow(bh: Blackhole): Unit = {
+    val done = Source(1 to requests)
+      .map(i => (client.url(url), i))
+      .via(client.flow[Int](parallelism))
+      .runWith(Sink.foreach(bh.consume))(Materializer.matFromSystem(system))
+    Await.result(done, 1.minute)
+  }
+}
@@ -9,10 +9,10 @@ import java.util.concurrent.TimeUnit
 import org.apache.pekko.stream.Materializer
 import org.openjdk.jmh.annotations._
 import org.openjdk.jmh.infra.Blackhole
-import play.api.libs.ws.StandaloneWSRequest
 
 /**
- * Tests Map-backed features of [[StandaloneAhcWSRequest]].
+ * Tests Map-backed features of [[StandaloneAhcWSRequest]]: adding, looking up and removing headers and query
+ * string parameters, and iterating over them when building the AHC request.
  *
  * ==Quick Run from sbt==
  *
@@ -51,8 +51,8 @@ import play.api.libs.ws.StandaloneWSRequest
 @State(Scope.Benchmark)
 class StandaloneAhcWSRequestBenchMapsBench {
 
-  private implicit val materializer: Materializer = null // we're not actually going to execute anything.
-  private var exampleRequest: StandaloneWSRequest = _
+  private implicit val materializer: Materializer     = null // we're not actually going to execute anything.
+  private var exampleRequest: StandaloneAhcWSRequest = _
 
   @Param(Array("1", "10", "100", "1000", "10000"))
   private var size: Int = _
@@ -65,6 +65,7 @@ class StandaloneAhcWSRequestBenchMapsBench {
     exampleRequest = StandaloneAhcWSRequest(new StandaloneAhcWSClient(null), "https://www.example.com")
       .addQueryStringParameters(params: _*)
       .addHttpHeaders(params: _*)
+      .withDisableUrlEncoding(false) // so that building the request does not need the underlying client
   }
 
   @Benchmark
@@ -76,4 +77,29 @@ class StandaloneAhcWSRequestBenchMapsBench {
   def addHeaders(bh: Blackhole): Unit = {
     bh.consume(exampleRequest.addHttpHeaders("nthHeader" -> "nthHeader"))
   }
+
+  @Benchmark
+  def lookupQueryParam(bh: Blackhole): Unit = {
+    bh.consume(exampleRequest.queryString.get("1"))
+  }
+
+  @Benchmark
+  def lookupHeader(bh: Blackhole): Unit = {
+    bh.consume(exampleRequest.header("1"))
+  }
+
+  @Benchmark
+  def removeQueryParam(bh: Blackhole): Unit = {
+    bh.consume(exampleRequest.queryString.removed("1"))
+  }
+
+  @Benchmark
+  def removeHeader(bh: Blackhole): Unit = {
+    bh.consume(exampleRequest.headers.removed("1"))
+  }
+
+  @Benchmark
+  def buildRequest(bh: Blackhole): Unit = {
+    bh.consume(exampleRequest.buildRequest())
+  }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc
+
+import java.util.concurrent.TimeUnit
+
+import org.apache.pekko.stream.Materializer
+import org.openjdk.jmh.annotations._
+import org.openjdk.jmh.infra.Blackhole
+import play.api.libs.ws.DefaultWSProxyServer
+import play.api.libs.ws.WSAuthScheme
+
+/**
+ * Compares building the AHC request from scratch on every call with reusing the compiled
+ * request of a [[StandaloneAhcWSRequest]].
+ *
+ * ==Quick Run from sbt==
+ *
+ * > bench/jmh:run .*StandaloneAhcWSRequestBuildBench
+ *
+ * ==Using Oracle Flight Recorder==
+ *
+ * To record a Flight Recorder file from a JMH run, run it using the jmh.extras.JFR profiler:
+ * > bench/jmh:run -prof jmh.extras.JFR .*StandaloneAhcWSRequestBuildBench
+ *
+ * Compare your results before/after on your machine.
+ *
+ * @see https://github.com/ktoso/sbt-jmh
+ */
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Array(Mode.AverageTime))
+@Fork(jvmArgsAppend = Array("-Xmx350m", "-XX:+HeapDumpOnOutOfMemoryError"), value = 1)
+@State(Scope.Benchmark)
+class StandaloneAhcWSRequestBuildBench {
+
+  private implicit val materializer: Materializer    = null // we're not actually going to execute anything.
+  private var client: StandaloneAhcWSClient          = _
+  private var exampleRequest: StandaloneAhcWSRequest = _
+
+  @Param(Array("1", "10", "100"))
+  private var size: Int = _
+
+  @Setup def setup(): Unit = {
+    val params = (1 to size)
+      .map(_.toString)
+      .map(s => s -> s)
+
+    client = StandaloneAhcWSClient()
+    exampleRequest = StandaloneAhcWSRequest(client, "https://www.example.com")
+      .addQueryStringParameters(params: _*)
+      .addHttpHeaders(params: _*)
+      .withAuth("user", "password", WSAuthScheme.BASIC)
+      .withProxyServer(DefaultWSProxyServer(host = "localhost", port = 8080))
+  }
+
+  @TearDown def tearDown(): Unit = client.close()
+
+  @Benchmark
+  def buildRequest(bh: Blackhole): Unit = {
+    bh.consume(exampleRequest.buildRequest())
+  }
+
+  @Benchmark
+  def compiledRequest(bh: Blackhole): Unit = {
+    bh.consume(exampleRequest.requestForExecution())
+  }
+
+  @Benchmark
+  def requestHeader(bh: Blackhole): Unit = {
+    bh.consume(exampleRequest.requestHeader("1"))
+  }
+
+  @Benchmark
+  def changedUrl(bh: Blackhole): Unit = {
+    bh.consume(exampleRequest.withUrl("https://www.example.com/other").requestForExecution())
+  }
+}
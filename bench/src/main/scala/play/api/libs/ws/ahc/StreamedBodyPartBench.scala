@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc
+
+import java.util.concurrent.TimeUnit
+
+import org.apache.pekko.util.ByteString
+import org.openjdk.jmh.annotations._
+import org.openjdk.jmh.infra.Blackhole
+import play.shaded.ahc.io.netty.buffer.Unpooled
+import play.shaded.ahc.org.asynchttpclient.netty.EagerResponseBodyPart
+
+/**
+ * Compares copying each streamed body part into a new ByteString with wrapping the part's bytes.
+ *
+ * ==Quick Run from sbt==
+ *
+ * > bench/jmh:run .*StreamedBodyPartBench
+ *
+ * ==Allocation rate==
+ *
+ * To see the bytes allocated per operation, run it with the GC profiler:
+ * > bench/jmh:run -prof gc .*StreamedBodyPartBench
+ *
+ * Compare your results before/after on your machine.
+ *
+ * @see https://github.com/ktoso/sbt-jmh
+ */
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Array(Mode.AverageTime))
+@Fork(jvmArgsAppend = Array("-Xmx350m", "-XX:+HeapDumpOnOutOfMemoryError"), value = 1)
+@State(Scope.Benchmark)
+class StreamedBodyPartBench {
+
+  private var part: EagerResponseBodyPart = _
+
+  @Param(Array("1024", "8192", "65536"))
+  private var chunkSize: Int = _
+
+  @Setup def setup(): Unit = {
+    val buf = Unpooled.directBuffer(chunkSize)
+    buf.writeBytes(Array.fill[Byte](chunkSize)(1))
+    part = new EagerResponseBodyPart(buf, false)
+    buf.release()
+  }
+
+  @Benchmark
+  def copyPart(bh: Blackhole): Unit = {
+    bh.consume(ByteString.fromArray(part.getBodyPartBytes))
+  }
+
+  @Benchmark
+  def wrapPart(bh: Blackhole): Unit = {
+    bh.consume(AhcWSUtils.toByteString(part))
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc.cache
+
+import java.util.concurrent.TimeUnit
+
+import org.openjdk.jmh.annotations._
+import org.openjdk.jmh.infra.Blackhole
+import org.playframework.cachecontrol.HttpDate
+import play.shaded.ahc.org.asynchttpclient.DefaultAsyncHttpClientConfig
+import play.shaded.ahc.org.asynchttpclient.Request
+import play.shaded.ahc.org.asynchttpclient.RequestBuilder
+
+import scala.concurrent.ExecutionContext
+
+/**
+ * Measures the decisions [[AhcHttpCache]] takes on a cache hit: selecting the entry, calculating its age and choosing
+ * how to serve it.
+ *
+ * "request" converts the request and the entry for every decision, as was done before [[CacheRequestContext]]: each
+ * operation uses a copy of the entry, which does not hold the stored response yet. "context" converts the request
+ * once per operation, and reuses the stored response kept on the entry, as on repeated hits.
+ *
+ * ==Quick Run from sbt==
+ *
+ * > bench/jmh:run .*CacheDecisionBench
+ *
+ * Compare your results before/after on your machine.
+ *
+ * @see https://github.com/ktoso/sbt-jmh
+ */
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Array(Mode.AverageTime))
+@Fork(jvmArgsAppend = Array("-Xmx350m", "-XX:+HeapDumpOnOutOfMemoryError"), value = 1)
+@State(Scope.Benchmark)
+class CacheDecisionBench {
+
+  private var cache: AhcHttpCache  = _
+  private var request: Request     = _
+  private var entry: ResponseEntry = _
+
+  @Param(Array("request", "context"))
+  private var decisions: String = _
+
+  @Setup def setup(): Unit = {
+    val url       = "http://localhost:9000/cached"
+    val ahcConfig = new DefaultAsyncHttpClientConfig.Builder().build()
+    val response  = CacheableResponse(200, url, "cached", ahcConfig).withHeaders(
+      "Cache-Control" -> "public, max-age=3600, stale-while-revalidate=60",
+      "Date"          -> HttpDate.format(HttpDate.now),
+      "ETag"          -> "\"abc\""
+    )
+
+    cache = new AhcHttpCache(new InMemoryHttpCache(maxWeight = 1024 * 1024))(ExecutionContext.parasitic)
+    request = new RequestBuilder("GET")
+      .setUrl(url)
+      .addHeader("Accept", "text/plain")
+      .addHeader("Cache-Control", "max-stale=60")
+      .build()
+    entry = ResponseEntry(response, "GET", Map.empty, None)
+  }
+
+  @Benchmark
+  def hit(bh: Blackhole): Unit = {
+    val requestTime = HttpDate.now
+    decisions match {
+      case "request" =>
+        val copy = entry.copy()
+        bh.consume(cache.selectionAction(request, Seq(copy)))
+        val currentAge = cache.calculateCurrentAge(request, copy, requestTime)
+        bh.consume(cache.serveAction(request, copy, currentAge))
+
+      case "context" =>
+        val context = cache.context(request)
+        bh.consume(cache.selectionAction(context, Seq(entry)))
+        val currentAge = cache.calculateCurrentAge(context, entry, requestTime)
+        bh.consume(cache.serveAction(context, entry, currentAge))
+    }
+  }
+}
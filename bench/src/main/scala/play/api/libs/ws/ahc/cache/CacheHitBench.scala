@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc.cache
+
+import java.util.concurrent.TimeUnit
+
+import org.openjdk.jmh.annotations._
+import org.openjdk.jmh.infra.Blackhole
+import org.playframework.cachecontrol.HttpDate
+import play.shaded.ahc.org.asynchttpclient.AsyncCompletionHandlerBase
+import play.shaded.ahc.org.asynchttpclient.DefaultAsyncHttpClient
+import play.shaded.ahc.org.asynchttpclient.DefaultAsyncHttpClientConfig
+import play.shaded.ahc.org.asynchttpclient.Request
+import play.shaded.ahc.org.asynchttpclient.RequestBuilder
+
+import scala.concurrent.ExecutionContext
+import scala.concurrent.Future
+
+/**
+ * Measures a fresh cache hit through [[CachingAsyncHttpClient]], with an in-memory cache read through its futures
+ * ("async", as every cache was before [[SyncCache]]) or directly on the calling thread ("sync").
+ *
+ * The cached response is served on the calling thread, so that the benchmark measures the cache rather than a
+ * thread hop. The origin server is never contacted.
+ *
+ * ==Quick Run from sbt==
+ *
+ * > bench/jmh:run .*CacheHitBench
+ *
+ * Compare your results before/after on your machine.
+ *
+ * @see https://github.com/ktoso/sbt-jmh
+ */
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Array(Mode.AverageTime))
+@Fork(jvmArgsAppend = Array("-Xmx350m", "-XX:+HeapDumpOnOutOfMemoryError"), value = 1)
+@State(Scope.Benchmark)
+class CacheHitBench {
+
+  private var client: CachingAsyncHttpClient = _
+  private var request: Request               = _
+
+  @Param(Array("async", "sync"))
+  private var cache: String = _
+
+  @Setup def setup(): Unit = {
+    val url       = "http://localhost:9000/cached"
+    val ahcConfig = new DefaultAsyncHttpClientConfig.Builder().build()
+    val store     = new InMemoryHttpCache(maxWeight = 1024 * 1024)
+    val httpCache = new AhcHttpCache(if (cache == "sync") store else new AsyncCache(store))(ExecutionContext.parasitic)
+
+    request = new RequestBuilder("GET").setUrl(url).build()
+    httpCache.cacheResponse(
+      request,
+      CacheableResponse(200, url, "cached", ahcConfig)
+        .withHeaders("Cache-Control" -> "max-age=3600", "Date" -> HttpDate.format(HttpDate.now))
+    )
+    client = new CachingAsyncHttpClient(new DefaultAsyncHttpClient(ahcConfig), httpCache)
+  }
+
+  @TearDown def tearDown(): Unit = client.close()
+
+  @Benchmark
+  def hit(bh: Blackhole): Unit = {
+    bh.consume(client.executeRequest(request, new AsyncCompletionHandlerBase).get())
+  }
+}
+
+/**
+ * Hides that the cache is synchronous, so that it is only read through its futures.
+ */
+private class AsyncCache(underlying: Cache) extends Cache {
+  override def get(key: EffectiveURIKey): Future[Option[ResponseEntry]] = underlying.get(key)
+
+  override def put(key: EffectiveURIKey, entry: ResponseEntry): Future[Unit] = underlying.put(key, entry)
+
+  override def remove(key: EffectiveURIKey): Future[Unit] = underlying.remove(key)
+
+  override def close(): Unit = underlying.close()
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc.cache
+
+import java.net.InetSocketAddress
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+import com.sun.net.httpserver.HttpServer
+import org.openjdk.jmh.annotations._
+import org.openjdk.jmh.infra.Blackhole
+import play.shaded.ahc.org.asynchttpclient.AsyncCompletionHandlerBase
+import play.shaded.ahc.org.asynchttpclient.DefaultAsyncHttpClient
+import play.shaded.ahc.org.asynchttpclient.DefaultAsyncHttpClientConfig
+import play.shaded.ahc.org.asynchttpclient.Request
+import play.shaded.ahc.org.asynchttpclient.RequestBuilder
+
+import scala.concurrent.ExecutionContext
+import scala.util.Random
+
+/**
+ * Replays a corpus of URLs against a local server through [[CachingAsyncHttpClient]], with the cache keys left as
+ * they are ("none"), in their canonical form ("canonical", the default of `play.ws.cache.keyNormalization`) or also
+ * without tracking parameters and with sorted query parameters ("all").
+ *
+ * The corpus requests a few hundred cacheable resources with a skewed popularity, through URLs that differ the way
+ * links found in the wild do: in the case of the host and of percent-encoding, in the order of the query parameters,
+ * and in the `utm_*` and `fbclid` tracking parameters. Each iteration starts with an empty cache, and the hit rate of
+ * the iteration is printed when it ends.
+ *
+ * ==Quick Run from sbt==
+ *
+ * > bench/jmh:run .*CacheKeyHitRateBench
+ *
+ * Compare your results before/after on your machine.
+ *
+ * @see https://github.com/ktoso/sbt-jmh
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@BenchmarkMode(Array(Mode.SingleShotTime))
+@Fork(jvmArgsAppend = Array("-Xmx350m", "-XX:+HeapDumpOnOutOfMemoryError"), value = 1)
+@State(Scope.Benchmark)
+class CacheKeyHitRateBench {
+
+  private var server: HttpServer             = _
+  private var corpus: Seq[Request]           = _
+  private var client: CachingAsyncHttpClient = _
+
+  @Param(Array("none", "canonical", "all"))
+  private var normalization: String = _
+
+  @Param(Array("10000"))
+  private var requests: Int = _
+
+  @Param(Array("300"))
+  private var resources: Int = _
+
+  @Setup def setup(): Unit = {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0)
+    server.createContext(
+      "/",
+      exchange => {
+        val body = exchange.getRequestURI.getPath.getBytes
+        exchange.getResponseHeaders.set("Cache-Control", "public, max-age=3600")
+        exchange.sendResponseHeaders(200, body.length.toLong)
+        exchange.getResponseBody.write(body)
+        exchange.close()
+      }
+    )
+    server.setExecutor(Executors.newFixedThreadPool(4))
+    server.start()
+
+    val port   = server.getAddress.getPort
+    val random = new Random(42L)
+    corpus = Seq.fill(requests) {
+      // Squaring a uniform value favors the first resources, as on a site where a few pages get most of the traffic.
+      val resource = (math.pow(random.nextDouble(), 2) * resources).toInt
+      val host     = if (random.nextInt(4) == 0) "LOCALHOST" else "localhost"
+      val tilde    = Seq("~", "%7e", "%7E")(random.nextInt(3))
+      val params   = random.shuffle(List(s"category=c${resource % 10}", s"page=${resource % 7}", s"id=$resource"))
+      val tracking = Seq(
+        if (random.nextInt(3) == 0) Seq(s"utm_source=s${random.nextInt(5)}", "utm_medium=email") else Nil,
+        if (random.nextInt(10) == 0) Seq(s"fbclid=${random.nextLong().toHexString}") else Nil
+      ).flatten
+      val query    = (params ++ tracking).mkString("&")
+      new RequestBuilder("GET").setUrl(s"http://$host:$port/${tilde}shop/products?$query").build()
+    }
+  }
+
+  @Setup(Level.Iteration) def setupIteration(): Unit = {
+    val normalizer = normalization match {
+      case "none"      => CacheKeyNormalizer.identity
+      case "canonical" => AhcHttpCacheKeyNormalization().normalizer
+      case "all"       =>
+        AhcHttpCacheKeyNormalization(ignoredQueryParameters = Seq("utm_*", "fbclid"), sortQuery = true).normalizer
+    }
+    val ahcConfig = new DefaultAsyncHttpClientConfig.Builder().build()
+    val store     = new InMemoryHttpCache(64L * 1024 * 1024)
+    val cache     = new AhcHttpCache(store, false, normalizer)(ExecutionContext.global)
+    client = new CachingAsyncHttpClient(new DefaultAsyncHttpClient(ahcConfig), cache)
+  }
+
+  @TearDown(Level.Iteration) def tearDownIteration(): Unit = {
+    val stats = client.cacheStats
+    println(
+      f"$normalization: hit rate ${100.0 * stats.hitCount / stats.requestCount}%.1f%% " +
+        s"(${stats.hitCount} hits, ${stats.missCount} misses out of ${stats.requestCount} requests)"
+    )
+    client.close()
+  }
+
+  @TearDown def tearDown(): Unit = server.stop(0)
+
+  @Benchmark
+  def replay(bh: Blackhole): Unit = {
+    corpus.foreach { request =>
+      bh.consume(client.executeRequest(request, new AsyncCompletionHandlerBase).get())
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.jdk
+
+import java.util.concurrent.TimeUnit
+
+import org.apache.pekko.actor.ActorSystem
+import org.apache.pekko.stream.Materializer
+import org.openjdk.jmh.annotations._
+import org.openjdk.jmh.infra.Blackhole
+import play.api.libs.ws.StandaloneWSClient
+import play.api.libs.ws.ahc.StandaloneAhcWSClient
+
+import scala.concurrent.Await
+import scala.concurrent.ExecutionContext
+import scala.concurrent.Future
+import scala.concurrent.duration._
+
+/**
+ * Compares the latency of the AsyncHttpClient backend, which opens a connection per request in flight, with the
+ * java.net.http backend over HTTP/2, which multiplexes the requests over a single connection. Every operation sends
+ * `concurrency` requests at once to the same host, so the load is the same for both backends, and the sample mode
+ * reports the percentiles of the time the batches take, including the p99.
+ *
+ * The benchmark needs an HTTPS server that speaks HTTP/2, as the Play test server does not:
+ *
+ * ==Quick Run from sbt==
+ *
+ * > bench/jmh:run -jvmArgsAppend -Dplay.ws.bench.url=https://localhost:8443/ .*Http2ClientBench
+ *
+ * The connections the AsyncHttpClient backend opened are printed after each trial. The java.net.http backend does not
+ * expose its connections, which can be counted on the server, or with `ss -tn` while the benchmark runs.
+ *
+ * Compare your results before/after on your machine.
+ *
+ * @see https://github.com/ktoso/sbt-jmh
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@BenchmarkMode(Array(Mode.SampleTime))
+@Fork(jvmArgsAppend = Array("-Xmx350m", "-XX:+HeapDumpOnOutOfMemoryError"), value = 1)
+@State(Scope.Benchmark)
+class Http2ClientBench {
+
+  private var system: ActorSystem        = _
+  private var client: StandaloneWSClient = _
+  private var url: String                = _
+
+  @Param(Array("ahc", "jdk"))
+  private var backend: String = _
+
+  @Param(Array("100"))
+  private var concurrency: Int = _
+
+  @Setup def setup(): Unit = {
+    url = sys.props.getOrElse("play.ws.bench.url", sys.error("Set play.ws.bench.url to the URL of an HTTP/2 server"))
+    system = ActorSystem("Http2ClientBench")
+    implicit val materializer: Materializer = Materializer.matFromSystem(system)
+    client = backend match {
+      case "ahc" => StandaloneAhcWSClient()
+      case "jdk" => StandaloneJdkWSClient()
+    }
+  }
+
+  @TearDown def tearDown(): Unit = {
+    client match {
+      case ahc: StandaloneAhcWSClient =>
+        val snapshot = ahc.connectionPoolSnapshot
+        println(s"AsyncHttpClient connections: ${snapshot.totalActiveConnections + snapshot.totalIdleConnections}")
+      case _ =>
+    }
+    client.close()
+    Await.ready(system.terminate(), 10.seconds)
+  }
+
+  @Benchmark
+  def batch(bh: Blackhole): Unit = {
+    implicit val ec: ExecutionContext = system.dispatcher
+    val responses                     = Future.sequence(Seq.fill(concurrency)(client.url(url).get()))
+    Await.result(responses, 1.minute).foreach(response => bh.consume(response.status))
+  }
+}
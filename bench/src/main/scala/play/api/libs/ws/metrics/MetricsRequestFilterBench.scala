@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.metrics
+
+import java.util.Collections
+import java.util.concurrent.TimeUnit
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.apache.pekko.stream.Materializer
+import org.openjdk.jmh.annotations._
+import org.openjdk.jmh.infra.Blackhole
+import play.api.libs.ws.StandaloneWSResponse
+import play.api.libs.ws.WSRequestExecutor
+import play.api.libs.ws.ahc.StandaloneAhcWSClient
+import play.api.libs.ws.ahc.StandaloneAhcWSRequest
+import play.api.libs.ws.ahc.StandaloneAhcWSResponse
+import play.shaded.ahc.io.netty.handler.codec.http.DefaultHttpHeaders
+import play.shaded.ahc.io.netty.handler.codec.http.DefaultHttpResponse
+import play.shaded.ahc.io.netty.handler.codec.http.HttpResponseStatus
+import play.shaded.ahc.io.netty.handler.codec.http.HttpVersion
+import play.shaded.ahc.org.asynchttpclient.HttpResponseBodyPart
+import play.shaded.ahc.org.asynchttpclient.netty.NettyResponse
+import play.shaded.ahc.org.asynchttpclient.netty.NettyResponseStatus
+import play.shaded.ahc.org.asynchttpclient.uri.Uri
+
+import scala.concurrent.Future
+
+/**
+ * Measures the overhead the metrics filter adds to each request, against an executor that completes immediately.
+ * The difference between `filtered` and `unfiltered` is the cost of recording a request.
+ *
+ * ==Quick Run from sbt==
+ *
+ * > bench/jmh:run .*MetricsRequestFilterBench
+ *
+ * Compare your results before/after on your machine.
+ *
+ * @see https://github.com/ktoso/sbt-jmh
+ */
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Array(Mode.AverageTime))
+@Fork(jvmArgsAppend = Array("-Xmx350m", "-XX:+HeapDumpOnOutOfMemoryError"), value = 1)
+@State(Scope.Benchmark)
+class MetricsRequestFilterBench {
+
+  private implicit val materializer: Materializer = null // we're not actually going to execute anything.
+  private var client: StandaloneAhcWSClient       = _
+  private var request: StandaloneAhcWSRequest     = _
+  private var executor: WSRequestExecutor         = _
+  private var filteredExecutor: WSRequestExecutor = _
+  private var routedExecutor: WSRequestExecutor   = _
+
+  @Setup def setup(): Unit = {
+    val url = "https://www.example.com/users/42/orders?page=2"
+
+    val headers = new DefaultHttpHeaders().add("Content-Length", "128")
+    val status  = new NettyResponseStatus(
+      Uri.create(url),
+      new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK),
+      null
+    )
+    val response: Future[StandaloneWSResponse] = Future.successful(
+      StandaloneAhcWSResponse(new NettyResponse(status, headers, Collections.emptyList[HttpResponseBodyPart]()))
+    )
+
+    val registry = new SimpleMeterRegistry()
+    val routes   = RouteTemplates("/users/{id}", "/users/{id}/orders", "/orders/{id}")
+
+    client = StandaloneAhcWSClient()
+    request = StandaloneAhcWSRequest(client, url)
+    executor = WSRequestExecutor(_ => response)
+    filteredExecutor = MetricsRequestFilter(registry)(executor)
+    routedExecutor = MetricsRequestFilter(registry, routes)(executor)
+  }
+
+  @TearDown def tearDown(): Unit = client.close()
+
+  @Benchmark
+  def unfiltered(bh: Blackhole): Unit = {
+    bh.consume(executor(request))
+  }
+
+  @Benchmark
+  def filtered(bh: Blackhole): Unit = {
+    bh.consume(filteredExecutor(request))
+  }
+
+  @Benchmark
+  def filteredWithRoutes(bh: Blackhole): Unit = {
+    bh.consume(routedExecutor(request))
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc
+
+import java.util.concurrent.atomic.AtomicInteger
+
+import org.apache.pekko.pattern.after
+import org.apache.pekko.stream.scaladsl.Sink
+import org.apache.pekko.stream.scaladsl.Source
+import org.specs2.concurrent.ExecutionEnv
+import org.specs2.concurrent.FutureAwait
+import org.specs2.execute.Result
+import org.specs2.matcher.FutureMatchers
+import org.specs2.mutable.Specification
+import play.NettyServerProvider
+import play.api.BuiltInComponents
+import play.api.libs.ws._
+import play.api.mvc.Handler
+import play.api.mvc.RequestHeader
+import play.api.mvc.Results
+import play.api.routing.sird._
+
+import scala.concurrent._
+import scala.concurrent.duration._
+import scala.util.Failure
+import scala.util.Success
+import scala.util.Try
+
+class AhcWSClientFlowSpec(implicit val executionEnv: ExecutionEnv)
+    extends Specification
+    with NettyServerProvider
+    with StandaloneWSClientSupport
+    with FutureMatchers
+    with FutureAwait
+    with DefaultBodyReadables {
+  sequential
+
+  val inFlight    = new AtomicInteger()
+  val maxInFlight = new AtomicInteger()
+
+  def routes(components: BuiltInComponents): PartialFunction[RequestHeader, Handler] = {
+    case GET(p"/slow/${id}") =>
+      components.defaultActionBuilder.async {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), (a, b) => math.max(a, b))
+        after(50.millis)(Future.successful(Results.Ok(id))).andThen { case _ => inFlight.decrementAndGet() }
+      }
+    case GET(p"/stream/${id}") =>
+      components.defaultActionBuilder {
+        Results.Ok.chunked(Source(Seq(id, "-", id)))
+      }
+  }
+
+  def withPerHostLimit(limit: Int)(block: StandaloneAhcWSClient => Result) = {
+    val config = AhcWSClientConfigFactory.forConfig()
+    withClient(config.copy(maxConnectionsPerHost = limit))(block)
+  }
+
+  "flow" should {
+
+    "emit each response with the context of its request" in {
+      withClient() { client =>
+        val result = Source(1 to 5)
+          .map(i => (client.url(s"http://localhost:$testServerPort/slow/$i"), i))
+          .via(client.flow[Int]())
+          .map { case (response, i) => (response.map(_.body[String]), i) }
+          .runWith(Sink.seq)
+
+        Await.result(result, defaultTimeout) must_== (1 to 5).map(i => (Success(i.toString), i))
+      }
+    }
+
+    "stay within the connections the client allows per host" in {
+      maxInFlight.set(0)
+      withPerHostLimit(2) { client =>
+        val result = Source(1 to 10)
+          .map(i => (client.url(s"http://localhost:$testServerPort/slow/$i"), i))
+          .via(client.flow[Int](parallelism = 8, ordered = false))
+          .runWith(Sink.seq)
+
+        val responses = Await.result(result, defaultTimeout)
+        (responses.map(_._1.map(_.status)) must_== Seq.fill(10)(Success(200)))
+          .and(maxInFlight.get must be_<=(2))
+      }
+    }
+
+    "emit failed requests without failing the stream" in {
+      withClient() { client =>
+        val result = Source(Seq("http://localhost:1/refused", s"http://localhost:$testServerPort/slow/2"))
+          .map(url => (client.url(url), url))
+          .via(client.flow[String]())
+          .runWith(Sink.seq)
+
+        Await.result(result, defaultTimeout).map(_._1.map(_.status)) must beLike[Seq[Try[Int]]] {
+          case Seq(Failure(_), Success(200)) => ok
+        }
+      }
+    }
+  }
+
+  "streamFlow" should {
+
+    "emit the responses with their bodies as sources" in {
+      withPerHostLimit(1) { client =>
+        val result = Source(1 to 3)
+          .map(i => (client.url(s"http://localhost:$testServerPort/stream/$i"), i))
+          .via(client.streamFlow[Int]())
+          .mapAsync(1) { case (response, i) =>
+            response.get.bodyAsSource.runFold("")(_ + _.utf8String).map(body => (body, i))
+          }
+          .runWith(Sink.seq)
+
+        Await.result(result, defaultTimeout) must_== (1 to 3).map(i => (s"$i-$i", i))
+      }
+    }
+  }
+}
@@ -9,10 +9,14 @@ import org.specs2.matcher.FutureMatchers
 import org.specs2.mutable.Specification
 import play.NettyServerProvider
 import play.api.BuiltInComponents
+import org.apache.pekko.stream.scaladsl.Sink
 import play.api.libs.ws._
+import play.api.libs.ws.ahc.metrics.RequestTiming
+import play.api.libs.ws.ahc.metrics.RequestTimingListener
 import play.api.mvc.Results
 
 import scala.collection.mutable
+import scala.concurrent.Promise
 
 class AhcWSRequestFilterSpec(implicit val executionEnv: ExecutionEnv)
     extends Specification
@@ -59,6 +63,14 @@ class AhcWSRequestFilterSpec(implicit val executionEnv: ExecutionEnv)
       }
     }
 
+    class TimingFilter extends WSRequestFilter with RequestTimingListener {
+      val timing = Promise[RequestTiming]()
+
+      override def apply(executor: WSRequestExecutor): WSRequestExecutor = executor
+
+      override def onRequestTiming(timing: RequestTiming): Unit = { this.timing.trySuccess(timing); () }
+    }
+
     "work with adhoc request filter" in withClient() { client =>
       client
         .url(s"http://localhost:$testServerPort")
@@ -166,5 +178,35 @@ class AhcWSRequestFilterSpec(implicit val executionEnv: ExecutionEnv)
         }
         .await(retries = 0, timeout = defaultTimeout)
     }
+
+    "send the timing of the request to a filter that is a timing listener" in withClient() { client =>
+      val filter = new TimingFilter()
+      client
+        .url(s"http://localhost:$testServerPort")
+        .withQueryStringParameters("key" -> "timed")
+        .withRequestFilter(filter)
+        .get()
+        .flatMap(_ => filter.timing.future)
+        .map { timing =>
+          (timing.statusCode must beSome(200)).and(timing.timeToFirstByte must beSome)
+        }
+        .await(retries = 0, timeout = defaultTimeout)
+    }
+
+    "send the timing of the streamed request to a filter that is a timing listener" in withClient() { client =>
+      val filter = new TimingFilter()
+      client
+        .url(s"http://localhost:$testServerPort")
+        .withQueryStringParameters("key" -> "timed")
+        .withRequestFilter(filter)
+        .withMethod("GET")
+        .stream()
+        .flatMap(response => response.bodyAsSource.runWith(Sink.ignore))
+        .flatMap(_ => filter.timing.future)
+        .map { timing =>
+          (timing.statusCode must beSome(200)).and(timing.failure must beNone)
+        }
+        .await(retries = 0, timeout = defaultTimeout)
+    }
   }
 }
@@ -8,12 +8,16 @@ import java.nio.charset.StandardCharsets
 
 import org.apache.pekko.actor.ActorSystem
 import org.apache.pekko.stream.Materializer
+import org.apache.pekko.stream.scaladsl.Sink
+import org.apache.pekko.stream.scaladsl.Source
 import org.apache.pekko.util.ByteString
 import org.specs2.matcher.MustMatchers
 import org.specs2.mutable.Specification
 import org.specs2.specification.AfterAll
 import play.api.libs.ws._
 
+import scala.concurrent.Await
+import scala.concurrent.duration._
 import scala.xml.Elem
 
 /**
@@ -46,7 +50,8 @@ class XMLRequestSpec extends Specification with AfterAll with MustMatchers {
 
     override def bodyAsBytes: ByteString = ByteString.fromArray(byteArray)
 
-    override def bodyAsSource: org.apache.pekko.stream.scaladsl.Source[ByteString, ?] = ???
+    // Small chunks, so that tokens are split across chunk boundaries
+    override def bodyAsSource: Source[ByteString, ?] = Source(ByteString.fromArray(byteArray).grouped(5).toList)
   }
 
   "write an XML node" in {
@@ -98,4 +103,46 @@ class XMLRequestSpec extends Specification with AfterAll with MustMatchers {
     (value \\ "note" \ "from").text must be_==("Jani")
     (value \\ "note" \ "heading").text must be_==("Reminder")
   }
+
+  "read XML parse events from a stream" in {
+    import XMLStreamParser._
+
+    val test      = """<note priority="high"><to>Tove</to><from>Jani</from></note>"""
+    val readables = new XMLBodyReadables() {}
+    val source    = readables.readableAsXmlEvents.transform(new StubResponse(test.getBytes(StandardCharsets.UTF_8)))
+    val events    = Await.result(source.runWith(Sink.seq), 5.seconds)
+
+    val text = events.collect { case Characters(chars) => chars }.mkString
+    (events.head must be_==(StartDocument))
+      .and(events must contain(StartElement("note", None, None, Map("priority" -> "high"))))
+      .and(events must contain(EndElement("from")))
+      .and(text must be_==("ToveJani"))
+      .and(events.last must be_==(EndDocument))
+  }
+
+  "read XML subtrees from a stream" in {
+    val test =
+      """<feed xmlns="http://www.w3.org/2005/Atom">
+        |<title>Example</title>
+        |<entry id="1"><title>First</title></entry>
+        |<entry id="2"><title>Second</title><link href="http://example.com/2"/></entry>
+        |</feed>""".stripMargin
+    val readables = new XMLBodyReadables() {}
+    val readable  = readables.readableAsXmlSubtrees("feed", "entry")
+    val source    = readable.transform(new StubResponse(test.getBytes(StandardCharsets.UTF_8)))
+    val entries   = Await.result(source.runWith(Sink.seq), 5.seconds)
+
+    (entries.map(entry => (entry \ "title").text) must be_==(Seq("First", "Second")))
+      .and(entries.map(_ \@ "id") must be_==(Seq("1", "2")))
+      .and(entries.head.namespace must be_==("http://www.w3.org/2005/Atom"))
+      .and((entries(1) \ "link" \@ "href") must be_==("http://example.com/2"))
+  }
+
+  "reject a DOCTYPE in a stream" in {
+    val test      =
+      """<?xml version="1.0"?><!DOCTYPE foo [<!ENTITY xxe SYSTEM "file:///etc/passwd">]><foo>&xxe;</foo>"""
+    val readables = new XMLBodyReadables() {}
+    val source    = readables.readableAsXmlEvents.transform(new StubResponse(test.getBytes(StandardCharsets.UTF_8)))
+    Await.result(source.runWith(Sink.seq), 5.seconds) must throwA[javax.xml.stream.XMLStreamException]
+  }
 }
@@ -4,6 +4,10 @@
 
 package play.api.libs.ws.ahc.cache
 
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
 import org.mockito.ArgumentMatchers.any
 import org.mockito.Mockito
 import org.mockito.Mockito.when
@@ -22,6 +26,7 @@ import play.api.routing.sird._
 import play.shaded.ahc.org.asynchttpclient._
 
 import scala.concurrent.Future
+import scala.concurrent.Promise
 import scala.reflect.ClassTag
 
 class CachingSpec(implicit val executionEnv: ExecutionEnv)
@@ -71,5 +76,67 @@ class CachingSpec(implicit val executionEnv: ExecutionEnv)
       Mockito.verify(cache).get(EffectiveURIKey("GET", new java.net.URI(s"http://localhost:$testServerPort/hello")))
       success
     }
+
+    "count the request as a cache miss" in {
+      val cache = mock[Cache]
+      when(cache.get(any[EffectiveURIKey]())).thenReturn(Future.successful(None))
+
+      val cachingAsyncHttpClient = new CachingAsyncHttpClient(asyncHttpClient, new AhcHttpCache(cache))
+      val ws                     = new StandaloneAhcWSClient(cachingAsyncHttpClient)
+
+      ws.url(s"http://localhost:$testServerPort/hello")
+        .get()
+        .map { _ =>
+          cachingAsyncHttpClient.cacheStats must_== CachingAsyncHttpClient.Stats(0, 0, 1, 0, 0)
+        }
+        .await
+    }
+
+    "not wait for a slow cache on the I/O thread" in {
+      val asked  = new CountDownLatch(1)
+      val answer = Promise[Option[ResponseEntry]]()
+      val cache  = mock[Cache]
+      when(cache.get(any[EffectiveURIKey]())).thenAnswer { _ =>
+        asked.countDown()
+        answer.future
+      }
+
+      // A single I/O thread serves every request, so blocking it would hold back the other responses.
+      val config = new DefaultAsyncHttpClientConfig.Builder(asyncHttpClient.getConfig).setIoThreadsCount(1).build()
+      val client = new DefaultAsyncHttpClient(config)
+
+      val cachingAsyncHttpClient = new CachingAsyncHttpClient(client, new AhcHttpCache(cache))
+      try {
+        val url    = s"http://localhost:$testServerPort/hello"
+        val cached = new CompletableFuture[Response]()
+        client.executeRequest(
+          client.prepareGet(url).build(),
+          new AsyncCompletionHandlerBase {
+            override def onCompleted(response: Response): Response = {
+              // Runs on the I/O thread.
+              cachingAsyncHttpClient
+                .executeRequest(client.prepareGet(url).build(), new AsyncCompletionHandlerBase)
+                .toCompletableFuture
+                .whenComplete { (r: Response, e: Throwable) =>
+                  if (e != null) cached.completeExceptionally(e) else cached.complete(r)
+                }
+              response
+            }
+          }
+        )
+
+        val waiting = asked.await(5, TimeUnit.SECONDS)
+        val other   = client.prepareGet(url).execute().get(5, TimeUnit.SECONDS)
+        val pending = !cached.isDone
+        answer.success(None)
+
+        (waiting must beTrue)
+          .and(other.getStatusCode must_== 200)
+          .and(pending must beTrue)
+          .and(cached.get(5, TimeUnit.SECONDS).getResponseBody must_== "<h1>Say hello to play</h1>")
+      } finally {
+        client.close()
+      }
+    }
   }
 }
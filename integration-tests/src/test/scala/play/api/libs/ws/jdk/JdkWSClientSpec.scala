@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.jdk
+
+import org.apache.pekko.stream.scaladsl.Sink
+import org.specs2.concurrent.ExecutionEnv
+import org.specs2.concurrent.FutureAwait
+import org.specs2.execute.Result
+import org.specs2.matcher.FutureMatchers
+import org.specs2.mutable.Specification
+import play.NettyServerProvider
+import play.api.BuiltInComponents
+import play.api.libs.ws._
+import play.api.mvc.Cookie
+import play.api.mvc.Handler
+import play.api.mvc.RequestHeader
+import play.api.mvc.Results
+import play.api.routing.sird._
+
+import scala.concurrent._
+
+class JdkWSClientSpec(implicit val executionEnv: ExecutionEnv)
+    extends Specification
+    with NettyServerProvider
+    with FutureMatchers
+    with FutureAwait
+    with DefaultBodyReadables
+    with DefaultBodyWritables {
+
+  def withClient(config: JdkWSClientConfig = JdkWSClientConfigFactory.forConfig())(
+      block: StandaloneJdkWSClient => Result
+  ): Result = {
+    val client = StandaloneJdkWSClient(config)
+    try {
+      block(client)
+    } finally {
+      client.close()
+    }
+  }
+
+  def routes(components: BuiltInComponents): PartialFunction[RequestHeader, Handler] = {
+    case p"/index" =>
+      components.defaultActionBuilder { request =>
+        (
+          request match {
+            case GET(_) =>
+              Results.Ok(s"GET: ${request.rawQueryString}")
+            case POST(_) =>
+              Results.Ok(s"POST: ${request.body.asText.getOrElse("")}")
+            case _ =>
+              Results.NotFound
+          }
+        ).withHeaders(request.headers.headers.map(h => (s"Req-${h._1}", h._2)): _*)
+      }
+    case p"/cookie" =>
+      components.defaultActionBuilder {
+        Results.Ok.withCookies(Cookie(name = "flash", value = "redirect-cookie", httpOnly = true))
+      }
+    case p"/redirect" =>
+      components.defaultActionBuilder {
+        Results.Redirect("/index")
+      }
+  }
+
+  "StandaloneJdkWSClient" should {
+
+    "request a url as an in memory string" in {
+      withClient() { client =>
+        val response = Await.result(client.url(s"http://localhost:$testServerPort/index").get(), defaultTimeout)
+        (response.status must_== 200).and(response.body[String] must_== "GET: ")
+      }
+    }
+
+    "send the query string and headers" in {
+      withClient() { client =>
+        val response = Await.result(
+          client
+            .url(s"http://localhost:$testServerPort/index")
+            .addQueryStringParameters("q" -> "a b")
+            .addHttpHeaders("X-Test" -> "value")
+            .get(),
+          defaultTimeout
+        )
+        (response.body[String] must_== "GET: q=a+b").and(response.header("req-x-test") must beSome("value"))
+      }
+    }
+
+    "post a body" in {
+      withClient() { client =>
+        val response = Await.result(client.url(s"http://localhost:$testServerPort/index").post("hello"), defaultTimeout)
+        response.body[String] must_== "POST: hello"
+      }
+    }
+
+    "request a url as a stream" in {
+      withClient() { client =>
+        val source = Await.result(
+          client.url(s"http://localhost:$testServerPort/index").stream().map(_.bodyAsSource),
+          defaultTimeout
+        )
+        Await.result(source.runWith(Sink.fold("")(_ + _.utf8String)), defaultTimeout) must_== "GET: "
+      }
+    }
+
+    "parse the cookies of the response" in {
+      withClient() { client =>
+        val response = Await.result(client.url(s"http://localhost:$testServerPort/cookie").get(), defaultTimeout)
+        response.cookie("flash").map(cookie => (cookie.value, cookie.httpOnly)) must beSome(("redirect-cookie", true))
+      }
+    }
+
+    "follow redirects when configured to" in {
+      withClient() { client =>
+        val response = Await.result(client.url(s"http://localhost:$testServerPort/redirect").get(), defaultTimeout)
+        response.body[String] must_== "GET: "
+      }
+    }
+
+    "not follow redirects when configured not to" in {
+      val config = JdkWSClientConfigFactory.forClientConfig(WSClientConfig(followRedirects = false))
+      withClient(config) { client =>
+        val response = Await.result(client.url(s"http://localhost:$testServerPort/redirect").get(), defaultTimeout)
+        response.status must_== 303
+      }
+    }
+
+    "follow redirects per request" in {
+      val config = JdkWSClientConfigFactory.forClientConfig(WSClientConfig(followRedirects = false))
+      withClient(config) { client =>
+        val url        = s"http://localhost:$testServerPort/redirect"
+        val followed   = Await.result(client.url(url).withFollowRedirects(true).get(), defaultTimeout)
+        val unfollowed = Await.result(client.url(url).get(), defaultTimeout)
+        (followed.body[String] must_== "GET: ").and(unfollowed.status must_== 303)
+      }
+    }
+
+    "fall back to HTTP/1.1 when the server does not support HTTP/2" in {
+      withClient() { client =>
+        val response = Await.result(client.url(s"http://localhost:$testServerPort/index").get(), defaultTimeout)
+        response.underlying[java.net.http.HttpResponse[?]].version must_== java.net.http.HttpClient.Version.HTTP_1_1
+      }
+    }
+  }
+}
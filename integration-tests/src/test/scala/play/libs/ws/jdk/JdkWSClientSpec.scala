@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.libs.ws.jdk
+
+import org.apache.pekko.stream.javadsl.Sink
+import org.apache.pekko.util.ByteString
+import org.specs2.concurrent.ExecutionEnv
+import org.specs2.execute.Result
+import org.specs2.matcher.FutureMatchers
+import org.specs2.mutable.Specification
+import play.NettyServerProvider
+import play.api.BuiltInComponents
+import play.api.libs.ws.WSClientConfig
+import play.api.libs.ws.jdk.JdkWSClientConfig
+import play.api.libs.ws.jdk.JdkWSClientConfigFactory
+import play.api.mvc.AnyContentAsText
+import play.api.mvc.Results
+import play.api.routing.sird._
+import play.libs.ws._
+
+import scala.jdk.FutureConverters._
+import scala.concurrent.duration._
+
+class JdkWSClientSpec(implicit val executionEnv: ExecutionEnv)
+    extends Specification
+    with NettyServerProvider
+    with FutureMatchers {
+
+  def withClient(config: JdkWSClientConfig = JdkWSClientConfigFactory.forConfig())(
+      block: StandaloneJdkWSClient => Result
+  ): Result = {
+    val client = StandaloneJdkWSClient.create(config, materializer)
+    try {
+      block(client)
+    } finally {
+      client.close()
+    }
+  }
+
+  override def routes(components: BuiltInComponents) = {
+    case GET(p"/redirect") =>
+      components.defaultActionBuilder(Results.Redirect("/"))
+    case GET(_) =>
+      components.defaultActionBuilder { request =>
+        Results.Ok(s"GET: ${request.rawQueryString}")
+      }
+    case POST(_) =>
+      components.defaultActionBuilder { request =>
+        request.body match {
+          case AnyContentAsText(text) => Results.Ok(s"POST: $text")
+          case _                      => Results.NotFound
+        }
+      }
+  }
+
+  "play.libs.ws.jdk.StandaloneJdkWSClient" should {
+
+    "send the query string of the URL with the other parameters" in withClient() { client =>
+      client
+        .url(s"http://localhost:$testServerPort/?a=1")
+        .addQueryParameter("b", "2")
+        .get()
+        .asScala
+        .map(response => response.getBody() must_== "GET: a=1&b=2")
+        .await(retries = 0, timeout = 5.seconds)
+    }
+
+    "post a body" in withClient() { client =>
+      client
+        .url(s"http://localhost:$testServerPort")
+        .post(new InMemoryBodyWritable(ByteString.fromString("hello"), "text/plain"))
+        .asScala
+        .map(response => response.getBody() must_== "POST: hello")
+        .await(retries = 0, timeout = 5.seconds)
+    }
+
+    "stream the body" in withClient() { client =>
+      client
+        .url(s"http://localhost:$testServerPort")
+        .stream()
+        .asScala
+        .flatMap(response => response.getBodyAsSource.runWith(Sink.head[ByteString](), materializer).asScala)
+        .map(body => body.utf8String must_== "GET: ")
+        .await(retries = 0, timeout = 5.seconds)
+    }
+
+    "follow redirects per request" in {
+      withClient(JdkWSClientConfigFactory.forClientConfig(WSClientConfig(followRedirects = false))) { client =>
+        client
+          .url(s"http://localhost:$testServerPort/redirect")
+          .setFollowRedirects(true)
+          .get()
+          .asScala
+          .map(response => response.getStatus must_== 200)
+          .await(retries = 0, timeout = 5.seconds)
+      }
+    }
+  }
+}
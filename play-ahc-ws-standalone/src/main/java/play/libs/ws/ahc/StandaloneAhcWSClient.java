@@ -5,10 +5,12 @@
 package play.libs.ws.ahc;
 
 import org.apache.pekko.Done;
+import org.apache.pekko.actor.Cancellable;
 import org.apache.pekko.stream.Materializer;
 import org.apache.pekko.stream.javadsl.Source;
 import org.apache.pekko.util.ByteString;
 import org.apache.pekko.util.ByteStringBuilder;
+import com.typesafe.config.Config;
 import com.typesafe.sslconfig.ssl.SystemConfiguration;
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
@@ -16,9 +18,20 @@ import org.reactivestreams.Subscription;
 import org.slf4j.LoggerFactory;
 import play.api.libs.ws.ahc.*;
 import play.api.libs.ws.ahc.cache.AhcHttpCache;
+import play.api.libs.ws.ahc.cache.AhcHttpCacheConfig;
+import play.api.libs.ws.ahc.cache.AhcHttpCacheConfigFactory;
 import play.api.libs.ws.ahc.cache.CachingAsyncHttpClient;
+import play.api.libs.ws.ahc.metrics.ConnectionPoolMetrics;
+import play.api.libs.ws.ahc.metrics.ConnectionPoolMetricsConfig;
+import play.api.libs.ws.ahc.metrics.ConnectionPoolMetricsConfigFactory;
+import play.api.libs.ws.ahc.metrics.ConnectionPoolReporter;
+import play.api.libs.ws.ahc.metrics.ConnectionPoolReporter$;
+import play.api.libs.ws.ahc.metrics.ConnectionPoolSnapshot;
+import play.api.libs.ws.ahc.metrics.RequestTimingListener;
+import play.api.libs.ws.ahc.metrics.RequestTimings;
 import play.libs.ws.StandaloneWSClient;
 import play.libs.ws.StandaloneWSResponse;
+import play.libs.ws.WSRequestFilter;
 import play.shaded.ahc.org.asynchttpclient.AsyncCompletionHandler;
 import play.shaded.ahc.org.asynchttpclient.AsyncHttpClient;
 import play.shaded.ahc.org.asynchttpclient.DefaultAsyncHttpClient;
@@ -26,14 +39,22 @@ import play.shaded.ahc.org.asynchttpclient.DefaultAsyncHttpClientConfig;
 import play.shaded.ahc.org.asynchttpclient.Request;
 import play.shaded.ahc.org.asynchttpclient.Response;
 import play.shaded.ahc.org.asynchttpclient.*;
+import scala.jdk.javaapi.CollectionConverters;
 import scala.jdk.javaapi.FutureConverters;
 import scala.concurrent.ExecutionContext;
 import scala.concurrent.Future;
 import scala.concurrent.Promise;
+import scala.concurrent.duration.FiniteDuration;
 
 import jakarta.inject.Inject;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Function;
 
@@ -44,6 +65,8 @@ public class StandaloneAhcWSClient implements StandaloneWSClient {
 
     private final AsyncHttpClient asyncHttpClient;
     private final Materializer materializer;
+    private final ConcurrentLinkedQueue<Cancellable> poolReports = new ConcurrentLinkedQueue<>();
+    private final CopyOnWriteArrayList<RequestTimingListener> timingListeners = new CopyOnWriteArrayList<>();
 
     /**
      * Creates a new client.
@@ -69,24 +92,80 @@ public class StandaloneAhcWSClient implements StandaloneWSClient {
 
     @Override
     public void close() throws IOException {
+        poolReports.forEach(Cancellable::cancel);
         asyncHttpClient.close();
     }
 
-    CompletionStage<StandaloneWSResponse> execute(Request request) {
+    /**
+     * Registers a listener that receives the timing breakdown of every request executed from now on.
+     *
+     * @param listener the listener to register
+     */
+    public void addRequestTimingListener(RequestTimingListener listener) {
+        timingListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener registered with {@link #addRequestTimingListener(RequestTimingListener)}.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeRequestTimingListener(RequestTimingListener listener) {
+        timingListeners.remove(listener);
+    }
+
+    /**
+     * Returns the current state of the connection pool, per host. Lease wait times, connection opens and closes and
+     * TLS handshake times are only included when {@code play.ws.ahc.poolMetrics.enabled} is set.
+     *
+     * @return a snapshot of the connection pool
+     */
+    public ConnectionPoolSnapshot getConnectionPoolSnapshot() {
+        return ConnectionPoolMetrics.snapshot(asyncHttpClient);
+    }
+
+    /**
+     * Sends a snapshot of the connection pool to the reporter at the given interval, until the returned
+     * {@code Cancellable} is cancelled or this client is closed. An {@code AutoCloseable} reporter is closed when the
+     * reports stop.
+     *
+     * @param reporter the reporter to send the snapshots to
+     * @param interval the interval between two reports
+     * @return a handle to stop reporting
+     */
+    public Cancellable reportConnectionPool(ConnectionPoolReporter reporter, Duration interval) {
+        Cancellable reports = materializer.scheduleAtFixedRate(interval, interval, () -> {
+            try {
+                reporter.report(getConnectionPoolSnapshot());
+            } catch (RuntimeException e) {
+                LoggerFactory.getLogger(StandaloneAhcWSClient.class).warn("Failed to report the connection pool", e);
+            }
+        });
+        Cancellable cancellable = ConnectionPoolReporter$.MODULE$.scheduled(reports, reporter);
+        poolReports.add(cancellable);
+        return cancellable;
+    }
+
+    CompletionStage<StandaloneWSResponse> execute(Request request, List<WSRequestFilter> filters) {
         final Promise<StandaloneWSResponse> scalaPromise = scala.concurrent.Promise$.MODULE$.apply();
 
         AsyncCompletionHandler<Response> handler = new ResponseAsyncCompletionHandler(scalaPromise);
 
+        ListenableFuture<Response> listenable = null;
         try {
-            asyncHttpClient.executeRequest(request, handler);
+            listenable = asyncHttpClient.executeRequest(
+                request, RequestTimings.instrument(request, handler, timingListeners(filters))
+            );
         } catch (RuntimeException exception) {
             scalaPromise.failure(exception);
         }
         Future<StandaloneWSResponse> future = scalaPromise.future();
-        return FutureConverters.asJava(future);
+        return listenable == null ? FutureConverters.asJava(future) : cancellable(future, listenable);
     }
 
-    CompletionStage<StandaloneWSResponse> executeStream(Request request, ExecutionContext ec) {
+    CompletionStage<StandaloneWSResponse> executeStream(
+        Request request, List<WSRequestFilter> filters, ExecutionContext ec
+    ) {
         final Promise<StandaloneWSResponse> streamStarted = scala.concurrent.Promise$.MODULE$.apply();
         final Promise<Done> streamCompletion = scala.concurrent.Promise$.MODULE$.apply();
 
@@ -135,11 +214,38 @@ public class StandaloneAhcWSClient implements StandaloneWSClient {
                 asyncHttpClient.getConfig().isUseLaxCookieEncoder());
         };
 
-        asyncHttpClient.executeRequest(request, new DefaultStreamedAsyncHandler<>(f,
+        DefaultStreamedAsyncHandler<StandaloneWSResponse> handler = new DefaultStreamedAsyncHandler<>(f,
             streamStarted,
             streamCompletion
-        ));
-        return FutureConverters.asJava(streamStarted.future());
+        );
+        ListenableFuture<?> listenable = asyncHttpClient.executeRequest(
+            request, RequestTimings.instrument(request, handler, timingListeners(filters))
+        );
+        return cancellable(streamStarted.future(), listenable);
+    }
+
+    // The filters of the request that are timing listeners receive the timing of the request too.
+    private Collection<RequestTimingListener> timingListeners(List<WSRequestFilter> filters) {
+        return RequestTimings.listeners(timingListeners, CollectionConverters.asScala(filters));
+    }
+
+    /**
+     * Completes with the future, and aborts the request when cancelled. Only the returned stage can cancel the request,
+     * stages derived from it cannot.
+     */
+    private static <T> CompletionStage<T> cancellable(Future<T> future, ListenableFuture<?> request) {
+        CompletableFuture<T> result = new CompletableFuture<T>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                request.cancel(true);
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        FutureConverters.asJava(future).whenComplete((value, t) -> {
+            if (t != null) result.completeExceptionally(t);
+            else result.complete(value);
+        });
+        return result;
     }
 
     /**
@@ -158,6 +264,26 @@ public class StandaloneAhcWSClient implements StandaloneWSClient {
         );
     }
 
+    /**
+     * A convenience method for creating a StandaloneAhcWSClient from configuration, including the
+     * {@code play.ws.cache} settings of the built-in HTTP cache and the {@code play.ws.ahc.poolMetrics} settings of
+     * the connection pool metrics.
+     *
+     * @param ahcWSClientConfig the configuration object
+     * @param cache             if not null, will be used for HTTP response caching. Otherwise the built-in in-memory
+     *                          cache is used if {@code play.ws.cache.enabled} is set in the configuration.
+     * @param configuration     the configuration the settings were read from
+     * @param materializer      an pekko materializer
+     * @return a fully configured StandaloneAhcWSClient instance.
+     */
+    public static StandaloneAhcWSClient create(AhcWSClientConfig ahcWSClientConfig, AhcHttpCache cache, Config configuration, Materializer materializer) {
+        if (cache == null) {
+            AhcHttpCacheConfig cacheConfig = AhcHttpCacheConfigFactory.forConfig(configuration);
+            cache = AhcHttpCacheConfigFactory.createCache(cacheConfig, materializer.executionContext());
+        }
+        return create(ahcWSClientConfig, cache, ConnectionPoolMetricsConfigFactory.forConfig(configuration), materializer);
+    }
+
     /**
      * A convenience method for creating a StandaloneAhcWSClient from configuration.
      *
@@ -167,11 +293,24 @@ public class StandaloneAhcWSClient implements StandaloneWSClient {
      * @return a fully configured StandaloneAhcWSClient instance.
      */
     public static StandaloneAhcWSClient create(AhcWSClientConfig ahcWSClientConfig, AhcHttpCache cache, Materializer materializer) {
+        return create(ahcWSClientConfig, cache, new ConnectionPoolMetricsConfig(false, scala.concurrent.duration.Duration.Inf()), materializer);
+    }
+
+    /**
+     * A convenience method for creating a StandaloneAhcWSClient from configuration.
+     *
+     * @param ahcWSClientConfig the configuration object
+     * @param cache             if not null, will be used for HTTP response caching.
+     * @param poolMetricsConfig the settings of the connection pool metrics
+     * @param materializer      an pekko materializer
+     * @return a fully configured StandaloneAhcWSClient instance.
+     */
+    public static StandaloneAhcWSClient create(AhcWSClientConfig ahcWSClientConfig, AhcHttpCache cache, ConnectionPoolMetricsConfig poolMetricsConfig, Materializer materializer) {
         AhcLoggerFactory loggerFactory = new AhcLoggerFactory(LoggerFactory.getILoggerFactory());
 
         // Configure the AsyncHttpClientConfig.Builder from the application.conf file...
         final AhcConfigBuilder builder = new AhcConfigBuilder(ahcWSClientConfig);
-        final DefaultAsyncHttpClientConfig.Builder ahcBuilder = builder.configure();
+        final DefaultAsyncHttpClientConfig.Builder ahcBuilder = ConnectionPoolMetrics.configure(poolMetricsConfig, builder.configure());
 
         // Set up SSL configuration settings that are global..
         new SystemConfiguration(loggerFactory).configure(ahcWSClientConfig.wsClientConfig().ssl());
@@ -186,7 +325,21 @@ public class StandaloneAhcWSClient implements StandaloneWSClient {
         } else {
             ahcClient = defaultAsyncHttpClient;
         }
-        return new StandaloneAhcWSClient(ahcClient, materializer);
+        StandaloneAhcWSClient client = new StandaloneAhcWSClient(ahcClient, materializer);
+        if (poolMetricsConfig.reportInterval() instanceof FiniteDuration) {
+            FiniteDuration interval = (FiniteDuration) poolMetricsConfig.reportInterval();
+            client.reportConnectionPool(
+                ConnectionPoolMetricsConfigFactory.createReporter(poolMetricsConfig),
+                Duration.ofNanos(interval.toNanos())
+            );
+        }
+        return client;
+    }
+
+    CompletionStage<ByteString> accumulateBody(Source<ByteString, ?> bodyAsSource, long expectedLength, long maxLength) {
+        return FutureConverters.asJava(
+            AhcWSUtils.accumulateBody(bodyAsSource.asScala(), expectedLength, maxLength, materializer)
+        );
     }
 
     ByteString blockingToByteString(Source<ByteString, ?> bodyAsSource) {
@@ -40,6 +40,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletionStage;
@@ -60,9 +61,13 @@ public class StandaloneAhcWSRequest implements StandaloneWSRequest {
 
     private String url;
     private String method = "GET";
-    private final Map<String, List<String>> headers = new HashMap<>();
+    private final Map<String, List<String>> headers = new LinkedHashMap<>();
     private final Map<String, List<String>> queryParameters = new LinkedHashMap<>();
 
+    // Lower-cased name -> name as stored in the map above, so adding a value does not scan every key.
+    private final Map<String, String> headerNames = new HashMap<>();
+    private final Map<String, String> queryParameterNames = new HashMap<>();
+
     private final List<WSCookie> cookies = new ArrayList<>();
 
     private WSAuthInfo auth;
@@ -78,6 +83,9 @@ public class StandaloneAhcWSRequest implements StandaloneWSRequest {
 
     private final List<WSRequestFilter> filters = new ArrayList<>();
 
+    // The AHC request compiled from the current state, reset by every mutator.
+    private Request compiledRequest = null;
+
     public StandaloneAhcWSRequest(StandaloneAhcWSClient client, String url, Materializer materializer) {
         this.client = client;
         try {
@@ -111,7 +119,8 @@ public class StandaloneAhcWSRequest implements StandaloneWSRequest {
 
     @Override
     public StandaloneAhcWSRequest addHeader(String name, String value) {
-        addValueTo(headers, name, value);
+        addValueTo(headers, headerNames, name, value);
+        invalidate();
         return this;
     }
 
@@ -119,6 +128,8 @@ public class StandaloneAhcWSRequest implements StandaloneWSRequest {
     public StandaloneAhcWSRequest setHeaders(Map<String, List<String>> headers) {
         this.headers.clear();
         this.headers.putAll(headers);
+        indexNames(this.headers, this.headerNames);
+        invalidate();
         return this;
     }
 
@@ -142,7 +153,8 @@ public class StandaloneAhcWSRequest implements StandaloneWSRequest {
 
     @Override
     public StandaloneAhcWSRequest addQueryParameter(String name, String value) {
-        addValueTo(queryParameters, name, value);
+        addValueTo(queryParameters, queryParameterNames, name, value);
+        invalidate();
         return this;
     }
 
@@ -150,6 +162,8 @@ public class StandaloneAhcWSRequest implements StandaloneWSRequest {
     public StandaloneAhcWSRequest setQueryString(Map<String, List<String>> params) {
         this.queryParameters.clear();
         this.queryParameters.putAll(params);
+        indexNames(this.queryParameters, this.queryParameterNames);
+        invalidate();
         return this;
     }
 
@@ -160,6 +174,7 @@ public class StandaloneAhcWSRequest implements StandaloneWSRequest {
         }
 
         this.cookies.add(cookie);
+        invalidate();
         return this;
     }
 
@@ -173,6 +188,7 @@ public class StandaloneAhcWSRequest implements StandaloneWSRequest {
     public StandaloneAhcWSRequest setCookies(List<WSCookie> cookies) {
         this.cookies.clear();
         cookies.forEach(this::addCookie);
+        invalidate();
         return this;
     }
 
@@ -196,36 +212,42 @@ public class StandaloneAhcWSRequest implements StandaloneWSRequest {
             );
         }
 
+        invalidate();
         return this;
     }
 
     @Override
     public StandaloneAhcWSRequest setAuth(WSAuthInfo auth) {
         this.auth = auth;
+        invalidate();
         return this;
     }
 
     @Override
     public StandaloneAhcWSRequest sign(WSSignatureCalculator calculator) {
         this.calculator = calculator;
+        invalidate();
         return this;
     }
 
     @Override
     public StandaloneAhcWSRequest setFollowRedirects(boolean followRedirects) {
         this.followRedirects = followRedirects;
+        invalidate();
         return this;
     }
 
     @Override
     public StandaloneAhcWSRequest setDisableUrlEncoding(boolean disableUrlEncoding) {
         this.disableUrlEncoding = disableUrlEncoding;
+        invalidate();
         return this;
     }
 
     @Override
     public StandaloneAhcWSRequest setVirtualHost(String virtualHost) {
         this.virtualHost = virtualHost;
+        invalidate();
         return this;
     }
 
@@ -235,6 +257,7 @@ public class StandaloneAhcWSRequest implements StandaloneWSRequest {
             throw new IllegalArgumentException("Timeout must not be null.");
         }
         this.timeout = timeout;
+        invalidate();
         return this;
     }
 
@@ -251,12 +274,14 @@ public class StandaloneAhcWSRequest implements StandaloneWSRequest {
     @Override
     public StandaloneAhcWSRequest setUrl(String url) {
         this.url = url;
+        invalidate();
         return this;
     }
 
     @Override
     public StandaloneAhcWSRequest setMethod(String method) {
         this.method = method;
+        invalidate();
         return this;
     }
 
@@ -272,10 +297,11 @@ public class StandaloneAhcWSRequest implements StandaloneWSRequest {
         this.bodyWritable = bodyWritable;
 
         String contentType = bodyWritable.contentType();
-        if (contentType != null && headers.keySet().stream().noneMatch(s -> s.equalsIgnoreCase(CONTENT_TYPE.toString()))) {
+        if (contentType != null && !headerNames.containsKey(CONTENT_TYPE.toString())) {
             addHeader(HttpHeaderNames.CONTENT_TYPE.toString(), bodyWritable.contentType());
         }
 
+        invalidate();
         return this;
     }
 
@@ -301,12 +327,12 @@ public class StandaloneAhcWSRequest implements StandaloneWSRequest {
 
     @Override
     public Map<String, List<String>> getHeaders() {
-        return new HashMap<>(this.headers);
+        return new LinkedHashMap<>(this.headers);
     }
 
     @Override
     public List<String> getHeaderValues(String name) {
-        return getHeaders().getOrDefault(name, Collections.emptyList());
+        return this.headers.getOrDefault(name, Collections.emptyList());
     }
 
     @Override
@@ -393,8 +419,8 @@ public class StandaloneAhcWSRequest implements StandaloneWSRequest {
     public CompletionStage<? extends StandaloneWSResponse> execute() {
         WSRequestExecutor executor = foldRight(r -> {
             StandaloneAhcWSRequest ahcWsRequest = (StandaloneAhcWSRequest) r;
-            Request ahcRequest = ahcWsRequest.buildRequest();
-            return client.execute(ahcRequest);
+            Request ahcRequest = ahcWsRequest.requestForExecution();
+            return client.execute(ahcRequest, ahcWsRequest.filters);
         }, filters.iterator());
         return executor.apply(this);
     }
@@ -403,8 +429,8 @@ public class StandaloneAhcWSRequest implements StandaloneWSRequest {
     public CompletionStage<? extends StandaloneWSResponse> stream() {
         WSRequestExecutor executor = foldRight(r -> {
             StandaloneAhcWSRequest ahcWsRequest = (StandaloneAhcWSRequest) r;
-            Request ahcRequest = ahcWsRequest.buildRequest();
-            return client.executeStream(ahcRequest, materializer.executionContext());
+            Request ahcRequest = ahcWsRequest.requestForExecution();
+            return client.executeStream(ahcRequest, ahcWsRequest.filters, materializer.executionContext());
         }, filters.iterator());
         return executor.apply(this);
     }
@@ -418,6 +444,32 @@ public class StandaloneAhcWSRequest implements StandaloneWSRequest {
         return foldRight(next.apply(executor), iterator);
     }
 
+    private void invalidate() {
+        this.compiledRequest = null;
+    }
+
+    /**
+     * A compiled request can only be sent more than once if building it has no side effects: a
+     * streamed body is materialized on every build, and signature calculators add a fresh nonce
+     * and timestamp each time.
+     */
+    private boolean isReusable() {
+        return this.calculator == null && !(this.bodyWritable instanceof SourceBodyWritable);
+    }
+
+    // Intentionally package public.
+    Request requestForExecution() {
+        if (!isReusable()) {
+            return buildRequest();
+        }
+        Request request = this.compiledRequest;
+        if (request == null) {
+            request = buildRequest();
+            this.compiledRequest = request;
+        }
+        return request;
+    }
+
     Request buildRequest() {
         final boolean validate = true;
         final HttpHeaders possiblyModifiedHeaders = new DefaultHttpHeaders(validate);
@@ -530,26 +582,29 @@ public class StandaloneAhcWSRequest implements StandaloneWSRequest {
         return builder.build();
     }
 
-    private static void addValueTo(Map<String, List<String>> map, String name, String value) {
-        final Optional<String> existing = map.keySet().stream().filter(s -> s.equalsIgnoreCase(name)).findAny();
-        if (existing.isPresent()) {
-            existing.ifPresent(n -> {
-                final List<String> oldValues = map.get(n);
-                final List<String> newValues;
-                if (oldValues == null) { // yep!  that's right...
-                    newValues = Collections.singletonList(value);
-                } else {
-                    newValues = new ArrayList<>(oldValues.size() + 1);
-                    newValues.addAll(oldValues);
-                    newValues.add(value);
-                }
-                map.put(n, newValues);
-            });
+    private static void addValueTo(Map<String, List<String>> map, Map<String, String> names, String name, String value) {
+        final String existing = names.putIfAbsent(name.toLowerCase(Locale.ROOT), name);
+        if (existing != null) {
+            final List<String> oldValues = map.get(existing);
+            final List<String> newValues;
+            if (oldValues == null) { // yep!  that's right...
+                newValues = Collections.singletonList(value);
+            } else {
+                newValues = new ArrayList<>(oldValues.size() + 1);
+                newValues.addAll(oldValues);
+                newValues.add(value);
+            }
+            map.put(existing, newValues);
         } else {
             map.put(name, Collections.singletonList(value));
         }
     }
 
+    private static void indexNames(Map<String, List<String>> map, Map<String, String> names) {
+        names.clear();
+        map.keySet().forEach(name -> names.put(name.toLowerCase(Locale.ROOT), name));
+    }
+
     static Realm auth(String username, String password, WSAuthScheme scheme) {
         Realm.AuthScheme authScheme = Realm.AuthScheme.valueOf(scheme.name());
         Boolean usePreemptiveAuth = scheme != WSAuthScheme.DIGEST;
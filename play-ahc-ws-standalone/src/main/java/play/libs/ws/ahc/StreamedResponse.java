@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.TreeMap;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Predicate;
 
 import static java.util.stream.Collectors.toMap;
@@ -29,6 +30,11 @@ import scala.jdk.javaapi.CollectionConverters;
 
 public class StreamedResponse implements StandaloneWSResponse, CookieBuilder {
 
+    /**
+     * The default maximum number of bytes accumulated by {@link #getBodyAsBytesAsync()}.
+     */
+    public static final long DEFAULT_MAX_LENGTH = 10L * 1024 * 1024;
+
     private final int status;
     private final Map<String, List<String>> headers;
     private final String statusText;
@@ -98,19 +104,58 @@ public class StreamedResponse implements StandaloneWSResponse, CookieBuilder {
         return readable.apply(this);
     }
 
+    /**
+     * THIS IS A BLOCKING OPERATION. Use {@link #getBodyAsBytesAsync()} instead.
+     *
+     * @deprecated blocks for at most 50 ms and reads at most 13 chunks, use {@link #getBodyAsBytesAsync()} instead.
+     */
+    @Deprecated
     @Override
     public String getBody() {
         return getBodyAsBytes().decodeString(AhcWSUtils.getCharset(getContentType()));
     }
 
+    /**
+     * THIS IS A BLOCKING OPERATION. Use {@link #getBodyAsBytesAsync()} instead.
+     *
+     * @deprecated blocks for at most 50 ms and reads at most 13 chunks, use {@link #getBodyAsBytesAsync()} instead.
+     */
+    @Deprecated
     @Override
     public ByteString getBodyAsBytes() {
         return client.blockingToByteString(getBodyAsSource());
     }
 
+    /**
+     * Accumulates the body without blocking, into a buffer sized from the Content-Length header when there is one.
+     *
+     * @return the body, or a failed stage if it is larger than {@link #DEFAULT_MAX_LENGTH} bytes.
+     */
+    public CompletionStage<ByteString> getBodyAsBytesAsync() {
+        return getBodyAsBytesAsync(DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * Accumulates the body without blocking, into a buffer sized from the Content-Length header when there is one.
+     *
+     * @param maxLength the maximum number of bytes to accumulate.
+     * @return the body, or a failed stage with a {@code StreamLimitReachedException} if it is larger than maxLength.
+     */
+    public CompletionStage<ByteString> getBodyAsBytesAsync(long maxLength) {
+        return client.accumulateBody(getBodyAsSource(), contentLength(), maxLength);
+    }
+
+    private long contentLength() {
+        try {
+            return getSingleHeader(HttpHeaderNames.CONTENT_LENGTH.toString()).map(v -> Long.parseLong(v.trim())).orElse(-1L);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
     @Override
     public Source<ByteString, ?> getBodyAsSource() {
-        return Source.fromPublisher(publisher).map(bodyPart -> ByteString.fromArray(bodyPart.getBodyPartBytes()));
+        return Source.fromPublisher(publisher).map(AhcWSUtils::toByteString);
     }
 
     public boolean isUseLaxCookieEncoder() {
@@ -4,10 +4,18 @@
 
 package play.api.libs.ws.ahc
 
+import org.apache.pekko.stream.Materializer
+import org.apache.pekko.stream.scaladsl.Source
+import org.apache.pekko.util.ByteString
+import play.api.libs.ws.ahc.cache.CacheableHttpResponseBodyPart
+import play.shaded.ahc.org.asynchttpclient.HttpResponseBodyPart
+import play.shaded.ahc.org.asynchttpclient.netty.EagerResponseBodyPart
 import play.shaded.ahc.org.asynchttpclient.util.HttpUtils
 import java.nio.charset.Charset
 import java.nio.charset.StandardCharsets
 
+import scala.concurrent.Future
+
 /**
  * INTERNAL API: Utilities for handling the response for both Java and Scala APIs
  */
@@ -18,6 +26,75 @@ private[ws] object AhcWSUtils {
     ahcResponse.getResponseBody(charset)
   }
 
+  /**
+   * Returns the bytes of a body part as a ByteString, wrapping rather than copying them where that is safe.
+   *
+   * Eager parts own the array their ByteBuf was copied into when the part was received, and cached parts never
+   * change their array, so both can be wrapped as is. Any other part is copied: lazy parts are backed by a pooled
+   * ByteBuf that is released as soon as the part has been handed over, and nothing is known about other parts.
+   */
+  def toByteString(bodyPart: HttpResponseBodyPart): ByteString = {
+    bodyPart match {
+      case _: EagerResponseBodyPart | _: CacheableHttpResponseBodyPart =>
+        ByteString.fromArrayUnsafe(bodyPart.getBodyPartBytes)
+      case other =>
+        ByteString.fromArray(other.getBodyPartBytes)
+    }
+  }
+
+  /**
+   * Accumulates a streamed body without blocking.
+   *
+   * If the expected length is known and within the maximum, the bytes are copied into a single array of that size.
+   * The stream is backpressured as usual, and fails with a `StreamLimitReachedException` once more than `maxLength`
+   * bytes have been received.
+   *
+   * @param expectedLength the Content-Length of the response, or -1 if it is unknown.
+   * @param maxLength the maximum number of bytes to accumulate.
+   */
+  def accumulateBody(
+      source: Source[ByteString, ?],
+      expectedLength: Long,
+      maxLength: Long,
+      materializer: Materializer
+  ): Future[ByteString] = {
+    val presized    = expectedLength > 0 && expectedLength <= math.min(maxLength, Int.MaxValue.toLong)
+    val initialSize = if (presized) expectedLength.toInt else 0
+    source
+      .limitWeighted(maxLength)(_.length.toLong)
+      .runFold(new BodyAccumulator(initialSize))(_.append(_))(materializer)
+      .map(_.result())(materializer.executionContext)
+  }
+
+  /**
+   * Copies chunks into an array of the expected size, falling back to a builder if the body turns out to be larger.
+   */
+  private final class BodyAccumulator(expectedLength: Int) {
+    private var array    = if (expectedLength > 0) new Array[Byte](expectedLength) else null
+    private var position = 0
+    private val builder  = ByteString.newBuilder
+
+    def append(chunk: ByteString): BodyAccumulator = {
+      if (array != null && position + chunk.length <= array.length) {
+        chunk.copyToArray(array, position)
+        position += chunk.length
+      } else {
+        if (array != null) {
+          builder.putBytes(array, 0, position)
+          array = null
+        }
+        builder.append(chunk)
+      }
+      this
+    }
+
+    def result(): ByteString = {
+      if (array == null) builder.result()
+      else if (position == array.length) ByteString.fromArrayUnsafe(array)
+      else ByteString.fromArrayUnsafe(array, 0, position)
+    }
+  }
+
   def getCharset(contentType: String): Charset = {
     Option(HttpUtils.extractContentTypeCharsetAttribute(contentType)).getOrElse {
       if (contentType.startsWith("text/"))
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc
+
+import java.net.InetSocketAddress
+import java.util.{ List => JList }
+import javax.net.ssl.SSLSession
+
+import play.shaded.ahc.io.netty.channel.Channel
+import play.shaded.ahc.org.asynchttpclient.AsyncHandler
+import play.shaded.ahc.org.asynchttpclient.netty.request.NettyRequest
+
+/**
+ * Forwards the connection events of a request to the handler being wrapped, so that handlers further down the
+ * chain see them too.
+ */
+private[ahc] trait ForwardingConnectionEvents[T] extends AsyncHandler[T] {
+
+  protected def eventTarget: AsyncHandler[?]
+
+  override def onHostnameResolutionAttempt(name: String): Unit = eventTarget.onHostnameResolutionAttempt(name)
+
+  override def onHostnameResolutionSuccess(name: String, addresses: JList[InetSocketAddress]): Unit =
+    eventTarget.onHostnameResolutionSuccess(name, addresses)
+
+  override def onHostnameResolutionFailure(name: String, cause: Throwable): Unit =
+    eventTarget.onHostnameResolutionFailure(name, cause)
+
+  override def onTcpConnectAttempt(remoteAddress: InetSocketAddress): Unit =
+    eventTarget.onTcpConnectAttempt(remoteAddress)
+
+  override def onTcpConnectSuccess(remoteAddress: InetSocketAddress, connection: Channel): Unit =
+    eventTarget.onTcpConnectSuccess(remoteAddress, connection)
+
+  override def onTcpConnectFailure(remoteAddress: InetSocketAddress, cause: Throwable): Unit =
+    eventTarget.onTcpConnectFailure(remoteAddress, cause)
+
+  override def onTlsHandshakeAttempt(): Unit = eventTarget.onTlsHandshakeAttempt()
+
+  override def onTlsHandshakeSuccess(sslSession: SSLSession): Unit = eventTarget.onTlsHandshakeSuccess(sslSession)
+
+  override def onTlsHandshakeFailure(cause: Throwable): Unit = eventTarget.onTlsHandshakeFailure(cause)
+
+  override def onConnectionPoolAttempt(): Unit = eventTarget.onConnectionPoolAttempt()
+
+  override def onConnectionPooled(connection: Channel): Unit = eventTarget.onConnectionPooled(connection)
+
+  override def onConnectionOffer(connection: Channel): Unit = eventTarget.onConnectionOffer(connection)
+
+  override def onRequestSend(request: NettyRequest): Unit = eventTarget.onRequestSend(request)
+
+  override def onRetry(): Unit = eventTarget.onRetry()
+}
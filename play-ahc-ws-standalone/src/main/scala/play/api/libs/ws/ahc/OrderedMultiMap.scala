@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc
+
+import java.util.Locale
+
+import scala.collection.immutable.AbstractMap
+import scala.collection.immutable.VectorMap
+
+/**
+ * An immutable multimap used for request headers and query string parameters.
+ *
+ * Keys are folded once when they are inserted (lower cased if the map is case insensitive), so lookups are
+ * plain hash lookups instead of comparator walks. The name a key was first added with is kept for iteration,
+ * and keys iterate in insertion order. Adding a value is effectively constant time and shares structure with
+ * the map it was added to.
+ */
+private[ahc] final class OrderedMultiMap private (
+    private val entries: VectorMap[String, (String, Vector[String])],
+    private val caseInsensitive: Boolean
+) extends AbstractMap[String, Seq[String]] {
+
+  private def fold(name: String): String = if (caseInsensitive) name.toLowerCase(Locale.ROOT) else name
+
+  private def withEntries(newEntries: VectorMap[String, (String, Vector[String])]): OrderedMultiMap =
+    new OrderedMultiMap(newEntries, caseInsensitive)
+
+  /**
+   * Adds a value after the existing values of the given name.
+   */
+  def append(name: String, value: String): OrderedMultiMap = {
+    val key = fold(name)
+    entries.get(key) match {
+      case Some((n, values)) => withEntries(entries.updated(key, (n, values :+ value)))
+      case None              => withEntries(entries.updated(key, (name, Vector(value))))
+    }
+  }
+
+  /**
+   * Adds a value before the existing values of the given name.
+   */
+  def prepend(name: String, value: String): OrderedMultiMap = {
+    val key = fold(name)
+    entries.get(key) match {
+      case Some((n, values)) => withEntries(entries.updated(key, (n, value +: values)))
+      case None              => withEntries(entries.updated(key, (name, Vector(value))))
+    }
+  }
+
+  /**
+   * Replaces all values of the given name.
+   */
+  def replace(name: String, values: Seq[String]): OrderedMultiMap = {
+    val key = fold(name)
+    val n   = entries.get(key).fold(name)(_._1)
+    withEntries(entries.updated(key, (n, values.toVector)))
+  }
+
+  override def get(key: String): Option[Seq[String]] = entries.get(fold(key)).map(_._2)
+
+  override def contains(key: String): Boolean = entries.contains(fold(key))
+
+  override def iterator: Iterator[(String, Seq[String])] = entries.valuesIterator
+
+  override def size: Int = entries.size
+
+  override def knownSize: Int = entries.size
+
+  override def isEmpty: Boolean = entries.isEmpty
+
+  override def removed(key: String): OrderedMultiMap = {
+    val k = fold(key)
+    if (entries.contains(k)) withEntries(entries.removed(k)) else this
+  }
+
+  override def updated[V1 >: Seq[String]](key: String, value: V1): Map[String, V1] = {
+    value match {
+      case values: Seq[?] if values.forall(_.isInstanceOf[String]) =>
+        replace(key, values.asInstanceOf[Seq[String]])
+      case _ =>
+        VectorMap.from(iterator).updated(key, value)
+    }
+  }
+}
+
+private[ahc] object OrderedMultiMap {
+
+  /**
+   * An empty map with case insensitive keys, as used for HTTP headers.
+   */
+  val emptyHeaders: OrderedMultiMap = new OrderedMultiMap(VectorMap.empty, caseInsensitive = true)
+
+  /**
+   * An empty map with case sensitive keys, as used for query string parameters.
+   */
+  val emptyQueryString: OrderedMultiMap = new OrderedMultiMap(VectorMap.empty, caseInsensitive = false)
+
+  /**
+   * Returns the given headers as a case insensitive [[OrderedMultiMap]], without copying if they already are one.
+   */
+  def headers(headers: Map[String, Seq[String]]): OrderedMultiMap = from(emptyHeaders, headers)
+
+  /**
+   * Returns the given parameters as a case sensitive [[OrderedMultiMap]], without copying if they already are one.
+   */
+  def queryString(queryString: Map[String, Seq[String]]): OrderedMultiMap = from(emptyQueryString, queryString)
+
+  private def from(empty: OrderedMultiMap, map: Map[String, Seq[String]]): OrderedMultiMap = {
+    map match {
+      case m: OrderedMultiMap if m.caseInsensitive == empty.caseInsensitive => m
+      case _                                                                =>
+        map.foldLeft(empty) { case (m, (name, values)) =>
+          if (values.isEmpty) m.replace(name, Nil)
+          else values.foldLeft(m)((acc, value) => acc.append(name, value))
+        }
+    }
+  }
+}
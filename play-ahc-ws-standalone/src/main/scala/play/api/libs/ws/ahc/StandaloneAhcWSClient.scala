@@ -5,30 +5,51 @@
 package play.api.libs.ws.ahc
 
 import org.apache.pekko.Done
+import org.apache.pekko.NotUsed
+import org.apache.pekko.actor.Cancellable
 import jakarta.inject.Inject
 import org.apache.pekko.stream.Materializer
+import org.apache.pekko.stream.scaladsl.Flow
 import org.apache.pekko.stream.scaladsl.Source
 import org.apache.pekko.util.ByteString
+import com.typesafe.config.Config
 import com.typesafe.sslconfig.ssl.SystemConfiguration
 import org.reactivestreams.Publisher
 import org.reactivestreams.Subscriber
 import org.reactivestreams.Subscription
 import play.api.libs.ws.ahc.cache._
+import play.api.libs.ws.ahc.metrics.ConnectionPoolMetrics
+import play.api.libs.ws.ahc.metrics.ConnectionPoolMetricsConfig
+import play.api.libs.ws.ahc.metrics.ConnectionPoolMetricsConfigFactory
+import play.api.libs.ws.ahc.metrics.ConnectionPoolReporter
+import play.api.libs.ws.ahc.metrics.ConnectionPoolSnapshot
+import play.api.libs.ws.ahc.metrics.RequestTimingListener
+import play.api.libs.ws.ahc.metrics.RequestTimings
+import play.api.libs.ws.BulkExecution
+import play.api.libs.ws.CancellableFuture
 import play.api.libs.ws.EmptyBody
 import play.api.libs.ws.StandaloneWSClient
 import play.api.libs.ws.StandaloneWSRequest
+import play.api.libs.ws.StandaloneWSResponse
+import play.api.libs.ws.WSRequestFilter
 import play.shaded.ahc.org.asynchttpclient.uri.Uri
 import play.shaded.ahc.org.asynchttpclient.{ Response => AHCResponse }
 import play.shaded.ahc.org.asynchttpclient._
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CopyOnWriteArrayList
 import java.util.function.{ Function => JFunction }
 
-import scala.collection.immutable.TreeMap
+import scala.jdk.CollectionConverters._
 import scala.jdk.FunctionConverters._
 import scala.concurrent.Await
+import scala.concurrent.ExecutionContext
 import scala.concurrent.Future
 import scala.concurrent.Promise
+import scala.concurrent.duration.FiniteDuration
 import scala.util.Failure
 import scala.util.Success
+import scala.util.Try
+import scala.util.control.NonFatal
 
 /**
  * A WS client backed by an AsyncHttpClient.
@@ -44,13 +65,48 @@ class StandaloneAhcWSClient @Inject() (asyncHttpClient: AsyncHttpClient)(implici
     materializer: Materializer
 ) extends StandaloneWSClient {
 
+  private val poolReports     = new ConcurrentLinkedQueue[Cancellable]()
+  private val timingListeners = new CopyOnWriteArrayList[RequestTimingListener]()
+
   /** Returns instance of AsyncHttpClient */
   def underlying[T]: T = asyncHttpClient.asInstanceOf[T]
 
   def close(): Unit = {
+    poolReports.forEach(_.cancel())
     asyncHttpClient.close()
   }
 
+  /**
+   * Returns the current state of the connection pool, per host. Lease wait times, connection opens and closes and
+   * TLS handshake times are only included when `play.ws.ahc.poolMetrics.enabled` is set in the configuration the
+   * client was created with.
+   */
+  def connectionPoolSnapshot: ConnectionPoolSnapshot = ConnectionPoolMetrics.snapshot(asyncHttpClient)
+
+  /**
+   * Sends a snapshot of the connection pool to the reporter at the given interval, until the returned
+   * `Cancellable` is cancelled or this client is closed. An `AutoCloseable` reporter is closed when the reports stop.
+   */
+  def reportConnectionPool(reporter: ConnectionPoolReporter, interval: FiniteDuration): Cancellable = {
+    val report: Runnable = () =>
+      try {
+        reporter.report(connectionPoolSnapshot)
+      } catch {
+        case NonFatal(e) => StandaloneAhcWSClient.logger.warn("Failed to report the connection pool", e)
+      }
+    val reports     = materializer.scheduleAtFixedRate(interval, interval, report)
+    val cancellable = ConnectionPoolReporter.scheduled(reports, reporter)
+    poolReports.add(cancellable)
+    cancellable
+  }
+
+  /**
+   * Registers a listener that receives the timing breakdown of every request executed from now on.
+   */
+  def addRequestTimingListener(listener: RequestTimingListener): Unit = timingListeners.add(listener)
+
+  def removeRequestTimingListener(listener: RequestTimingListener): Unit = timingListeners.remove(listener)
+
   def url(url: String): StandaloneWSRequest = {
     validate(url)
     StandaloneAhcWSRequest(
@@ -58,8 +114,8 @@ class StandaloneAhcWSClient @Inject() (asyncHttpClient: AsyncHttpClient)(implici
       url = url,
       method = "GET",
       body = EmptyBody,
-      headers = TreeMap()(CaseInsensitiveOrdered),
-      queryString = Map.empty,
+      headers = OrderedMultiMap.emptyHeaders,
+      queryString = OrderedMultiMap.emptyQueryString,
       cookies = Seq.empty,
       calc = None,
       auth = None,
@@ -71,9 +127,95 @@ class StandaloneAhcWSClient @Inject() (asyncHttpClient: AsyncHttpClient)(implici
     )
   }
 
+  /**
+   * A flow that executes the requests it receives and emits their responses, each with the context it was sent with,
+   * such as the id of the record the request was made for. Failed requests are emitted as failures without failing
+   * the stream.
+   *
+   * {{{
+   * import org.apache.pekko.stream.scaladsl.Source
+   * import play.api.libs.ws.ahc.StandaloneAhcWSClient
+   *
+   * def statuses(client: StandaloneAhcWSClient, ids: Seq[Long]) =
+   *   Source(ids)
+   *     .map(id => (client.url(s"https://api.example.com/users/$id"), id))
+   *     .via(client.flow[Long]())
+   *     .map { case (response, id) => id -> response.map(_.status) }
+   * }}}
+   *
+   * The requests in flight are bounded by `parallelism`, by the connections of the client and by the connections it
+   * allows per host, so that requests are not queued inside the client. A request to a host that has no connection
+   * left waits in the flow, without holding back the requests to other hosts: the flow keeps pulling while it could
+   * send a request, and backpressures the stream once `parallelism` requests are in flight or waiting for their host.
+   *
+   * @param parallelism how many requests can be in flight at once.
+   * @param ordered whether the responses are emitted in the order of the requests. Otherwise they are emitted as they
+   *                complete, so that a slow request does not hold back the responses of the others.
+   */
+  def flow[C](
+      parallelism: Int = 64,
+      ordered: Boolean = true
+  ): Flow[(StandaloneWSRequest, C), (Try[StandaloneWSResponse], C), NotUsed] = {
+    BulkExecution
+      .flow[(StandaloneWSRequest, C), StandaloneWSResponse](
+        flowParallelism(parallelism),
+        flowParallelismPerHost(parallelism),
+        ordered
+      )(_._1.url, _._1.execute(), _ => Future.unit)
+      .map { case ((_, context), response) => (response, context) }
+  }
+
+  /**
+   * Like [[flow]], but streams the responses: the body of each response is read through its `bodyAsSource`, and its
+   * request holds its connection, and its place in the flow, until the body has been read or cancelled. The body of
+   * every response must therefore be consumed or cancelled, or the flow stalls once `parallelism` bodies are left
+   * unread.
+   */
+  def streamFlow[C](
+      parallelism: Int = 64,
+      ordered: Boolean = true
+  ): Flow[(StandaloneWSRequest, C), (Try[StandaloneWSResponse], C), NotUsed] = {
+    BulkExecution
+      .flow[(StandaloneWSRequest, C), (StandaloneWSResponse, Future[Any])](
+        flowParallelism(parallelism),
+        flowParallelismPerHost(parallelism),
+        ordered
+      )(_._1.url, request => stream(request._1), _._2)
+      .map { case ((_, context), response) => (response.map(_._1), context) }
+  }
+
+  private def stream(request: StandaloneWSRequest): Future[(StandaloneWSResponse, Future[Any])] = {
+    implicit val ec: ExecutionContext = materializer.executionContext
+    request match {
+      case request: StandaloneAhcWSRequest =>
+        // The filters can make several attempts, such as hedges or retries, which all hold a connection.
+        val attempts = new ConcurrentLinkedQueue[Future[Done]]()
+        request.stream(attempts.add(_)).map { response =>
+          (response, Future.traverse(attempts.asScala.toList)(_.recover { case NonFatal(_) => Done }))
+        }
+      case request =>
+        request.stream().map(response => (response, Future.unit))
+    }
+  }
+
+  private def flowParallelism(parallelism: Int): Int = {
+    val maxConnections = asyncHttpClient.getConfig.getMaxConnections
+    if (maxConnections > 0) math.min(parallelism, maxConnections) else parallelism
+  }
+
+  private def flowParallelismPerHost(parallelism: Int): Int = {
+    val maxConnectionsPerHost = asyncHttpClient.getConfig.getMaxConnectionsPerHost
+    if (maxConnectionsPerHost > 0) math.min(parallelism, maxConnectionsPerHost) else parallelism
+  }
+
   private[ahc] def execute(
       request: Request
-  ): Future[StandaloneAhcWSResponse] = {
+  ): Future[StandaloneAhcWSResponse] = execute(request, Nil)
+
+  /**
+   * Executes the request, sending its timing to the filters of the request that are timing listeners too.
+   */
+  private[ahc] def execute(request: Request, filters: Seq[WSRequestFilter]): Future[StandaloneAhcWSResponse] = {
     val result  = Promise[StandaloneAhcWSResponse]()
     val handler = new AsyncCompletionHandler[AHCResponse]() {
       override def onCompleted(response: AHCResponse): AHCResponse = {
@@ -86,8 +228,9 @@ class StandaloneAhcWSClient @Inject() (asyncHttpClient: AsyncHttpClient)(implici
       }
     }
 
-    asyncHttpClient.executeRequest(request, handler)
-    result.future
+    val listeners = RequestTimings.listeners(timingListeners, filters)
+    val future    = asyncHttpClient.executeRequest(request, RequestTimings.instrument(request, handler, listeners))
+    CancellableFuture(result.future, () => future.cancel(true))
   }
 
   private def validate(url: String): Unit = {
@@ -102,9 +245,23 @@ class StandaloneAhcWSClient @Inject() (asyncHttpClient: AsyncHttpClient)(implici
     }
   }
 
-  private[ahc] def executeStream(request: Request): Future[StreamedResponse] = {
+  private[ahc] def executeStream(request: Request): Future[StreamedResponse] = executeStream(request, _ => ())
+
+  /**
+   * Streams the response, passing `bodyDone` the future that completes once the body has been read or cancelled, or
+   * the request failed. Until then the request holds its connection.
+   */
+  private[ahc] def executeStream(request: Request, bodyDone: Future[Done] => Unit): Future[StreamedResponse] =
+    executeStream(request, bodyDone, Nil)
+
+  private[ahc] def executeStream(
+      request: Request,
+      bodyDone: Future[Done] => Unit,
+      filters: Seq[WSRequestFilter]
+  ): Future[StreamedResponse] = {
     val streamStarted    = Promise[StreamedResponse]()
     val streamCompletion = Promise[Done]()
+    bodyDone(streamCompletion.future)
 
     val client = this
 
@@ -144,15 +301,22 @@ class StandaloneAhcWSClient @Inject() (asyncHttpClient: AsyncHttpClient)(implici
       )
 
     }.asJava
-    asyncHttpClient.executeRequest(
-      request,
-      new DefaultStreamedAsyncHandler[StreamedResponse](
-        function,
-        streamStarted,
-        streamCompletion
-      )
+    val handler = new DefaultStreamedAsyncHandler[StreamedResponse](
+      function,
+      streamStarted,
+      streamCompletion
     )
-    streamStarted.future
+    val listeners = RequestTimings.listeners(timingListeners, filters)
+    val future    = asyncHttpClient.executeRequest(request, RequestTimings.instrument(request, handler, listeners))
+    CancellableFuture(streamStarted.future, () => future.cancel(true))
+  }
+
+  private[ahc] def accumulateBody(
+      bodyAsSource: Source[ByteString, ?],
+      expectedLength: Long,
+      maxLength: Long
+  ): Future[ByteString] = {
+    AhcWSUtils.accumulateBody(bodyAsSource, expectedLength, maxLength, materializer)
   }
 
   private[ahc] def blockingToByteString(bodyAsSource: Source[ByteString, ?]) = {
@@ -208,14 +372,44 @@ object StandaloneAhcWSClient {
    * }}}
    *
    * @param config configuration settings
-   * @param httpCache if not null, will be used for HTTP response caching.
+   * @param httpCache if defined, will be used for HTTP response caching.
    * @param materializer the pekko materializer.
    */
   def apply(
       config: AhcWSClientConfig = AhcWSClientConfigFactory.forConfig(),
       httpCache: Option[AhcHttpCache] = None
   )(implicit materializer: Materializer): StandaloneAhcWSClient = {
-    val ahcConfig       = new AhcConfigBuilder(config).build()
+    create(config, httpCache, ConnectionPoolMetricsConfig())
+  }
+
+  /**
+   * Creates a client with the settings of the given configuration, including the `play.ws.cache` settings of the
+   * built-in HTTP cache and the `play.ws.ahc.poolMetrics` settings of the connection pool metrics.
+   *
+   * @param config configuration settings
+   * @param httpCache if defined, will be used for HTTP response caching. Otherwise the built-in in-memory cache is
+   *                  used if `play.ws.cache.enabled` is set in the configuration.
+   * @param configuration the configuration the settings were read from.
+   * @param materializer the pekko materializer.
+   */
+  def apply(config: AhcWSClientConfig, httpCache: Option[AhcHttpCache], configuration: Config)(implicit
+      materializer: Materializer
+  ): StandaloneAhcWSClient = {
+    create(
+      config,
+      httpCache.orElse(configuredHttpCache(configuration, materializer)),
+      ConnectionPoolMetricsConfigFactory.forConfig(configuration)
+    )
+  }
+
+  private def create(
+      config: AhcWSClientConfig,
+      httpCache: Option[AhcHttpCache],
+      poolMetrics: ConnectionPoolMetricsConfig
+  )(implicit materializer: Materializer): StandaloneAhcWSClient = {
+    val ahcConfig       = new AhcConfigBuilder(config)
+      .modifyUnderlying(ConnectionPoolMetrics.configure(poolMetrics, _))
+      .build()
     val asyncHttpClient = new DefaultAsyncHttpClient(ahcConfig)
     val wsClient        = new StandaloneAhcWSClient(
       httpCache
@@ -227,6 +421,20 @@ object StandaloneAhcWSClient {
         }
     )
     new SystemConfiguration(loggerFactory).configure(config.wsClientConfig.ssl)
+    poolMetrics.reportInterval match {
+      case interval: FiniteDuration =>
+        wsClient.reportConnectionPool(ConnectionPoolMetricsConfigFactory.createReporter(poolMetrics), interval)
+      case _ =>
+    }
     wsClient
   }
+
+  private def configuredHttpCache(configuration: Config, materializer: Materializer): Option[AhcHttpCache] = {
+    val cacheConfig = AhcHttpCacheConfigFactory.forConfig(configuration)
+    if (cacheConfig.enabled) {
+      Some(AhcHttpCacheConfigFactory.createCache(cacheConfig, materializer.executionContext))
+    } else {
+      None
+    }
+  }
 }
@@ -9,6 +9,7 @@ import java.net.URI
 import java.nio.charset.Charset
 import java.nio.charset.StandardCharsets
 
+import org.apache.pekko.Done
 import org.apache.pekko.stream.Materializer
 import org.apache.pekko.stream.scaladsl.Sink
 import play.api.libs.ws.StandaloneWSRequest
@@ -21,7 +22,6 @@ import play.shaded.ahc.org.asynchttpclient.proxy.{ ProxyServer => AHCProxyServer
 import play.shaded.ahc.org.asynchttpclient.util.HttpUtils
 
 import scala.jdk.CollectionConverters._
-import scala.collection.immutable.TreeMap
 import scala.concurrent.Future
 import scala.concurrent.duration.Duration
 
@@ -33,8 +33,8 @@ case class StandaloneAhcWSRequest(
     url: String,
     method: String = "GET",
     body: WSBody = EmptyBody,
-    headers: Map[String, Seq[String]] = TreeMap()(CaseInsensitiveOrdered),
-    queryString: Map[String, Seq[String]] = Map.empty,
+    headers: Map[String, Seq[String]] = OrderedMultiMap.emptyHeaders,
+    queryString: Map[String, Seq[String]] = OrderedMultiMap.emptyQueryString,
     cookies: Seq[WSCookie] = Seq.empty,
     calc: Option[WSSignatureCalculator] = None,
     auth: Option[(String, String, WSAuthScheme)] = None,
@@ -76,48 +76,39 @@ case class StandaloneAhcWSRequest(
     copy(auth = Some((username, password, scheme)))
 
   override def addHttpHeaders(hdrs: (String, String)*): Self = {
-    val newHeaders = buildHeaders(headers, hdrs: _*)
+    val newHeaders = buildHeaders(OrderedMultiMap.headers(headers), hdrs: _*)
     copy(headers = newHeaders)
   }
 
   override def withHttpHeaders(hdrs: (String, String)*): Self = {
-    val emptyMap   = TreeMap[String, Seq[String]]()(CaseInsensitiveOrdered)
-    val newHeaders = buildHeaders(emptyMap, hdrs: _*)
+    val newHeaders = buildHeaders(OrderedMultiMap.emptyHeaders, hdrs: _*)
     copy(headers = newHeaders)
   }
 
-  private def buildHeaders(origHeaders: Map[String, Seq[String]], hdrs: (String, String)*): Map[String, Seq[String]] = {
-    var newHeaders = hdrs
-      .foldLeft(origHeaders) { (m, hdr) =>
-        if (m.contains(hdr._1)) m.updated(hdr._1, m(hdr._1) :+ hdr._2)
-        else m + (hdr._1 -> Seq(hdr._2))
-      }
+  private def buildHeaders(origHeaders: OrderedMultiMap, hdrs: (String, String)*): OrderedMultiMap = {
+    val newHeaders = hdrs.foldLeft(origHeaders) { case (m, (name, value)) => m.append(name, value) }
 
     // preserve the content type
-    newHeaders = contentType match {
+    contentType match {
       case Some(ct) =>
-        newHeaders.updated(HttpHeaders.Names.CONTENT_TYPE, Seq(ct))
+        newHeaders.replace(HttpHeaders.Names.CONTENT_TYPE, Seq(ct))
       case None =>
         newHeaders
     }
-
-    newHeaders
   }
 
   override def addQueryStringParameters(parameters: (String, String)*): Self = {
-    val newQueryString = buildQueryParams(queryString, parameters: _*)
+    val newQueryString = buildQueryParams(OrderedMultiMap.queryString(queryString), parameters: _*)
     copy(queryString = newQueryString)
   }
 
   override def withQueryStringParameters(parameters: (String, String)*): Self = {
-    val newQueryString = buildQueryParams(Map.empty[String, Seq[String]], parameters: _*)
+    val newQueryString = buildQueryParams(OrderedMultiMap.emptyQueryString, parameters: _*)
     copy(queryString = newQueryString)
   }
 
-  private def buildQueryParams(orig: Map[String, Seq[String]], params: (String, String)*): Map[String, Seq[String]] = {
-    params.foldLeft(orig) { case (m, (k, v)) =>
-      m + (k -> (v +: m.getOrElse(k, Nil)))
-    }
+  private def buildQueryParams(orig: OrderedMultiMap, params: (String, String)*): OrderedMultiMap = {
+    params.foldLeft(orig) { case (m, (k, v)) => m.prepend(k, v) }
   }
 
   override def withCookies(cookies: WSCookie*): Self = copy(cookies = cookies)
@@ -225,7 +216,7 @@ case class StandaloneAhcWSRequest(
   private val executor: StandaloneAhcWSRequest => Future[Response] = {
     lazy val executor = filterWSRequestExecutor(WSRequestExecutor {
       case ahcReq: StandaloneAhcWSRequest =>
-        client.execute(ahcReq.buildRequest())
+        client.execute(ahcReq.requestForExecution(), ahcReq.filters)
 
       case invalid =>
         Future.failed[StandaloneAhcWSResponse](new IllegalArgumentException(s"Invalid request: ${invalid}"))
@@ -242,9 +233,15 @@ case class StandaloneAhcWSRequest(
     filters.foldRight(next)((filter, executor) => filter.apply(executor))
   }
 
-  override def stream(): Future[Response] = {
+  override def stream(): Future[Response] = stream(_ => ())
+
+  /**
+   * Streams the response, passing `bodyDone` the completion of the body of every attempt the filters make.
+   */
+  private[ahc] def stream(bodyDone: Future[Done] => Unit): Future[Response] = {
     val executor = filterWSRequestExecutor(WSRequestExecutor { request =>
-      client.executeStream(request.asInstanceOf[StandaloneAhcWSRequest].buildRequest())
+      val ahcReq = request.asInstanceOf[StandaloneAhcWSRequest]
+      client.executeStream(ahcReq.requestForExecution(), bodyDone, ahcReq.filters)
     })
 
     executor(this)
@@ -263,7 +260,7 @@ case class StandaloneAhcWSRequest(
    * so may return extra headers that were not directly input.
    */
   def requestHeaders: Map[String, Seq[String]] = {
-    headersToMap(buildRequest().getHeaders)
+    headersToMap(compiledRequest.getHeaders)
   }
 
   /**
@@ -271,10 +268,38 @@ case class StandaloneAhcWSRequest(
    * so may not return the same parameters that were input.
    */
   def requestQueryParams: Map[String, Seq[String]] = {
-    val params: java.util.List[Param] = buildRequest().getQueryParams
+    val params: java.util.List[Param] = compiledRequest.getQueryParams
     params.asScala.toSeq.groupBy(_.getName).map(kv => kv._1 -> kv._2.map(_.getValue))
   }
 
+  /**
+   * The AHC request compiled from this request. As every `with*` / `add*` method returns a copy,
+   * the template is dropped together with the instance it was built from and can never go stale.
+   */
+  private lazy val compiledRequest: play.shaded.ahc.org.asynchttpclient.Request = buildRequest()
+
+  /**
+   * A compiled request can only be sent more than once if building it has no side effects: a
+   * streamed body is materialized on every build, and signature calculators (e.g. OAuth) add a
+   * fresh nonce and timestamp each time.
+   */
+  private def isReusable: Boolean = {
+    body match {
+      case SourceBody(_) => false
+      case _             => calc.isEmpty
+    }
+  }
+
+  private[ahc] def requestForExecution(): play.shaded.ahc.org.asynchttpclient.Request = {
+    if (isReusable) compiledRequest else buildRequest()
+  }
+
+  private lazy val realm: Option[Realm] = this.auth.map { case (username, password, scheme) =>
+    auth(username, password, authScheme(scheme))
+  }
+
+  private lazy val ahcProxyServer: Option[AHCProxyServer] = proxyServer.map(createProxy)
+
   /**
    * Creates and returns an AHC request, running all operations on it.
    */
@@ -294,10 +319,7 @@ case class StandaloneAhcWSRequest(
     builder.setUrl(url)
 
     // auth
-    auth.foreach { data =>
-      val realm = auth(data._1, data._2, authScheme(data._3))
-      builder.setRealm(realm)
-    }
+    realm.foreach(r => builder.setRealm(r))
 
     // queries
     for {
@@ -308,7 +330,7 @@ case class StandaloneAhcWSRequest(
     // Configuration settings on the builder, if applicable
     virtualHost.foreach(builder.setVirtualHost)
     followRedirects.foreach(builder.setFollowRedirect)
-    proxyServer.foreach(p => builder.setProxyServer(createProxy(p)))
+    ahcProxyServer.foreach(p => builder.setProxyServer(p))
     requestTimeout.foreach {
       case d if d == Duration.Inf =>
         builder.setRequestTimeout(-1)
@@ -316,8 +338,10 @@ case class StandaloneAhcWSRequest(
         builder.setRequestTimeout(d.toMillis.toInt)
     }
 
+    val headers = OrderedMultiMap.headers(this.headers)
+
     val (builderWithBody, updatedHeaders) = body match {
-      case EmptyBody           => (builder, this.headers)
+      case EmptyBody           => (builder, headers)
       case InMemoryBody(bytes) =>
         val ct: String = contentType.getOrElse("text/plain")
 
@@ -327,9 +351,7 @@ case class StandaloneAhcWSRequest(
             if (ct.contains(HttpHeaders.Values.APPLICATION_X_WWW_FORM_URLENCODED) && calc.isDefined) {
               // If we are taking responsibility for setting the request body, we should block any
               // externally defined Content-Length field (see #5221 for the details)
-              val filteredHeaders = this.headers.filterNot { case (k, v) =>
-                k.equalsIgnoreCase(HttpHeaders.Names.CONTENT_LENGTH)
-              }
+              val filteredHeaders = headers.removed(HttpHeaders.Names.CONTENT_LENGTH)
 
               // extract the content type and the charset
               val charsetOption = Option(HttpUtils.extractContentTypeCharsetAttribute(ct))
@@ -352,7 +374,7 @@ case class StandaloneAhcWSRequest(
               filteredHeaders
             } else {
               builder.setBody(bytes.toArray)
-              this.headers
+              headers
             }
           } catch {
             case e: UnsupportedEncodingException =>
@@ -365,12 +387,10 @@ case class StandaloneAhcWSRequest(
         // else every content would be Transfer-Encoding: chunked
         // If the Content-Length is -1 Async-Http-Client sets a Transfer-Encoding: chunked
         // If the Content-Length is great than -1 Async-Http-Client will use the correct Content-Length
-        val filteredHeaders = this.headers.filterNot { case (k, v) =>
-          k.equalsIgnoreCase(HttpHeaders.Names.CONTENT_LENGTH)
-        }
-        val contentLength = this.headers
-          .find { case (k, _) => k.equalsIgnoreCase(HttpHeaders.Names.CONTENT_LENGTH) }
-          .map(_._2.head.toLong)
+        val filteredHeaders = headers.removed(HttpHeaders.Names.CONTENT_LENGTH)
+        val contentLength   = headers
+          .get(HttpHeaders.Names.CONTENT_LENGTH)
+          .map(_.head.toLong)
 
         (
           builder.setBody(
@@ -462,7 +482,7 @@ case class StandaloneAhcWSRequest(
    * to request.url.  This is an AHC specific method.
    */
   def requestUrl: String = {
-    buildRequest().getUrl
+    compiledRequest.getUrl
   }
 
 }
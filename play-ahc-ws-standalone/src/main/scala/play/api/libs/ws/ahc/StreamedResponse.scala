@@ -13,6 +13,7 @@ import play.shaded.ahc.org.asynchttpclient.HttpResponseBodyPart
 
 import scala.collection.immutable.TreeMap
 import scala.collection.mutable
+import scala.concurrent.Future
 
 /**
  * A streamed response containing a response header and a streamable body.
@@ -96,29 +97,51 @@ class StreamedResponse(
   override def cookie(name: String): Option[WSCookie] = cookies.find(_.name == name)
 
   /**
-   * THIS IS A BLOCKING OPERATION. It should not be used in production.
+   * THIS IS A BLOCKING OPERATION. It should not be used in production, use [[bodyAsBytesAsync]] instead.
    *
    * Note that this is not a charset aware operation, as the stream does not have access to the underlying machinery
    * that disambiguates responses.
    *
    * @return the body as a String
    */
+  @deprecated("Blocks for at most 50 ms and reads at most 13 chunks, use bodyAsBytesAsync instead", "3.1.0")
   override lazy val body: String = bodyAsBytes.decodeString(AhcWSUtils.getCharset(contentType))
 
   /**
-   * THIS IS A BLOCKING OPERATION. It should not be used in production.
+   * THIS IS A BLOCKING OPERATION. It should not be used in production, use [[bodyAsBytesAsync]] instead.
    *
    * Note that this is not a charset aware operation, as the stream does not have access to the underlying machinery
    * that disambiguates responses.
    *
    * @return the body as a ByteString
    */
+  @deprecated("Blocks for at most 50 ms and reads at most 13 chunks, use bodyAsBytesAsync instead", "3.1.0")
   override lazy val bodyAsBytes: ByteString = client.blockingToByteString(bodyAsSource)
 
+  /**
+   * Accumulates the body without blocking, into a buffer sized from the Content-Length header when there is one.
+   *
+   * @param maxLength the maximum number of bytes to accumulate. The future fails with a
+   *                  `StreamLimitReachedException` if the body is larger.
+   * @return the body as a ByteString
+   */
+  def bodyAsBytesAsync(maxLength: Long = StreamedResponse.DefaultMaxLength): Future[ByteString] = {
+    val contentLength = header("Content-Length").flatMap(_.trim.toLongOption).getOrElse(-1L)
+    client.accumulateBody(bodyAsSource, contentLength, maxLength)
+  }
+
   override lazy val bodyAsSource: Source[ByteString, ?] = {
     Source
       .fromPublisher(publisher)
-      .map((bodyPart: HttpResponseBodyPart) => ByteString.fromArray(bodyPart.getBodyPartBytes))
+      .map((bodyPart: HttpResponseBodyPart) => AhcWSUtils.toByteString(bodyPart))
   }
 
 }
+
+object StreamedResponse {
+
+  /**
+   * The default maximum number of bytes accumulated by [[StreamedResponse.bodyAsBytesAsync]].
+   */
+  val DefaultMaxLength: Long = 10L * 1024 * 1024
+}
@@ -6,6 +6,8 @@ package play.api.libs.ws.ahc.cache
 
 import java.net.URI
 import java.time.ZonedDateTime
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.TimeUnit
 
 import org.playframework.cachecontrol._
 import play.api.libs.ws.{ ahc => standaloneAhc }
@@ -16,6 +18,11 @@ import play.shaded.ahc.org.asynchttpclient._
 
 import scala.concurrent.ExecutionContext
 import scala.concurrent.Future
+import scala.concurrent.Promise
+import scala.concurrent.duration.Duration
+import scala.util.Failure
+import scala.util.Success
+import scala.util.control.NonFatal
 
 /**
  * Central HTTP cache.  This keeps a cache of HTTP responses according to
@@ -25,12 +32,24 @@ import scala.concurrent.Future
  * However, since HTTP caches in common use today are typically limited
  * to caching responses to GET, many caches simply decline other methods
  * and use only the URI as the primary cache key.
+ *
+ * The primary cache key is normalized by the given [[CacheKeyNormalizer]], so
+ * that requests through equivalent URIs share the same cache entries.
  */
-class AhcHttpCache(underlying: standaloneAhc.cache.Cache, heuristicsEnabled: Boolean = false)(implicit
+class AhcHttpCache(
+    underlying: standaloneAhc.cache.Cache,
+    heuristicsEnabled: Boolean = false,
+    keyNormalizer: CacheKeyNormalizer = CacheKeyNormalizer.identity
+)(implicit
     val executionContext: ExecutionContext
 ) extends CacheDefaults
     with Debug {
   require(underlying != null, "null underlying!")
+  require(keyNormalizer != null, "null keyNormalizer!")
+
+  def this(underlying: standaloneAhc.cache.Cache, heuristicsEnabled: Boolean)(implicit
+      executionContext: ExecutionContext
+  ) = this(underlying, heuristicsEnabled, CacheKeyNormalizer.identity)
 
   private val logger = LoggerFactory.getLogger(this.getClass)
 
@@ -48,6 +67,11 @@ class AhcHttpCache(underlying: standaloneAhc.cache.Cache, heuristicsEnabled: Boo
 
   private val freshnessCalculator = new FreshnessCalculator(this)
 
+  private val syncCache: Option[SyncCache] = underlying match {
+    case sync: SyncCache => Some(sync)
+    case _               => None
+  }
+
   /**
    * Cache is not shared.
    */
@@ -59,6 +83,88 @@ class AhcHttpCache(underlying: standaloneAhc.cache.Cache, heuristicsEnabled: Boo
     underlying.get(key)
   }
 
+  /**
+   * Reads the key on the calling thread if the underlying cache is a [[SyncCache]].
+   *
+   * @return the result of the lookup, or `None` if the cache can only be read through [[get]].
+   */
+  def getNow(key: EffectiveURIKey): Option[Option[ResponseEntry]] = {
+    require(key != null, "key is null")
+    syncCache.map(_.getNow(key))
+  }
+
+  /**
+   * Returns every response stored for the key: one for each variant if the underlying cache is a [[VariantCache]], or
+   * the single stored response otherwise.
+   */
+  def getVariants(key: EffectiveURIKey): Future[Seq[ResponseEntry]] = {
+    logger.debug(s"getVariants: key = $key")
+    require(key != null, "key is null")
+    underlying match {
+      case variants: VariantCache => variants.getVariants(key)
+      case _                      => underlying.get(key).map(_.toList)
+    }
+  }
+
+  /**
+   * Reads every response stored for the key on the calling thread if the underlying cache is a [[SyncCache]].
+   *
+   * @return the stored responses, or `None` if the cache can only be read through [[getVariants]].
+   */
+  def getVariantsNow(key: EffectiveURIKey): Option[Seq[ResponseEntry]] = {
+    require(key != null, "key is null")
+    syncCache.map(_.getVariantsNow(key))
+  }
+
+  /**
+   * Reads every response stored for the key without blocking the calling thread: right away if the underlying cache
+   * is a [[SyncCache]], or through [[getVariants]] otherwise. A cache that fails, or that does not answer within
+   * `timeout`, is treated as having no entry for the key.
+   */
+  def lookupVariants(key: EffectiveURIKey, timeout: Duration): Future[Seq[ResponseEntry]] = {
+    getVariantsNow(key) match {
+      case Some(entries) => Future.successful(entries)
+      case None          =>
+        val entries = Promise[Seq[ResponseEntry]]()
+        val timer   = CompletableFuture.delayedExecutor(timeout.toMillis, TimeUnit.MILLISECONDS)
+        timer.execute { () =>
+          if (entries.trySuccess(Nil)) logger.warn(s"lookupVariants: no answer from the cache for $key within $timeout")
+        }
+
+        val get =
+          try getVariants(key)
+          catch { case NonFatal(e) => Future.failed(e) }
+        get.onComplete {
+          case Success(value) => entries.trySuccess(value)
+          case Failure(e)     =>
+            logger.warn(s"lookupVariants: failed to read $key from the cache", e)
+            entries.trySuccess(Nil)
+        }
+        entries.future
+    }
+  }
+
+  /**
+   * Selects the variant stored for the request out of the responses stored for its key: the one whose Vary header
+   * nominates headers that have the same values in the request as in the request it was stored for.
+   *
+   * https://tools.ietf.org/html/rfc7234#section-4.1
+   */
+  def selectVariant(request: Request, entries: Seq[ResponseEntry]): Option[ResponseEntry] = {
+    import scala.jdk.CollectionConverters._
+
+    entries.find { entry =>
+      val varyNames = entry.response.getHeaders.getAll("Vary").asScala.flatMap(_.split(',')).map(_.trim)
+      varyNames.filter(_.nonEmpty).forall { name =>
+        // A Vary header field-value of "*" always fails to match.
+        val stored = entry.nominatedHeaders.collectFirst {
+          case (nominated, values) if nominated.toString.equalsIgnoreCase(name) => values
+        }
+        name != "*" && request.getHeaders.getAll(name).asScala.toSeq == stored.getOrElse(Nil)
+      }
+    }
+  }
+
   def put(key: EffectiveURIKey, entry: ResponseEntry): Future[Unit] = {
     logger.debug(s"put: key = $key, entry = $entry")
     require(entry != null, "value is null")
@@ -75,37 +181,136 @@ class AhcHttpCache(underlying: standaloneAhc.cache.Cache, heuristicsEnabled: Boo
    */
   def invalidateKey(key: EffectiveURIKey): Unit = {
     // mark any caches as stale by replacing the date with TSE
-    underlying.get(key).map { maybeEntry =>
-      maybeEntry.foreach { entry =>
-        val expiredEntry = entry.copy(expiresAt = Some(HttpDate.fromEpochSeconds(0)))
-        put(key, expiredEntry)
-      }
+    def expire(entry: ResponseEntry) = entry.copy(expiresAt = Some(HttpDate.fromEpochSeconds(0)))
+
+    syncCache match {
+      case Some(sync) =>
+        sync.getVariantsNow(key).foreach(entry => sync.putNow(key, expire(entry)))
+      case None =>
+        getVariants(key).map { entries =>
+          entries.foreach(entry => put(key, expire(entry)))
+        }
     }
   }
 
+  /**
+   * Returns the primary cache key of the request, normalized by the [[CacheKeyNormalizer]] of the cache.
+   */
+  def cacheKey(request: Request): EffectiveURIKey = {
+    require(request != null)
+    normalizeKey(request.getMethod, request.getUri.toJavaNetURI)
+  }
+
+  protected def normalizeKey(method: String, uri: URI): EffectiveURIKey = {
+    keyNormalizer.normalize(EffectiveURIKey(method, uri))
+  }
+
+  /**
+   * Converts the request for the cache decisions. The context should be kept and passed to every decision taken on
+   * the request, rather than the request itself, so that the request is only converted once.
+   */
+  def context(request: Request): CacheRequestContext = {
+    val key = cacheKey(request)
+    new CacheRequestContext(request, generateCacheRequest(request, key), key)
+  }
+
   def cachingAction(request: Request, response: CacheableResponse): ResponseCachingAction = {
+    cachingAction(context(request), response)
+  }
+
+  def cachingAction(context: CacheRequestContext, response: CacheableResponse): ResponseCachingAction = {
     val headers                        = response.headers
     val statusCode                     = response.getStatusCode
-    val cacheRequest                   = generateCacheRequest(request)
-    val originResponse: OriginResponse = generateOriginResponse(request, statusCode, headers)
-    val action                         = responseCachingCalculator.isCacheable(cacheRequest, originResponse)
+    val originResponse: OriginResponse = generateOriginResponse(context.request, statusCode, headers)
+    val action                         = responseCachingCalculator.isCacheable(context.cacheRequest, originResponse)
     action
   }
 
   def selectionAction(request: Request, entries: Seq[ResponseEntry]): ResponseSelectionAction = {
-    val cacheRequest    = generateCacheRequest(request)
-    val storedResponses = entries.map { entry =>
-      generateStoredResponse(entry.response, entry.requestMethod, entry.nominatedHeaders)
-    }
+    selectionAction(context(request), entries)
+  }
 
-    responseSelectionCalculator.selectResponse(cacheRequest, storedResponses)
+  def selectionAction(context: CacheRequestContext, entries: Seq[ResponseEntry]): ResponseSelectionAction = {
+    responseSelectionCalculator.selectResponse(context.cacheRequest, entries.map(storedResponse))
   }
 
   def serveAction(request: Request, entry: ResponseEntry, currentAge: Seconds): ResponseServeAction = {
-    val cacheRequest   = generateCacheRequest(request)
-    val storedResponse = generateStoredResponse(entry.response, entry.requestMethod, entry.nominatedHeaders)
+    serveAction(context(request), entry, currentAge)
+  }
+
+  def serveAction(context: CacheRequestContext, entry: ResponseEntry, currentAge: Seconds): ResponseServeAction = {
+    val action = responseServingCalculator.serveResponse(context.cacheRequest, storedResponse(entry), currentAge)
+    applyStaleExtensions(context, entry, currentAge, action)
+  }
+
+  /**
+   * Relaxes a plain revalidation of a stale response according to the
+   * `stale-while-revalidate` and `stale-if-error` directives.
+   *
+   * https://tools.ietf.org/html/rfc5861
+   */
+  protected def applyStaleExtensions(
+      context: CacheRequestContext,
+      entry: ResponseEntry,
+      currentAge: Seconds,
+      action: ResponseServeAction
+  ): ResponseServeAction = {
+    import ResponseServeActions._
+
+    val request = context.request
+    action match {
+      case Validate(reason, staleIfError) if !isUnsafeMethod(request) && !requestsNoCache(request) =>
+        val freshnessLifetime = calculateFreshnessLifetime(context, entry)
+        val staleness         = currentAge.seconds.toLong - freshnessLifetime.seconds.toLong
+        val responseHeaders   = entry.response.getHeaders
+
+        // The stale-while-revalidate Cache-Control extension indicates that
+        // caches MAY serve the response in which it appears after it becomes
+        // stale, up to the indicated number of seconds.
+        // https://tools.ietf.org/html/rfc5861#section-3
+        if (withinStaleWindow(responseHeaders, "stale-while-revalidate", staleness)) {
+          ServeStaleAndValidate(s"$reason, but within stale-while-revalidate")
+        } else if (!staleIfError) {
+          // The stale-if-error Cache-Control extension indicates that when an
+          // error is encountered, a cached stale response MAY be used to satisfy
+          // the request, regardless of other freshness information.
+          // https://tools.ietf.org/html/rfc5861#section-4
+          val responseAllows = withinStaleWindow(responseHeaders, "stale-if-error", staleness)
+          val requestAllows  = withinStaleWindow(request.getHeaders, "stale-if-error", staleness)
+          if (responseAllows || requestAllows) Validate(reason, true) else action
+        } else {
+          action
+        }
+
+      case other =>
+        other
+    }
+  }
 
-    responseServingCalculator.serveResponse(cacheRequest, storedResponse, currentAge)
+  /**
+   * Whether the request asks for a response validated with the origin server.
+   */
+  protected def requestsNoCache(request: Request): Boolean = {
+    val headers = request.getHeaders
+    directiveValues(headers, "Cache-Control").exists(_.startsWith("no-cache")) ||
+      directiveValues(headers, "Pragma").contains("no-cache")
+  }
+
+  /**
+   * Whether the given Cache-Control extension allows a response that has been stale for the given number of seconds.
+   */
+  protected def withinStaleWindow(headers: HttpHeaders, directive: String, staleness: Long): Boolean = {
+    directiveValues(headers, "Cache-Control").exists { value =>
+      value.startsWith(directive + "=") && {
+        val delta = value.substring(directive.length + 1).stripPrefix("\"").stripSuffix("\"")
+        delta.nonEmpty && delta.forall(Character.isDigit) && staleness <= delta.toLong
+      }
+    }
+  }
+
+  private def directiveValues(headers: HttpHeaders, headerName: String): Seq[String] = {
+    import scala.jdk.CollectionConverters._
+    headers.getAll(headerName).asScala.toSeq.flatMap(_.split(',')).map(_.trim.toLowerCase(java.util.Locale.ROOT))
   }
 
   override def calculateFreshnessFromHeuristic(request: CacheRequest, response: CacheResponse): Option[Seconds] = {
@@ -162,21 +367,26 @@ class AhcHttpCache(underlying: standaloneAhc.cache.Cache, heuristicsEnabled: Boo
    * Calculates the current age of the stored response.
    */
   def calculateCurrentAge(request: Request, entry: ResponseEntry, requestTime: ZonedDateTime): Seconds = {
-    val cacheRequest: CacheRequest     = generateCacheRequest(request)
-    val storedResponse: StoredResponse =
-      generateStoredResponse(entry.response, entry.requestMethod, entry.nominatedHeaders)
-    val currentAge = calculateCurrentAge(cacheRequest, storedResponse, requestTime, responseTime = HttpDate.now)
-    currentAge
+    calculateCurrentAge(context(request), entry, requestTime)
+  }
+
+  /**
+   * Calculates the current age of the stored response.
+   */
+  def calculateCurrentAge(context: CacheRequestContext, entry: ResponseEntry, requestTime: ZonedDateTime): Seconds = {
+    calculateCurrentAge(context.cacheRequest, storedResponse(entry), requestTime, responseTime = HttpDate.now)
   }
 
   /**
    */
   def calculateFreshnessLifetime(request: Request, entry: ResponseEntry): Seconds = {
-    val cacheRequest: CacheRequest     = generateCacheRequest(request)
-    val storedResponse: StoredResponse =
-      generateStoredResponse(entry.response, entry.requestMethod, entry.nominatedHeaders)
-    val freshnessLifetime = freshnessCalculator.calculateFreshnessLifetime(cacheRequest, storedResponse)
-    freshnessLifetime
+    calculateFreshnessLifetime(context(request), entry)
+  }
+
+  /**
+   */
+  def calculateFreshnessLifetime(context: CacheRequestContext, entry: ResponseEntry): Seconds = {
+    freshnessCalculator.calculateFreshnessLifetime(context.cacheRequest, storedResponse(entry))
   }
 
   /**
@@ -191,7 +401,7 @@ class AhcHttpCache(underlying: standaloneAhc.cache.Cache, heuristicsEnabled: Boo
       // A cache MUST invalidate the effective request URI (Section 5.5 of
       // [RFC7230]) when it receives a non-error response to a request with a
       // method whose safety is unknown.
-      val responseKey = EffectiveURIKey(request.getMethod, response.getUri.toJavaNetURI)
+      val responseKey = normalizeKey(request.getMethod, response.getUri.toJavaNetURI)
       invalidateKey(responseKey)
 
       // A cache MUST invalidate the effective Request URI (Section 5.5 of
@@ -207,14 +417,14 @@ class AhcHttpCache(underlying: standaloneAhc.cache.Cache, heuristicsEnabled: Boo
         // differs from the host part in the effective request URI (Section 5.5
         // of [RFC7230]).  This helps prevent denial-of-service attacks.
         if (requestHost.equalsIgnoreCase(contentLocation.getHost)) {
-          val key = EffectiveURIKey(request.getMethod, contentLocation)
+          val key = normalizeKey(request.getMethod, contentLocation)
           invalidateKey(key)
         }
       }
 
       getURI(response, "Location").foreach { location =>
         if (requestHost.equalsIgnoreCase(location.getHost)) {
-          val key = EffectiveURIKey(request.getMethod, location)
+          val key = normalizeKey(request.getMethod, location)
           invalidateKey(key)
         }
       }
@@ -250,12 +460,21 @@ class AhcHttpCache(underlying: standaloneAhc.cache.Cache, heuristicsEnabled: Boo
    * Calculates the secondary keys of the request.
    */
   def calculateSecondaryKeys(request: Request, response: Response): Option[Map[HeaderName, Seq[String]]] = {
-    val cacheRequest = generateCacheRequest(request)
-    val headers      = headersToMap(response.getHeaders).map { case (name, values) =>
+    calculateSecondaryKeys(context(request), response)
+  }
+
+  /**
+   * Calculates the secondary keys of the request.
+   */
+  def calculateSecondaryKeys(
+      context: CacheRequestContext,
+      response: Response
+  ): Option[Map[HeaderName, Seq[String]]] = {
+    val headers = headersToMap(response.getHeaders).map { case (name, values) =>
       (HeaderName(name), values)
     }
 
-    secondaryKeyCalculator.calculate(cacheRequest, headers)
+    secondaryKeyCalculator.calculate(context.cacheRequest, headers)
   }
 
   /**
@@ -285,15 +504,23 @@ class AhcHttpCache(underlying: standaloneAhc.cache.Cache, heuristicsEnabled: Boo
    * Caches the response, stripping any headers marked as "not-cacheable".
    */
   def cacheResponse(request: Request, response: CacheableResponse): Unit = {
+    cacheResponse(context(request), response)
+  }
+
+  /**
+   * Caches the response, stripping any headers marked as "not-cacheable".
+   */
+  def cacheResponse(context: CacheRequestContext, response: CacheableResponse): Unit = {
     logger.debug(s"cacheResponse: response = ${debug(response)}")
 
+    val request          = context.request
     val strippedResponse = stripHeaders(request, response)
     logger.debug(s"cacheResponse: strippedResponse = ${debug(strippedResponse)}")
 
-    val nominated = calculateSecondaryKeys(request, strippedResponse).getOrElse(Map())
+    val nominated = calculateSecondaryKeys(context, strippedResponse).getOrElse(Map())
     val ttl       = calculateTimeToLive(request, strippedResponse.status, strippedResponse.headers)
     val entry     = ResponseEntry(strippedResponse, request.getMethod, nominated, ttl)
-    put(EffectiveURIKey(request), entry)
+    put(context.key, entry)
   }
 
   /**
@@ -398,12 +625,22 @@ class AhcHttpCache(underlying: standaloneAhc.cache.Cache, heuristicsEnabled: Boo
   }
 
   protected def generateCacheRequest(request: Request): CacheRequest = {
-    val uri     = request.getUri.toJavaNetURI
+    generateCacheRequest(request, cacheKey(request))
+  }
+
+  // The request is seen through its normalized URI, as the stored responses are.
+  private def generateCacheRequest(request: Request, key: EffectiveURIKey): CacheRequest = {
     val headers = headersToMap(request.getHeaders).map { case (name, values) =>
       (HeaderName(name), values)
     }
-    val method = request.getMethod
-    CacheRequest(uri = uri, method = method, headers = headers)
+    CacheRequest(uri = key.uri, method = key.method, headers = headers)
+  }
+
+  /**
+   * Returns the stored response of the entry, which is only generated on the first call for the entry.
+   */
+  protected def storedResponse(entry: ResponseEntry): StoredResponse = {
+    entry.storedResponse(generateStoredResponse(entry.response, entry.requestMethod, entry.nominatedHeaders))
   }
 
   protected def generateStoredResponse(
@@ -411,7 +648,7 @@ class AhcHttpCache(underlying: standaloneAhc.cache.Cache, heuristicsEnabled: Boo
       requestMethod: String,
       nominatedHeaders: Map[HeaderName, Seq[String]]
   ): StoredResponse = {
-    val uri: URI        = response.getUri.toJavaNetURI
+    val uri: URI        = normalizeKey(requestMethod, response.getUri.toJavaNetURI).uri
     val status: Int     = response.getStatusCode
     val responseHeaders = response.getHeaders
     val headers         = headersToMap(responseHeaders).map { case (name, values) =>
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc.cache
+
+import jakarta.inject.Inject
+import jakarta.inject.Provider
+import jakarta.inject.Singleton
+
+import com.typesafe.config.Config
+import com.typesafe.config.ConfigFactory
+
+import scala.concurrent.ExecutionContext
+import scala.jdk.CollectionConverters._
+
+/**
+ * Configuration of the built-in HTTP cache.
+ *
+ * @param enabled whether clients created from the configuration without an explicit cache should use an
+ *                [[InMemoryHttpCache]].
+ * @param heuristicsEnabled whether freshness heuristics should be used for responses without explicit expiry.
+ * @param maxSize the maximum total size of the cached responses, in bytes.
+ * @param keyNormalization how the cache keys are normalized.
+ */
+case class AhcHttpCacheConfig(
+    enabled: Boolean = false,
+    heuristicsEnabled: Boolean = false,
+    maxSize: Long = 32L * 1024 * 1024,
+    keyNormalization: AhcHttpCacheKeyNormalization = AhcHttpCacheKeyNormalization()
+)
+
+/**
+ * Configuration of the built-in [[CacheKeyNormalizer]] rules, applied in the order of the parameters.
+ *
+ * @param canonical whether the URIs should be put in their canonical form, see [[CacheKeyNormalizer.canonicalForm]].
+ * @param ignoredQueryParameters the query parameters that do not change the response, such as `utm_*`.
+ * @param sortQuery whether the query parameters should be sorted by name.
+ */
+case class AhcHttpCacheKeyNormalization(
+    canonical: Boolean = true,
+    ignoredQueryParameters: Seq[String] = Nil,
+    sortQuery: Boolean = false
+) {
+
+  /**
+   * @return the normalizer applying the configured rules.
+   */
+  def normalizer: CacheKeyNormalizer = CacheKeyNormalizer(this)
+}
+
+/**
+ * Factory for creating AhcHttpCacheConfig, for use from Java.
+ */
+object AhcHttpCacheConfigFactory {
+
+  /**
+   * Creates a AhcHttpCacheConfig from a Typesafe Config object.
+   *
+   * @param config the config file containing the `play.ws.cache` settings
+   * @return a AhcHttpCacheConfig configuration object.
+   */
+  def forConfig(config: Config = ConfigFactory.load()): AhcHttpCacheConfig = {
+    new AhcHttpCacheConfigParser(config).parse()
+  }
+
+  /**
+   * Creates the HTTP cache described by the configuration, if it is enabled.
+   *
+   * @param config the cache configuration
+   * @param executionContext the execution context used by the cache
+   * @return the cache, or null if the cache is disabled.
+   */
+  def createCache(config: AhcHttpCacheConfig, executionContext: ExecutionContext): AhcHttpCache = {
+    if (config.enabled) {
+      new AhcHttpCache(
+        new InMemoryHttpCache(config.maxSize),
+        config.heuristicsEnabled,
+        config.keyNormalization.normalizer
+      )(executionContext)
+    } else {
+      null
+    }
+  }
+}
+
+/**
+ * This class creates a AhcHttpCacheConfig object from configuration.
+ */
+@Singleton
+class AhcHttpCacheConfigParser @Inject() (configuration: Config) extends Provider[AhcHttpCacheConfig] {
+
+  def get = parse()
+
+  def parse(): AhcHttpCacheConfig = {
+    val enabled           = configuration.getBoolean("play.ws.cache.enabled")
+    val heuristicsEnabled = configuration.getBoolean("play.ws.cache.heuristics.enabled")
+    val maxSize           = configuration.getBytes("play.ws.cache.maxSize").longValue()
+    val keyNormalization  = AhcHttpCacheKeyNormalization(
+      canonical = configuration.getBoolean("play.ws.cache.keyNormalization.canonical"),
+      ignoredQueryParameters =
+        configuration.getStringList("play.ws.cache.keyNormalization.ignoredQueryParameters").asScala.toSeq,
+      sortQuery = configuration.getBoolean("play.ws.cache.keyNormalization.sortQuery")
+    )
+
+    AhcHttpCacheConfig(
+      enabled = enabled,
+      heuristicsEnabled = heuristicsEnabled,
+      maxSize = maxSize,
+      keyNormalization = keyNormalization
+    )
+  }
+}
@@ -5,18 +5,28 @@
 package play.api.libs.ws.ahc.cache
 
 import java.time.ZonedDateTime
+import java.util.concurrent.CompletableFuture
 
+import play.api.libs.ws.ahc.ForwardingConnectionEvents
 import play.shaded.ahc.org.asynchttpclient._
 import org.playframework.cachecontrol.ResponseServeAction
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
 import play.shaded.ahc.io.netty.handler.codec.http.HttpHeaders
 
-import scala.concurrent.Await
+import scala.concurrent.ExecutionContext
 import scala.concurrent.duration.Duration
+import scala.util.Failure
+import scala.util.Success
+import scala.util.Try
 
 /**
  * An async handler that accumulates response data to place in cache with the given key.
+ *
+ * This handler runs on the I/O threads of the client, so it never waits for the cache: when the response has to be
+ * merged with a cached one, the wrapped handler is completed once the cache lookup is done, and `onCompleted` returns
+ * `null`, unless the cache is a [[SyncCache]]. The result of the wrapped handler is always available through
+ * [[future]].
  */
 class AsyncCachingHandler[T](
     request: Request,
@@ -25,6 +35,7 @@ class AsyncCachingHandler[T](
     maybeAction: Option[ResponseServeAction],
     ahcConfig: AsyncHttpClientConfig
 ) extends AsyncHandler[T]
+    with ForwardingConnectionEvents[T]
     with TimeoutResponse
     with Debug {
 
@@ -37,12 +48,29 @@ class AsyncCachingHandler[T](
 
   protected val requestTime: ZonedDateTime = HttpDate.now
 
-  protected val key: EffectiveURIKey = EffectiveURIKey(request)
+  protected val key: EffectiveURIKey = cache.cacheKey(request)
 
+  /**
+   * The request as the cache decisions take it, shared by every decision taken on the response.
+   */
+  protected lazy val context: CacheRequestContext = cache.context(request)
+
+  /**
+   * How long to wait for the cache before acting as if nothing was cached.
+   */
   protected val timeout: Duration = scala.concurrent.duration.Duration(1, "second")
 
+  private val result = new CompletableFuture[T]()
+
   protected lazy val timeoutResponse: CacheableResponse = generateTimeoutResponse(request, ahcConfig)
 
+  override protected def eventTarget: AsyncHandler[?] = handler
+
+  /**
+   * Completes with the result of the wrapped handler, which can be after this handler completed.
+   */
+  def future: CompletableFuture[T] = result
+
   /**
    * Invoked if something wrong happened inside the previous methods or when an I/O exception occurs.
    */
@@ -147,17 +175,17 @@ class AsyncCachingHandler[T](
   }
 
   protected def processTimeoutResponse(): Unit = {
-    handler.onCompleted(timeoutResponse)
+    complete(timeoutResponse).get
+    ()
   }
 
   protected def processDisconnectedResponse(): T = {
     logger.debug(s"processDisconnectedResponse:")
 
-    val result        = Await.result(cache.get(key), timeout)
-    val finalResponse = result match {
+    completeWithCacheEntry {
       case Some(entry) =>
-        val currentAge        = cache.calculateCurrentAge(request, entry, requestTime)
-        val freshnessLifetime = cache.calculateFreshnessLifetime(request, entry)
+        val currentAge        = cache.calculateCurrentAge(context, entry, requestTime)
+        val freshnessLifetime = cache.calculateFreshnessLifetime(context, entry)
         val isFresh           = freshnessLifetime.isGreaterThan(currentAge)
 
         cache.addRevalidationFailed {
@@ -170,16 +198,14 @@ class AsyncCachingHandler[T](
         // Nothing in cache.  Return the timeout.
         timeoutResponse
     }
-    handler.onCompleted(finalResponse)
   }
 
   protected def processStaleResponse(response: CacheableResponse): T = {
     logger.debug(s"processCachedResponse: response = ${debug(response)}")
 
-    val result        = Await.result(cache.get(key), timeout)
-    val finalResponse = result match {
+    completeWithCacheEntry {
       case Some(entry) =>
-        val currentAge = cache.calculateCurrentAge(request, entry, requestTime)
+        val currentAge = cache.calculateCurrentAge(context, entry, requestTime)
 
         cache.addRevalidationFailed {
           cache.generateCachedResponse(request, entry, currentAge, isFresh = false)
@@ -189,41 +215,69 @@ class AsyncCachingHandler[T](
         // Nothing in cache.  Return the error.
         response
     }
-    handler.onCompleted(finalResponse)
   }
 
   protected def processFullResponse(fullResponse: CacheableResponse): T = {
     logger.debug(s"processFullResponse: fullResponse = ${debug(fullResponse)}")
     import org.playframework.cachecontrol.ResponseCachingActions._
 
-    cache.cachingAction(request, fullResponse) match {
+    cache.cachingAction(context, fullResponse) match {
       case DoNotCacheResponse(reason) =>
         logger.debug(s"onCompleted: DO NOT CACHE, because $reason")
       case DoCacheResponse(reason) =>
         logger.debug(s"isCacheable: DO CACHE, because $reason")
-        cache.cacheResponse(request, fullResponse)
+        cache.cacheResponse(context, fullResponse)
     }
-    handler.onCompleted(fullResponse)
+    complete(fullResponse).get
   }
 
   protected def processNotModifiedResponse(notModifiedResponse: CacheableResponse): T = {
     logger.trace(s"processNotModifiedResponse: notModifiedResponse = $notModifiedResponse")
 
-    val result = Await.result(cache.get(key), timeout)
-    logger.debug(s"processNotModifiedResponse: result = $result")
+    completeWithCacheEntry { cached =>
+      logger.debug(s"processNotModifiedResponse: cached = $cached")
+      cached match {
+        case Some(entry) =>
+          val newHeaders    = notModifiedResponse.getHeaders
+          val freshResponse = cache.freshenResponse(newHeaders, entry.response)
+          cache.cacheResponse(context, freshResponse)
+          freshResponse
+        case None =>
+          notModifiedResponse
+      }
+    }
+  }
+
+  /**
+   * Completes the wrapped handler with the response built from the variant stored for the request, once the cache has
+   * been read. A cache that fails, or takes longer than `timeout`, is treated as having no entry.
+   *
+   * @return the result of the wrapped handler if the cache is a [[SyncCache]], which is read on this thread, or
+   *         `null` otherwise, as the wrapped handler completes later, on the execution context of the cache.
+   */
+  protected def completeWithCacheEntry(response: Option[ResponseEntry] => CacheableResponse): T = {
+    implicit val ec: ExecutionContext = cache.executionContext
+
+    cache.getVariantsNow(key) match {
+      case Some(entries) =>
+        complete(response(cache.selectVariant(request, entries))).get
 
-    // FIXME XXX Find the response which matches the secondary keys...
-    val fullResponse = result match {
-      case Some(entry) =>
-        val newHeaders    = notModifiedResponse.getHeaders
-        val freshResponse = cache.freshenResponse(newHeaders, entry.response)
-        cache.cacheResponse(request, freshResponse)
-        freshResponse
       case None =>
-        notModifiedResponse
+        cache.lookupVariants(key, timeout).map(entries => response(cache.selectVariant(request, entries))).onComplete {
+          case Success(finalResponse) => complete(finalResponse)
+          case Failure(e)             => result.completeExceptionally(e)
+        }
+        null.asInstanceOf[T]
     }
+  }
 
-    handler.onCompleted(fullResponse)
+  private def complete(response: => CacheableResponse): Try[T] = {
+    val value = Try(handler.onCompleted(response))
+    value match {
+      case Success(t) => result.complete(t)
+      case Failure(e) => result.completeExceptionally(e)
+    }
+    value
   }
 
   override def toString = {
@@ -11,10 +11,11 @@ import org.slf4j.Logger
 import org.slf4j.LoggerFactory
 import play.shaded.ahc.io.netty.handler.codec.http.HttpHeaders
 
-import scala.concurrent.Await
-
 /**
  * An async handler that accumulates a response and stores it to cache in the background.
+ *
+ * This handler runs on the I/O threads of the client, so it never waits for the cache: a response that has to be
+ * merged with a cached one is stored once the cache lookup is done, on the execution context of the cache.
  */
 class BackgroundAsyncHandler[T](request: Request, cache: AhcHttpCache, ahcConfig: AsyncHttpClientConfig)
     extends AsyncHandler[T]
@@ -26,7 +27,9 @@ class BackgroundAsyncHandler[T](request: Request, cache: AhcHttpCache, ahcConfig
 
   private val builder = new CacheableResponseBuilder(ahcConfig)
 
-  private val key = EffectiveURIKey(request)
+  private val key = cache.cacheKey(request)
+
+  private lazy val context = cache.context(request)
 
   @throws(classOf[Exception])
   def onBodyPartReceived(content: HttpResponseBodyPart): AsyncHandler.State = {
@@ -66,34 +69,39 @@ class BackgroundAsyncHandler[T](request: Request, cache: AhcHttpCache, ahcConfig
   protected def processFullResponse(fullResponse: CacheableResponse): Unit = {
     logger.debug(s"processFullResponse: fullResponse = ${debug(fullResponse)}")
 
-    cache.cachingAction(request, fullResponse) match {
+    cache.cachingAction(context, fullResponse) match {
       case DoNotCacheResponse(reason) =>
         logger.debug(s"onCompleted: DO NOT CACHE, because $reason")
       case DoCacheResponse(reason) =>
         logger.debug(s"isCacheable: DO CACHE, because $reason")
-        cache.cacheResponse(request, fullResponse)
+        cache.cacheResponse(context, fullResponse)
     }
   }
 
   protected def processNotModifiedResponse(notModifiedResponse: CacheableResponse): Unit = {
     logger.trace(s"processNotModifiedResponse: notModifiedResponse = $notModifiedResponse")
 
-    val result = Await.result(cache.get(key), timeout)
-    logger.debug(s"processNotModifiedResponse: result = $result")
-
-    // FIXME XXX Find the response which matches the secondary keys...
-    result match {
-      case Some(entry) =>
-        val newHeaders    = notModifiedResponse.getHeaders
-        val freshResponse = cache.freshenResponse(newHeaders, entry.response)
-        cache.cacheResponse(request, freshResponse)
-      case None =>
-      // XXX FIXME what do we do if we have a 304 and there's nothing in the cache for it?
-      // If we make another call and it sends us another 304 back, we can get stuck in an
-      // endless loop?
-
+    def freshen(entries: Seq[ResponseEntry]): Unit = {
+      val result = cache.selectVariant(request, entries)
+      logger.debug(s"processNotModifiedResponse: result = $result")
+
+      result match {
+        case Some(entry) =>
+          val newHeaders    = notModifiedResponse.getHeaders
+          val freshResponse = cache.freshenResponse(newHeaders, entry.response)
+          cache.cacheResponse(context, freshResponse)
+        case None =>
+        // XXX FIXME what do we do if we have a 304 and there's nothing in the cache for it?
+        // If we make another call and it sends us another 304 back, we can get stuck in an
+        // endless loop?
+
+      }
     }
 
+    cache.getVariantsNow(key) match {
+      case Some(entries) => freshen(entries)
+      case None          => cache.lookupVariants(key, timeout).foreach(freshen)(cache.executionContext)
+    }
   }
 
 }
@@ -51,3 +51,67 @@ trait Cache {
   def close(): Unit
 
 }
+
+/**
+ * A [[Cache]] that answers right away, such as an in-process store.
+ *
+ * [[AhcHttpCache]] and [[CachingAsyncHttpClient]] call these methods directly on the calling thread, which saves
+ * the futures and the thread hops of the asynchronous methods on every lookup. They must not block.
+ *
+ * {{{
+ * class MapHttpCache extends SyncCache {
+ *   private val underlying = new ConcurrentHashMap[EffectiveURIKey, ResponseEntry]()
+ *
+ *   def getNow(key: EffectiveURIKey): Option[ResponseEntry] = Option(underlying.get(key))
+ *
+ *   def putNow(key: EffectiveURIKey, entry: ResponseEntry): Unit = underlying.put(key, entry)
+ *
+ *   def removeNow(key: EffectiveURIKey): Unit = underlying.remove(key)
+ *
+ *   def close(): Unit = underlying.clear()
+ * }
+ * }}}
+ */
+trait SyncCache extends Cache {
+
+  def getNow(key: EffectiveURIKey): Option[ResponseEntry]
+
+  def putNow(key: EffectiveURIKey, entry: ResponseEntry): Unit
+
+  def removeNow(key: EffectiveURIKey): Unit
+
+  /**
+   * Returns every variant stored for the key, see [[VariantCache]]. Caches that keep a single response per key do not
+   * need to override it.
+   */
+  def getVariantsNow(key: EffectiveURIKey): Seq[ResponseEntry] = getNow(key).toList
+
+  override def get(key: EffectiveURIKey): Future[Option[ResponseEntry]] = Future.successful(getNow(key))
+
+  override def put(key: EffectiveURIKey, entry: ResponseEntry): Future[Unit] = {
+    putNow(key, entry)
+    Future.unit
+  }
+
+  override def remove(key: EffectiveURIKey): Future[Unit] = {
+    removeNow(key)
+    Future.unit
+  }
+}
+
+/**
+ * A [[Cache]] that keeps a response for each variant of a resource, rather than a single response per key. The
+ * variants of a key are the responses whose Vary header nominates the same request headers, with different values,
+ * such as the gzip and the identity encodings of a resource that varies on Accept-Encoding. They are told apart by
+ * their `ResponseEntry.nominatedHeaders`.
+ *
+ * `put` replaces the response of the same variant only, `remove` removes every variant of the key, and `get` returns
+ * any of them.
+ *
+ * A cache that is also a [[SyncCache]] should override `getVariantsNow` as well.
+ */
+trait VariantCache extends Cache {
+
+  def getVariants(key: EffectiveURIKey): Future[Seq[ResponseEntry]]
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc.cache
+
+import java.net.URI
+import java.util.Locale
+
+/**
+ * Normalizes the keys of the HTTP cache, so that requests for the same resource through URIs that only differ in
+ * form share their cached responses.
+ *
+ * The normalized URI is only used to look up, store and invalidate responses: the request sent to the origin server
+ * is left as it is. A normalizer must therefore only merge URIs that the origin server answers in the same way.
+ *
+ * {{{
+ * val normalizer = CacheKeyNormalizer.canonicalForm
+ *   .andThen(CacheKeyNormalizer.dropQueryParameters(Seq("utm_*", "fbclid")))
+ *   .andThen(CacheKeyNormalizer.sortedQuery)
+ * val cache = new AhcHttpCache(new InMemoryHttpCache(maxWeight = 64L * 1024 * 1024), false, normalizer)
+ * }}}
+ *
+ * The built-in rules can also be configured through `play.ws.cache.keyNormalization`, see
+ * [[AhcHttpCacheKeyNormalization]].
+ */
+trait CacheKeyNormalizer {
+
+  def normalize(key: EffectiveURIKey): EffectiveURIKey
+
+  /**
+   * Returns a normalizer that applies this normalizer, then the given one.
+   */
+  def andThen(next: CacheKeyNormalizer): CacheKeyNormalizer = {
+    val first = this
+    new CacheKeyNormalizer {
+      def normalize(key: EffectiveURIKey): EffectiveURIKey = next.normalize(first.normalize(key))
+
+      override def toString: String = s"$first.andThen($next)"
+    }
+  }
+}
+
+object CacheKeyNormalizer {
+
+  /**
+   * Leaves the keys as they are.
+   */
+  val identity: CacheKeyNormalizer = new CacheKeyNormalizer {
+    def normalize(key: EffectiveURIKey): EffectiveURIKey = key
+
+    override def toString: String = "identity"
+  }
+
+  /**
+   * Applies the normalizations that keep URIs equivalent, see https://tools.ietf.org/html/rfc3986#section-6.2.2
+   * and https://tools.ietf.org/html/rfc7230#section-2.7.3: lower-cases the scheme and the host, drops the default
+   * port, uses "/" for an empty path, upper-cases the hexadecimal digits of percent-encoded octets and decodes those
+   * of unreserved characters.
+   */
+  val canonicalForm: CacheKeyNormalizer = new CacheKeyNormalizer {
+    def normalize(key: EffectiveURIKey): EffectiveURIKey = {
+      val uri = key.uri
+      if (uri.isOpaque || uri.getHost == null) key
+      else {
+        val scheme = uri.getScheme.toLowerCase(Locale.ROOT)
+        val port   = uri.getPort match {
+          case 80 if scheme == "http"   => -1
+          case 443 if scheme == "https" => -1
+          case other                    => other
+        }
+        val path = Option(uri.getRawPath).filter(_.nonEmpty).getOrElse("/")
+        key.copy(
+          uri = build(
+            scheme,
+            uri.getRawUserInfo,
+            uri.getHost.toLowerCase(Locale.ROOT),
+            port,
+            canonicalEncoding(path),
+            Option(uri.getRawQuery).map(canonicalEncoding)
+          )
+        )
+      }
+    }
+
+    override def toString: String = "canonicalForm"
+  }
+
+  /**
+   * Sorts the query parameters by name. Parameters with the same name keep their order, as it can matter to the
+   * origin server.
+   */
+  val sortedQuery: CacheKeyNormalizer = new CacheKeyNormalizer {
+    def normalize(key: EffectiveURIKey): EffectiveURIKey = {
+      withQueryParameters(key)(_.sortBy(parameterName))
+    }
+
+    override def toString: String = "sortedQuery"
+  }
+
+  /**
+   * Drops the given query parameters, such as tracking parameters that the origin server ignores.
+   *
+   * @param names the names of the parameters. A name ending with `*` matches every parameter starting with the rest
+   *              of the name, such as `utm_*`.
+   */
+  def dropQueryParameters(names: Seq[String]): CacheKeyNormalizer = {
+    val (prefixes, exact) = names.partition(_.endsWith("*"))
+    val exactNames        = exact.toSet
+    val namePrefixes      = prefixes.map(_.dropRight(1))
+
+    if (names.isEmpty) identity
+    else
+      new CacheKeyNormalizer {
+        def normalize(key: EffectiveURIKey): EffectiveURIKey = {
+          withQueryParameters(key)(_.filterNot { parameter =>
+            val name = parameterName(parameter)
+            exactNames.contains(name) || namePrefixes.exists(name.startsWith)
+          })
+        }
+
+        override def toString: String = names.mkString("dropQueryParameters(", ", ", ")")
+      }
+  }
+
+  /**
+   * Creates the normalizer described by the configuration.
+   */
+  def apply(config: AhcHttpCacheKeyNormalization): CacheKeyNormalizer = {
+    val canonical = if (config.canonical) canonicalForm else identity
+    val dropped   = canonical.andThen(dropQueryParameters(config.ignoredQueryParameters))
+    if (config.sortQuery) dropped.andThen(sortedQuery) else dropped
+  }
+
+  private def withQueryParameters(key: EffectiveURIKey)(f: Seq[String] => Seq[String]): EffectiveURIKey = {
+    val uri = key.uri
+    Option(uri.getRawQuery) match {
+      case Some(query) if !uri.isOpaque && uri.getHost != null =>
+        val parameters = f(query.split('&').toSeq.filter(_.nonEmpty))
+        val newQuery   = if (parameters.isEmpty) None else Some(parameters.mkString("&"))
+        key.copy(uri = build(uri.getScheme, uri.getRawUserInfo, uri.getHost, uri.getPort, uri.getRawPath, newQuery))
+      case _ =>
+        key
+    }
+  }
+
+  private def parameterName(parameter: String): String = {
+    val separator = parameter.indexOf('=')
+    if (separator < 0) parameter else parameter.substring(0, separator)
+  }
+
+  // Builds the URI from its raw components, so that they are not encoded again. The fragment is not part of the key.
+  private def build(
+      scheme: String,
+      userInfo: String,
+      host: String,
+      port: Int,
+      path: String,
+      query: Option[String]
+  ): URI = {
+    val sb = new java.lang.StringBuilder(scheme).append("://")
+    if (userInfo != null) sb.append(userInfo).append('@')
+    sb.append(if (host.contains(':') && !host.startsWith("[")) s"[$host]" else host)
+    if (port >= 0) sb.append(':').append(port)
+    if (path != null) sb.append(path)
+    query.foreach(sb.append('?').append(_))
+    new URI(sb.toString)
+  }
+
+  private def canonicalEncoding(s: String): String = {
+    if (s.indexOf('%') < 0) s
+    else {
+      val sb = new java.lang.StringBuilder(s.length)
+      var i  = 0
+      while (i < s.length) {
+        val c = s.charAt(i)
+        if (c == '%' && i + 2 < s.length && isHex(s.charAt(i + 1)) && isHex(s.charAt(i + 2))) {
+          val decoded = Integer.parseInt(s.substring(i + 1, i + 3), 16).toChar
+          if (isUnreserved(decoded)) sb.append(decoded)
+          else sb.append('%').append(s.substring(i + 1, i + 3).toUpperCase(Locale.ROOT))
+          i += 3
+        } else {
+          sb.append(c)
+          i += 1
+        }
+      }
+      sb.toString
+    }
+  }
+
+  private def isHex(c: Char): Boolean = Character.digit(c, 16) >= 0
+
+  // https://tools.ietf.org/html/rfc3986#section-2.3
+  private def isUnreserved(c: Char): Boolean = {
+    (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') ||
+    c == '-' || c == '.' || c == '_' || c == '~'
+  }
+}
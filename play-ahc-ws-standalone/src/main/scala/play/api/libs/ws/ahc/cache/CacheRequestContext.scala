@@ -0,0 +1,25 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc.cache
+
+import org.playframework.cachecontrol.CacheRequest
+import play.shaded.ahc.org.asynchttpclient.Request
+
+/**
+ * A request as [[AhcHttpCache]] sees it, built once by [[AhcHttpCache.context]] and shared by every decision taken
+ * while serving, validating and storing its response, so that its headers and directives are only parsed once.
+ *
+ * @param request the request.
+ * @param cacheRequest the request as the cache control calculators take it.
+ * @param key the primary cache key of the request, normalized by the cache.
+ */
+final class CacheRequestContext private[cache] (
+    val request: Request,
+    val cacheRequest: CacheRequest,
+    val key: EffectiveURIKey
+) {
+
+  override def toString: String = s"CacheRequestContext($key)"
+}
@@ -5,16 +5,24 @@
 package play.api.libs.ws.ahc.cache
 
 import java.io._
+import java.util.concurrent.CancellationException
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.LongAdder
 import java.util.function.Predicate
 import java.time.ZonedDateTime
+import java.util.Locale
 
 import org.slf4j.LoggerFactory
 import play.shaded.ahc.io.netty.handler.codec.http.DefaultHttpHeaders
 import play.shaded.ahc.org.asynchttpclient.handler.StreamedAsyncHandler
 import play.shaded.ahc.org.asynchttpclient.{ Response => AHCResponse, _ }
 
-import scala.concurrent.Await
 import scala.concurrent.ExecutionContext
+import scala.jdk.CollectionConverters._
+import scala.util.Failure
+import scala.util.Success
+import scala.util.control.NonFatal
 
 trait TimeoutResponse {
 
@@ -43,6 +51,32 @@ class CachingAsyncHttpClient(underlying: AsyncHttpClient, ahcHttpCache: AhcHttpC
 
   private val cacheTimeout = scala.concurrent.duration.Duration(1, "second")
 
+  private val coalescer = new RequestCoalescer
+
+  private val backgroundValidations = ConcurrentHashMap.newKeySet[CoalescingKey]()
+
+  /**
+   * Returns how many cache misses and revalidations went to the origin server, and how many waited for them.
+   */
+  def coalescingStats: RequestCoalescer.Stats = coalescer.stats
+
+  private val freshHits   = new LongAdder
+  private val staleHits   = new LongAdder
+  private val misses      = new LongAdder
+  private val validations = new LongAdder
+  private val timeouts    = new LongAdder
+
+  /**
+   * Returns how the requests that went through the cache were served.
+   */
+  def cacheStats: CachingAsyncHttpClient.Stats = CachingAsyncHttpClient.Stats(
+    hitCount = freshHits.sum(),
+    staleHitCount = staleHits.sum(),
+    missCount = misses.sum(),
+    validationCount = validations.sum(),
+    timeoutCount = timeouts.sum()
+  )
+
   def close(): Unit = {
     underlying.close()
   }
@@ -71,28 +105,182 @@ class CachingAsyncHttpClient(underlying: AsyncHttpClient, ahcHttpCache: AhcHttpC
     }
 
     // Ask the cache if it has anything matching the primary key...
-    val key          = EffectiveURIKey(request)
-    val requestTime  = HttpDate.now
-    val entryResults = Await.result(ahcHttpCache.get(key), cacheTimeout).toList
+    val context     = ahcHttpCache.context(request)
+    val requestTime = HttpDate.now
+    ahcHttpCache.getVariantsNow(context.key) match {
+      case Some(entries) =>
+        executeWithEntries(context, handler, requestTime, entries.toList)
+
+      case None =>
+        // The caller can be an I/O thread of the client, so the request goes on once the cache has answered.
+        val result      = new CompletableFuture[T]()
+        val cacheFuture = new CacheFuture[T](handler)
+        cacheFuture.setInnerFuture(result)
+        ahcHttpCache.lookupVariants(context.key, cacheTimeout).foreach { entries =>
+          if (!result.isDone) {
+            try relay(executeWithEntries(context, handler, requestTime, entries.toList), result)
+            catch {
+              case NonFatal(e) =>
+                handler.onThrowable(e)
+                result.completeExceptionally(e)
+            }
+          }
+        }
+        cacheFuture
+    }
+  }
+
+  private def executeWithEntries[T](
+      context: CacheRequestContext,
+      handler: AsyncCompletionHandler[T],
+      requestTime: ZonedDateTime,
+      entryResults: List[ResponseEntry]
+  )(implicit ec: ExecutionContext): ListenableFuture[T] = {
+    val request = context.request
+    val key     = context.key
     if (logger.isDebugEnabled) {
       logger.debug(s"execute $key: results = $entryResults")
     }
 
     // Selects a response out of the results -- if there is no selected response, then
     // depending on the Cache-Control header values, the response may be to timeout or forward.
-    ahcHttpCache.selectionAction(request, entryResults) match {
+    ahcHttpCache.selectionAction(context, entryResults) match {
       case SelectedResponse(_, index) =>
         val entry = entryResults(index)
         logger.debug(s"execute $key: selected from cache: $entry")
-        serveResponse(handler, request, entry, requestTime)
+        serveResponse(handler, context, entry, requestTime)
 
       case GatewayTimeout(reason) =>
         logger.debug(s"execute $key: $reason -- timing out ")
+        timeouts.increment()
         serveTimeout(request, handler)
 
       case ForwardToOrigin(reason) =>
         logger.debug(s"execute $key: $reason -- forwarding to origin server")
-        underlying.executeRequest(request, cacheAsyncHandler(request, handler))
+        misses.increment()
+        coalesce(request, request, handler, entryResults, None)
+    }
+  }
+
+  /**
+   * Sends the request to the origin server, unless an identical request is already on its way there, in which case
+   * its response is shared. If that request fails or is cancelled, the waiting requests are sent on their own.
+   *
+   * A hedge of a request, see `play.api.libs.ws.filters.Hedging`, is identical to it and waits for its response
+   * instead of going to the origin server, so hedging only helps the requests the cache does not coalesce.
+   */
+  protected def coalesce[T](
+      request: Request,
+      originRequest: Request,
+      handler: AsyncCompletionHandler[T],
+      entries: Seq[ResponseEntry],
+      action: Option[ResponseServeAction]
+  )(implicit ec: ExecutionContext): ListenableFuture[T] = {
+    import RequestCoalescer._
+
+    if (ahcHttpCache.isUnsafeMethod(request) || carriesCredentials(request)) {
+      // Requests made on behalf of a user are never coalesced, so that no one is served a response meant for another.
+      executeCaching(originRequest, cacheAsyncHandler(request, handler, action))
+    } else {
+      coalescer.join(CoalescingKey(ahcHttpCache.cacheKey(request), request, entries), request) match {
+        case Leader(flight) =>
+          val coalescingHandler = new CoalescingAsyncHandler(handler, flight)
+          val cachingHandler    = cacheAsyncHandler(request, coalescingHandler, action)
+          val future            = executeCaching(originRequest, cachingHandler)
+          cachingHandler.future.whenComplete { (_: T, t: Throwable) =>
+            // Make sure waiters are released even if the handler never saw the failure.
+            if (t != null) flight.complete(Failure(t))
+          }
+          future
+
+        case Follower(flight) =>
+          logger.debug(s"coalesce: waiting for $flight")
+          val result      = new CompletableFuture[T]()
+          val cacheFuture = new CacheFuture[T](handler)
+          cacheFuture.setInnerFuture(result)
+          flight.future.onComplete {
+            case Success(response) if isShareable(flight.request, request, response) =>
+              try result.complete(new AsyncCacheableConnection[T](handler, request, response, cacheFuture).call())
+              catch { case NonFatal(e) => result.completeExceptionally(e) }
+
+            case Success(_) =>
+              // The response varies on a header the two requests disagree on, or may not be stored, so it cannot be
+              // shared.
+              relay(execute(request, handler, null), result)
+
+            case Failure(t) =>
+              // The failure, or the cancellation, was the leader's own: this request still gets its chance.
+              logger.debug(s"coalesce: $flight failed, sending $request on its own", t)
+              if (!result.isDone) {
+                try relay(executeCaching(originRequest, cacheAsyncHandler(request, handler, action)), result)
+                catch {
+                  case NonFatal(e) =>
+                    handler.onThrowable(e)
+                    result.completeExceptionally(e)
+                }
+              }
+          }
+          cacheFuture
+      }
+    }
+  }
+
+  /**
+   * Completes the result with the future, and cancels the future if the result is cancelled.
+   */
+  private def relay[T](future: ListenableFuture[T], result: CompletableFuture[T]): Unit = {
+    future.toCompletableFuture.whenComplete { (t: T, e: Throwable) =>
+      if (e != null) result.completeExceptionally(e) else result.complete(t)
+    }
+    result.whenComplete { (_: T, e: Throwable) =>
+      if (e.isInstanceOf[CancellationException]) future.cancel(true)
+    }
+  }
+
+  /**
+   * Sends the request to the origin server through the caching handler. The returned future completes with the result
+   * of the handler, which can be after the response was received, when it is merged with a cached response.
+   */
+  protected def executeCaching[T](request: Request, cachingHandler: AsyncCachingHandler[T]): ListenableFuture[T] = {
+    // A failed request is not forwarded: the handler is told about it, and may still serve a cached response.
+    val origin = underlying.executeRequest(request, cachingHandler)
+    cachingHandler.future.whenComplete { (_: T, t: Throwable) =>
+      if (t.isInstanceOf[CancellationException]) origin.cancel(true)
+    }
+
+    val cacheFuture = new CacheFuture[T](cachingHandler)
+    cacheFuture.setInnerFuture(cachingHandler.future)
+    cacheFuture
+  }
+
+  /**
+   * Whether the request carries credentials, in its headers or through a realm. A signature calculator adds its
+   * signature to the headers when the request is built.
+   */
+  protected def carriesCredentials(request: Request): Boolean = {
+    val headers = request.getHeaders
+    headers.contains("Authorization") || headers.contains("Cookie") || !request.getCookies.isEmpty ||
+    request.getRealm != null
+  }
+
+  /**
+   * Whether the response to the leading request can also be served to the waiting request: the response must be one
+   * the cache may store, must not set cookies or be private, and must not vary on a header the requests disagree on.
+   */
+  protected def isShareable(leaderRequest: Request, request: Request, response: CacheableResponse): Boolean = {
+    val headers = response.getHeaders
+
+    def values(name: String) =
+      headers.getAll(name).asScala.flatMap(_.split(',')).map(_.trim.toLowerCase(Locale.ROOT)).filter(_.nonEmpty)
+
+    val storable = ahcHttpCache.cachingAction(leaderRequest, response) match {
+      case ResponseCachingActions.DoCacheResponse(_) => true
+      case _                                         => false
+    }
+
+    storable && !headers.contains("Set-Cookie") && !values("Cache-Control").exists(_.startsWith("private")) &&
+    values("Vary").forall { name =>
+      name != "*" && leaderRequest.getHeaders.getAll(name) == request.getHeaders.getAll(name)
     }
   }
 
@@ -105,14 +293,28 @@ class CachingAsyncHttpClient(underlying: AsyncHttpClient, ahcHttpCache: AhcHttpC
       entry: ResponseEntry,
       requestTime: ZonedDateTime
   )(implicit ec: ExecutionContext): ListenableFuture[T] = {
+    serveResponse(handler, ahcHttpCache.context(request), entry, requestTime)
+  }
 
-    val key = EffectiveURIKey(request)
+  /**
+   * Serves a future containing the response, based on the cache behavior.
+   */
+  protected def serveResponse[T](
+      handler: AsyncCompletionHandler[T],
+      context: CacheRequestContext,
+      entry: ResponseEntry,
+      requestTime: ZonedDateTime
+  )(implicit ec: ExecutionContext): ListenableFuture[T] = {
+
+    val request = context.request
+    val key     = context.key
 
-    val currentAge = ahcHttpCache.calculateCurrentAge(request, entry, requestTime)
+    val currentAge = ahcHttpCache.calculateCurrentAge(context, entry, requestTime)
 
-    ahcHttpCache.serveAction(request, entry, currentAge) match {
+    ahcHttpCache.serveAction(context, entry, currentAge) match {
       case ServeFresh(reason) =>
         logger.debug(s"serveResponse $key: $reason -- serving fresh response")
+        freshHits.increment()
 
         // Serve fresh responses from cache, without going to the origin server.
         val freshResponse = ahcHttpCache.generateCachedResponse(request, entry, currentAge, isFresh = true)
@@ -120,6 +322,7 @@ class CachingAsyncHttpClient(underlying: AsyncHttpClient, ahcHttpCache: AhcHttpC
 
       case ServeStale(reason) =>
         logger.debug(s"serveResponse $key: $reason -- serving stale response found for $key")
+        staleHits.increment()
 
         // Serve stale response from cache, without going to the origin sever.
         val staleResponse = ahcHttpCache.generateCachedResponse(request, entry, currentAge, isFresh = false)
@@ -127,6 +330,7 @@ class CachingAsyncHttpClient(underlying: AsyncHttpClient, ahcHttpCache: AhcHttpC
 
       case ServeStaleAndValidate(reason) =>
         logger.debug(s"serveResponse $key: $reason - serving stale response and revalidating for $key")
+        staleHits.increment()
 
         // XXX FIXME How does stale-while-revalidate interact with POST / unsafe methods?
         //        A cache MUST write through requests with methods that are unsafe
@@ -134,10 +338,16 @@ class CachingAsyncHttpClient(underlying: AsyncHttpClient, ahcHttpCache: AhcHttpC
         //    not allowed to generate a reply to such a request before having
         //    forwarded the request and having received a corresponding response.
 
-        // Run a validation request in a future (which will update the cache later)...
-        val response          = entry.response
-        val validationRequest = buildValidationRequest(request, response)
-        underlying.executeRequest(validationRequest, backgroundAsyncHandler[AHCResponse](validationRequest))
+        // Run a validation request in a future (which will update the cache later), unless one is running already...
+        val validationKey = CoalescingKey(key, request, Seq(entry))
+        if (backgroundValidations.add(validationKey)) {
+          val response          = entry.response
+          val validationRequest = buildValidationRequest(request, response)
+          underlying
+            .executeRequest(validationRequest, backgroundAsyncHandler[AHCResponse](validationRequest))
+            .toCompletableFuture
+            .whenComplete((_: AHCResponse, _: Throwable) => backgroundValidations.remove(validationKey))
+        }
 
         // ...AND return the response from cache.
         val staleResponse = ahcHttpCache.generateCachedResponse(request, entry, currentAge, isFresh = false)
@@ -145,22 +355,24 @@ class CachingAsyncHttpClient(underlying: AsyncHttpClient, ahcHttpCache: AhcHttpC
 
       case action @ Validate(reason, staleIfError) =>
         logger.debug(s"serveResponse $key: $reason -- revalidate with staleIfError = $staleIfError")
+        validations.increment()
 
         // Stale response requires talking to the origin server first.
         // The origin server can return a 304 Not Modified with no body,
         // so the stale response could still be used... we just need to check.
         val response          = entry.response
         val validationRequest = buildValidationRequest(request, response)
-        underlying.executeRequest(validationRequest, cacheAsyncHandler(validationRequest, handler, Some(action)))
+        coalesce(validationRequest, validationRequest, handler, Seq(entry), Some(action))
 
       case action @ ValidateOrTimeout(reason) =>
         logger.debug(s"serveResponse: $reason -- must revalidate and timeout on disconnect")
+        validations.increment()
 
         // Same as validate, but if the origin server cannot be reached, return a 504 gateway
         // timeout response instead of serving a stale response.
         val response          = entry.response
         val validationRequest = buildValidationRequest(request, response)
-        underlying.executeRequest(validationRequest, cacheAsyncHandler(request, handler, Some(action)))
+        coalesce(request, validationRequest, handler, Seq(entry), Some(action))
     }
   }
 
@@ -317,3 +529,18 @@ class CachingAsyncHttpClient(underlying: AsyncHttpClient, ahcHttpCache: AhcHttpC
 
   override def getConfig: AsyncHttpClientConfig = underlying.getConfig
 }
+
+object CachingAsyncHttpClient {
+
+  /**
+   * @param hitCount the number of requests served a fresh response from the cache.
+   * @param staleHitCount the number of requests served a stale response from the cache without waiting for the origin
+   *                      server, including those revalidated in the background.
+   * @param missCount the number of requests with no usable cached response, which went to the origin server.
+   * @param validationCount the number of requests whose cached response had to be revalidated with the origin server.
+   * @param timeoutCount the number of requests answered with a 504 because they only allowed cached responses.
+   */
+  case class Stats(hitCount: Long, staleHitCount: Long, missCount: Long, validationCount: Long, timeoutCount: Long) {
+    def requestCount: Long = hitCount + staleHitCount + missCount + validationCount + timeoutCount
+  }
+}
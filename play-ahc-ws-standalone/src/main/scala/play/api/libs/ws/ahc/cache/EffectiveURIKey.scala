@@ -9,6 +9,7 @@ import java.time.Instant
 import java.time.ZonedDateTime
 
 import org.playframework.cachecontrol.HeaderName
+import org.playframework.cachecontrol.StoredResponse
 import play.shaded.ahc.org.asynchttpclient._
 
 case class EffectiveURIKey(method: String, uri: URI) {
@@ -32,8 +33,21 @@ case class ResponseEntry(
     expiresAt: Option[ZonedDateTime]
 ) {
 
+  // The entry as the cache control calculators see it, kept so that every hit on the entry reuses its parsed headers.
+  @transient @volatile private var stored: StoredResponse = _
+
   /**
    * Has the entry expired yet?
    */
   def isExpired: Boolean = expiresAt.exists(_.toInstant.isBefore(Instant.now()))
+
+  private[cache] def storedResponse(generate: => StoredResponse): StoredResponse = {
+    var value = stored
+    if (value == null) {
+      // Racing threads generate equal responses, so either can be kept.
+      value = generate
+      stored = value
+    }
+    value
+  }
 }
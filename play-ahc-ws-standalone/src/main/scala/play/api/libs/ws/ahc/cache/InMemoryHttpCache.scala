@@ -0,0 +1,439 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc.cache
+
+import java.util
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicReferenceArray
+import java.util.concurrent.atomic.LongAdder
+import java.util.concurrent.locks.ReentrantLock
+
+import org.playframework.cachecontrol.HeaderName
+
+import scala.concurrent.Future
+import scala.jdk.CollectionConverters._
+
+/**
+ * A bounded, in-memory [[Cache]] that weighs entries by their size in bytes.
+ *
+ * The weight of an entry is the length of its body plus the length of its header names and values. Entries
+ * are dropped once their `expiresAt` has passed, and the cache never holds more than `maxWeight` bytes.
+ *
+ * Eviction follows W-TinyLFU: new entries go to a small LRU admission window, and entries leaving the window
+ * only replace an entry of the main segmented LRU if they have been asked for more often, as estimated by a
+ * count-min sketch that ages periodically. This keeps a burst of one-off responses from flushing the entries
+ * that are actually hit.
+ *
+ * Lookups do not take the lock of the cache. They record what they read in a small buffer, which is replayed on the
+ * eviction policy in batches, by the next write or by a lookup once the buffer fills up. Reads that find the buffer
+ * full are not recorded, which only makes the policy a little less accurate. Expired entries are dropped at the same
+ * time, whether they are looked up or not.
+ *
+ * Every variant of a resource is kept, see [[VariantCache]], and weighed and evicted on its own. Storing a response
+ * that varies on other request headers than the stored variants replaces all of them.
+ *
+ * {{{
+ * val cache = new InMemoryHttpCache(maxWeight = 64L * 1024 * 1024)
+ * val client = StandaloneAhcWSClient(httpCache = Some(new AhcHttpCache(cache)))
+ * }}}
+ *
+ * The cache can also be enabled through `play.ws.cache.enabled`, for clients created with their configuration, see
+ * [[AhcHttpCacheConfig]].
+ *
+ * @param maxWeight the maximum total weight of the cached entries, in bytes.
+ */
+class InMemoryHttpCache(maxWeight: Long) extends SyncCache with VariantCache {
+  require(maxWeight > 0, "maxWeight must be positive")
+
+  import InMemoryHttpCache._
+
+  private val windowMaxWeight    = math.max(1L, maxWeight / 100)
+  private val mainMaxWeight      = maxWeight - windowMaxWeight
+  private val protectedMaxWeight = mainMaxWeight * 8 / 10
+
+  // The variants stored for each key, most recently stored first. It is only written while holding the lock, so that
+  // lookups can read it without taking it.
+  private val data = new ConcurrentHashMap[EffectiveURIKey, List[Node]]()
+
+  // Guards the queues, the sketch and the expiry order.
+  private val lock = new ReentrantLock()
+
+  private val readBuffer = new ReadBuffer
+
+  // The nodes that expire, soonest first.
+  private val expiries   = new util.TreeSet[Node](ExpiryOrder)
+  private var nextNodeId = 0L
+
+  // The head of each queue is its least recently used node, and the tail its most recently used one.
+  private val window     = new AccessQueue
+  private val probation  = new AccessQueue
+  private val protectedQ = new AccessQueue
+
+  private val sketch = new FrequencySketch(math.max(256L, maxWeight / AverageEntryWeight).min(1L << 20).toInt)
+
+  private val hits        = new LongAdder
+  private val misses      = new LongAdder
+  private val evictions   = new LongAdder
+  private val expirations = new LongAdder
+
+  override def getNow(key: EffectiveURIKey): Option[ResponseEntry] = getIfPresent(key).headOption
+
+  override def getVariantsNow(key: EffectiveURIKey): Seq[ResponseEntry] = getIfPresent(key)
+
+  override def getVariants(key: EffectiveURIKey): Future[Seq[ResponseEntry]] = Future.successful(getIfPresent(key))
+
+  override def putNow(key: EffectiveURIKey, entry: ResponseEntry): Unit = store(key, entry)
+
+  override def removeNow(key: EffectiveURIKey): Unit = withLock {
+    data.getOrDefault(key, Nil).foreach(unlink)
+  }
+
+  override def close(): Unit = withLock {
+    readBuffer.drain(_ => ())
+    data.clear()
+    expiries.clear()
+    window.clear()
+    probation.clear()
+    protectedQ.clear()
+  }
+
+  /**
+   * Returns the hit, miss, eviction and expiration counts since the cache was created.
+   */
+  def stats: Stats = Stats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum())
+
+  /**
+   * Returns the number of cached entries, counting every variant.
+   */
+  def size: Int = withLock(window.size + probation.size + protectedQ.size)
+
+  /**
+   * Returns the total weight of the cached entries, in bytes.
+   */
+  def weightedSize: Long = withLock(window.weight + probation.weight + protectedQ.weight)
+
+  // A lookup is a hit if any variant is live, as the variant is selected by the caller. Expired variants are left for
+  // the maintenance to drop, which the lookup runs if nobody else holds the lock.
+  private def getIfPresent(key: EffectiveURIKey): List[ResponseEntry] = {
+    val now     = System.currentTimeMillis()
+    val nodes   = data.getOrDefault(key, Nil)
+    val live    = if (nodes.exists(_.isExpired(now))) nodes.filterNot(_.isExpired(now)) else nodes
+    val pending = readBuffer.offer(new Read(key.hashCode(), live))
+    if (live.isEmpty) misses.increment() else hits.increment()
+    if ((live ne nodes) || pending >= ReadBufferDrainThreshold) tryMaintain()
+    live.map(_.entry)
+  }
+
+  private def store(key: EffectiveURIKey, entry: ResponseEntry): Unit = {
+    val weight  = weigh(entry)
+    val variant = VariantKey(key, entry.nominatedHeaders)
+    withLock {
+      // Variants nominated by other headers were stored under another Vary header, and would not be selected.
+      data.getOrDefault(key, Nil).foreach { node =>
+        if (node.key == variant || node.key.nominatedHeaders.keySet != variant.nominatedHeaders.keySet) unlink(node)
+      }
+      if (weight <= maxWeight) {
+        sketch.increment(key.hashCode())
+        nextNodeId += 1
+        link(new Node(variant, entry, weight, nextNodeId))
+      }
+      maintain()
+    }
+  }
+
+  private def withLock[T](body: => T): T = {
+    lock.lock()
+    try body
+    finally lock.unlock()
+  }
+
+  private def tryMaintain(): Unit = {
+    if (lock.tryLock()) {
+      try maintain()
+      finally lock.unlock()
+    }
+  }
+
+  // Replays the buffered reads, drops the expired entries, and evicts down to the maximum weight.
+  private def maintain(): Unit = {
+    readBuffer.drain(onRead)
+    expire(System.currentTimeMillis())
+    evict()
+  }
+
+  private def onRead(read: Read): Unit = {
+    sketch.increment(read.hash)
+    // A node may have been dropped since it was read.
+    read.nodes.foreach(node => if (node.queue != null) onAccess(node))
+  }
+
+  private def expire(now: Long): Unit = {
+    while (!expiries.isEmpty && expiries.first().isExpired(now)) {
+      unlink(expiries.first())
+      expirations.increment()
+    }
+  }
+
+  private def onAccess(node: Node): Unit = {
+    if (node.queue eq probation) {
+      // A second hit promotes the node to the protected segment...
+      probation.remove(node)
+      protectedQ.addLast(node)
+      // ...which may push its least recently used nodes back onto probation.
+      while (protectedQ.weight > protectedMaxWeight && protectedQ.size > 1) {
+        val demoted = protectedQ.head
+        protectedQ.remove(demoted)
+        probation.addLast(demoted)
+      }
+    } else {
+      node.queue.moveToLast(node)
+    }
+  }
+
+  private def evict(): Unit = {
+    // Nodes leaving the admission window become candidates at the tail of probation.
+    while (window.weight > windowMaxWeight) {
+      val candidate = window.head
+      window.remove(candidate)
+      probation.addLast(candidate)
+    }
+
+    // Then the main segment is shrunk, pitting the newest candidate against the oldest victim.
+    while (probation.weight + protectedQ.weight > mainMaxWeight) {
+      val victim    = if (probation.size > 0) probation.head else protectedQ.head
+      val candidate = if (probation.size > 0) probation.tail else victim
+
+      if ((candidate eq victim) || sketch.frequency(candidate.hash) > sketch.frequency(victim.hash))
+        evictNode(victim)
+      else
+        evictNode(candidate)
+    }
+  }
+
+  private def evictNode(node: Node): Unit = {
+    unlink(node)
+    evictions.increment()
+  }
+
+  private def link(node: Node): Unit = {
+    data.put(node.key.primary, node :: data.getOrDefault(node.key.primary, Nil))
+    window.addLast(node)
+    if (node.expiresAt != Long.MaxValue) expiries.add(node)
+  }
+
+  private def unlink(node: Node): Unit = {
+    data.getOrDefault(node.key.primary, Nil).filterNot(_ eq node) match {
+      case Nil      => data.remove(node.key.primary)
+      case variants => data.put(node.key.primary, variants)
+    }
+    node.queue.remove(node)
+    if (node.expiresAt != Long.MaxValue) expiries.remove(node)
+  }
+
+  override def toString: String = s"InMemoryHttpCache(maxWeight = $maxWeight)"
+}
+
+object InMemoryHttpCache {
+
+  /**
+   * Cache statistics.
+   *
+   * @param hitCount the number of lookups that found a live entry.
+   * @param missCount the number of lookups that found no entry, or an expired one.
+   * @param evictionCount the number of entries dropped to stay within the maximum weight.
+   * @param expirationCount the number of entries dropped because they expired.
+   */
+  case class Stats(hitCount: Long, missCount: Long, evictionCount: Long, expirationCount: Long) {
+    def requestCount: Long = hitCount + missCount
+
+    def hitRate: Double = if (requestCount == 0) 1.0 else hitCount.toDouble / requestCount
+  }
+
+  // Used to size the frequency sketch, as the number of entries is not known up front.
+  private val AverageEntryWeight = 4096L
+
+  // A power of two, so that positions map to slots with a mask.
+  private val ReadBufferSize           = 128
+  private val ReadBufferDrainThreshold = ReadBufferSize / 2
+
+  /**
+   * A variant of a resource: the responses stored for the key whose Vary header nominated these request headers.
+   */
+  private final case class VariantKey(primary: EffectiveURIKey, nominatedHeaders: Map[HeaderName, Seq[String]])
+
+  private final class Node(val key: VariantKey, val entry: ResponseEntry, val weight: Long, val id: Long) {
+    var queue: AccessQueue = _
+    var prev: Node         = _
+    var next: Node         = _
+
+    // In milliseconds since the epoch, or Long.MaxValue if the entry does not expire.
+    val expiresAt: Long = entry.expiresAt.fold(Long.MaxValue)(_.toInstant.toEpochMilli)
+
+    def isExpired(now: Long): Boolean = expiresAt < now
+
+    // The frequency of a variant is that of its resource, which is what lookups ask for.
+    def hash: Int = key.primary.hashCode()
+  }
+
+  private val ExpiryOrder: util.Comparator[Node] = { (a: Node, b: Node) =>
+    val byExpiry = java.lang.Long.compare(a.expiresAt, b.expiresAt)
+    if (byExpiry != 0) byExpiry else java.lang.Long.compare(a.id, b.id)
+  }
+
+  /**
+   * A lookup of a resource, and the live variants it found.
+   */
+  private final class Read(val hash: Int, val nodes: List[Node])
+
+  /**
+   * A bounded ring of the reads not yet replayed on the eviction policy. Readers add to it without locking, and give
+   * up when it is full or another reader took the slot first. It is drained by the holder of the lock.
+   */
+  private final class ReadBuffer {
+    private val reads             = new AtomicReferenceArray[Read](ReadBufferSize)
+    private val writes            = new AtomicLong()
+    @volatile private var drained = 0L
+
+    /**
+     * Returns the number of reads waiting to be replayed.
+     */
+    def offer(read: Read): Long = {
+      val head    = drained
+      val tail    = writes.get()
+      val pending = tail - head
+      if (pending < ReadBufferSize && writes.compareAndSet(tail, tail + 1)) {
+        reads.lazySet(index(tail), read)
+        pending + 1
+      } else pending
+    }
+
+    def drain(replay: Read => Unit): Unit = {
+      val tail = writes.get()
+      var head = drained
+      // A reader may have taken a slot without having filled it yet, the reads from there on wait for the next drain.
+      while (head < tail && reads.get(index(head)) != null) {
+        val read = reads.get(index(head))
+        reads.lazySet(index(head), null)
+        replay(read)
+        head += 1
+      }
+      drained = head
+    }
+
+    private def index(position: Long): Int = (position & (ReadBufferSize - 1)).toInt
+  }
+
+  /**
+   * A doubly linked list of nodes threaded through the nodes themselves, so that both of its ends and the removal of
+   * any node are reached in constant time.
+   */
+  private final class AccessQueue {
+    var head: Node   = _
+    var tail: Node   = _
+    var size: Int    = 0
+    var weight: Long = 0L
+
+    def addLast(node: Node): Unit = {
+      node.queue = this
+      node.prev = tail
+      node.next = null
+      if (tail == null) head = node else tail.next = node
+      tail = node
+      size += 1
+      weight += node.weight
+    }
+
+    def remove(node: Node): Unit = {
+      if (node.prev == null) head = node.next else node.prev.next = node.next
+      if (node.next == null) tail = node.prev else node.next.prev = node.prev
+      node.prev = null
+      node.next = null
+      node.queue = null
+      size -= 1
+      weight -= node.weight
+    }
+
+    def moveToLast(node: Node): Unit = {
+      if (node ne tail) {
+        remove(node)
+        addLast(node)
+      }
+    }
+
+    def clear(): Unit = {
+      head = null
+      tail = null
+      size = 0
+      weight = 0L
+    }
+  }
+
+  /**
+   * The weight of an entry: its body length plus the length of its header names and values.
+   */
+  def weigh(entry: ResponseEntry): Long = {
+    val response = entry.response
+    val body     = response.bodyParts.asScala.foldLeft(0L)(_ + _.length())
+    val headers  = response.headers.iteratorAsString().asScala.foldLeft(0L) { (acc, header) =>
+      acc + header.getKey.length + header.getValue.length
+    }
+    body + headers
+  }
+
+  /**
+   * A count-min sketch of 4 rows of small saturating counters. All counters are halved once the number of
+   * increments reaches ten times the width, so that old popularity fades.
+   */
+  private final class FrequencySketch(minWidth: Int) {
+    private val width      = Integer.highestOneBit(math.max(minWidth - 1, 1)) << 1
+    private val mask       = width - 1
+    private val table      = Array.ofDim[Byte](Depth, width)
+    private val sampleSize = 10L * width
+    private var additions  = 0L
+
+    def increment(hash: Int): Unit = {
+      var i = 0
+      while (i < Depth) {
+        val idx = indexOf(hash, i)
+        if (table(i)(idx) < MaxCount) table(i)(idx) = (table(i)(idx) + 1).toByte
+        i += 1
+      }
+      additions += 1
+      if (additions >= sampleSize) reset()
+    }
+
+    def frequency(hash: Int): Int = {
+      var min = Int.MaxValue
+      var i   = 0
+      while (i < Depth) {
+        min = math.min(min, table(i)(indexOf(hash, i)).toInt)
+        i += 1
+      }
+      min
+    }
+
+    private def indexOf(hash: Int, row: Int): Int = {
+      var h = (hash.toLong + Seeds(row)) * Seeds(row)
+      h += h >>> 32
+      (h.toInt ^ (h.toInt >>> 16)) & mask
+    }
+
+    private def reset(): Unit = {
+      table.foreach { row =>
+        var j = 0
+        while (j < row.length) {
+          row(j) = (row(j) >> 1).toByte
+          j += 1
+        }
+      }
+      additions /= 2
+    }
+  }
+
+  private val Depth    = 4
+  private val MaxCount = 15
+  private val Seeds    = Array(0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L)
+}
@@ -0,0 +1,558 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc.cache
+
+import java.io._
+import java.net.URI
+import java.nio.ByteBuffer
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import java.time.ZonedDateTime
+import java.util
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.atomic.AtomicInteger
+
+import org.playframework.cachecontrol.HeaderName
+import org.slf4j.LoggerFactory
+import play.shaded.ahc.io.netty.handler.codec.http.DefaultHttpHeaders
+import play.shaded.ahc.org.asynchttpclient.AsyncHttpClientConfig
+import play.shaded.ahc.org.asynchttpclient.uri.Uri
+
+import scala.collection.mutable
+import scala.concurrent.Await
+import scala.concurrent.ExecutionContext
+import scala.concurrent.Future
+import scala.concurrent.Promise
+import scala.concurrent.duration.Duration
+import scala.jdk.CollectionConverters._
+import scala.util.Success
+import scala.util.Try
+import scala.util.control.NonFatal
+
+/**
+ * A [[Cache]] that keeps response bodies off heap, in memory-mapped segment files on disk.
+ *
+ * Bodies are appended to the current segment file. When a body does not fit, a new segment is started, and
+ * when the segments hold more than `maxBytes`, the oldest segment is dropped together with every entry stored
+ * in it. Cache hits hand out read-only slices of the mapped segment rather than copies. A dropped segment
+ * stays mapped for as long as a response served from it is reachable, so a slice never sees reused space.
+ *
+ * Status, headers and the segment position of every entry are kept in an on-heap index keyed by
+ * [[EffectiveURIKey]]. The index is written next to the segments whenever a new segment is started, on [[flush]]
+ * and on [[close]], and read back by the next instance opened on the same directory, so a restart does not need to
+ * go back to the origin. After a crash, only the entries stored since the last of these writes are lost.
+ *
+ * Stores are written behind, on a thread of the cache: `put` only enqueues the response, and its future completes
+ * once the response has been written, so that the I/O threads of the client never wait for the disk. When more than
+ * `maxPendingWrites` stores are waiting, further stores are dropped. Disk errors while serving or storing a response
+ * are logged and turn the lookup into a miss, or drop the store.
+ *
+ * As [[SyncCache]] requires, `getNow`, `putNow` and `removeNow` only work in memory: they read and update the index
+ * and enqueue writes under a lock that the writer thread never holds while it waits for the disk.
+ *
+ * {{{
+ * val cache = new MappedSegmentCache(Paths.get("/var/cache/ws"), maxBytes = 1L << 30, ahcConfig = config)
+ * val client = StandaloneAhcWSClient(httpCache = Some(new AhcHttpCache(cache)))
+ * }}}
+ *
+ * @param directory the directory holding the segment and index files.
+ * @param maxBytes the maximum number of body bytes kept on disk.
+ * @param segmentBytes the size of a single segment file. Bodies larger than this are not cached.
+ * @param ahcConfig the client configuration, used to rebuild responses read back from disk.
+ * @param maxPendingWrites the maximum number of stores waiting to be written.
+ */
+class MappedSegmentCache(
+    directory: Path,
+    maxBytes: Long,
+    segmentBytes: Int,
+    ahcConfig: AsyncHttpClientConfig,
+    maxPendingWrites: Int
+) extends SyncCache {
+
+  def this(directory: Path, maxBytes: Long, segmentBytes: Int, ahcConfig: AsyncHttpClientConfig) =
+    this(directory, maxBytes, segmentBytes, ahcConfig, MappedSegmentCache.DefaultMaxPendingWrites)
+
+  def this(directory: Path, maxBytes: Long, ahcConfig: AsyncHttpClientConfig) =
+    this(directory, maxBytes, MappedSegmentCache.defaultSegmentBytes(maxBytes), ahcConfig)
+
+  import MappedSegmentCache._
+
+  require(maxBytes > 0, "maxBytes must be positive")
+  require(segmentBytes > 0 && segmentBytes <= maxBytes, "segmentBytes must be positive and at most maxBytes")
+  require(maxPendingWrites > 0, "maxPendingWrites must be positive")
+
+  private val segments = mutable.LinkedHashMap.empty[Int, Segment]
+
+  private val index = new util.HashMap[EffectiveURIKey, IndexEntry]()
+
+  // Segment id -> write position, as read from the index file while loading.
+  private val positions = mutable.Map.empty[Int, Int]
+
+  // Only used by the writer thread, once loaded.
+  private var current: Segment = _
+  private var closed           = false
+
+  // Every disk write is made on this thread, in the order the stores and removals were asked for.
+  private val writer = Executors.newSingleThreadExecutor { (task: Runnable) =>
+    val thread = new Thread(task, "play-ws-mapped-segment-cache-writer")
+    thread.setDaemon(true)
+    thread
+  }
+
+  private val pendingWrites = new AtomicInteger()
+
+  Files.createDirectories(directory)
+  load()
+
+  override def getNow(key: EffectiveURIKey): Option[ResponseEntry] = {
+    try read(key)
+    catch {
+      case NonFatal(e) =>
+        logger.warn(s"get: treating $key as a miss", e)
+        None
+    }
+  }
+
+  override def putNow(key: EffectiveURIKey, entry: ResponseEntry): Unit = {
+    put(key, entry)
+    ()
+  }
+
+  /**
+   * Enqueues the store, and returns when the response has been written, or the store dropped.
+   */
+  override def put(key: EffectiveURIKey, entry: ResponseEntry): Future[Unit] = {
+    if (pendingWrites.incrementAndGet() > maxPendingWrites) {
+      pendingWrites.decrementAndGet()
+      logger.debug(s"put: not caching $key, $maxPendingWrites stores are already waiting to be written")
+      Future.unit
+    } else {
+      submit(write(key, entry)).transform { result =>
+        pendingWrites.decrementAndGet()
+        result.failed.foreach(e => logger.warn(s"put: not caching $key", e))
+        Success(())
+      }(ExecutionContext.parasitic)
+    }
+  }
+
+  // The removal is also enqueued, so that a store still waiting to be written does not bring the entry back.
+  override def removeNow(key: EffectiveURIKey): Unit = {
+    val remove = () => synchronized(index.remove(key))
+    remove()
+    submit(remove())
+    ()
+  }
+
+  /**
+   * Returns the number of body bytes currently held in segment files, including space taken by replaced entries
+   * that has not been reclaimed yet.
+   */
+  def usedBytes: Long = synchronized {
+    segments.valuesIterator.map(_.position.toLong).sum
+  }
+
+  /**
+   * Returns the number of entries in the index.
+   */
+  def size: Int = synchronized {
+    index.size()
+  }
+
+  /**
+   * Waits for the stores enqueued so far, and writes the index to disk, so that their entries survive a restart.
+   */
+  def flush(): Unit = {
+    Await.result(submit(flushNow()), Duration.Inf)
+  }
+
+  /**
+   * Waits for the stores enqueued so far, writes the index to disk and closes the segment files.
+   */
+  override def close(): Unit = {
+    if (!writer.isShutdown) {
+      val closing = submit(closeNow())
+      writer.shutdown()
+      Await.result(closing, Duration.Inf)
+    }
+  }
+
+  private def submit[T](task: => T): Future[T] = {
+    val result = Promise[T]()
+    try writer.execute(() => result.complete(Try(task)))
+    catch { case e: RejectedExecutionException => result.failure(e) }
+    result.future
+  }
+
+  private def flushNow(): Unit = {
+    if (!closed) {
+      synchronized(segments.values.toList).foreach(_.buffer.force())
+      writeIndex()
+    }
+  }
+
+  private def closeNow(): Unit = {
+    if (!closed) {
+      try flushNow()
+      finally {
+        closed = true
+        val closing = synchronized {
+          val all = segments.values.toList
+          segments.clear()
+          index.clear()
+          all
+        }
+        closing.foreach(_.channel.close())
+      }
+    }
+  }
+
+  private def read(key: EffectiveURIKey): Option[ResponseEntry] = synchronized {
+    Option(index.get(key)).flatMap { entry =>
+      segments.get(entry.segment) match {
+        case Some(segment) =>
+          Some(entry.toResponseEntry(segment.slice(entry.offset, entry.length), ahcConfig))
+        case None =>
+          index.remove(key)
+          None
+      }
+    }
+  }
+
+  // Runs on the writer thread, which only takes the lock to update the segments and the index in memory.
+  private def write(key: EffectiveURIKey, entry: ResponseEntry): Unit = {
+    val response = entry.response
+    val parts    = response.bodyParts.asScala.map(_.getBodyByteBuffer).toList
+    val length   = parts.map(_.remaining().toLong).sum
+
+    if (length > segmentBytes) {
+      logger.debug(s"put: not caching $key, body of $length bytes is larger than a segment")
+    } else if (!closed) {
+      val previous = current
+      val segment  = segmentFor(length.toInt)
+      val offset   = segment.append(parts)
+      val dropped  = synchronized {
+        index.put(key, IndexEntry(entry, segment.id, offset, length.toInt))
+        evict()
+      }
+      delete(dropped)
+      if (segment ne previous) checkpoint(previous)
+    }
+  }
+
+  private def segmentFor(length: Int): Segment = {
+    if (current == null || segmentBytes - current.position < length) {
+      val id      = synchronized(if (segments.isEmpty) 0 else segments.keysIterator.max + 1)
+      val segment = Segment.create(directory.resolve(segmentFileName(id)), id, segmentBytes)
+      synchronized(segments.put(id, segment))
+      current = segment
+    }
+    current
+  }
+
+  // Writes the index once a segment is complete, so that a crash only loses the entries of the current segment.
+  private def checkpoint(completed: Segment): Unit = {
+    if (completed != null && synchronized(segments.contains(completed.id))) completed.buffer.force()
+    writeIndex()
+  }
+
+  // Drops the oldest segments from memory while the segments hold more than maxBytes, and returns them.
+  private def evict(): List[Segment] = {
+    var dropped = List.empty[Segment]
+    while (segments.size > 1 && usedBytes > maxBytes) {
+      val (id, oldest) = segments.head
+      segments.remove(id)
+      index.values().removeIf(_.segment == id)
+      dropped ::= oldest
+    }
+    dropped
+  }
+
+  // Slices handed out earlier keep the mapping alive, so the files can go right away.
+  private def delete(dropped: List[Segment]): Unit = {
+    dropped.foreach { segment =>
+      segment.channel.close()
+      Files.deleteIfExists(segment.path)
+      logger.debug(s"evict: dropped segment ${segment.id}")
+    }
+  }
+
+  private def load(): Unit = {
+    val indexFile = directory.resolve(IndexFileName)
+    if (Files.exists(indexFile)) {
+      try {
+        readIndex(indexFile)
+      } catch {
+        case NonFatal(e) =>
+          logger.warn(s"load: ignoring unreadable cache index $indexFile", e)
+          positions.clear()
+          index.clear()
+      }
+    }
+
+    // Segments the index does not know about were started by a put that did not complete.
+    val listing = Files.list(directory)
+    val files   =
+      try listing.iterator().asScala.toList
+      finally listing.close()
+    files
+      .flatMap(path => segmentId(path.getFileName.toString).map(_ -> path))
+      .sortBy(_._1)
+      .foreach { case (id, path) =>
+        positions.get(id) match {
+          case Some(position) => segments.put(id, Segment.open(path, id, position))
+          case None           => Files.deleteIfExists(path)
+        }
+      }
+    positions.clear()
+    index.values().removeIf(e => !segments.contains(e.segment))
+    delete(evict())
+  }
+
+  private def readIndex(indexFile: Path): Unit = {
+    val in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))
+    try {
+      require(in.readInt() == IndexVersion, "unknown index version")
+      (0 until in.readInt()).foreach { _ =>
+        positions.put(in.readInt(), in.readInt())
+      }
+      (0 until in.readInt()).foreach { _ =>
+        val key   = EffectiveURIKey(readString(in), new URI(readString(in)))
+        val entry = IndexEntry.read(in)
+        if (!entry.isExpired) index.put(key, entry)
+      }
+    } finally {
+      in.close()
+    }
+  }
+
+  private def writeIndex(): Unit = {
+    val (segmentPositions, entries) = synchronized {
+      (segments.valuesIterator.map(segment => segment.id -> segment.position).toList, index.asScala.toList)
+    }
+    val tmp = directory.resolve(IndexFileName + ".tmp")
+    val out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))
+    try {
+      out.writeInt(IndexVersion)
+      out.writeInt(segmentPositions.size)
+      segmentPositions.foreach { case (id, position) =>
+        out.writeInt(id)
+        out.writeInt(position)
+      }
+      out.writeInt(entries.size)
+      entries.foreach { case (key, entry) =>
+        writeString(out, key.method)
+        writeString(out, key.uri.toString)
+        entry.write(out)
+      }
+    } finally {
+      out.close()
+    }
+    Files.move(tmp, directory.resolve(IndexFileName), StandardCopyOption.REPLACE_EXISTING)
+  }
+
+  override def toString: String = s"MappedSegmentCache($directory, maxBytes = $maxBytes)"
+}
+
+object MappedSegmentCache {
+  private val logger = LoggerFactory.getLogger("play.api.libs.ws.ahc.cache.MappedSegmentCache")
+
+  private val DefaultMaxPendingWrites = 1024
+
+  private val IndexFileName = "index.dat"
+  private val IndexVersion  = 2
+  private val SegmentFile   = """segment-(\d+)\.dat""".r
+
+  private def segmentFileName(id: Int): String = s"segment-$id.dat"
+
+  private def segmentId(fileName: String): Option[Int] = fileName match {
+    case SegmentFile(id) => Some(id.toInt)
+    case _               => None
+  }
+
+  // Strings are written as their length followed by their UTF-8 bytes: writeUTF is limited to 64 KB, and header
+  // values can be longer.
+  private def writeString(out: DataOutputStream, s: String): Unit = {
+    val bytes = s.getBytes(StandardCharsets.UTF_8)
+    out.writeInt(bytes.length)
+    out.write(bytes)
+  }
+
+  private def readString(in: DataInputStream): String = {
+    val bytes = new Array[Byte](in.readInt())
+    in.readFully(bytes)
+    new String(bytes, StandardCharsets.UTF_8)
+  }
+
+  private def defaultSegmentBytes(maxBytes: Long): Int =
+    math.max(1L, math.min(maxBytes / 8, 64L * 1024 * 1024)).toInt
+
+  private final class Segment(val path: Path, val id: Int, val channel: FileChannel, val buffer: MappedByteBuffer) {
+    // Written by the writer thread only, and read by the others.
+    @volatile var position: Int = 0
+
+    def append(parts: List[ByteBuffer]): Int = {
+      val offset = position
+      val target = buffer.duplicate()
+      target.position(offset)
+      parts.foreach(part => target.put(part.duplicate()))
+      position = target.position()
+      offset
+    }
+
+    def slice(offset: Int, length: Int): ByteBuffer = {
+      val view = buffer.asReadOnlyBuffer()
+      view.position(offset)
+      view.limit(offset + length)
+      view.slice()
+    }
+  }
+
+  private object Segment {
+    def create(path: Path, id: Int, size: Int): Segment = {
+      val channel = FileChannel.open(
+        path,
+        StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE
+      )
+      new Segment(path, id, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size.toLong))
+    }
+
+    def open(path: Path, id: Int, position: Int): Segment = {
+      val channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+      // Reopened segments are only read from, new bodies always go to a fresh segment.
+      val segment = new Segment(path, id, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()))
+      segment.position = position
+      segment
+    }
+  }
+
+  /**
+   * Everything about a cached response except its body, plus the position of the body in its segment.
+   */
+  private final case class IndexEntry(
+      statusUri: String,
+      statusCode: Int,
+      statusText: String,
+      protocolText: String,
+      headers: Seq[(String, String)],
+      requestMethod: String,
+      nominatedHeaders: Map[HeaderName, Seq[String]],
+      expiresAt: Option[ZonedDateTime],
+      segment: Int,
+      offset: Int,
+      length: Int
+  ) {
+
+    def isExpired: Boolean = expiresAt.exists(_.isBefore(ZonedDateTime.now))
+
+    def toResponseEntry(body: ByteBuffer, ahcConfig: AsyncHttpClientConfig): ResponseEntry = {
+      val status         = new CacheableHttpResponseStatus(Uri.create(statusUri), statusCode, statusText, protocolText)
+      val httpHeaders    = new DefaultHttpHeaders()
+      headers.foreach { case (name, value) => httpHeaders.add(name, value) }
+      val bodyParts      = util.Collections.singletonList[CacheableHttpResponseBodyPart](
+        new ByteBufferHttpResponseBodyPart(body, last = true)
+      )
+      val response       = CacheableResponse(status, httpHeaders, bodyParts, ahcConfig)
+      ResponseEntry(response, requestMethod, nominatedHeaders, expiresAt)
+    }
+
+    def write(out: DataOutputStream): Unit = {
+      writeString(out, statusUri)
+      out.writeInt(statusCode)
+      writeString(out, statusText)
+      writeString(out, protocolText)
+      out.writeInt(headers.size)
+      headers.foreach { case (name, value) =>
+        writeString(out, name)
+        writeString(out, value)
+      }
+      writeString(out, requestMethod)
+      out.writeInt(nominatedHeaders.size)
+      nominatedHeaders.foreach { case (name, values) =>
+        writeString(out, name.toString)
+        out.writeInt(values.size)
+        values.foreach(value => writeString(out, value))
+      }
+      writeString(out, expiresAt.fold("")(_.toString))
+      out.writeInt(segment)
+      out.writeInt(offset)
+      out.writeInt(length)
+    }
+  }
+
+  private object IndexEntry {
+    def apply(entry: ResponseEntry, segment: Int, offset: Int, length: Int): IndexEntry = {
+      val response = entry.response
+      IndexEntry(
+        statusUri = response.status.getUri.toUrl,
+        statusCode = response.status.getStatusCode,
+        statusText = Option(response.status.getStatusText).getOrElse(""),
+        protocolText = Option(response.status.getProtocolText).getOrElse(""),
+        headers = response.headers.iteratorAsString().asScala.map(e => e.getKey -> e.getValue).toList,
+        requestMethod = entry.requestMethod,
+        nominatedHeaders = entry.nominatedHeaders,
+        expiresAt = entry.expiresAt,
+        segment = segment,
+        offset = offset,
+        length = length
+      )
+    }
+
+    def read(in: DataInputStream): IndexEntry = {
+      val statusUri    = readString(in)
+      val statusCode   = in.readInt()
+      val statusText   = readString(in)
+      val protocolText = readString(in)
+      val headers      = (0 until in.readInt()).map(_ => readString(in) -> readString(in)).toList
+      val method       = readString(in)
+      val nominated    = (0 until in.readInt()).map { _ =>
+        val name = HeaderName(readString(in))
+        name -> (0 until in.readInt()).map(_ => readString(in)).toList
+      }.toMap
+      val expiresAt = Option(readString(in)).filter(_.nonEmpty).map(ZonedDateTime.parse)
+      IndexEntry(
+        statusUri,
+        statusCode,
+        statusText,
+        protocolText,
+        headers,
+        method,
+        nominated,
+        expiresAt,
+        in.readInt(),
+        in.readInt(),
+        in.readInt()
+      )
+    }
+  }
+}
+
+/**
+ * A body part backed by a [[java.nio.ByteBuffer]], which is only copied when the bytes are asked for as an array.
+ */
+class ByteBufferHttpResponseBodyPart(buffer: ByteBuffer, last: Boolean)
+    extends CacheableHttpResponseBodyPart(null, last) {
+
+  override def getBodyPartBytes: Array[Byte] = {
+    val bytes = new Array[Byte](buffer.remaining())
+    buffer.duplicate().get(bytes)
+    bytes
+  }
+
+  override def getBodyByteBuffer: ByteBuffer = buffer.duplicate()
+
+  override def length(): Int = buffer.remaining()
+
+  override def toString: String = {
+    s"ByteBufferHttpResponseBodyPart(last = $isLast, chunk size = ${buffer.remaining()})"
+  }
+}
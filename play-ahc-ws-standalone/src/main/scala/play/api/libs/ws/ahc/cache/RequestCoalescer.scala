@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc.cache
+
+import java.util.Locale
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.LongAdder
+
+import play.api.libs.ws.ahc.ForwardingConnectionEvents
+import play.shaded.ahc.io.netty.handler.codec.http.HttpHeaders
+import play.shaded.ahc.org.asynchttpclient.AsyncCompletionHandler
+import play.shaded.ahc.org.asynchttpclient.AsyncHandler
+import play.shaded.ahc.org.asynchttpclient.HttpResponseBodyPart
+import play.shaded.ahc.org.asynchttpclient.HttpResponseStatus
+import play.shaded.ahc.org.asynchttpclient.Request
+import play.shaded.ahc.org.asynchttpclient.Response
+
+import scala.concurrent.Future
+import scala.concurrent.Promise
+import scala.jdk.CollectionConverters._
+import scala.util.Failure
+import scala.util.Success
+import scala.util.Try
+
+/**
+ * The key under which concurrent requests are coalesced: the primary cache key, plus the values the request has
+ * for the headers nominated by the Vary header of the stored responses.
+ */
+case class CoalescingKey(key: EffectiveURIKey, nominatedHeaders: Map[String, Seq[String]])
+
+object CoalescingKey {
+
+  def apply(request: Request, entries: Seq[ResponseEntry]): CoalescingKey = {
+    apply(EffectiveURIKey(request), request, entries)
+  }
+
+  /**
+   * @param key the primary cache key of the request, as normalized by the cache.
+   */
+  def apply(key: EffectiveURIKey, request: Request, entries: Seq[ResponseEntry]): CoalescingKey = {
+    val names     = entries.flatMap(_.nominatedHeaders.keys.map(_.toString.toLowerCase(Locale.ROOT))).distinct
+    val nominated = names.map(name => name -> request.getHeaders.getAll(name).asScala.toSeq).toMap
+    CoalescingKey(key, nominated)
+  }
+}
+
+/**
+ * Single-flight coalescing of cache misses and revalidations.
+ *
+ * The first request for a [[CoalescingKey]] becomes the leader and goes to the origin server. Requests for the same
+ * key that arrive before the leader completes wait for its response instead of sending their own.
+ */
+class RequestCoalescer {
+  import RequestCoalescer._
+
+  private val inFlight = new ConcurrentHashMap[CoalescingKey, InFlight]()
+
+  private val leaders = new LongAdder
+  private val waiters = new LongAdder
+
+  /**
+   * Joins the flight for the given key, starting one if there is none.
+   */
+  def join(key: CoalescingKey, request: Request): Joined = {
+    val flight   = new InFlight(key, request, this)
+    val existing = inFlight.putIfAbsent(key, flight)
+    if (existing == null) {
+      leaders.increment()
+      Leader(flight)
+    } else {
+      waiters.increment()
+      Follower(existing)
+    }
+  }
+
+  /**
+   * Returns the number of requests sent to the origin server, and the number of requests that waited for them.
+   */
+  def stats: Stats = Stats(leaders.sum(), waiters.sum())
+
+  /**
+   * Returns the number of flights currently waiting for the origin server.
+   */
+  def inFlightCount: Int = inFlight.size()
+
+  private def land(flight: InFlight): Unit = inFlight.remove(flight.key, flight)
+}
+
+object RequestCoalescer {
+
+  /**
+   * @param leaderCount the number of requests that went to the origin server.
+   * @param waiterCount the number of requests that were served the response of a leader.
+   */
+  case class Stats(leaderCount: Long, waiterCount: Long)
+
+  sealed trait Joined
+
+  /**
+   * The caller must send the request and complete the flight.
+   */
+  final case class Leader(flight: InFlight) extends Joined
+
+  /**
+   * The caller should wait for the response of the flight.
+   */
+  final case class Follower(flight: InFlight) extends Joined
+
+  final class InFlight private[RequestCoalescer] (
+      val key: CoalescingKey,
+      val request: Request,
+      coalescer: RequestCoalescer
+  ) {
+    private val promise = Promise[CacheableResponse]()
+
+    def future: Future[CacheableResponse] = promise.future
+
+    /**
+     * Completes the flight. Requests joining afterwards start a new flight.
+     */
+    def complete(result: Try[CacheableResponse]): Unit = {
+      coalescer.land(this)
+      promise.tryComplete(result)
+    }
+
+    override def toString: String = s"InFlight(key = $key)"
+  }
+}
+
+/**
+ * Passes everything through to the handler of the leading request, and completes the flight with the response
+ * the handler is given.
+ */
+class CoalescingAsyncHandler[T](handler: AsyncCompletionHandler[T], flight: RequestCoalescer.InFlight)
+    extends AsyncCompletionHandler[T]
+    with ForwardingConnectionEvents[T] {
+
+  override protected def eventTarget: AsyncHandler[?] = handler
+
+  override def onStatusReceived(status: HttpResponseStatus): AsyncHandler.State = handler.onStatusReceived(status)
+
+  override def onHeadersReceived(headers: HttpHeaders): AsyncHandler.State = handler.onHeadersReceived(headers)
+
+  override def onBodyPartReceived(bodyPart: HttpResponseBodyPart): AsyncHandler.State =
+    handler.onBodyPartReceived(bodyPart)
+
+  override def onThrowable(t: Throwable): Unit = {
+    try handler.onThrowable(t)
+    finally flight.complete(Failure(t))
+  }
+
+  override def onCompleted(response: Response): T = {
+    try handler.onCompleted(response)
+    finally {
+      response match {
+        case cacheable: CacheableResponse => flight.complete(Success(cacheable))
+        case other                        =>
+          flight.complete(Failure(new IllegalStateException(s"Cannot share response of type ${other.getClass}")))
+      }
+    }
+  }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc.metrics
+
+import java.net.InetSocketAddress
+import java.time.Instant
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.LongAdder
+import javax.net.ssl.SSLSession
+
+import org.reactivestreams.Publisher
+import play.api.libs.ws.ahc.ForwardingConnectionEvents
+import play.shaded.ahc.io.netty.channel.Channel
+import play.shaded.ahc.io.netty.channel.ChannelFuture
+import play.shaded.ahc.io.netty.channel.ChannelFutureListener
+import play.shaded.ahc.io.netty.handler.codec.http.HttpHeaders
+import play.shaded.ahc.org.asynchttpclient._
+import play.shaded.ahc.org.asynchttpclient.filter.FilterContext
+import play.shaded.ahc.org.asynchttpclient.filter.RequestFilter
+import play.shaded.ahc.org.asynchttpclient.handler.StreamedAsyncHandler
+
+import scala.concurrent.duration._
+import scala.jdk.CollectionConverters._
+
+/**
+ * The connection pool figures of a single host.
+ *
+ * The active and idle connection counts are the current state of the pool. The other figures are totals since the
+ * client was created, and are only recorded when `play.ws.ahc.poolMetrics.enabled` is set in the configuration the
+ * client was created with.
+ *
+ * @param activeConnections the number of connections currently serving a request.
+ * @param idleConnections the number of connections currently idle in the pool.
+ * @param leaseCount the number of connections leased, either from the pool or by opening a new one.
+ * @param leaseWaitNanos the total time spent waiting for a connection to be leased.
+ * @param openedConnections the number of connections opened.
+ * @param closedConnections the number of connections closed.
+ * @param tlsHandshakeCount the number of successful TLS handshakes.
+ * @param tlsHandshakeNanos the total time spent in successful TLS handshakes.
+ */
+case class HostPoolMetrics(
+    activeConnections: Long,
+    idleConnections: Long,
+    leaseCount: Long = 0,
+    leaseWaitNanos: Long = 0,
+    openedConnections: Long = 0,
+    closedConnections: Long = 0,
+    tlsHandshakeCount: Long = 0,
+    tlsHandshakeNanos: Long = 0
+) {
+
+  def averageLeaseWait: FiniteDuration = average(leaseWaitNanos, leaseCount)
+
+  def averageTlsHandshake: FiniteDuration = average(tlsHandshakeNanos, tlsHandshakeCount)
+
+  /**
+   * The totals recorded since the previous figures were taken, along with the current connection counts.
+   */
+  def since(previous: HostPoolMetrics): HostPoolMetrics = copy(
+    leaseCount = leaseCount - previous.leaseCount,
+    leaseWaitNanos = leaseWaitNanos - previous.leaseWaitNanos,
+    openedConnections = openedConnections - previous.openedConnections,
+    closedConnections = closedConnections - previous.closedConnections,
+    tlsHandshakeCount = tlsHandshakeCount - previous.tlsHandshakeCount,
+    tlsHandshakeNanos = tlsHandshakeNanos - previous.tlsHandshakeNanos
+  )
+
+  private def average(totalNanos: Long, count: Long): FiniteDuration = {
+    if (count == 0) Duration.Zero else (totalNanos / count).nanos
+  }
+}
+
+/**
+ * The connection pool figures of a client, per host.
+ *
+ * @param takenAt when the figures were taken.
+ * @param hosts the figures of each host the client has connected to.
+ */
+case class ConnectionPoolSnapshot(takenAt: Instant, hosts: Map[String, HostPoolMetrics]) {
+
+  def totalActiveConnections: Long = hosts.valuesIterator.map(_.activeConnections).sum
+
+  def totalIdleConnections: Long = hosts.valuesIterator.map(_.idleConnections).sum
+
+  /**
+   * The totals recorded since the previous snapshot, along with the current connection counts.
+   */
+  def since(previous: ConnectionPoolSnapshot): ConnectionPoolSnapshot = {
+    copy(hosts = hosts.map { case (host, metrics) =>
+      host -> previous.hosts.get(host).fold(metrics)(metrics.since)
+    })
+  }
+
+  /**
+   * The figures of each host, for use from Java.
+   */
+  def getHosts: java.util.Map[String, HostPoolMetrics] = hosts.asJava
+}
+
+/**
+ * Records lease wait times, connection opens and closes and TLS handshake times per host. It is installed as an
+ * AsyncHttpClient request filter, which wraps the handler of every request so that the connection events of the
+ * request are seen.
+ *
+ * {{{
+ * import play.api.libs.ws.ahc._
+ * import play.api.libs.ws.ahc.metrics._
+ *
+ * val ahcConfig = new AhcConfigBuilder(AhcWSClientConfigFactory.forConfig())
+ *   .modifyUnderlying(_.addRequestFilter(new ConnectionPoolMetrics))
+ *   .build()
+ * }}}
+ */
+class ConnectionPoolMetrics extends RequestFilter {
+  import ConnectionPoolMetrics._
+
+  private val counters = new ConcurrentHashMap[String, HostCounters]()
+
+  override def filter[T](ctx: FilterContext[T]): FilterContext[T] = {
+    val host    = ctx.getRequest.getUri.getHost
+    val handler = ctx.getAsyncHandler match {
+      case streamed: StreamedAsyncHandler[T] => new StreamedPoolMetricsAsyncHandler[T](streamed, hostCounters(host))
+      case other                             => new PoolMetricsAsyncHandler[T](other, hostCounters(host))
+    }
+    new FilterContext.FilterContextBuilder[T](ctx).asyncHandler(handler).build()
+  }
+
+  /**
+   * Combines the figures recorded here with the connection counts of the pool.
+   */
+  def snapshot(clientStats: ClientStats): ConnectionPoolSnapshot = {
+    val pool     = clientStats.getStatsPerHost.asScala
+    val recorded = counters.asScala
+    val hosts    = (pool.keySet ++ recorded.keySet).iterator.map { host =>
+      val stats   = pool.get(host)
+      val metrics = HostPoolMetrics(
+        activeConnections = stats.fold(0L)(_.getHostActiveConnectionCount),
+        idleConnections = stats.fold(0L)(_.getHostIdleConnectionCount)
+      )
+      host -> recorded.get(host).fold(metrics)(_.record(metrics))
+    }
+    ConnectionPoolSnapshot(Instant.now(), hosts.toMap)
+  }
+
+  private def hostCounters(host: String): HostCounters = {
+    val existing = counters.get(host)
+    if (existing != null) existing else counters.computeIfAbsent(host, _ => new HostCounters)
+  }
+}
+
+object ConnectionPoolMetrics {
+
+  /**
+   * Adds a [[ConnectionPoolMetrics]] request filter to the builder if the metrics are enabled.
+   */
+  def configure(
+      config: ConnectionPoolMetricsConfig,
+      builder: DefaultAsyncHttpClientConfig.Builder
+  ): DefaultAsyncHttpClientConfig.Builder = {
+    if (config.enabled) builder.addRequestFilter(new ConnectionPoolMetrics) else builder
+  }
+
+  /**
+   * Takes a snapshot of the pool of the given client. Only connection counts are reported unless the client was
+   * configured with a [[ConnectionPoolMetrics]] request filter.
+   */
+  def snapshot(client: AsyncHttpClient): ConnectionPoolSnapshot = {
+    val recorded = client.getConfig.getRequestFilters.asScala.collectFirst { case metrics: ConnectionPoolMetrics =>
+      metrics
+    }
+    recorded.getOrElse(new ConnectionPoolMetrics).snapshot(client.getClientStats)
+  }
+
+  private final class HostCounters {
+    val leaseCount        = new LongAdder
+    val leaseWaitNanos    = new LongAdder
+    val openedConnections = new LongAdder
+    val closedConnections = new LongAdder
+    val tlsHandshakeCount = new LongAdder
+    val tlsHandshakeNanos = new LongAdder
+
+    val onClose: ChannelFutureListener = (_: ChannelFuture) => closedConnections.increment()
+
+    def record(metrics: HostPoolMetrics): HostPoolMetrics = metrics.copy(
+      leaseCount = leaseCount.sum(),
+      leaseWaitNanos = leaseWaitNanos.sum(),
+      openedConnections = openedConnections.sum(),
+      closedConnections = closedConnections.sum(),
+      tlsHandshakeCount = tlsHandshakeCount.sum(),
+      tlsHandshakeNanos = tlsHandshakeNanos.sum()
+    )
+  }
+
+  /**
+   * Forwards every callback to the wrapped handler, timing the connection events on the way.
+   */
+  private class PoolMetricsAsyncHandler[T](handler: AsyncHandler[T], counters: HostCounters)
+      extends ForwardingConnectionEvents[T] {
+    private var leaseStarted        = 0L
+    private var tlsHandshakeStarted = 0L
+
+    override protected def eventTarget: AsyncHandler[?] = handler
+
+    override def onStatusReceived(responseStatus: HttpResponseStatus): AsyncHandler.State =
+      handler.onStatusReceived(responseStatus)
+
+    override def onHeadersReceived(headers: HttpHeaders): AsyncHandler.State = handler.onHeadersReceived(headers)
+
+    override def onBodyPartReceived(bodyPart: HttpResponseBodyPart): AsyncHandler.State =
+      handler.onBodyPartReceived(bodyPart)
+
+    override def onTrailingHeadersReceived(headers: HttpHeaders): AsyncHandler.State =
+      handler.onTrailingHeadersReceived(headers)
+
+    override def onThrowable(t: Throwable): Unit = handler.onThrowable(t)
+
+    override def onCompleted(): T = handler.onCompleted()
+
+    override def onConnectionPoolAttempt(): Unit = {
+      leaseStarted = System.nanoTime()
+      super.onConnectionPoolAttempt()
+    }
+
+    override def onConnectionPooled(connection: Channel): Unit = {
+      leased()
+      super.onConnectionPooled(connection)
+    }
+
+    override def onTcpConnectAttempt(remoteAddress: InetSocketAddress): Unit = {
+      // No pooled connection was available, so the lease ends when the client starts opening a new one
+      leased()
+      super.onTcpConnectAttempt(remoteAddress)
+    }
+
+    override def onTcpConnectSuccess(remoteAddress: InetSocketAddress, connection: Channel): Unit = {
+      counters.openedConnections.increment()
+      connection.closeFuture().addListener(counters.onClose)
+      super.onTcpConnectSuccess(remoteAddress, connection)
+    }
+
+    override def onTlsHandshakeAttempt(): Unit = {
+      tlsHandshakeStarted = System.nanoTime()
+      super.onTlsHandshakeAttempt()
+    }
+
+    override def onTlsHandshakeSuccess(sslSession: SSLSession): Unit = {
+      if (tlsHandshakeStarted != 0L) {
+        counters.tlsHandshakeCount.increment()
+        counters.tlsHandshakeNanos.add(System.nanoTime() - tlsHandshakeStarted)
+        tlsHandshakeStarted = 0L
+      }
+      super.onTlsHandshakeSuccess(sslSession)
+    }
+
+    override def onTlsHandshakeFailure(cause: Throwable): Unit = {
+      tlsHandshakeStarted = 0L
+      super.onTlsHandshakeFailure(cause)
+    }
+
+    private def leased(): Unit = {
+      if (leaseStarted != 0L) {
+        counters.leaseCount.increment()
+        counters.leaseWaitNanos.add(System.nanoTime() - leaseStarted)
+        leaseStarted = 0L
+      }
+    }
+  }
+
+  private final class StreamedPoolMetricsAsyncHandler[T](handler: StreamedAsyncHandler[T], counters: HostCounters)
+      extends PoolMetricsAsyncHandler[T](handler, counters)
+      with StreamedAsyncHandler[T] {
+    override def onStream(publisher: Publisher[HttpResponseBodyPart]): AsyncHandler.State = handler.onStream(publisher)
+  }
+}
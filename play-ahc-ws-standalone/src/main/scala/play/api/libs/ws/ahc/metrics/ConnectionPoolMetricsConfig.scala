@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc.metrics
+
+import jakarta.inject.Inject
+import jakarta.inject.Provider
+import jakarta.inject.Singleton
+
+import com.typesafe.config.Config
+import com.typesafe.config.ConfigException
+import com.typesafe.config.ConfigFactory
+
+import scala.concurrent.duration.Duration
+
+/**
+ * Configuration of the connection pool metrics.
+ *
+ * @param enabled whether lease wait times, connection opens and closes and TLS handshake times are recorded.
+ * @param reportInterval how often clients created from configuration report their pool metrics, or `Duration.Inf` to
+ *                       not report them.
+ * @param reporter where clients created from configuration report their pool metrics: `slf4j` to log them, or `jmx`
+ *                 to publish them as MXBeans of the platform MBean server.
+ */
+case class ConnectionPoolMetricsConfig(
+    enabled: Boolean = false,
+    reportInterval: Duration = Duration.Inf,
+    reporter: String = "slf4j"
+)
+
+/**
+ * Factory for creating ConnectionPoolMetricsConfig, for use from Java.
+ */
+object ConnectionPoolMetricsConfigFactory {
+
+  /**
+   * Creates a ConnectionPoolMetricsConfig from a Typesafe Config object.
+   *
+   * @param config the config file containing the `play.ws.ahc.poolMetrics` settings
+   * @return a ConnectionPoolMetricsConfig configuration object.
+   */
+  def forConfig(config: Config = ConfigFactory.load()): ConnectionPoolMetricsConfig = {
+    new ConnectionPoolMetricsConfigParser(config).parse()
+  }
+
+  /**
+   * Creates the reporter the configuration asks for.
+   *
+   * @param config the settings of the connection pool metrics.
+   * @return a new reporter.
+   */
+  def createReporter(config: ConnectionPoolMetricsConfig): ConnectionPoolReporter = config.reporter match {
+    case "jmx" => new JmxConnectionPoolReporter()
+    case _     => new Slf4jConnectionPoolReporter()
+  }
+}
+
+/**
+ * This class creates a ConnectionPoolMetricsConfig object from configuration.
+ */
+@Singleton
+class ConnectionPoolMetricsConfigParser @Inject() (configuration: Config)
+    extends Provider[ConnectionPoolMetricsConfig] {
+
+  def get = parse()
+
+  def parse(): ConnectionPoolMetricsConfig = {
+    val enabled        = configuration.getBoolean("play.ws.ahc.poolMetrics.enabled")
+    val reportInterval =
+      try {
+        Duration(configuration.getString("play.ws.ahc.poolMetrics.reportInterval"))
+      } catch {
+        case e: ConfigException.Null =>
+          Duration.Inf
+      }
+    val reporter = configuration.getString("play.ws.ahc.poolMetrics.reporter")
+    if (reporter != "slf4j" && reporter != "jmx") {
+      throw new ConfigException.BadValue(
+        configuration.origin(),
+        "play.ws.ahc.poolMetrics.reporter",
+        s"Unknown reporter $reporter, expected slf4j or jmx"
+      )
+    }
+
+    ConnectionPoolMetricsConfig(
+      enabled = enabled,
+      reportInterval = reportInterval,
+      reporter = reporter
+    )
+  }
+}
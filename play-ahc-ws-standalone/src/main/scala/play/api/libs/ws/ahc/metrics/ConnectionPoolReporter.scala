@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc.metrics
+
+import java.lang.management.ManagementFactory
+import java.time.{ Duration => JDuration }
+import java.util.concurrent.atomic.AtomicInteger
+import javax.management.InstanceAlreadyExistsException
+import javax.management.MBeanServer
+import javax.management.ObjectName
+
+import org.apache.pekko.actor.Cancellable
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+
+import scala.collection.mutable
+import scala.util.control.NonFatal
+
+/**
+ * Receives the connection pool snapshots of a client at a fixed interval.
+ */
+trait ConnectionPoolReporter {
+
+  def report(snapshot: ConnectionPoolSnapshot): Unit
+}
+
+object ConnectionPoolReporter {
+
+  /**
+   * Returns the reports scheduled for the reporter, which also close the reporter when cancelled if it is
+   * `AutoCloseable`.
+   */
+  def scheduled(reports: Cancellable, reporter: ConnectionPoolReporter): Cancellable = reporter match {
+    case closeable: AutoCloseable =>
+      new Cancellable {
+        override def cancel(): Boolean = {
+          val cancelled = reports.cancel()
+          if (cancelled) closeable.close()
+          cancelled
+        }
+
+        override def isCancelled: Boolean = reports.isCancelled
+      }
+    case _ => reports
+  }
+}
+
+/**
+ * Logs the connection pool of each host at INFO level, with the rates of leases, opened and closed connections
+ * since the previous report.
+ *
+ * @param logger the logger to write to.
+ */
+class Slf4jConnectionPoolReporter(logger: Logger) extends ConnectionPoolReporter {
+
+  def this() = this(LoggerFactory.getLogger(classOf[Slf4jConnectionPoolReporter]))
+
+  private var previous: Option[ConnectionPoolSnapshot] = None
+
+  override def report(snapshot: ConnectionPoolSnapshot): Unit = synchronized {
+    if (logger.isInfoEnabled) {
+      val interval = previous.fold(JDuration.ZERO)(p => JDuration.between(p.takenAt, snapshot.takenAt))
+      val recent   = previous.fold(snapshot)(snapshot.since)
+      recent.hosts.toSeq.sortBy(_._1).foreach { case (host, metrics) =>
+        logger.info(
+          s"$host: active = ${metrics.activeConnections}, idle = ${metrics.idleConnections}, " +
+            s"leases = ${rate(metrics.leaseCount, interval)}/s, " +
+            s"average lease wait = ${metrics.averageLeaseWait.toMillis} ms, " +
+            s"opened = ${rate(metrics.openedConnections, interval)}/s, " +
+            s"closed = ${rate(metrics.closedConnections, interval)}/s, " +
+            s"average TLS handshake = ${metrics.averageTlsHandshake.toMillis} ms"
+        )
+      }
+    }
+    previous = Some(snapshot)
+  }
+
+  private def rate(count: Long, interval: JDuration): String = {
+    if (interval.toMillis == 0) "-" else f"${count * 1000.0 / interval.toMillis}%.2f"
+  }
+}
+
+/**
+ * The connection pool of a host, as published by [[JmxConnectionPoolReporter]]. The connection counts are the current
+ * state of the pool, the other counts are totals since the client was created, and the durations are the averages
+ * over the last reporting interval.
+ */
+trait HostConnectionPoolMXBean {
+
+  def getActiveConnections: Long
+
+  def getIdleConnections: Long
+
+  def getLeaseCount: Long
+
+  def getAverageLeaseWaitMillis: Double
+
+  def getOpenedConnections: Long
+
+  def getClosedConnections: Long
+
+  def getAverageTlsHandshakeMillis: Double
+}
+
+/**
+ * Publishes the connection pool of each host as an MXBean named
+ * `play.ws:type=ConnectionPool,client=<client>,host=<host>`. The MXBean of a host is registered with its first report,
+ * and unregistered once the host is no longer reported or the reporter is closed. Reporting with a client name that
+ * is already registered replaces the MXBeans of the previous reporter.
+ *
+ * {{{
+ * import scala.concurrent.duration._
+ * import play.api.libs.ws.ahc.StandaloneAhcWSClient
+ * import play.api.libs.ws.ahc.metrics.JmxConnectionPoolReporter
+ *
+ * def publish(client: StandaloneAhcWSClient) = {
+ *   client.reportConnectionPool(new JmxConnectionPoolReporter("payments"), 10.seconds)
+ * }
+ * }}}
+ *
+ * @param client the name of the client in the object names, which tells apart the pools of several clients.
+ * @param server the MBean server to register with.
+ */
+class JmxConnectionPoolReporter(client: String, server: MBeanServer) extends ConnectionPoolReporter with AutoCloseable {
+
+  /**
+   * Registers with the platform MBean server.
+   */
+  def this(client: String) = this(client, ManagementFactory.getPlatformMBeanServer)
+
+  /**
+   * Registers with the platform MBean server, under a client name unique to this JVM.
+   */
+  def this() = this(JmxConnectionPoolReporter.nextClientName())
+
+  import JmxConnectionPoolReporter._
+
+  private val hosts                                    = mutable.Map.empty[String, HostConnectionPool]
+  private var previous: Option[ConnectionPoolSnapshot] = None
+  private var closed                                   = false
+
+  override def report(snapshot: ConnectionPoolSnapshot): Unit = synchronized {
+    if (!closed) {
+      val recent = previous.fold(snapshot)(snapshot.since)
+      snapshot.hosts.foreach { case (host, metrics) =>
+        hosts.getOrElseUpdate(host, register(host)).update(metrics, recent.hosts(host))
+      }
+      (hosts.keySet -- snapshot.hosts.keySet).foreach(unregister)
+      previous = Some(snapshot)
+    }
+  }
+
+  override def close(): Unit = synchronized {
+    closed = true
+    hosts.keySet.toList.foreach(unregister)
+  }
+
+  /**
+   * Returns the name of the MXBean of the host.
+   */
+  def objectName(host: String): ObjectName = {
+    new ObjectName(s"play.ws:type=ConnectionPool,client=${ObjectName.quote(client)},host=${ObjectName.quote(host)}")
+  }
+
+  private def register(host: String): HostConnectionPool = {
+    val bean = new HostConnectionPool
+    val name = objectName(host)
+    try server.registerMBean(bean, name)
+    catch {
+      case _: InstanceAlreadyExistsException =>
+        server.unregisterMBean(name)
+        server.registerMBean(bean, name)
+    }
+    bean
+  }
+
+  private def unregister(host: String): Unit = {
+    hosts.remove(host)
+    try server.unregisterMBean(objectName(host))
+    catch {
+      case NonFatal(e) => logger.debug(s"Failed to unregister the pool of $host", e)
+    }
+  }
+}
+
+object JmxConnectionPoolReporter {
+
+  private val logger = LoggerFactory.getLogger(classOf[JmxConnectionPoolReporter])
+
+  private val clients = new AtomicInteger()
+
+  private def nextClientName(): String = s"client-${clients.incrementAndGet()}"
+
+  private final class HostConnectionPool extends HostConnectionPoolMXBean {
+    @volatile private var total  = HostPoolMetrics(0, 0)
+    @volatile private var recent = HostPoolMetrics(0, 0)
+
+    def update(total: HostPoolMetrics, recent: HostPoolMetrics): Unit = {
+      this.total = total
+      this.recent = recent
+    }
+
+    override def getActiveConnections: Long = total.activeConnections
+
+    override def getIdleConnections: Long = total.idleConnections
+
+    override def getLeaseCount: Long = total.leaseCount
+
+    override def getAverageLeaseWaitMillis: Double = recent.averageLeaseWait.toNanos / 1e6
+
+    override def getOpenedConnections: Long = total.openedConnections
+
+    override def getClosedConnections: Long = total.closedConnections
+
+    override def getAverageTlsHandshakeMillis: Double = recent.averageTlsHandshake.toNanos / 1e6
+  }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc.metrics
+
+import java.net.InetSocketAddress
+import java.net.URI
+import java.util.{ List => JList }
+import javax.net.ssl.SSLSession
+
+import org.reactivestreams.Publisher
+import org.slf4j.LoggerFactory
+import play.api.libs.ws.ahc.ForwardingConnectionEvents
+import play.shaded.ahc.io.netty.channel.Channel
+import play.shaded.ahc.io.netty.handler.codec.http.HttpHeaders
+import play.shaded.ahc.org.asynchttpclient._
+import play.shaded.ahc.org.asynchttpclient.handler.StreamedAsyncHandler
+import play.shaded.ahc.org.asynchttpclient.netty.request.NettyRequest
+
+import scala.concurrent.duration._
+import scala.util.control.NonFatal
+
+/**
+ * The time a request spent in each phase. A phase the request did not go through, such as connecting when a pooled
+ * connection was reused, is `None`.
+ *
+ * @param method the method of the request.
+ * @param uri the URI of the request.
+ * @param statusCode the status code of the response, if one was received.
+ * @param nameResolution the time spent resolving the host name.
+ * @param connect the time spent opening the TCP connection.
+ * @param tlsHandshake the time spent in the TLS handshake.
+ * @param reusedConnection whether the request was sent on a pooled connection.
+ * @param timeToFirstByte the time from sending the request until the status line was received.
+ * @param bodyTransfer the time from receiving the status line until the response was complete.
+ * @param total the time from handing the request to the client until it completed or failed.
+ * @param failure the cause of the failure, if the request failed.
+ */
+case class RequestTiming(
+    method: String,
+    uri: URI,
+    statusCode: Option[Int],
+    nameResolution: Option[FiniteDuration],
+    connect: Option[FiniteDuration],
+    tlsHandshake: Option[FiniteDuration],
+    reusedConnection: Boolean,
+    timeToFirstByte: Option[FiniteDuration],
+    bodyTransfer: Option[FiniteDuration],
+    total: FiniteDuration,
+    failure: Option[Throwable]
+)
+
+/**
+ * Receives the timing of every request executed by a client it is registered with. A request filter that is also a
+ * listener receives the timing of the requests it filters.
+ *
+ * Listeners are called on the thread that completes the request, usually an I/O thread, so they must not block.
+ */
+trait RequestTimingListener {
+
+  def onRequestTiming(timing: RequestTiming): Unit
+}
+
+object RequestTimings {
+
+  private val logger = LoggerFactory.getLogger(classOf[RequestTimingListener])
+
+  /**
+   * Returns the listeners of a client, followed by the filters of a request that are listeners.
+   */
+  def listeners(
+      clientListeners: java.util.Collection[RequestTimingListener],
+      filters: Iterable[?]
+  ): java.util.Collection[RequestTimingListener] = {
+    val filterListeners = filters.collect { case listener: RequestTimingListener => listener }
+    if (filterListeners.isEmpty) clientListeners
+    else {
+      val all = new java.util.ArrayList[RequestTimingListener](clientListeners)
+      filterListeners.foreach(all.add)
+      all
+    }
+  }
+
+  /**
+   * Wraps the handler of a request so that the timing of the request is sent to the listeners. The handler is
+   * returned as is if there are no listeners.
+   */
+  def instrument[T](
+      request: Request,
+      handler: AsyncHandler[T],
+      listeners: java.util.Collection[RequestTimingListener]
+  ): AsyncHandler[T] = {
+    if (listeners.isEmpty) handler
+    else {
+      val timer = new RequestTimer(request, listeners)
+      handler match {
+        case streamed: StreamedAsyncHandler[T]     => new TimedStreamedAsyncHandler[T](streamed, timer)
+        case completion: AsyncCompletionHandler[T] => new TimedAsyncCompletionHandler[T](completion, timer)
+        case other                                 => new TimedAsyncHandler[T](other, timer)
+      }
+    }
+  }
+
+  /**
+   * Records when each phase of a request starts and ends. A request goes through its phases one after the other, so
+   * no synchronization is needed beyond what the client provides between callbacks.
+   */
+  private final class RequestTimer(request: Request, listeners: java.util.Collection[RequestTimingListener]) {
+    private val started               = System.nanoTime()
+    private var nameResolutionStarted = 0L
+    private var nameResolution        = -1L
+    private var connectStarted        = 0L
+    private var connect               = -1L
+    private var tlsHandshakeStarted   = 0L
+    private var tlsHandshake          = -1L
+    private var reusedConnection      = false
+    private var requestSent           = 0L
+    private var statusReceived        = 0L
+    private var statusCode            = -1
+    private var completed             = false
+
+    def onHostnameResolutionAttempt(): Unit = nameResolutionStarted = System.nanoTime()
+
+    def onHostnameResolutionSuccess(): Unit = nameResolution = since(nameResolutionStarted)
+
+    def onTcpConnectAttempt(): Unit = connectStarted = System.nanoTime()
+
+    def onTcpConnectSuccess(): Unit = connect = since(connectStarted)
+
+    def onTlsHandshakeAttempt(): Unit = tlsHandshakeStarted = System.nanoTime()
+
+    def onTlsHandshakeSuccess(): Unit = tlsHandshake = since(tlsHandshakeStarted)
+
+    def onConnectionPooled(): Unit = reusedConnection = true
+
+    def onRequestSend(): Unit = requestSent = System.nanoTime()
+
+    def onStatusReceived(status: HttpResponseStatus): Unit = {
+      statusReceived = System.nanoTime()
+      statusCode = status.getStatusCode
+    }
+
+    def onCompleted(): Unit = complete(None)
+
+    def onThrowable(t: Throwable): Unit = complete(Some(t))
+
+    private def complete(failure: Option[Throwable]): Unit = {
+      if (!completed) {
+        completed = true
+        val now    = System.nanoTime()
+        val timing = RequestTiming(
+          method = request.getMethod,
+          uri = request.getUri.toJavaNetURI,
+          statusCode = if (statusCode == -1) None else Some(statusCode),
+          nameResolution = duration(nameResolution),
+          connect = duration(connect),
+          tlsHandshake = duration(tlsHandshake),
+          reusedConnection = reusedConnection,
+          timeToFirstByte = if (statusReceived == 0L) None else duration(statusReceived - sentAt),
+          bodyTransfer = if (statusReceived == 0L || failure.isDefined) None else duration(now - statusReceived),
+          total = (now - started).nanos,
+          failure = failure
+        )
+        listeners.forEach { listener =>
+          try listener.onRequestTiming(timing)
+          catch { case NonFatal(e) => logger.warn(s"Request timing listener $listener failed", e) }
+        }
+      }
+    }
+
+    private def sentAt: Long = if (requestSent == 0L) started else requestSent
+
+    private def since(start: Long): Long = if (start == 0L) -1L else System.nanoTime() - start
+
+    private def duration(nanos: Long): Option[FiniteDuration] = if (nanos < 0L) None else Some(nanos.nanos)
+  }
+
+  private trait TimedEvents[T] extends ForwardingConnectionEvents[T] {
+    protected def timer: RequestTimer
+
+    override def onHostnameResolutionAttempt(name: String): Unit = {
+      timer.onHostnameResolutionAttempt()
+      super.onHostnameResolutionAttempt(name)
+    }
+
+    override def onHostnameResolutionSuccess(name: String, addresses: JList[InetSocketAddress]): Unit = {
+      timer.onHostnameResolutionSuccess()
+      super.onHostnameResolutionSuccess(name, addresses)
+    }
+
+    override def onTcpConnectAttempt(remoteAddress: InetSocketAddress): Unit = {
+      timer.onTcpConnectAttempt()
+      super.onTcpConnectAttempt(remoteAddress)
+    }
+
+    override def onTcpConnectSuccess(remoteAddress: InetSocketAddress, connection: Channel): Unit = {
+      timer.onTcpConnectSuccess()
+      super.onTcpConnectSuccess(remoteAddress, connection)
+    }
+
+    override def onTlsHandshakeAttempt(): Unit = {
+      timer.onTlsHandshakeAttempt()
+      super.onTlsHandshakeAttempt()
+    }
+
+    override def onTlsHandshakeSuccess(sslSession: SSLSession): Unit = {
+      timer.onTlsHandshakeSuccess()
+      super.onTlsHandshakeSuccess(sslSession)
+    }
+
+    override def onConnectionPooled(connection: Channel): Unit = {
+      timer.onConnectionPooled()
+      super.onConnectionPooled(connection)
+    }
+
+    override def onRequestSend(request: NettyRequest): Unit = {
+      timer.onRequestSend()
+      super.onRequestSend(request)
+    }
+  }
+
+  /**
+   * Keeps the `AsyncCompletionHandler` type of the wrapped handler, which the caching client relies on.
+   */
+  private final class TimedAsyncCompletionHandler[T](handler: AsyncCompletionHandler[T], val timer: RequestTimer)
+      extends AsyncCompletionHandler[T]
+      with TimedEvents[T] {
+
+    override protected def eventTarget: AsyncHandler[?] = handler
+
+    override def onStatusReceived(status: HttpResponseStatus): AsyncHandler.State = {
+      timer.onStatusReceived(status)
+      handler.onStatusReceived(status)
+    }
+
+    override def onHeadersReceived(headers: HttpHeaders): AsyncHandler.State = handler.onHeadersReceived(headers)
+
+    override def onBodyPartReceived(bodyPart: HttpResponseBodyPart): AsyncHandler.State =
+      handler.onBodyPartReceived(bodyPart)
+
+    override def onTrailingHeadersReceived(headers: HttpHeaders): AsyncHandler.State =
+      handler.onTrailingHeadersReceived(headers)
+
+    override def onThrowable(t: Throwable): Unit = {
+      try handler.onThrowable(t)
+      finally timer.onThrowable(t)
+    }
+
+    // The response parts are only accumulated by the wrapped handler, so there is no response here when the client
+    // completes the request itself. The caching client hands over the response it built instead.
+    override def onCompleted(response: Response): T = {
+      try if (response == null) handler.onCompleted() else handler.onCompleted(response)
+      finally timer.onCompleted()
+    }
+  }
+
+  private class TimedAsyncHandler[T](handler: AsyncHandler[T], val timer: RequestTimer) extends TimedEvents[T] {
+
+    override protected def eventTarget: AsyncHandler[?] = handler
+
+    override def onStatusReceived(status: HttpResponseStatus): AsyncHandler.State = {
+      timer.onStatusReceived(status)
+      handler.onStatusReceived(status)
+    }
+
+    override def onHeadersReceived(headers: HttpHeaders): AsyncHandler.State = handler.onHeadersReceived(headers)
+
+    override def onBodyPartReceived(bodyPart: HttpResponseBodyPart): AsyncHandler.State =
+      handler.onBodyPartReceived(bodyPart)
+
+    override def onTrailingHeadersReceived(headers: HttpHeaders): AsyncHandler.State =
+      handler.onTrailingHeadersReceived(headers)
+
+    override def onThrowable(t: Throwable): Unit = {
+      try handler.onThrowable(t)
+      finally timer.onThrowable(t)
+    }
+
+    override def onCompleted(): T = {
+      try handler.onCompleted()
+      finally timer.onCompleted()
+    }
+  }
+
+  private final class TimedStreamedAsyncHandler[T](handler: StreamedAsyncHandler[T], timer: RequestTimer)
+      extends TimedAsyncHandler[T](handler, timer)
+      with StreamedAsyncHandler[T] {
+
+    override def onStream(publisher: Publisher[HttpResponseBodyPart]): AsyncHandler.State = handler.onStream(publisher)
+  }
+}
@@ -11,6 +11,8 @@ import org.apache.pekko.actor.ActorSystem
 import org.apache.pekko.stream.Materializer
 import org.apache.pekko.util.ByteString
 
+import com.typesafe.config.ConfigFactory
+
 import org.mockito.Mockito
 import org.specs2.execute.Result
 import org.specs2.mutable.Specification
@@ -20,6 +22,7 @@ import play.api.libs.oauth.ConsumerKey
 import play.api.libs.oauth.RequestToken
 import play.api.libs.oauth.OAuthCalculator
 import play.api.libs.ws._
+import play.api.libs.ws.ahc.cache.CachingAsyncHttpClient
 import play.shaded.ahc.io.netty.handler.codec.http.HttpHeaderNames
 import play.shaded.ahc.org.asynchttpclient.Realm.AuthScheme
 import play.shaded.ahc.org.asynchttpclient.SignatureCalculator
@@ -522,6 +525,29 @@ class AhcWSRequestSpec extends Specification with AfterAll with DefaultBodyReada
       req.url must_=== "http://www.example.com/"
     }
 
+    "reuse the compiled request until the request is copied" in withClient { client =>
+      val req = client
+        .url("http://playframework.com/")
+        .addHttpHeaders("X-Test" -> "value")
+        .asInstanceOf[StandaloneAhcWSRequest]
+      val compiled = req.requestForExecution()
+      (req.requestForExecution() must beTheSameAs(compiled)).and {
+        val changed = req.withUrl("http://www.example.com/").requestForExecution()
+        (changed must not(beTheSameAs(compiled))).and {
+          changed.getUrl must beEqualTo("http://www.example.com/")
+        }
+      }
+    }
+
+    "not reuse the compiled request when signed" in withClient { client =>
+      val calc = OAuthCalculator(ConsumerKey("key", "secret"), RequestToken("token", "secret"))
+      val req  = client
+        .url("http://playframework.com/")
+        .sign(calc)
+        .asInstanceOf[StandaloneAhcWSRequest]
+      req.requestForExecution() must not(beTheSameAs(req.requestForExecution()))
+    }
+
     "a custom signature calculator" in {
       var called = false
       val calc   = new SignatureCalculator with WSSignatureCalculator {
@@ -684,4 +710,18 @@ class AhcWSRequestSpec extends Specification with AfterAll with DefaultBodyReada
     req.getHeaders.getAll(HttpHeaderNames.CONTENT_TYPE.toString()).asScala must_== Seq("text/plain; charset=US-ASCII")
   }
 
+  "Only use the built-in HTTP cache when the client is created with a configuration enabling it" in {
+    val config       = ConfigFactory.parseString("play.ws.cache.enabled = true").withFallback(ConfigFactory.load())
+    val clientConfig = AhcWSClientConfigFactory.forConfig(config, this.getClass.getClassLoader)
+    val plain        = StandaloneAhcWSClient(clientConfig, None)
+    val configured   = StandaloneAhcWSClient(clientConfig, None, config)
+    try {
+      (plain.underlying[AnyRef] must not(beAnInstanceOf[CachingAsyncHttpClient]))
+        .and(configured.underlying[AnyRef] must beAnInstanceOf[CachingAsyncHttpClient])
+    } finally {
+      plain.close()
+      configured.close()
+    }
+  }
+
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc
+
+import java.nio.ByteBuffer
+
+import org.apache.pekko.actor.ActorSystem
+import org.apache.pekko.stream.Materializer
+import org.apache.pekko.stream.StreamLimitReachedException
+import org.apache.pekko.stream.scaladsl.Source
+import org.apache.pekko.util.ByteString
+import org.specs2.mutable.Specification
+import org.specs2.specification.AfterAll
+import play.api.libs.ws.ahc.cache.CacheableHttpResponseBodyPart
+import play.shaded.ahc.io.netty.buffer.Unpooled
+import play.shaded.ahc.org.asynchttpclient.HttpResponseBodyPart
+import play.shaded.ahc.org.asynchttpclient.netty.EagerResponseBodyPart
+
+import scala.concurrent.Await
+import scala.concurrent.duration._
+
+class AhcWSUtilsSpec extends Specification with AfterAll {
+
+  val system: ActorSystem        = ActorSystem()
+  val materializer: Materializer = Materializer.matFromSystem(system)
+
+  override def afterAll(): Unit = system.terminate()
+
+  "toByteString" should {
+
+    "wrap the bytes of an eager body part" in {
+      val buf  = Unpooled.copiedBuffer("hello".getBytes("UTF-8"))
+      val part = new EagerResponseBodyPart(buf, true)
+      buf.release()
+
+      AhcWSUtils.toByteString(part).utf8String must_== "hello"
+    }
+
+    "wrap the bytes of a cached body part without copying them" in {
+      val bytes = "hello".getBytes("UTF-8")
+      val part  = new CacheableHttpResponseBodyPart(bytes, true)
+
+      val byteString = AhcWSUtils.toByteString(part)
+      bytes(0) = 'j'.toByte
+
+      byteString.utf8String must_== "jello"
+    }
+
+    "copy the bytes of other body parts" in {
+      val bytes = "hello".getBytes("UTF-8")
+      val part  = new HttpResponseBodyPart(true) {
+        override def length(): Int                 = bytes.length
+        override def getBodyPartBytes: Array[Byte] = bytes
+        override def getBodyByteBuffer: ByteBuffer = ByteBuffer.wrap(bytes)
+      }
+
+      val byteString = AhcWSUtils.toByteString(part)
+      bytes(0) = 'j'.toByte
+
+      byteString.utf8String must_== "hello"
+    }
+  }
+
+  "accumulateBody" should {
+
+    val chunks = Source(List(ByteString("hello"), ByteString(" "), ByteString("world")))
+
+    def accumulate(expectedLength: Long, maxLength: Long): ByteString =
+      Await.result(AhcWSUtils.accumulateBody(chunks, expectedLength, maxLength, materializer), 5.seconds)
+
+    "accumulate a body of the expected length" in {
+      accumulate(expectedLength = 11, maxLength = 100).utf8String must_== "hello world"
+    }
+
+    "accumulate a body of unknown length" in {
+      accumulate(expectedLength = -1, maxLength = 100).utf8String must_== "hello world"
+    }
+
+    "accumulate a body that does not match the expected length" in {
+      (accumulate(expectedLength = 5, maxLength = 100).utf8String must_== "hello world")
+        .and(accumulate(expectedLength = 20, maxLength = 100).utf8String must_== "hello world")
+    }
+
+    "fail once the maximum length is exceeded" in {
+      accumulate(expectedLength = -1, maxLength = 10) must throwA[StreamLimitReachedException]
+    }
+  }
+}
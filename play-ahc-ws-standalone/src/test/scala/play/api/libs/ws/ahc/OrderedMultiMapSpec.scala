@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc
+
+import org.specs2.mutable.Specification
+
+import scala.collection.immutable.TreeMap
+
+class OrderedMultiMapSpec extends Specification {
+
+  "OrderedMultiMap" should {
+
+    "keep keys in insertion order" in {
+      val map = OrderedMultiMap.emptyHeaders
+        .append("Zeta", "1")
+        .append("alpha", "2")
+        .append("Mid", "3")
+
+      map.keys.toSeq must_== Seq("Zeta", "alpha", "Mid")
+    }
+
+    "append and prepend values" in {
+      val map = OrderedMultiMap.emptyQueryString
+        .append("a", "2")
+        .append("a", "3")
+        .prepend("a", "1")
+
+      map.get("a") must beSome(Seq("1", "2", "3"))
+    }
+
+    "treat header names as case insensitive and keep the first name" in {
+      val map = OrderedMultiMap.emptyHeaders
+        .append("Content-Type", "text/plain")
+        .append("content-type", "text/html")
+
+      (map.get("CONTENT-TYPE") must beSome(Seq("text/plain", "text/html")))
+        .and(map.keys.toSeq must_== Seq("Content-Type"))
+    }
+
+    "treat query string names as case sensitive" in {
+      val map = OrderedMultiMap.emptyQueryString
+        .append("a", "1")
+        .append("A", "2")
+
+      map.size must_== 2
+    }
+
+    "remove entries without changing the original map" in {
+      val map     = OrderedMultiMap.emptyHeaders.append("Foo", "1").append("Bar", "2")
+      val removed = map.removed("FOO")
+
+      (removed.get("Foo") must beNone).and(map.get("Foo") must beSome(Seq("1")))
+    }
+
+    "stay case insensitive when updated through the Map API" in {
+      val map: Map[String, Seq[String]] = OrderedMultiMap.emptyHeaders.append("Foo", "1")
+
+      map.updated("FOO", Seq("2")).get("foo") must beSome(Seq("2"))
+    }
+
+    "convert other maps" in {
+      val treeMap = TreeMap[String, Seq[String]]("a" -> Seq("1"), "b" -> Seq.empty)
+      val map     = OrderedMultiMap.headers(treeMap)
+
+      (map must_== treeMap).and(OrderedMultiMap.headers(map) must beTheSameAs(map))
+    }
+  }
+}
@@ -81,6 +81,101 @@ class AhcWSCacheSpec extends Specification {
 
   }
 
+  "serveAction" should {
+    import scala.concurrent.ExecutionContext.Implicits.global
+    import ResponseServeActions._
+
+    val achConfig = new DefaultAsyncHttpClientConfig.Builder().build()
+    val url       = "http://localhost:9000"
+
+    def staleEntry(cacheControl: String): ResponseEntry = {
+      val response = CacheableResponse(200, url, achConfig).withHeaders(
+        "Date"          -> format(now.minusMinutes(2)),
+        "Cache-Control" -> cacheControl
+      )
+      ResponseEntry(response, "GET", Map.empty, None)
+    }
+
+    "serve stale and revalidate within stale-while-revalidate" in {
+      val cache   = new AhcHttpCache(new StubHttpCache())
+      val request = generateRequest(url)(headers => headers)
+      val entry   = staleEntry("max-age=60, stale-while-revalidate=600")
+
+      val actual = cache.serveAction(request, entry, Seconds.seconds(120))
+
+      actual must beAnInstanceOf[ServeStaleAndValidate]
+    }
+
+    "revalidate after stale-while-revalidate has passed" in {
+      val cache   = new AhcHttpCache(new StubHttpCache())
+      val request = generateRequest(url)(headers => headers)
+
+      val actual = cache.serveAction(request, staleEntry("max-age=60, stale-while-revalidate=30"), Seconds.seconds(120))
+
+      actual must beAnInstanceOf[Validate]
+    }
+
+    "allow a stale response on error within stale-if-error" in {
+      val cache   = new AhcHttpCache(new StubHttpCache())
+      val request = generateRequest(url)(headers => headers)
+
+      val actual = cache.serveAction(request, staleEntry("max-age=60, stale-if-error=600"), Seconds.seconds(120))
+
+      actual must beLike { case Validate(_, staleIfError) => staleIfError must beTrue }
+    }
+
+    "not serve stale when the request asks for no-cache" in {
+      val cache   = new AhcHttpCache(new StubHttpCache())
+      val request = generateRequest(url)(headers => headers.add("Cache-Control", "no-cache"))
+      val entry   = staleEntry("max-age=60, stale-while-revalidate=600")
+
+      val actual = cache.serveAction(request, entry, Seconds.seconds(120))
+
+      actual must not(beAnInstanceOf[ServeStaleAndValidate])
+    }
+  }
+
+  "decision context" should {
+    import scala.concurrent.ExecutionContext.Implicits.global
+
+    val achConfig = new DefaultAsyncHttpClientConfig.Builder().build()
+    val url       = "http://localhost:9000"
+
+    "convert the request and the stored response once" in {
+      var cacheRequests   = 0
+      var storedResponses = 0
+      val cache           = new AhcHttpCache(new StubHttpCache()) {
+        override protected def generateCacheRequest(request: Request): CacheRequest = {
+          cacheRequests += 1
+          super.generateCacheRequest(request)
+        }
+
+        override protected def generateStoredResponse(
+            response: CacheableResponse,
+            requestMethod: String,
+            nominatedHeaders: Map[HeaderName, Seq[String]]
+        ): StoredResponse = {
+          storedResponses += 1
+          super.generateStoredResponse(response, requestMethod, nominatedHeaders)
+        }
+      }
+      val response = CacheableResponse(200, url, achConfig).withHeaders(
+        "Date"          -> format(now),
+        "Cache-Control" -> "max-age=60"
+      )
+
+      val entry = ResponseEntry(response, "GET", Map.empty, None)
+
+      for (_ <- 1 to 2) {
+        val context = cache.context(generateRequest(url)(headers => headers))
+        cache.selectionAction(context, Seq(entry))
+        cache.serveAction(context, entry, cache.calculateCurrentAge(context, entry, now))
+      }
+
+      (cacheRequests must_== 2).and(storedResponses must_== 1)
+    }
+  }
+
   def generateRequest(url: String)(block: HttpHeaders => HttpHeaders): Request = {
     val requestBuilder = new RequestBuilder()
     val requestHeaders = block(new DefaultHttpHeaders())
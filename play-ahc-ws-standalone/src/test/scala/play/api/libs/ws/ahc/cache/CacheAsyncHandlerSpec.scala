@@ -4,10 +4,50 @@
 
 package play.api.libs.ws.ahc.cache
 
+import java.util.concurrent.TimeUnit
+
 import org.specs2.mutable.Specification
+import play.shaded.ahc.io.netty.handler.codec.http.DefaultHttpHeaders
+import play.shaded.ahc.org.asynchttpclient.AsyncCompletionHandlerBase
+import play.shaded.ahc.org.asynchttpclient.DefaultAsyncHttpClientConfig
+import play.shaded.ahc.org.asynchttpclient.RequestBuilder
+import play.shaded.ahc.org.asynchttpclient.uri.Uri
+
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.Future
+import scala.concurrent.Promise
 
 class CacheAsyncHandlerSpec extends Specification {
 
+  /**
+   * A cache that only answers a lookup when the test completes it.
+   */
+  class SlowCache extends StubHttpCache {
+    val lookup = Promise[Option[ResponseEntry]]()
+
+    override def get(key: EffectiveURIKey): Future[Option[ResponseEntry]] = lookup.future
+  }
+
+  /**
+   * A synchronous cache whose futures must not be used.
+   */
+  class DirectCache extends SyncCache {
+    val entries = new java.util.concurrent.ConcurrentHashMap[EffectiveURIKey, ResponseEntry]()
+
+    override def getNow(key: EffectiveURIKey): Option[ResponseEntry] = Option(entries.get(key))
+
+    override def putNow(key: EffectiveURIKey, entry: ResponseEntry): Unit = entries.put(key, entry)
+
+    override def removeNow(key: EffectiveURIKey): Unit = entries.remove(key)
+
+    override def get(key: EffectiveURIKey): Future[Option[ResponseEntry]] = sys.error("get called")
+
+    override def close(): Unit = entries.clear()
+  }
+
+  val url       = "http://localhost:9000/slow"
+  val ahcConfig = new DefaultAsyncHttpClientConfig.Builder().build()
+
   "CacheAsyncHandlerSpec" should {
 
     "validate" in {
@@ -16,5 +56,70 @@ class CacheAsyncHandlerSpec extends Specification {
       // val handler = new CacheAsyncHandler(cache)
     }
 
+    "not wait for the cache when a response is not modified" in {
+      val underlying = new SlowCache
+      val request    = new RequestBuilder("GET").setUrl(url).build()
+      val handler    =
+        new AsyncCachingHandler(request, new AsyncCompletionHandlerBase, new AhcHttpCache(underlying), None, ahcConfig)
+
+      handler.onStatusReceived(new CacheableHttpResponseStatus(Uri.create(url), 304, "Not Modified", "HTTP/1.1"))
+      handler.onHeadersReceived(new DefaultHttpHeaders())
+
+      // The cache has not answered yet, so a handler that blocked would still be waiting here.
+      val completed = handler.onCompleted()
+      val pending   = handler.future.isDone
+
+      val cached = CacheableResponse(200, url, "cached", ahcConfig)
+      underlying.lookup.success(Some(ResponseEntry(cached, "GET", Map.empty, None)))
+      val response = handler.future.get(5, TimeUnit.SECONDS)
+
+      (completed must beNull)
+        .and(pending must beFalse)
+        .and(response.getStatusCode must_== 200)
+        .and(response.getResponseBody must_== "cached")
+    }
+
+    "not wait for the cache when the connection fails" in {
+      val underlying = new SlowCache
+      val request    = new RequestBuilder("GET").setUrl(url).build()
+      val handler    =
+        new AsyncCachingHandler(request, new AsyncCompletionHandlerBase, new AhcHttpCache(underlying), None, ahcConfig)
+
+      handler.onThrowable(new java.io.IOException("disconnected"))
+      val pending = handler.future.isDone
+
+      underlying.lookup.success(None)
+
+      (pending must beFalse).and(handler.future.get(5, TimeUnit.SECONDS).getStatusCode must_== 504)
+    }
+
+    "read a synchronous cache on the calling thread" in {
+      val underlying = new DirectCache
+      val request    = new RequestBuilder("GET").setUrl(url).build()
+      val handler    =
+        new AsyncCachingHandler(request, new AsyncCompletionHandlerBase, new AhcHttpCache(underlying), None, ahcConfig)
+
+      val cached = CacheableResponse(200, url, "cached", ahcConfig)
+      underlying.putNow(EffectiveURIKey(request), ResponseEntry(cached, "GET", Map.empty, None))
+
+      handler.onStatusReceived(new CacheableHttpResponseStatus(Uri.create(url), 304, "Not Modified", "HTTP/1.1"))
+      handler.onHeadersReceived(new DefaultHttpHeaders())
+      val completed = handler.onCompleted()
+
+      (completed.getResponseBody must_== "cached").and(handler.future.isDone must beTrue)
+    }
+
+    "act as if nothing was cached when the cache does not answer in time" in {
+      val underlying = new SlowCache
+      val request    = new RequestBuilder("GET").setUrl(url).build()
+      val handler    =
+        new AsyncCachingHandler(request, new AsyncCompletionHandlerBase, new AhcHttpCache(underlying), None, ahcConfig)
+
+      handler.onStatusReceived(new CacheableHttpResponseStatus(Uri.create(url), 304, "Not Modified", "HTTP/1.1"))
+      handler.onHeadersReceived(new DefaultHttpHeaders())
+      handler.onCompleted()
+
+      handler.future.get(5, TimeUnit.SECONDS).getStatusCode must_== 304
+    }
   }
 }
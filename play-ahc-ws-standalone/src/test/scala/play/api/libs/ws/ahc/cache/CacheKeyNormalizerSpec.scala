@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc.cache
+
+import java.net.URI
+
+import org.playframework.cachecontrol.HttpDate
+import org.playframework.cachecontrol.ResponseSelectionActions.SelectedResponse
+import org.specs2.mutable.Specification
+import play.shaded.ahc.org.asynchttpclient.DefaultAsyncHttpClientConfig
+import play.shaded.ahc.org.asynchttpclient.Request
+import play.shaded.ahc.org.asynchttpclient.RequestBuilder
+
+import scala.concurrent.ExecutionContext
+
+class CacheKeyNormalizerSpec extends Specification {
+
+  implicit val ec: ExecutionContext = ExecutionContext.parasitic
+
+  val ahcConfig = new DefaultAsyncHttpClientConfig.Builder().build()
+
+  def key(uri: String): EffectiveURIKey = EffectiveURIKey("GET", new URI(uri))
+
+  def normalize(normalizer: CacheKeyNormalizer, uri: String): String = normalizer.normalize(key(uri)).uri.toString
+
+  def request(url: String): Request = new RequestBuilder("GET").setUrl(url).build()
+
+  "CacheKeyNormalizer.canonicalForm" should {
+    import CacheKeyNormalizer.canonicalForm
+
+    "lower-case the scheme and the host" in {
+      normalize(canonicalForm, "HTTP://Example.COM/Path") must_== "http://example.com/Path"
+    }
+
+    "drop the default port" in {
+      (normalize(canonicalForm, "http://example.com:80/a") must_== "http://example.com/a")
+        .and(normalize(canonicalForm, "https://example.com:443/a") must_== "https://example.com/a")
+        .and(normalize(canonicalForm, "https://example.com:80/a") must_== "https://example.com:80/a")
+    }
+
+    "use a slash for an empty path" in {
+      normalize(canonicalForm, "http://example.com?q=1") must_== "http://example.com/?q=1"
+    }
+
+    "make percent-encoding canonical" in {
+      normalize(canonicalForm, "http://example.com/a%7eb%2fc?q=%7e%2f") must_== "http://example.com/a~b%2Fc?q=~%2F"
+    }
+
+    "keep the method and leave URIs without a host alone" in {
+      val post = EffectiveURIKey("POST", new URI("HTTP://Example.COM:80/"))
+      (canonicalForm.normalize(post) must_== EffectiveURIKey("POST", new URI("http://example.com/")))
+        .and(canonicalForm.normalize(key("mailto:someone@example.com")) must_== key("mailto:someone@example.com"))
+    }
+  }
+
+  "CacheKeyNormalizer.sortedQuery" should {
+
+    "sort the query parameters by name, keeping the order of repeated names" in {
+      normalize(CacheKeyNormalizer.sortedQuery, "http://example.com/?b=2&a=1&b=1") must_==
+        "http://example.com/?a=1&b=2&b=1"
+    }
+  }
+
+  "CacheKeyNormalizer.dropQueryParameters" should {
+    val normalizer = CacheKeyNormalizer.dropQueryParameters(Seq("utm_*", "fbclid"))
+
+    "drop the named parameters and those matching a prefix" in {
+      normalize(normalizer, "http://example.com/?id=1&utm_source=x&fbclid=y&utm_medium=z") must_==
+        "http://example.com/?id=1"
+    }
+
+    "drop the query when no parameter is left" in {
+      normalize(normalizer, "http://example.com/a?utm_source=x") must_== "http://example.com/a"
+    }
+  }
+
+  "AhcHttpCacheKeyNormalization" should {
+
+    "apply the configured rules" in {
+      val normalizer = AhcHttpCacheKeyNormalization(ignoredQueryParameters = Seq("utm_*"), sortQuery = true).normalizer
+      normalize(normalizer, "HTTP://Example.COM:80/list?page=2&utm_source=mail&sort=name") must_==
+        "http://example.com/list?page=2&sort=name"
+    }
+  }
+
+  "AhcHttpCache" should {
+
+    def cacheResponse(cache: AhcHttpCache, url: String): Unit = {
+      cache.cacheResponse(
+        request(url),
+        CacheableResponse(200, url, "cached", ahcConfig)
+          .withHeaders("Cache-Control" -> "max-age=3600", "Date" -> HttpDate.format(HttpDate.now))
+      )
+    }
+
+    "share an entry between equivalent URIs" in {
+      val normalizer = CacheKeyNormalizer.canonicalForm.andThen(CacheKeyNormalizer.sortedQuery)
+      val cache      = new AhcHttpCache(new InMemoryHttpCache(1024 * 1024), false, normalizer)
+      cacheResponse(cache, "http://localhost:9000/list?sort=name&page=2")
+
+      val equivalent = request("http://LOCALHOST:9000/list?page=2&sort=name")
+      val entries    = cache.getVariantsNow(cache.cacheKey(equivalent)).getOrElse(Nil)
+
+      (entries must haveSize(1)).and(cache.selectionAction(equivalent, entries) must beLike {
+        case SelectedResponse(_, 0) => ok
+      })
+    }
+
+    "keep the keys as they are by default" in {
+      val cache = new AhcHttpCache(new InMemoryHttpCache(1024 * 1024))
+      cacheResponse(cache, "http://localhost:9000/list?sort=name&page=2")
+
+      cache.getVariantsNow(cache.cacheKey(request("http://localhost:9000/list?page=2&sort=name"))) must beSome(
+        beEmpty[Seq[ResponseEntry]]
+      )
+    }
+  }
+}
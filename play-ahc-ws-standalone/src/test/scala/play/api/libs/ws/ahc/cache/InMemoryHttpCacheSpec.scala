@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc.cache
+
+import java.net.URI
+import java.time.ZonedDateTime
+
+import com.typesafe.config.ConfigFactory
+import org.mockito.Mockito
+import org.playframework.cachecontrol.HeaderName
+import org.playframework.cachecontrol.HttpDate
+import org.specs2.mutable.Specification
+import play.shaded.ahc.org.asynchttpclient.AsyncCompletionHandlerBase
+import play.shaded.ahc.org.asynchttpclient.AsyncHttpClient
+import play.shaded.ahc.org.asynchttpclient.DefaultAsyncHttpClientConfig
+import play.shaded.ahc.org.asynchttpclient.RequestBuilder
+
+import scala.concurrent.Await
+import scala.concurrent.Future
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.duration._
+
+class InMemoryHttpCacheSpec extends Specification {
+
+  val ahcConfig = new DefaultAsyncHttpClientConfig.Builder().build()
+
+  def key(path: String): EffectiveURIKey = EffectiveURIKey("GET", new URI(s"http://localhost/$path"))
+
+  def entry(body: String, expiresAt: Option[ZonedDateTime] = Some(ZonedDateTime.now.plusHours(1))): ResponseEntry = {
+    val response = CacheableResponse(200, "http://localhost/", body, ahcConfig)
+    ResponseEntry(response, "GET", Map.empty, expiresAt)
+  }
+
+  def get(cache: Cache, k: EffectiveURIKey): Option[ResponseEntry] = Await.result(cache.get(k), 1.second)
+
+  def variant(body: String, nominated: (String, String)*): ResponseEntry = {
+    entry(body).copy(nominatedHeaders = nominated.map { case (name, value) => HeaderName(name) -> Seq(value) }.toMap)
+  }
+
+  "InMemoryHttpCache" should {
+
+    "serve stored entries and count hits and misses" in {
+      val cache = new InMemoryHttpCache(maxWeight = 10000)
+      cache.put(key("a"), entry("hello"))
+
+      (get(cache, key("a")).map(_.response.getResponseBody) must beSome("hello"))
+        .and(get(cache, key("b")) must beNone)
+        .and(cache.stats must_== InMemoryHttpCache.Stats(1, 1, 0, 0))
+    }
+
+    "weigh entries by body and header size" in {
+      val cache = new InMemoryHttpCache(maxWeight = 10000)
+      val e     = entry("x" * 100)
+      cache.put(key("a"), e)
+
+      (InMemoryHttpCache.weigh(e) must be_>=(100L)).and(cache.weightedSize must_== InMemoryHttpCache.weigh(e))
+    }
+
+    "stay within the maximum weight" in {
+      val cache = new InMemoryHttpCache(maxWeight = 1000)
+      (1 to 50).foreach(i => cache.put(key(i.toString), entry("x" * 100)))
+
+      (cache.weightedSize must be_<=(1000L)).and(cache.stats.evictionCount must be_>(0L))
+    }
+
+    "not cache entries larger than the maximum weight" in {
+      val cache = new InMemoryHttpCache(maxWeight = 100)
+      cache.put(key("big"), entry("x" * 101))
+
+      cache.size must_== 0
+    }
+
+    "drop expired entries" in {
+      val cache = new InMemoryHttpCache(maxWeight = 10000)
+      cache.put(key("a"), entry("stale", expiresAt = Some(ZonedDateTime.now.minusSeconds(1))))
+
+      (get(cache, key("a")) must beNone)
+        .and(cache.size must_== 0)
+        .and(cache.stats.expirationCount must_== 1L)
+    }
+
+    "drop expired entries that are not looked up" in {
+      val cache = new InMemoryHttpCache(maxWeight = 10000)
+      cache.put(key("a"), entry("soon stale", expiresAt = Some(ZonedDateTime.now.plusNanos(50.millis.toNanos))))
+      Thread.sleep(100)
+      cache.put(key("b"), entry("fresh"))
+
+      (cache.size must_== 1).and(cache.stats.expirationCount must_== 1L)
+    }
+
+    "stay within the maximum weight under concurrent lookups and writes" in {
+      val cache   = new InMemoryHttpCache(maxWeight = 5000)
+      val workers = (1 to 8).map { worker =>
+        Future {
+          (1 to 2000).foreach { i =>
+            val k = key(s"${(i * worker) % 200}")
+            if (i % 10 == 0) cache.putNow(k, entry("x" * 100)) else cache.getNow(k)
+          }
+        }
+      }
+      Await.result(Future.sequence(workers), 30.seconds)
+
+      (cache.weightedSize must be_<=(5000L)).and(cache.stats.requestCount must_== 8L * 1800)
+    }
+
+    "keep frequently used entries through a scan of one-off entries" in {
+      val cache = new InMemoryHttpCache(maxWeight = 2000)
+      cache.put(key("hot"), entry("x" * 100))
+      (1 to 5).foreach(_ => get(cache, key("hot")))
+
+      (1 to 100).foreach(i => cache.put(key(s"scan-$i"), entry("x" * 100)))
+
+      get(cache, key("hot")) must beSome[ResponseEntry]
+    }
+
+    "remove entries" in {
+      val cache = new InMemoryHttpCache(maxWeight = 10000)
+      cache.put(key("a"), entry("hello"))
+      Await.result(cache.remove(key("a")), 1.second)
+
+      (get(cache, key("a")) must beNone).and(cache.weightedSize must_== 0L)
+    }
+
+    "keep a response per variant" in {
+      val cache = new InMemoryHttpCache(maxWeight = 10000)
+      cache.putNow(key("a"), variant("gzip", "Accept-Encoding" -> "gzip"))
+      cache.putNow(key("a"), variant("identity", "Accept-Encoding" -> "identity"))
+      cache.putNow(key("a"), variant("gzip again", "Accept-Encoding" -> "gzip"))
+
+      (cache.getVariantsNow(key("a")).map(_.response.getResponseBody) must_== Seq("gzip again", "identity"))
+        .and(cache.size must_== 2)
+    }
+
+    "replace the variants of a response that varies on other headers" in {
+      val cache = new InMemoryHttpCache(maxWeight = 10000)
+      cache.putNow(key("a"), variant("gzip", "Accept-Encoding" -> "gzip"))
+      cache.putNow(key("a"), variant("identity", "Accept-Encoding" -> "identity"))
+      cache.putNow(key("a"), variant("english", "Accept-Language" -> "en"))
+
+      cache.getVariantsNow(key("a")).map(_.response.getResponseBody) must_== Seq("english")
+    }
+
+    "weigh variants on their own and remove them together" in {
+      val cache    = new InMemoryHttpCache(maxWeight = 10000)
+      val gzip     = variant("x" * 100, "Accept-Encoding" -> "gzip")
+      val identity = variant("x" * 300, "Accept-Encoding" -> "identity")
+      cache.putNow(key("a"), gzip)
+      cache.putNow(key("a"), identity)
+      val weight = cache.weightedSize
+      cache.removeNow(key("a"))
+
+      (weight must_== InMemoryHttpCache.weigh(gzip) + InMemoryHttpCache.weigh(identity))
+        .and(cache.size must_== 0)
+        .and(cache.weightedSize must_== 0L)
+    }
+
+    "serve alternating variants from the cache" in {
+      val url        = "http://localhost/negotiated"
+      val httpCache  = new AhcHttpCache(new InMemoryHttpCache(maxWeight = 10000))
+      val underlying = Mockito.mock(classOf[AsyncHttpClient])
+      val client     = new CachingAsyncHttpClient(underlying, httpCache)
+
+      def request(encoding: String) =
+        new RequestBuilder("GET").setUrl(url).addHeader("Accept-Encoding", encoding).build()
+
+      Seq("gzip", "identity").foreach { encoding =>
+        httpCache.cacheResponse(
+          request(encoding),
+          CacheableResponse(200, url, encoding, ahcConfig).withHeaders(
+            "Cache-Control" -> "max-age=3600",
+            "Date"          -> HttpDate.format(HttpDate.now),
+            "Vary"          -> "Accept-Encoding"
+          )
+        )
+      }
+
+      val bodies = (1 to 10).map { i =>
+        val encoding = if (i % 2 == 0) "gzip" else "identity"
+        client.executeRequest(request(encoding), new AsyncCompletionHandlerBase).get(1, SECONDS).getResponseBody
+      }
+
+      (bodies must_== (1 to 10).map(i => if (i % 2 == 0) "gzip" else "identity"))
+        .and(client.cacheStats.hitCount must_== 10L)
+        .and(client.cacheStats.missCount must_== 0L)
+    }
+  }
+
+  "AhcHttpCacheConfigParser" should {
+
+    "be disabled by default" in {
+      AhcHttpCacheConfigFactory.forConfig(ConfigFactory.load()) must_== AhcHttpCacheConfig()
+    }
+
+    "parse the cache settings" in {
+      val config = ConfigFactory
+        .parseString("""play.ws.cache { enabled = true, heuristics.enabled = true, maxSize = 1 MiB }""")
+        .withFallback(ConfigFactory.load())
+
+      AhcHttpCacheConfigFactory.forConfig(config) must_== AhcHttpCacheConfig(
+        enabled = true,
+        heuristicsEnabled = true,
+        maxSize = 1024L * 1024
+      )
+    }
+
+    "parse the key normalization settings" in {
+      val config = ConfigFactory
+        .parseString("""play.ws.cache.keyNormalization { sortQuery = true, ignoredQueryParameters = ["utm_*"] }""")
+        .withFallback(ConfigFactory.load())
+
+      AhcHttpCacheConfigFactory.forConfig(config).keyNormalization must_== AhcHttpCacheKeyNormalization(
+        canonical = true,
+        ignoredQueryParameters = Seq("utm_*"),
+        sortQuery = true
+      )
+    }
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc.cache
+
+import java.net.URI
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.ZonedDateTime
+
+import org.specs2.mutable.Specification
+import play.shaded.ahc.org.asynchttpclient.DefaultAsyncHttpClientConfig
+
+import scala.concurrent.Await
+import scala.concurrent.duration._
+
+class MappedSegmentCacheSpec extends Specification {
+
+  sequential
+
+  val ahcConfig = new DefaultAsyncHttpClientConfig.Builder().build()
+
+  def key(path: String): EffectiveURIKey = EffectiveURIKey("GET", new URI(s"http://localhost/$path"))
+
+  def entry(body: String): ResponseEntry = {
+    val response = CacheableResponse(200, "http://localhost/", body, ahcConfig).withHeaders("ETag" -> "\"abc\"")
+    ResponseEntry(response, "GET", Map.empty, Some(ZonedDateTime.now.plusHours(1)))
+  }
+
+  def get(cache: Cache, k: EffectiveURIKey): Option[ResponseEntry] = Await.result(cache.get(k), 1.second)
+
+  def put(cache: Cache, k: EffectiveURIKey, e: ResponseEntry): Unit = Await.result(cache.put(k, e), 1.second)
+
+  def withDirectory[T](block: Path => T): T = {
+    val directory = Files.createTempDirectory("mapped-segment-cache")
+    try block(directory)
+    finally {
+      val files = Files.list(directory)
+      try files.forEach(p => Files.deleteIfExists(p))
+      finally files.close()
+      Files.deleteIfExists(directory)
+    }
+  }
+
+  "MappedSegmentCache" should {
+
+    "serve a stored body from the mapped segment" in withDirectory { directory =>
+      val cache = new MappedSegmentCache(directory, maxBytes = 1024, segmentBytes = 256, ahcConfig)
+      try {
+        put(cache, key("a"), entry("hello world"))
+
+        get(cache, key("a")) must beSome[ResponseEntry].which { e =>
+          (e.response.getResponseBody must_== "hello world")
+            .and(e.response.getHeader("ETag") must_== "\"abc\"")
+            .and(e.response.bodyParts.get(0).getBodyByteBuffer.isDirect must beTrue)
+        }
+      } finally cache.close()
+    }
+
+    "evict the oldest entries once the byte budget is used up" in withDirectory { directory =>
+      val cache = new MappedSegmentCache(directory, maxBytes = 200, segmentBytes = 100, ahcConfig)
+      try {
+        (1 to 5).foreach(i => put(cache, key(i.toString), entry("x" * 60)))
+
+        (get(cache, key("1")) must beNone)
+          .and(get(cache, key("5")) must beSome[ResponseEntry])
+          .and(cache.usedBytes must be_<=(200L))
+      } finally cache.close()
+    }
+
+    "only enqueue stores, and drop them once too many are waiting" in withDirectory { directory =>
+      val cache =
+        new MappedSegmentCache(directory, maxBytes = 1024, segmentBytes = 256, ahcConfig, maxPendingWrites = 1)
+      try {
+        // Holding the lock of the cache keeps the writer from storing the first response.
+        val (first, second) = cache.synchronized {
+          (cache.put(key("a"), entry("first")), cache.put(key("b"), entry("second")))
+        }
+        Await.result(first, 1.second)
+
+        (second.isCompleted must beTrue)
+          .and(get(cache, key("a")).map(_.response.getResponseBody) must beSome("first"))
+          .and(get(cache, key("b")) must beNone)
+      } finally cache.close()
+    }
+
+    "not cache bodies larger than a segment" in withDirectory { directory =>
+      val cache = new MappedSegmentCache(directory, maxBytes = 300, segmentBytes = 100, ahcConfig)
+      try {
+        put(cache, key("big"), entry("x" * 101))
+        get(cache, key("big")) must beNone
+      } finally cache.close()
+    }
+
+    "reload the index after a restart" in withDirectory { directory =>
+      val first = new MappedSegmentCache(directory, maxBytes = 1024, segmentBytes = 256, ahcConfig)
+      put(first, key("a"), entry("persisted"))
+      first.close()
+
+      val second = new MappedSegmentCache(directory, maxBytes = 1024, segmentBytes = 256, ahcConfig)
+      try {
+        get(second, key("a")).map(_.response.getResponseBody) must beSome("persisted")
+      } finally second.close()
+    }
+
+    "keep the entries of completed segments when it was not closed" in withDirectory { directory =>
+      val crashed = new MappedSegmentCache(directory, maxBytes = 1024, segmentBytes = 256, ahcConfig)
+      try {
+        put(crashed, key("a"), entry("a" * 200))
+        put(crashed, key("b"), entry("b" * 200))
+
+        val second = new MappedSegmentCache(directory, maxBytes = 1024, segmentBytes = 256, ahcConfig)
+        try {
+          (get(second, key("a")).map(_.response.getResponseBody) must beSome("a" * 200))
+            .and(get(second, key("b")).map(_.response.getResponseBody) must beSome("b" * 200))
+        } finally second.close()
+      } finally crashed.close()
+    }
+
+    "reload header values longer than 64 KB" in withDirectory { directory =>
+      val longValue = "x" * 70000
+      val stored    = entry("long")
+      val first     = new MappedSegmentCache(directory, maxBytes = 1024, segmentBytes = 256, ahcConfig)
+      put(first, key("a"), stored.copy(response = stored.response.withHeaders("Link" -> longValue)))
+      first.close()
+
+      val second = new MappedSegmentCache(directory, maxBytes = 1024, segmentBytes = 256, ahcConfig)
+      try {
+        get(second, key("a")).map(_.response.getHeader("Link")) must beSome(longValue)
+      } finally second.close()
+    }
+
+    "drop a store that fails to create its segment" in withDirectory { directory =>
+      val cache = new MappedSegmentCache(directory, maxBytes = 1024, segmentBytes = 256, ahcConfig)
+      try {
+        Files.delete(directory)
+        put(cache, key("a"), entry("lost"))
+
+        get(cache, key("a")) must beNone
+      } finally {
+        Files.createDirectories(directory)
+        cache.close()
+      }
+    }
+  }
+}
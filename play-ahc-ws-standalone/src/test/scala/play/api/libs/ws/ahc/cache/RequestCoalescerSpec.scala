@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc.cache
+
+import org.mockito.ArgumentCaptor
+import org.mockito.Mockito
+import org.playframework.cachecontrol.HeaderName
+import org.playframework.cachecontrol.HttpDate
+import org.specs2.mutable.Specification
+import play.shaded.ahc.io.netty.handler.codec.http.DefaultHttpHeaders
+import play.shaded.ahc.org.asynchttpclient.AsyncCompletionHandlerBase
+import play.shaded.ahc.org.asynchttpclient.AsyncHandler
+import play.shaded.ahc.org.asynchttpclient.AsyncHttpClient
+import play.shaded.ahc.org.asynchttpclient.DefaultAsyncHttpClientConfig
+import play.shaded.ahc.org.asynchttpclient.Request
+import play.shaded.ahc.org.asynchttpclient.RequestBuilder
+import play.shaded.ahc.org.asynchttpclient.uri.Uri
+
+import scala.concurrent.Await
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.duration._
+import scala.jdk.CollectionConverters._
+import scala.util.Success
+
+class RequestCoalescerSpec extends Specification {
+
+  val ahcConfig = new DefaultAsyncHttpClientConfig.Builder().build()
+
+  def request(headers: (String, String)*): Request = {
+    val builder = new RequestBuilder("GET").setUrl("http://localhost:9000/resource")
+    headers.foreach { case (name, value) => builder.addHeader(name, value) }
+    builder.build()
+  }
+
+  "RequestCoalescer" should {
+
+    "share the response of the leader with the waiters" in {
+      import RequestCoalescer._
+
+      val coalescer = new RequestCoalescer
+      val key       = CoalescingKey(request(), Nil)
+
+      val leader   = coalescer.join(key, request())
+      val follower = coalescer.join(key, request())
+
+      (leader, follower) must beLike { case (Leader(flight), Follower(waitingOn)) =>
+        val response = CacheableResponse(200, "http://localhost:9000/resource", "hello", ahcConfig)
+        flight.complete(Success(response))
+
+        (waitingOn must beTheSameAs(flight))
+          .and(Await.result(waitingOn.future, 1.second) must beTheSameAs(response))
+          .and(coalescer.stats must_== Stats(leaderCount = 1, waiterCount = 1))
+      }
+    }
+
+    "start a new flight once the previous one completes" in {
+      import RequestCoalescer._
+
+      val coalescer = new RequestCoalescer
+      val key       = CoalescingKey(request(), Nil)
+
+      coalescer.join(key, request()) must beLike { case Leader(flight) =>
+        flight.complete(Success(CacheableResponse(200, "http://localhost:9000/resource", ahcConfig)))
+
+        (coalescer.inFlightCount must_== 0).and(coalescer.join(key, request()) must beAnInstanceOf[Leader])
+      }
+    }
+  }
+
+  "CoalescingKey" should {
+
+    "include the headers nominated by the stored responses" in {
+      val response = CacheableResponse(200, "http://localhost:9000/resource", ahcConfig)
+      val entry    = ResponseEntry(response, "GET", Map(HeaderName("Accept-Language") -> Seq("en")), None)
+
+      val english = CoalescingKey(request("Accept-Language" -> "en"), Seq(entry))
+      val french  = CoalescingKey(request("Accept-Language" -> "fr"), Seq(entry))
+
+      (english must_!= french).and(english must_== CoalescingKey(request("Accept-Language" -> "en"), Seq(entry)))
+    }
+
+    "ignore headers that are not nominated" in {
+      CoalescingKey(request("X-Request-Id" -> "1"), Nil) must_== CoalescingKey(request("X-Request-Id" -> "2"), Nil)
+    }
+  }
+
+  "CachingAsyncHttpClient" should {
+
+    "not share a private response between callers with different credentials" in {
+      val url        = "http://localhost:9000/resource"
+      val underlying = Mockito.mock(classOf[AsyncHttpClient])
+      val client     = new CachingAsyncHttpClient(underlying, new AhcHttpCache(new InMemoryHttpCache(maxWeight = 10000)))
+
+      val alice = client.executeRequest(request("Authorization" -> "Basic YWxpY2U6"), new AsyncCompletionHandlerBase)
+      val bob   = client.executeRequest(request("Authorization" -> "Basic Ym9iOg=="), new AsyncCompletionHandlerBase)
+
+      val handlers =
+        ArgumentCaptor.forClass[AsyncHandler[AnyRef], AsyncHandler[AnyRef]](classOf[AsyncHandler[AnyRef]])
+      Mockito.verify(underlying, Mockito.times(2)).executeRequest(Mockito.any[Request](), handlers.capture())
+
+      handlers.getAllValues.asScala.zip(Seq("alice", "bob")).foreach { case (handler, body) =>
+        val headers = new DefaultHttpHeaders()
+          .add("Cache-Control", "private, max-age=3600")
+          .add("Date", HttpDate.format(HttpDate.now))
+        handler.onStatusReceived(new CacheableHttpResponseStatus(Uri.create(url), 200, "OK", "HTTP/1.1"))
+        handler.onHeadersReceived(headers)
+        handler.onBodyPartReceived(new CacheableHttpResponseBodyPart(body.getBytes, true))
+        handler.onCompleted()
+      }
+
+      (alice.get(1, SECONDS).getResponseBody must_== "alice")
+        .and(bob.get(1, SECONDS).getResponseBody must_== "bob")
+        .and(client.coalescingStats.waiterCount must_== 0L)
+    }
+
+    "send the waiting request on its own when the leader fails" in {
+      val url        = "http://localhost:9000/resource"
+      val underlying = Mockito.mock(classOf[AsyncHttpClient])
+      val client     = new CachingAsyncHttpClient(underlying, new AhcHttpCache(new InMemoryHttpCache(maxWeight = 10000)))
+
+      val leader   = client.executeRequest(request(), new AsyncCompletionHandlerBase)
+      val follower = client.executeRequest(request(), new AsyncCompletionHandlerBase)
+
+      val handlers =
+        ArgumentCaptor.forClass[AsyncHandler[AnyRef], AsyncHandler[AnyRef]](classOf[AsyncHandler[AnyRef]])
+      Mockito.verify(underlying).executeRequest(Mockito.any[Request](), handlers.capture())
+      handlers.getValue.onThrowable(new java.io.IOException("Connection reset"))
+
+      Mockito
+        .verify(underlying, Mockito.timeout(1000).times(2))
+        .executeRequest(Mockito.any[Request](), handlers.capture())
+      val handler = handlers.getAllValues.asScala.last
+      handler.onStatusReceived(new CacheableHttpResponseStatus(Uri.create(url), 200, "OK", "HTTP/1.1"))
+      handler.onHeadersReceived(new DefaultHttpHeaders().add("Date", HttpDate.format(HttpDate.now)))
+      handler.onBodyPartReceived(new CacheableHttpResponseBodyPart("again".getBytes, true))
+      handler.onCompleted()
+
+      (leader.get(1, SECONDS) must throwA[Exception])
+        .and(follower.get(1, SECONDS).getResponseBody must_== "again")
+        .and(client.coalescingStats must_== RequestCoalescer.Stats(leaderCount = 1, waiterCount = 1))
+    }
+  }
+}
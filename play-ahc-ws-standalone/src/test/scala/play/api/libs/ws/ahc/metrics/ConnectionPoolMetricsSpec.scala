@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc.metrics
+
+import java.net.InetSocketAddress
+import java.time.Instant
+import java.util.Collections
+import javax.management.MBeanServerFactory
+
+import org.specs2.mutable.Specification
+import play.shaded.ahc.io.netty.channel.embedded.EmbeddedChannel
+import play.shaded.ahc.org.asynchttpclient._
+import play.shaded.ahc.org.asynchttpclient.filter.FilterContext
+
+import scala.jdk.CollectionConverters._
+
+class ConnectionPoolMetricsSpec extends Specification {
+
+  val request: Request = new RequestBuilder("GET").setUrl("http://localhost:9000/resource").build()
+
+  def instrument(metrics: ConnectionPoolMetrics, handler: AsyncHandler[String]): AsyncHandler[String] = {
+    val ctx = new FilterContext.FilterContextBuilder[String]().asyncHandler(handler).request(request).build()
+    metrics.filter(ctx).getAsyncHandler
+  }
+
+  def completionHandler(): AsyncHandler[String] = new AsyncCompletionHandler[String] {
+    override def onCompleted(response: Response): String = "done"
+  }
+
+  val noStats = new ClientStats(Collections.emptyMap[String, HostStats]())
+
+  "ConnectionPoolMetrics" should {
+
+    "record leases of pooled connections" in {
+      val metrics = new ConnectionPoolMetrics
+      val handler = instrument(metrics, completionHandler())
+
+      handler.onConnectionPoolAttempt()
+      handler.onConnectionPooled(new EmbeddedChannel())
+
+      metrics.snapshot(noStats).hosts("localhost").leaseCount must_== 1
+    }
+
+    "record opened and closed connections" in {
+      val metrics = new ConnectionPoolMetrics
+      val handler = instrument(metrics, completionHandler())
+      val channel = new EmbeddedChannel()
+
+      handler.onConnectionPoolAttempt()
+      handler.onTcpConnectAttempt(new InetSocketAddress("localhost", 9000))
+      handler.onTcpConnectSuccess(new InetSocketAddress("localhost", 9000), channel)
+      val opened = metrics.snapshot(noStats).hosts("localhost")
+      channel.close()
+      val closed = metrics.snapshot(noStats).hosts("localhost")
+
+      (opened.leaseCount must_== 1)
+        .and(opened.openedConnections must_== 1)
+        .and(opened.closedConnections must_== 0)
+        .and(closed.closedConnections must_== 1)
+    }
+
+    "record TLS handshakes" in {
+      val metrics = new ConnectionPoolMetrics
+      val handler = instrument(metrics, completionHandler())
+
+      handler.onTlsHandshakeAttempt()
+      handler.onTlsHandshakeSuccess(null)
+      handler.onTlsHandshakeAttempt()
+      handler.onTlsHandshakeFailure(new RuntimeException("handshake failed"))
+
+      metrics.snapshot(noStats).hosts("localhost").tlsHandshakeCount must_== 1
+    }
+
+    "forward callbacks to the wrapped handler" in {
+      val metrics = new ConnectionPoolMetrics
+      var retried = false
+      val handler = instrument(
+        metrics,
+        new AsyncCompletionHandler[String] {
+          override def onCompleted(response: Response): String = "done"
+          override def onRetry(): Unit                         = retried = true
+        }
+      )
+
+      handler.onRetry()
+
+      (retried must beTrue).and(handler.onCompleted() must_== "done")
+    }
+
+    "include the connection counts of the pool" in {
+      val metrics = new ConnectionPoolMetrics
+      val stats   = new ClientStats(Map("example.com" -> new HostStats(3, 2)).asJava)
+
+      metrics.snapshot(stats).hosts must_== Map("example.com" -> HostPoolMetrics(3, 2))
+    }
+  }
+
+  "ConnectionPoolSnapshot" should {
+
+    "subtract the totals of the previous snapshot" in {
+      val previous = ConnectionPoolSnapshot(Instant.EPOCH, Map("a" -> HostPoolMetrics(1, 1, leaseCount = 10)))
+      val current  = ConnectionPoolSnapshot(Instant.now(), Map("a" -> HostPoolMetrics(2, 0, leaseCount = 15)))
+
+      current.since(previous).hosts("a") must_== HostPoolMetrics(2, 0, leaseCount = 5)
+    }
+  }
+
+  "JmxConnectionPoolReporter" should {
+
+    def snapshot(hosts: (String, HostPoolMetrics)*) = ConnectionPoolSnapshot(Instant.now(), hosts.toMap)
+
+    "publish the pool of each host" in {
+      val server   = MBeanServerFactory.newMBeanServer()
+      val reporter = new JmxConnectionPoolReporter("test", server)
+      reporter.report(snapshot("localhost" -> HostPoolMetrics(3, 2, leaseCount = 10, leaseWaitNanos = 10000000)))
+      val name = reporter.objectName("localhost")
+
+      (server.getAttribute(name, "ActiveConnections") must_== 3L)
+        .and(server.getAttribute(name, "IdleConnections") must_== 2L)
+        .and(server.getAttribute(name, "LeaseCount") must_== 10L)
+        .and(server.getAttribute(name, "AverageLeaseWaitMillis") must_== 1.0)
+    }
+
+    "average the durations over the last interval" in {
+      val server   = MBeanServerFactory.newMBeanServer()
+      val reporter = new JmxConnectionPoolReporter("test", server)
+      reporter.report(snapshot("localhost" -> HostPoolMetrics(0, 0, leaseCount = 10, leaseWaitNanos = 10000000)))
+      reporter.report(snapshot("localhost" -> HostPoolMetrics(0, 0, leaseCount = 20, leaseWaitNanos = 40000000)))
+
+      server.getAttribute(reporter.objectName("localhost"), "AverageLeaseWaitMillis") must_== 3.0
+    }
+
+    "unregister the hosts that are no longer reported, and all of them once closed" in {
+      val server   = MBeanServerFactory.newMBeanServer()
+      val reporter = new JmxConnectionPoolReporter("test", server)
+      reporter.report(snapshot("a" -> HostPoolMetrics(1, 0), "b" -> HostPoolMetrics(1, 0)))
+      reporter.report(snapshot("b" -> HostPoolMetrics(1, 0)))
+      val afterReport = (server.isRegistered(reporter.objectName("a")), server.isRegistered(reporter.objectName("b")))
+      reporter.close()
+      reporter.report(snapshot("b" -> HostPoolMetrics(1, 0)))
+
+      (afterReport must_== ((false, true))).and(server.isRegistered(reporter.objectName("b")) must beFalse)
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.ahc.metrics
+
+import java.net.InetSocketAddress
+import java.util.Collections
+import java.util.concurrent.CopyOnWriteArrayList
+
+import org.specs2.mutable.Specification
+import play.api.libs.ws.WSRequestExecutor
+import play.api.libs.ws.WSRequestFilter
+import play.shaded.ahc.io.netty.channel.embedded.EmbeddedChannel
+import play.shaded.ahc.io.netty.handler.codec.http.HttpResponseStatus.OK
+import play.shaded.ahc.io.netty.handler.codec.http.DefaultHttpResponse
+import play.shaded.ahc.io.netty.handler.codec.http.HttpVersion
+import play.shaded.ahc.org.asynchttpclient._
+import play.shaded.ahc.org.asynchttpclient.netty.NettyResponseStatus
+import play.shaded.ahc.org.asynchttpclient.uri.Uri
+
+import scala.jdk.CollectionConverters._
+
+class RequestTimingSpec extends Specification {
+
+  val request: Request = new RequestBuilder("GET").setUrl("http://localhost:9000/resource").build()
+
+  val status = new NettyResponseStatus(
+    Uri.create("http://localhost:9000/resource"),
+    new DefaultHttpResponse(HttpVersion.HTTP_1_1, OK),
+    null
+  )
+
+  def completionHandler(): AsyncCompletionHandler[String] = new AsyncCompletionHandler[String] {
+    override def onCompleted(response: Response): String = if (response == null) "empty" else "done"
+  }
+
+  def listening(): (CopyOnWriteArrayList[RequestTimingListener], CopyOnWriteArrayList[RequestTiming]) = {
+    val timings   = new CopyOnWriteArrayList[RequestTiming]()
+    val listeners = new CopyOnWriteArrayList[RequestTimingListener]()
+    listeners.add { timing => timings.add(timing); () }
+    (listeners, timings)
+  }
+
+  "RequestTimings" should {
+
+    "leave the handler alone when there are no listeners" in {
+      val handler = completionHandler()
+      RequestTimings.instrument(request, handler, new CopyOnWriteArrayList[RequestTimingListener]()) must beTheSameAs(
+        handler
+      )
+    }
+
+    "keep the type of completion handlers" in {
+      val (listeners, _) = listening()
+      RequestTimings.instrument(request, completionHandler(), listeners) must beAnInstanceOf[AsyncCompletionHandler[?]]
+    }
+
+    "report the phases of a request on a new connection" in {
+      val (listeners, timings) = listening()
+      val handler              = RequestTimings.instrument(request, completionHandler(), listeners)
+      val address              = new InetSocketAddress("localhost", 9000)
+
+      handler.onHostnameResolutionAttempt("localhost")
+      handler.onHostnameResolutionSuccess("localhost", Collections.singletonList(address))
+      handler.onTcpConnectAttempt(address)
+      handler.onTcpConnectSuccess(address, new EmbeddedChannel())
+      handler.onRequestSend(null)
+      handler.onStatusReceived(status)
+      handler.onCompleted()
+
+      timings.asScala.toList must beLike { case List(timing) =>
+        (timing.statusCode must beSome(200))
+          .and(timing.nameResolution must beSome)
+          .and(timing.connect must beSome)
+          .and(timing.tlsHandshake must beNone)
+          .and(timing.reusedConnection must beFalse)
+          .and(timing.timeToFirstByte must beSome)
+          .and(timing.bodyTransfer must beSome)
+          .and(timing.failure must beNone)
+      }
+    }
+
+    "report a request on a pooled connection" in {
+      val (listeners, timings) = listening()
+      val handler              = RequestTimings.instrument(request, completionHandler(), listeners)
+
+      handler.onConnectionPoolAttempt()
+      handler.onConnectionPooled(new EmbeddedChannel())
+      handler.onStatusReceived(status)
+      handler.onCompleted()
+
+      timings.asScala.toList must beLike { case List(timing) =>
+        (timing.reusedConnection must beTrue).and(timing.connect must beNone)
+      }
+    }
+
+    "report a failed request once" in {
+      val (listeners, timings) = listening()
+      val handler              = RequestTimings.instrument(request, completionHandler(), listeners)
+      val failure              = new RuntimeException("connection refused")
+
+      handler.onThrowable(failure)
+      handler.onThrowable(failure)
+
+      timings.asScala.toList must beLike { case List(timing) =>
+        (timing.failure must beSome(failure)).and(timing.statusCode must beNone).and(timing.bodyTransfer must beNone)
+      }
+    }
+
+    "add the filters of a request that are listeners to the listeners of the client" in {
+      val (listeners, _) = listening()
+      val other          = WSRequestFilter(identity)
+      val filter         = new WSRequestFilter with RequestTimingListener {
+        override def apply(executor: WSRequestExecutor): WSRequestExecutor = executor
+
+        override def onRequestTiming(timing: RequestTiming): Unit = ()
+      }
+
+      (RequestTimings.listeners(listeners, Seq(other)) must beTheSameAs(listeners))
+        .and(RequestTimings.listeners(listeners, Seq(other, filter)).asScala.toList must_== (listeners.asScala :+ filter))
+    }
+
+    "let the wrapped handler build the response" in {
+      val (listeners, _) = listening()
+      val handler        = RequestTimings.instrument(request, completionHandler(), listeners)
+
+      handler.onCompleted() must_== "empty"
+    }
+  }
+}
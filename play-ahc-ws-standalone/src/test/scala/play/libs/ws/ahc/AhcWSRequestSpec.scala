@@ -57,6 +57,30 @@ class AhcWSRequestSpec extends Specification with DefaultBodyReadables with Defa
       }
     }
 
+    "reuse the compiled request until the request is modified" in {
+      val client = StandaloneAhcWSClient.create(
+        AhcWSClientConfigFactory.forConfig(ConfigFactory.load(), this.getClass.getClassLoader), /*materializer*/ null
+      )
+      val request = new StandaloneAhcWSRequest(client, "http://playframework.com/", /*materializer*/ null)
+      val first   = request.requestForExecution()
+      (request.requestForExecution() must beTheSameAs(first)).and {
+        request.addHeader("X-Test", "value")
+        val second = request.requestForExecution()
+        (second must not(beTheSameAs(first))).and {
+          second.getHeaders.get("X-Test") must beEqualTo("value")
+        }
+      }
+    }
+
+    "not reuse the compiled request when signed" in {
+      val client = StandaloneAhcWSClient.create(
+        AhcWSClientConfigFactory.forConfig(ConfigFactory.load(), this.getClass.getClassLoader), /*materializer*/ null
+      )
+      val calc    = new OAuth.OAuthCalculator(new OAuth.ConsumerKey("key", "secret"), new OAuth.RequestToken("token", "secret"))
+      val request = new StandaloneAhcWSRequest(client, "http://playframework.com/", /*materializer*/ null).sign(calc)
+      request.requestForExecution() must not(beTheSameAs(request.requestForExecution()))
+    }
+
     "For POST requests" in {
 
       "get method" in {
@@ -655,6 +679,19 @@ class AhcWSRequestSpec extends Specification with DefaultBodyReadables with Defa
         request.getCookies.asScala.head.name must beEqualTo("cookie3")
         request.getCookies.asScala(1).name must beEqualTo("cookie4")
       }
+
+      "clear the cookies of an already compiled request" in {
+        val client = StandaloneAhcWSClient.create(
+          AhcWSClientConfigFactory.forConfig(ConfigFactory.load(), this.getClass.getClassLoader), /*materializer*/ null
+        )
+        val request = new StandaloneAhcWSRequest(client, "http://example.com", /*materializer*/ null)
+          .addCookie(cookie("cookie1", "value1"))
+
+        (request.requestForExecution().getCookies.asScala must size(1)).and {
+          request.setCookies(List.empty[WSCookie].asJava)
+          request.requestForExecution().getCookies.asScala must beEmpty
+        }
+      }
     }
   }
 
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.libs.ws.jdk;
+
+import org.apache.pekko.stream.Materializer;
+import play.api.libs.ws.CancellableFuture;
+import play.api.libs.ws.jdk.JdkWSClientConfig;
+import play.libs.ws.StandaloneWSClient;
+import play.libs.ws.StandaloneWSResponse;
+import scala.concurrent.Future;
+import scala.jdk.javaapi.FutureConverters;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A WS client backed by a {@code java.net.http.HttpClient}. See {@link play.api.libs.ws.jdk.StandaloneJdkWSClient}
+ * for the features it does not support.
+ */
+public class StandaloneJdkWSClient implements StandaloneWSClient {
+
+    private final play.api.libs.ws.jdk.StandaloneJdkWSClient client;
+    private final Materializer materializer;
+
+    /**
+     * Creates a new client.
+     *
+     * @param httpClient   an already configured HttpClient, which is closed with this client.
+     * @param config       the configuration of the client.
+     * @param materializer the Materializer to use for streams
+     */
+    public StandaloneJdkWSClient(HttpClient httpClient, JdkWSClientConfig config, Materializer materializer) {
+        this(new play.api.libs.ws.jdk.StandaloneJdkWSClient(httpClient, config, materializer), materializer);
+    }
+
+    private StandaloneJdkWSClient(play.api.libs.ws.jdk.StandaloneJdkWSClient client, Materializer materializer) {
+        this.client = client;
+        this.materializer = materializer;
+    }
+
+    /**
+     * Creates a new client, with an HttpClient configured from the config.
+     *
+     * @param config       the configuration of the client, see {@link play.api.libs.ws.jdk.JdkWSClientConfigFactory}.
+     * @param materializer the Materializer to use for streams
+     * @return a new client
+     */
+    public static StandaloneJdkWSClient create(JdkWSClientConfig config, Materializer materializer) {
+        return new StandaloneJdkWSClient(
+                play.api.libs.ws.jdk.StandaloneJdkWSClient.apply(config, materializer),
+                materializer
+        );
+    }
+
+    @Override
+    public Object getUnderlying() {
+        return client.<HttpClient>underlying();
+    }
+
+    @Override
+    public StandaloneJdkWSRequest url(String url) {
+        return new StandaloneJdkWSRequest(this, url, materializer);
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+
+    // Intentionally package public.
+    play.api.libs.ws.jdk.StandaloneJdkWSClient asScala() {
+        return client;
+    }
+
+    CompletionStage<StandaloneWSResponse> execute(play.api.libs.ws.jdk.StandaloneJdkWSRequest request, boolean stream) {
+        Future<play.api.libs.ws.StandaloneWSResponse> future = stream ? request.stream() : request.execute();
+
+        CompletableFuture<StandaloneWSResponse> result = new CompletableFuture<>();
+        FutureConverters.asJava(future).whenComplete((response, e) -> {
+            if (e != null) {
+                result.completeExceptionally(e);
+            } else {
+                result.complete(new StandaloneJdkWSResponse(response));
+            }
+        });
+        if (future instanceof CancellableFuture) {
+            result.whenComplete((response, e) -> {
+                if (e instanceof CancellationException) {
+                    ((CancellableFuture<?>) future).cancel();
+                }
+            });
+        }
+        return result;
+    }
+}
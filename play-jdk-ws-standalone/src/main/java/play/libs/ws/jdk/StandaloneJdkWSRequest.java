@@ -0,0 +1,466 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.libs.ws.jdk;
+
+import org.apache.pekko.stream.Materializer;
+import org.apache.pekko.stream.javadsl.Source;
+import org.apache.pekko.util.ByteString;
+import play.api.libs.ws.EmptyBody$;
+import play.api.libs.ws.InMemoryBody;
+import play.api.libs.ws.SourceBody;
+import play.libs.ws.*;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Provides the User facing API for building a WS request sent by a {@link StandaloneJdkWSClient}.
+ */
+public class StandaloneJdkWSRequest implements StandaloneWSRequest {
+
+    private static final String CONTENT_TYPE = "Content-Type";
+
+    private BodyWritable<?> bodyWritable;
+
+    private String url;
+    private String method = "GET";
+    private final Map<String, List<String>> headers = new LinkedHashMap<>();
+    private final Map<String, List<String>> queryParameters = new LinkedHashMap<>();
+
+    // Lower-cased name -> name as stored in the map above, so adding a value does not scan every key.
+    private final Map<String, String> headerNames = new HashMap<>();
+    private final Map<String, String> queryParameterNames = new HashMap<>();
+
+    private final List<WSCookie> cookies = new ArrayList<>();
+
+    private WSAuthInfo auth;
+    private WSSignatureCalculator calculator;
+    private final StandaloneJdkWSClient client;
+
+    private final Materializer materializer;
+
+    private Duration timeout = Duration.ZERO;
+    private Boolean followRedirects = null;
+    private Boolean disableUrlEncoding = null;
+    private String virtualHost = null;
+
+    private final List<WSRequestFilter> filters = new ArrayList<>();
+
+    public StandaloneJdkWSRequest(StandaloneJdkWSClient client, String url, Materializer materializer) {
+        this.client = client;
+        this.materializer = materializer;
+        try {
+            URI reference = new URI(url);
+
+            // The query string of the URL is sent with the other query parameters, which are encoded when it is sent.
+            String query = reference.getQuery();
+            this.url = query == null ? url : url.substring(0, url.indexOf('?'));
+
+            String userInfo = reference.getUserInfo();
+            if (userInfo != null) {
+                this.setAuth(userInfo);
+            }
+            if (query != null && !query.isEmpty()) {
+                this.setQueryString(query);
+            }
+        } catch (java.net.URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid URL " + url, e);
+        }
+    }
+
+    @Override
+    public StandaloneJdkWSRequest setRequestFilter(WSRequestFilter filter) {
+        filters.add(filter);
+        return this;
+    }
+
+    @Override
+    public StandaloneJdkWSRequest addHeader(String name, String value) {
+        addValueTo(headers, headerNames, name, value);
+        return this;
+    }
+
+    @Override
+    public StandaloneJdkWSRequest setHeaders(Map<String, List<String>> headers) {
+        this.headers.clear();
+        this.headers.putAll(headers);
+        indexNames(this.headers, this.headerNames);
+        return this;
+    }
+
+    @Override
+    public StandaloneJdkWSRequest setQueryString(String query) {
+        String[] params = query.split("&");
+        for (String param : params) {
+            String[] keyValue = param.split("=");
+            if (keyValue.length > 2) {
+                throw new RuntimeException(new MalformedURLException("QueryString parameter should not have more than 2 = per part"));
+            } else if (keyValue.length == 2) {
+                this.addQueryParameter(keyValue[0], keyValue[1]);
+            } else if (keyValue.length == 1 && param.charAt(0) != '=') {
+                this.addQueryParameter(keyValue[0], null);
+            } else {
+                throw new RuntimeException(new MalformedURLException("QueryString part should not start with an = and not be empty"));
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public StandaloneJdkWSRequest addQueryParameter(String name, String value) {
+        addValueTo(queryParameters, queryParameterNames, name, value);
+        return this;
+    }
+
+    @Override
+    public StandaloneJdkWSRequest setQueryString(Map<String, List<String>> params) {
+        this.queryParameters.clear();
+        this.queryParameters.putAll(params);
+        indexNames(this.queryParameters, this.queryParameterNames);
+        return this;
+    }
+
+    @Override
+    public StandaloneJdkWSRequest addCookie(WSCookie cookie) {
+        if (cookie == null) {
+            throw new NullPointerException("Trying to add a null WSCookie");
+        }
+
+        this.cookies.add(cookie);
+        return this;
+    }
+
+    @Override
+    public StandaloneJdkWSRequest addCookies(WSCookie... cookies) {
+        Arrays.asList(cookies).forEach(this::addCookie);
+        return this;
+    }
+
+    @Override
+    public StandaloneJdkWSRequest setCookies(List<WSCookie> cookies) {
+        this.cookies.clear();
+        cookies.forEach(this::addCookie);
+        return this;
+    }
+
+    @Override
+    public StandaloneJdkWSRequest setAuth(String userInfo) {
+        if (userInfo.isEmpty()) {
+            throw new RuntimeException(new MalformedURLException("userInfo should not be empty"));
+        }
+
+        int split = userInfo.indexOf(':');
+
+        if (split == 0) { // We only have a password without user
+            this.auth = new WSAuthInfo("", userInfo.substring(1), WSAuthScheme.BASIC);
+        } else if (split == -1) { // We only have a username without password
+            this.auth = new WSAuthInfo(userInfo, "", WSAuthScheme.BASIC);
+        } else {
+            this.auth = new WSAuthInfo(
+                userInfo.substring(0, split),
+                userInfo.substring(split + 1),
+                WSAuthScheme.BASIC
+            );
+        }
+
+        return this;
+    }
+
+    @Override
+    public StandaloneJdkWSRequest setAuth(WSAuthInfo auth) {
+        this.auth = auth;
+        return this;
+    }
+
+    /**
+     * Signature calculators are not supported by java.net.http: executing a signed request fails with an
+     * {@code UnsupportedOperationException}.
+     */
+    @Override
+    public StandaloneJdkWSRequest sign(WSSignatureCalculator calculator) {
+        this.calculator = calculator;
+        return this;
+    }
+
+    @Override
+    public StandaloneJdkWSRequest setFollowRedirects(boolean followRedirects) {
+        this.followRedirects = followRedirects;
+        return this;
+    }
+
+    @Override
+    public StandaloneJdkWSRequest setDisableUrlEncoding(boolean disableUrlEncoding) {
+        this.disableUrlEncoding = disableUrlEncoding;
+        return this;
+    }
+
+    /**
+     * Virtual hosts are not supported by java.net.http: executing the request fails with an
+     * {@code UnsupportedOperationException}.
+     */
+    @Override
+    public StandaloneJdkWSRequest setVirtualHost(String virtualHost) {
+        this.virtualHost = virtualHost;
+        return this;
+    }
+
+    @Override
+    public StandaloneJdkWSRequest setRequestTimeout(Duration timeout) {
+        if (timeout == null) {
+            throw new IllegalArgumentException("Timeout must not be null.");
+        }
+        this.timeout = timeout;
+        return this;
+    }
+
+    @Override
+    public StandaloneJdkWSRequest setContentType(String contentType) {
+        return addHeader(CONTENT_TYPE, contentType);
+    }
+
+    @Override
+    public Optional<String> getContentType() {
+        return getHeader(CONTENT_TYPE);
+    }
+
+    @Override
+    public StandaloneJdkWSRequest setUrl(String url) {
+        this.url = url;
+        return this;
+    }
+
+    @Override
+    public StandaloneJdkWSRequest setMethod(String method) {
+        this.method = method;
+        return this;
+    }
+
+    /**
+     * Sets a BodyWritable directly. See {@link DefaultBodyWritables} for common bodies.
+     * Also sets a Content-Type header if it's not set on the request but specified in the BodyWritable.
+     *
+     * @param bodyWritable the bodyWritable to set.
+     * @return the request with body
+     */
+    @Override
+    public StandaloneJdkWSRequest setBody(BodyWritable bodyWritable) {
+        this.bodyWritable = bodyWritable;
+
+        String contentType = bodyWritable.contentType();
+        if (contentType != null && !headerNames.containsKey(CONTENT_TYPE.toLowerCase(Locale.ROOT))) {
+            addHeader(CONTENT_TYPE, contentType);
+        }
+
+        return this;
+    }
+
+    @Override
+    public String getUrl() {
+        return this.url;
+    }
+
+    @Override
+    public String getMethod() {
+        return this.method;
+    }
+
+    @Override
+    public List<WSCookie> getCookies() {
+        return new ArrayList<>(cookies);
+    }
+
+    @Override
+    public Optional<BodyWritable> getBody() {
+        return Optional.ofNullable(this.bodyWritable);
+    }
+
+    @Override
+    public Map<String, List<String>> getHeaders() {
+        return new LinkedHashMap<>(this.headers);
+    }
+
+    @Override
+    public List<String> getHeaderValues(String name) {
+        String stored = headerNames.get(name.toLowerCase(Locale.ROOT));
+        return stored == null ? Collections.emptyList() : this.headers.get(stored);
+    }
+
+    @Override
+    public Optional<String> getHeader(String name) {
+        return getHeaderValues(name).stream().findFirst();
+    }
+
+    @Override
+    public Map<String, List<String>> getQueryParameters() {
+        return new LinkedHashMap<>(this.queryParameters);
+    }
+
+    @Override
+    public Optional<WSAuthInfo> getAuth() {
+        return Optional.ofNullable(this.auth);
+    }
+
+    @Override
+    public Optional<WSSignatureCalculator> getCalculator() {
+        return Optional.ofNullable(this.calculator);
+    }
+
+    @Override
+    public Optional<Duration> getRequestTimeout() {
+        return Optional.ofNullable(this.timeout);
+    }
+
+    @Override
+    public Optional<Boolean> getFollowRedirects() {
+        return Optional.ofNullable(this.followRedirects);
+    }
+
+    @Override
+    public Optional<Boolean> getDisableUrlEncoding() {
+        return Optional.ofNullable(this.disableUrlEncoding);
+    }
+
+    @Override
+    public CompletionStage<? extends StandaloneWSResponse> get() {
+        return execute("GET");
+    }
+
+    @Override
+    public CompletionStage<? extends StandaloneWSResponse> patch(BodyWritable body) {
+        return setMethod("PATCH").setBody(body).execute();
+    }
+
+    @Override
+    public CompletionStage<? extends StandaloneWSResponse> post(BodyWritable body) {
+        return setMethod("POST").setBody(body).execute();
+    }
+
+    @Override
+    public CompletionStage<? extends StandaloneWSResponse> put(BodyWritable body) {
+        return setMethod("PUT").setBody(body).execute();
+    }
+
+    @Override
+    public CompletionStage<? extends StandaloneWSResponse> delete() {
+        return setMethod("DELETE").execute();
+    }
+
+    @Override
+    public CompletionStage<? extends StandaloneWSResponse> head() {
+        return setMethod("HEAD").execute();
+    }
+
+    @Override
+    public CompletionStage<? extends StandaloneWSResponse> options() {
+        return setMethod("OPTIONS").execute();
+    }
+
+    @Override
+    public CompletionStage<? extends StandaloneWSResponse> execute(String method) {
+        return setMethod(method).execute();
+    }
+
+    @Override
+    public CompletionStage<? extends StandaloneWSResponse> execute() {
+        return foldRight(r -> send((StandaloneJdkWSRequest) r, false), filters.iterator()).apply(this);
+    }
+
+    @Override
+    public CompletionStage<? extends StandaloneWSResponse> stream() {
+        return foldRight(r -> send((StandaloneJdkWSRequest) r, true), filters.iterator()).apply(this);
+    }
+
+    private CompletionStage<StandaloneWSResponse> send(StandaloneJdkWSRequest request, boolean stream) {
+        try {
+            return client.execute(request.buildRequest(), stream);
+        } catch (RuntimeException e) {
+            CompletableFuture<StandaloneWSResponse> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private WSRequestExecutor foldRight(WSRequestExecutor executor, Iterator<WSRequestFilter> iterator) {
+        if (!iterator.hasNext()) {
+            return executor;
+        }
+
+        WSRequestFilter next = iterator.next();
+        return foldRight(next.apply(executor), iterator);
+    }
+
+    // Intentionally package public.
+    play.api.libs.ws.jdk.StandaloneJdkWSRequest buildRequest() {
+        if (calculator != null) {
+            throw new UnsupportedOperationException(
+                    "Signature calculators are not supported by the java.net.http client"
+            );
+        }
+
+        play.api.libs.ws.WSBody body;
+        if (bodyWritable == null) {
+            body = EmptyBody$.MODULE$;
+        } else if (bodyWritable instanceof InMemoryBodyWritable) {
+            body = new InMemoryBody(((InMemoryBodyWritable) bodyWritable).body().get());
+        } else if (bodyWritable instanceof SourceBodyWritable) {
+            Source<ByteString, ?> source = ((SourceBodyWritable) bodyWritable).body().get();
+            body = new SourceBody(source.asScala());
+        } else {
+            throw new IllegalStateException("Unknown body writable: " + bodyWritable);
+        }
+
+        return play.api.libs.ws.jdk.StandaloneJdkWSRequest$.MODULE$.fromJava(
+                client.asScala(),
+                url,
+                method,
+                body,
+                headers,
+                queryParameters,
+                cookies,
+                getAuth(),
+                getFollowRedirects(),
+                timeout,
+                Optional.ofNullable(virtualHost),
+                getDisableUrlEncoding(),
+                materializer
+        );
+    }
+
+    private static void addValueTo(Map<String, List<String>> map, Map<String, String> names, String name, String value) {
+        final String existing = names.putIfAbsent(name.toLowerCase(Locale.ROOT), name);
+        if (existing != null) {
+            final List<String> oldValues = map.get(existing);
+            final List<String> newValues;
+            if (oldValues == null) {
+                newValues = Collections.singletonList(value);
+            } else {
+                newValues = new ArrayList<>(oldValues.size() + 1);
+                newValues.addAll(oldValues);
+                newValues.add(value);
+            }
+            map.put(existing, newValues);
+        } else {
+            map.put(name, Collections.singletonList(value));
+        }
+    }
+
+    private static void indexNames(Map<String, List<String>> map, Map<String, String> names) {
+        names.clear();
+        map.keySet().forEach(name -> names.put(name.toLowerCase(Locale.ROOT), name));
+    }
+}
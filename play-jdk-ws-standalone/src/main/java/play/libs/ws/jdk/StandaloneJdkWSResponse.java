@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.libs.ws.jdk;
+
+import org.apache.pekko.stream.javadsl.Source;
+import org.apache.pekko.util.ByteString;
+import play.libs.ws.BodyReadable;
+import play.libs.ws.StandaloneWSResponse;
+import play.libs.ws.WSCookie;
+import play.libs.ws.WSCookieBuilder;
+import scala.jdk.javaapi.CollectionConverters;
+import scala.jdk.javaapi.OptionConverters;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A WS response, with its body in memory or streamed depending on how the request was executed.
+ */
+public class StandaloneJdkWSResponse implements StandaloneWSResponse {
+
+    private final play.api.libs.ws.StandaloneWSResponse response;
+
+    public StandaloneJdkWSResponse(play.api.libs.ws.StandaloneWSResponse response) {
+        this.response = response;
+    }
+
+    /**
+     * @return the {@code java.net.http.HttpResponse}.
+     */
+    @Override
+    public Object getUnderlying() {
+        return response.underlying();
+    }
+
+    @Override
+    public URI getUri() {
+        return response.uri();
+    }
+
+    @Override
+    public int getStatus() {
+        return response.status();
+    }
+
+    @Override
+    public String getStatusText() {
+        return response.statusText();
+    }
+
+    /**
+     * Get all the HTTP headers of the response as a case-insensitive map
+     */
+    @Override
+    public Map<String, List<String>> getHeaders() {
+        final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        response.headers().foreach(header -> headers.put(header._1(), CollectionConverters.asJava(header._2())));
+        return headers;
+    }
+
+    @Override
+    public List<WSCookie> getCookies() {
+        return CollectionConverters.asJava(response.cookies()).stream().map(this::asCookie).collect(toList());
+    }
+
+    @Override
+    public Optional<WSCookie> getCookie(String name) {
+        return getCookies().stream().filter(cookie -> cookie.getName().equals(name)).findFirst();
+    }
+
+    @Override
+    public String getContentType() {
+        return response.contentType();
+    }
+
+    @Override
+    public <T> T getBody(BodyReadable<T> readable) {
+        return readable.apply(this);
+    }
+
+    /**
+     * Blocks until the whole body has been received if the request was streamed.
+     */
+    @Override
+    public String getBody() {
+        return response.body();
+    }
+
+    /**
+     * Blocks until the whole body has been received if the request was streamed.
+     */
+    @Override
+    public ByteString getBodyAsBytes() {
+        return response.bodyAsBytes();
+    }
+
+    @Override
+    public Source<ByteString, ?> getBodyAsSource() {
+        return response.bodyAsSource().asJava();
+    }
+
+    private WSCookie asCookie(play.api.libs.ws.WSCookie cookie) {
+        return new WSCookieBuilder()
+                .setName(cookie.name())
+                .setValue(cookie.value())
+                .setDomain(OptionConverters.toJava(cookie.domain()).orElse(null))
+                .setPath(OptionConverters.toJava(cookie.path()).orElse(null))
+                .setMaxAge(OptionConverters.toJava(cookie.maxAge()).map(maxAge -> (Long) maxAge).orElse(null))
+                .setSecure(cookie.secure())
+                .setHttpOnly(cookie.httpOnly())
+                .build();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.jdk
+
+import jakarta.inject.Inject
+import jakarta.inject.Provider
+import jakarta.inject.Singleton
+
+import com.typesafe.config.Config
+import com.typesafe.config.ConfigFactory
+import play.api.libs.ws.WSClientConfig
+import play.api.libs.ws.WSConfigParser
+
+/**
+ * java.net.http client config.
+ *
+ * @param wsClientConfig The general WS client config.
+ * @param http2 Whether requests should use HTTP/2, which multiplexes the requests to a host over a single connection.
+ */
+case class JdkWSClientConfig(
+    wsClientConfig: WSClientConfig = WSClientConfig(),
+    http2: Boolean = true
+)
+
+/**
+ * Factory for creating JdkWSClientConfig, for use from Java.
+ */
+object JdkWSClientConfigFactory {
+
+  /**
+   * Creates a JdkWSClientConfig from a Typesafe Config object.
+   *
+   * @param config the config file containing settings for WSConfigParser
+   * @param classLoader the classloader
+   * @return a JdkWSClientConfig configuration object.
+   */
+  def forConfig(
+      config: Config = ConfigFactory.load(),
+      classLoader: ClassLoader = this.getClass.getClassLoader
+  ): JdkWSClientConfig = {
+    val wsClientConfig = new WSConfigParser(config, classLoader).parse()
+    new JdkWSClientConfigParser(wsClientConfig, config, classLoader).parse()
+  }
+
+  def forClientConfig(config: WSClientConfig = WSClientConfig()): JdkWSClientConfig = {
+    JdkWSClientConfig(wsClientConfig = config)
+  }
+}
+
+/**
+ * This class creates a JdkWSClientConfig object from configuration.
+ */
+@Singleton
+class JdkWSClientConfigParser @Inject() (
+    wsClientConfig: WSClientConfig,
+    configuration: Config,
+    classLoader: ClassLoader
+) extends Provider[JdkWSClientConfig] {
+
+  def get = parse()
+
+  def parse(): JdkWSClientConfig = {
+    val http2 = configuration.getBoolean("play.ws.jdk.http2")
+
+    JdkWSClientConfig(
+      wsClientConfig = wsClientConfig,
+      http2 = http2
+    )
+  }
+}
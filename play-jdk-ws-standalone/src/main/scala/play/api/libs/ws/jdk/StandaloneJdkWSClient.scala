@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.jdk
+
+import java.net.ProxySelector
+import java.net.URI
+import java.net.http.HttpClient
+import java.net.http.HttpResponse
+import java.net.http.HttpResponse.BodyHandler
+import java.net.http.HttpResponse.BodyHandlers
+import java.util.concurrent.CompletionException
+import javax.net.ssl.SSLContext
+
+import org.apache.pekko.stream.Materializer
+import com.typesafe.sslconfig.ssl.ConfigSSLContextBuilder
+import com.typesafe.sslconfig.ssl.DefaultKeyManagerFactoryWrapper
+import com.typesafe.sslconfig.ssl.DefaultTrustManagerFactoryWrapper
+import com.typesafe.sslconfig.ssl.SSLConfigSettings
+import com.typesafe.sslconfig.util.NoopLogger
+import play.api.libs.ws.CancellableFuture
+import play.api.libs.ws.StandaloneWSClient
+import play.api.libs.ws.StandaloneWSRequest
+
+import scala.concurrent.ExecutionContext
+import scala.concurrent.Future
+import scala.concurrent.duration.FiniteDuration
+import scala.jdk.DurationConverters._
+import scala.jdk.FutureConverters._
+import scala.jdk.OptionConverters._
+import scala.util.control.NonFatal
+
+/**
+ * A WS client backed by a `java.net.http.HttpClient`.
+ *
+ * With `play.ws.jdk.http2` set, which is the default, the requests to a host are multiplexed as HTTP/2 streams over a
+ * single connection, where the AsyncHttpClient backend needs a connection per request in flight. The requests and
+ * responses are the same as with the AsyncHttpClient backend, except that:
+ *
+ *  - only basic authentication is supported,
+ *  - signature calculators, virtual hosts and per request proxy servers are not supported,
+ *  - the requests that follow redirects when the client does not, or the other way around, are sent by a second
+ *    HttpClient, which does not share its connections with the first one,
+ *  - the headers java.net.http sets itself, such as `Host`, `Connection` or `Expect`, are not sent,
+ *  - responses carry no status text, as HTTP/2 has no reason phrase,
+ *  - `idleTimeout`, `compressionEnabled` and the loose SSL settings are ignored.
+ *
+ * Requests that use an unsupported feature fail with an `UnsupportedOperationException`.
+ *
+ * @param httpClient an already configured HttpClient. Note that the WSClient assumes ownership of its lifecycle, so
+ *                   closing the WSClient will also close httpClient, on JDKs where it can be closed.
+ * @param config the configuration of the client.
+ * @param materializer A materializer, meant to execute the stream
+ */
+class StandaloneJdkWSClient(httpClient: HttpClient, config: JdkWSClientConfig)(implicit
+    materializer: Materializer
+) extends StandaloneWSClient {
+
+  /** Returns instance of HttpClient */
+  def underlying[T]: T = httpClient.asInstanceOf[T]
+
+  private val followsRedirects = httpClient.followRedirects != HttpClient.Redirect.NEVER
+
+  @volatile private var redirectClientOpened = false
+
+  // The redirect policy belongs to the HttpClient, so it is built again with the other policy when a request needs it.
+  private lazy val redirectClient: HttpClient = {
+    val builder = HttpClient
+      .newBuilder()
+      .version(httpClient.version)
+      .followRedirects(if (followsRedirects) HttpClient.Redirect.NEVER else HttpClient.Redirect.NORMAL)
+      .sslContext(httpClient.sslContext)
+      .sslParameters(httpClient.sslParameters)
+    httpClient.connectTimeout.toScala.foreach(builder.connectTimeout)
+    httpClient.proxy.toScala.foreach(builder.proxy)
+    httpClient.authenticator.toScala.foreach(builder.authenticator)
+    httpClient.cookieHandler.toScala.foreach(builder.cookieHandler)
+    httpClient.executor.toScala.foreach(builder.executor)
+    redirectClientOpened = true
+    builder.build()
+  }
+
+  def close(): Unit = {
+    close(httpClient)
+    if (redirectClientOpened) close(redirectClient)
+  }
+
+  private def close(client: HttpClient): Unit = client match {
+    case closeable: AutoCloseable => closeable.close()
+    case _                        => ()
+  }
+
+  def url(url: String): StandaloneWSRequest = {
+    validate(url)
+    StandaloneJdkWSRequest(client = this, url = url)
+  }
+
+  private[jdk] def clientConfig: JdkWSClientConfig = config
+
+  private[jdk] def execute(request: StandaloneJdkWSRequest): Future[StandaloneJdkWSResponse] = {
+    send(request, BodyHandlers.ofByteArray())(new StandaloneJdkWSResponse(_))
+  }
+
+  private[jdk] def executeStream(request: StandaloneJdkWSRequest): Future[StreamedJdkWSResponse] = {
+    send(request, BodyHandlers.ofPublisher())(new StreamedJdkWSResponse(_, config.wsClientConfig.requestTimeout))
+  }
+
+  private def send[B, R](request: StandaloneJdkWSRequest, handler: BodyHandler[B])(
+      response: HttpResponse[B] => R
+  ): Future[R] = {
+    try {
+      val client = if (request.followRedirects.exists(_ != followsRedirects)) redirectClient else httpClient
+      val future = client.sendAsync(request.buildRequest(), handler)
+      val result = future.asScala.transform(
+        response,
+        {
+          case e: CompletionException if e.getCause != null => e.getCause
+          case e                                            => e
+        }
+      )(ExecutionContext.parasitic)
+      CancellableFuture(result, () => future.cancel(true))
+    } catch {
+      case NonFatal(e) => Future.failed(e)
+    }
+  }
+
+  private def validate(url: String): Unit = {
+    try {
+      val uri = URI.create(url)
+      require(uri.getScheme != null && uri.getHost != null)
+    } catch {
+      case NonFatal(e) =>
+        throw new IllegalArgumentException(s"Invalid URL $url", e)
+    }
+  }
+}
+
+object StandaloneJdkWSClient {
+
+  /**
+   * Convenient factory method that uses a play.api.libs.ws.WSClientConfig value for configuration.
+   *
+   * Typical usage:
+   *
+   * {{{
+   * import play.api.libs.ws.jdk.StandaloneJdkWSClient
+   *
+   * def example(someUrl: String)(implicit m: org.apache.pekko.stream.Materializer) = {
+   *   implicit def ec = m.executionContext
+   *
+   *   val client = StandaloneJdkWSClient()
+   *   val request = client.url(someUrl).get()
+   *
+   *   request.foreach { response =>
+   *     //doSomething(response)
+   *     client.close()
+   *   }
+   * }
+   * }}}
+   *
+   * @param config configuration settings
+   * @param materializer the pekko materializer.
+   */
+  def apply(
+      config: JdkWSClientConfig = JdkWSClientConfigFactory.forConfig()
+  )(implicit materializer: Materializer): StandaloneJdkWSClient = {
+    val wsConfig = config.wsClientConfig
+    val builder  = HttpClient
+      .newBuilder()
+      .version(if (config.http2) HttpClient.Version.HTTP_2 else HttpClient.Version.HTTP_1_1)
+      .followRedirects(if (wsConfig.followRedirects) HttpClient.Redirect.NORMAL else HttpClient.Redirect.NEVER)
+
+    wsConfig.connectionTimeout match {
+      case timeout: FiniteDuration => builder.connectTimeout(timeout.toJava)
+      case _                       =>
+    }
+    if (wsConfig.useProxyProperties) {
+      builder.proxy(ProxySelector.getDefault)
+    }
+    configureSSL(builder, wsConfig.ssl)
+
+    new StandaloneJdkWSClient(builder.build(), config)
+  }
+
+  private def configureSSL(builder: HttpClient.Builder, ssl: SSLConfigSettings): Unit = {
+    val sslContext = if (ssl.default) {
+      SSLContext.getDefault
+    } else {
+      val keyManagerFactory   = new DefaultKeyManagerFactoryWrapper(ssl.keyManagerConfig.algorithm)
+      val trustManagerFactory = new DefaultTrustManagerFactoryWrapper(ssl.trustManagerConfig.algorithm)
+      new ConfigSSLContextBuilder(NoopLogger.factory(), ssl, keyManagerFactory, trustManagerFactory).build()
+    }
+
+    val parameters = sslContext.getDefaultSSLParameters
+    ssl.enabledProtocols.foreach { protocols =>
+      parameters.setProtocols(protocols.filter(parameters.getProtocols.contains).toArray)
+    }
+    ssl.enabledCipherSuites.foreach { ciphers =>
+      parameters.setCipherSuites(ciphers.filter(parameters.getCipherSuites.contains).toArray)
+    }
+
+    builder.sslContext(sslContext).sslParameters(parameters)
+    ()
+  }
+}
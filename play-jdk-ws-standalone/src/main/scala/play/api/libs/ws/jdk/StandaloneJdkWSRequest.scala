@@ -0,0 +1,322 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.jdk
+
+import java.net.URI
+import java.net.URLEncoder
+import java.net.http.HttpRequest
+import java.net.http.HttpRequest.BodyPublishers
+import java.nio.charset.StandardCharsets
+import java.util.Base64
+import java.util.Locale
+import java.util.Optional
+import java.util.{ List => JList }
+import java.util.{ Map => JMap }
+
+import org.apache.pekko.stream.Materializer
+import org.apache.pekko.stream.scaladsl.JavaFlowSupport
+import play.api.libs.ws._
+
+import scala.collection.immutable.TreeMap
+import scala.concurrent.Future
+import scala.concurrent.duration.Duration
+import scala.concurrent.duration.FiniteDuration
+import scala.jdk.CollectionConverters._
+import scala.jdk.DurationConverters._
+import scala.jdk.OptionConverters._
+
+/**
+ * A WS request sent by a [[StandaloneJdkWSClient]].
+ */
+case class StandaloneJdkWSRequest(
+    client: StandaloneJdkWSClient,
+    url: String,
+    method: String = "GET",
+    body: WSBody = EmptyBody,
+    headers: Map[String, Seq[String]] = StandaloneJdkWSRequest.emptyHeaders,
+    queryString: Map[String, Seq[String]] = Map.empty,
+    cookies: Seq[WSCookie] = Seq.empty,
+    calc: Option[WSSignatureCalculator] = None,
+    auth: Option[(String, String, WSAuthScheme)] = None,
+    followRedirects: Option[Boolean] = None,
+    requestTimeout: Option[Duration] = None,
+    virtualHost: Option[String] = None,
+    proxyServer: Option[WSProxyServer] = None,
+    disableUrlEncoding: Option[Boolean] = None,
+    private val filters: Seq[WSRequestFilter] = Nil
+)(implicit materializer: Materializer)
+    extends StandaloneWSRequest {
+  override type Self     = StandaloneJdkWSRequest
+  override type Response = StandaloneWSResponse
+
+  require(client != null, "A StandaloneJdkWSClient is required, but it is null")
+  require(url != null, "A url is required, but it is null")
+
+  override def contentType: Option[String] = headers.get("Content-Type").flatMap(_.headOption)
+
+  override lazy val uri: URI = {
+    val enc = (p: String) => if (disableUrlEncoding.contains(true)) p else URLEncoder.encode(p, "utf-8")
+    new URI(
+      if (queryString.isEmpty) url
+      else {
+        val qs = (for {
+          (n, vs) <- queryString
+          v       <- vs
+        } yield s"${enc(n)}=${enc(v)}").mkString("&")
+        val separator =
+          if (!url.contains('?')) "?"
+          else if (url.endsWith("?") || url.endsWith("&")) ""
+          else "&"
+        s"$url$separator$qs"
+      }
+    )
+  }
+
+  override def sign(calc: WSSignatureCalculator): Self = copy(calc = Some(calc))
+
+  override def withAuth(username: String, password: String, scheme: WSAuthScheme): Self =
+    copy(auth = Some((username, password, scheme)))
+
+  override def withHttpHeaders(hdrs: (String, String)*): Self = {
+    val newHeaders = hdrs.foldLeft(StandaloneJdkWSRequest.emptyHeaders) { case (m, (name, value)) =>
+      m.updated(name, m.getOrElse(name, Seq.empty) :+ value)
+    }
+
+    // preserve the content type
+    copy(headers = contentType.fold(newHeaders)(ct => newHeaders.updated("Content-Type", Seq(ct))))
+  }
+
+  override def withQueryStringParameters(parameters: (String, String)*): Self = {
+    val newQueryString = parameters.foldLeft(Map.empty[String, Seq[String]]) { case (m, (name, value)) =>
+      m.updated(name, m.getOrElse(name, Seq.empty) :+ value)
+    }
+    copy(queryString = newQueryString)
+  }
+
+  override def withCookies(cookies: WSCookie*): Self = copy(cookies = cookies)
+
+  override def withFollowRedirects(follow: Boolean): Self = copy(followRedirects = Some(follow))
+
+  override def withDisableUrlEncoding(disableUrlEncoding: Boolean): Self =
+    copy(disableUrlEncoding = Some(disableUrlEncoding))
+
+  override def withRequestTimeout(timeout: Duration): Self = {
+    require(timeout == Duration.Inf || timeout >= Duration.Zero, "Request timeout must not be negative")
+    copy(requestTimeout = Some(timeout))
+  }
+
+  /**
+   * Adds a filter to the request that can transform the request for subsequent filters.
+   */
+  override def withRequestFilter(filter: WSRequestFilter): Self = copy(filters = filters :+ filter)
+
+  override def withVirtualHost(vh: String): Self = copy(virtualHost = Some(vh))
+
+  override def withProxyServer(proxyServer: WSProxyServer): Self = copy(proxyServer = Some(proxyServer))
+
+  override def withUrl(url: String): Self = copy(url = url)
+
+  override def withMethod(method: String): Self = copy(method = method)
+
+  /**
+   * Sets the body for this request.
+   */
+  override def withBody[T: BodyWritable](body: T): Self = {
+    val writable = implicitly[BodyWritable[T]]
+    if (headers.contains("Content-Type")) {
+      copy(body = writable.transform(body))
+    } else {
+      copy(body = writable.transform(body)).addHttpHeaders("Content-Type" -> writable.contentType)
+    }
+  }
+
+  override def get(): Future[Response] = execute("GET")
+
+  override def patch[T: BodyWritable](body: T): Future[Response] = withBody(body).execute("PATCH")
+
+  override def post[T: BodyWritable](body: T): Future[Response] = withBody(body).execute("POST")
+
+  override def put[T: BodyWritable](body: T): Future[Response] = withBody(body).execute("PUT")
+
+  override def delete(): Future[Response] = execute("DELETE")
+
+  override def head(): Future[Response] = execute("HEAD")
+
+  override def options(): Future[Response] = execute("OPTIONS")
+
+  override def execute(method: String): Future[Response] = withMethod(method).execute()
+
+  override def execute(): Future[Response] = {
+    val executor = filterWSRequestExecutor(WSRequestExecutor {
+      case request: StandaloneJdkWSRequest =>
+        client.execute(request)
+
+      case invalid =>
+        Future.failed[StandaloneWSResponse](new IllegalArgumentException(s"Invalid request: ${invalid}"))
+    })
+
+    executor(this)
+  }
+
+  override def stream(): Future[Response] = {
+    val executor = filterWSRequestExecutor(WSRequestExecutor {
+      case request: StandaloneJdkWSRequest =>
+        client.executeStream(request)
+
+      case invalid =>
+        Future.failed[StandaloneWSResponse](new IllegalArgumentException(s"Invalid request: ${invalid}"))
+    })
+
+    executor(this)
+  }
+
+  protected def filterWSRequestExecutor(next: WSRequestExecutor): WSRequestExecutor = {
+    filters.foldRight(next)((filter, executor) => filter.apply(executor))
+  }
+
+  /**
+   * Builds the java.net.http request.
+   *
+   * @throws UnsupportedOperationException if the request uses a feature that java.net.http does not support.
+   */
+  private[jdk] def buildRequest(): HttpRequest = {
+    val config = client.clientConfig.wsClientConfig
+
+    def unsupported(feature: String) =
+      throw new UnsupportedOperationException(s"$feature not supported by the java.net.http client")
+
+    if (calc.isDefined) unsupported("Signature calculators are")
+    if (virtualHost.isDefined) unsupported("Virtual hosts are")
+    if (proxyServer.isDefined) unsupported("Per request proxy servers are")
+
+    val builder = HttpRequest.newBuilder(uri)
+
+    requestTimeout.getOrElse(config.requestTimeout) match {
+      case timeout: FiniteDuration if timeout > Duration.Zero => builder.timeout(timeout.toJava)
+      case _                                                  =>
+    }
+
+    for {
+      (name, values) <- headers
+      if !StandaloneJdkWSRequest.restrictedHeaders.contains(name.toLowerCase(Locale.ROOT))
+      value <- values
+    } builder.header(name, value)
+
+    if (!headers.contains("User-Agent")) {
+      config.userAgent.foreach(builder.header("User-Agent", _))
+    }
+
+    if (cookies.nonEmpty) {
+      builder.header("Cookie", cookies.map(cookie => s"${cookie.name}=${cookie.value}").mkString("; "))
+    }
+
+    auth.foreach {
+      case (username, password, WSAuthScheme.BASIC) =>
+        val credentials = s"$username:$password".getBytes(StandardCharsets.UTF_8)
+        builder.header("Authorization", s"Basic ${Base64.getEncoder.encodeToString(credentials)}")
+      case (_, _, scheme) =>
+        unsupported(s"$scheme authentication is")
+    }
+
+    val publisher = body match {
+      case EmptyBody           => BodyPublishers.noBody()
+      case InMemoryBody(bytes) => BodyPublishers.ofByteArray(bytes.toArrayUnsafe())
+      case SourceBody(source)  =>
+        // As with the AsyncHttpClient backend, the body is chunked unless a Content-Length is given.
+        val bytes = source.map(_.toByteBuffer).runWith(JavaFlowSupport.Sink.asPublisher(fanout = false))
+        headers.get("Content-Length").flatMap(_.headOption) match {
+          case Some(length) => BodyPublishers.fromPublisher(bytes, length.toLong)
+          case None         => BodyPublishers.fromPublisher(bytes)
+        }
+    }
+
+    builder.method(method, publisher).build()
+  }
+}
+
+object StandaloneJdkWSRequest {
+
+  /**
+   * The headers of a request, which are looked up case-insensitively.
+   */
+  private[jdk] val emptyHeaders: Map[String, Seq[String]] =
+    TreeMap.empty[String, Seq[String]](Ordering.comparatorToOrdering(String.CASE_INSENSITIVE_ORDER))
+
+  /**
+   * The headers that java.net.http sets itself, and rejects with an `IllegalArgumentException`. They can be allowed
+   * with the `jdk.httpclient.allowRestrictedHeaders` system property, except `Content-Length`, which is set from the
+   * body.
+   */
+  private[jdk] val restrictedHeaders: Set[String] = {
+    val property = Option(System.getProperty("jdk.httpclient.allowRestrictedHeaders")).getOrElse("")
+    val allowed  = property.split(',').map(_.trim.toLowerCase(Locale.ROOT)).toSet
+    Set("connection", "expect", "host", "upgrade") -- allowed + "content-length"
+  }
+
+  /**
+   * Builds the request sent for a request of the Java API, see `play.libs.ws.jdk.StandaloneJdkWSRequest`.
+   *
+   * @param requestTimeout the request timeout, with zero for the timeout of the client and a negative duration for no
+   *                       timeout.
+   */
+  private[ws] def fromJava(
+      client: StandaloneJdkWSClient,
+      url: String,
+      method: String,
+      body: WSBody,
+      headers: JMap[String, JList[String]],
+      queryParameters: JMap[String, JList[String]],
+      cookies: JList[play.libs.ws.WSCookie],
+      auth: Optional[play.libs.ws.WSAuthInfo],
+      followRedirects: Optional[java.lang.Boolean],
+      requestTimeout: java.time.Duration,
+      virtualHost: Optional[String],
+      disableUrlEncoding: Optional[java.lang.Boolean],
+      materializer: Materializer
+  ): StandaloneJdkWSRequest = {
+    def toScala(values: JMap[String, JList[String]]) = values.asScala.map { case (name, vs) =>
+      // A query parameter without a value is sent as an empty one.
+      name -> vs.asScala.map(v => if (v == null) "" else v).toSeq
+    }
+
+    StandaloneJdkWSRequest(
+      client = client,
+      url = url,
+      method = method,
+      body = body,
+      headers = emptyHeaders ++ toScala(headers),
+      queryString = toScala(queryParameters).toMap,
+      cookies = cookies.asScala.toSeq.map { cookie =>
+        DefaultWSCookie(
+          name = cookie.getName,
+          value = cookie.getValue,
+          domain = cookie.getDomain.toScala,
+          path = cookie.getPath.toScala,
+          maxAge = cookie.getMaxAge.toScala.map(_.longValue),
+          secure = cookie.isSecure,
+          httpOnly = cookie.isHttpOnly
+        )
+      },
+      auth = auth.toScala.flatMap { info =>
+        val scheme = info.getScheme match {
+          case play.libs.ws.WSAuthScheme.BASIC    => Some(WSAuthScheme.BASIC)
+          case play.libs.ws.WSAuthScheme.DIGEST   => Some(WSAuthScheme.DIGEST)
+          case play.libs.ws.WSAuthScheme.NTLM     => Some(WSAuthScheme.NTLM)
+          case play.libs.ws.WSAuthScheme.SPNEGO   => Some(WSAuthScheme.SPNEGO)
+          case play.libs.ws.WSAuthScheme.KERBEROS => Some(WSAuthScheme.KERBEROS)
+          case play.libs.ws.WSAuthScheme.NONE     => None
+        }
+        scheme.map(scheme => (info.getUsername, info.getPassword, scheme))
+      },
+      followRedirects = followRedirects.toScala.map(_.booleanValue),
+      requestTimeout =
+        if (requestTimeout.isZero) None
+        else if (requestTimeout.isNegative) Some(Duration.Inf)
+        else Some(requestTimeout.toScala),
+      virtualHost = virtualHost.toScala,
+      disableUrlEncoding = disableUrlEncoding.toScala.map(_.booleanValue)
+    )(materializer)
+  }
+}
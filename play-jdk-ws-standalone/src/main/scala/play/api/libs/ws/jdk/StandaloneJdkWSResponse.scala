@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.jdk
+
+import java.net.HttpCookie
+import java.net.http.HttpHeaders
+import java.net.http.HttpResponse
+import java.nio.ByteBuffer
+import java.nio.charset.Charset
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.Flow
+
+import org.apache.pekko.stream.Materializer
+import org.apache.pekko.stream.scaladsl.JavaFlowSupport
+import org.apache.pekko.stream.scaladsl.Source
+import org.apache.pekko.util.ByteString
+import play.api.libs.ws.DefaultBodyReadables
+import play.api.libs.ws.DefaultWSCookie
+import play.api.libs.ws.StandaloneWSResponse
+import play.api.libs.ws.WSCookie
+
+import scala.collection.immutable.TreeMap
+import scala.concurrent.Await
+import scala.concurrent.duration.Duration
+import scala.jdk.CollectionConverters._
+import scala.util.Try
+
+/**
+ * A WS HTTP response backed by a java.net.http.HttpResponse, with its body in memory.
+ */
+class StandaloneJdkWSResponse(response: HttpResponse[Array[Byte]])
+    extends StandaloneWSResponse
+    with DefaultBodyReadables {
+  import StandaloneJdkWSResponse._
+
+  override lazy val headers: Map[String, Seq[String]] = headersToMap(response.headers)
+
+  override def underlying[T]: T = response.asInstanceOf[T]
+
+  override def uri = response.uri
+
+  override def status: Int = response.statusCode
+
+  override def statusText: String = ""
+
+  override lazy val cookies: Seq[WSCookie] = cookiesOf(headers)
+
+  override def cookie(name: String): Option[WSCookie] = cookies.find(_.name == name)
+
+  override def toString: String = s"StandaloneJdkWSResponse($status)"
+
+  override lazy val body: String = bodyAsBytes.decodeString(charsetOf(contentType))
+
+  /**
+   * The response body as a byte string.
+   */
+  override lazy val bodyAsBytes: ByteString = ByteString.fromArrayUnsafe(response.body)
+
+  override lazy val bodyAsSource: Source[ByteString, ?] = Source.single(bodyAsBytes)
+}
+
+/**
+ * A WS HTTP response backed by a java.net.http.HttpResponse, with its body streamed. The body should be read through
+ * `bodyAsSource`: `body` and `bodyAsBytes` block until the whole body has been received.
+ *
+ * @param response the response.
+ * @param blockingTimeout how long `body` and `bodyAsBytes` wait for the body.
+ */
+class StreamedJdkWSResponse(
+    response: HttpResponse[Flow.Publisher[java.util.List[ByteBuffer]]],
+    blockingTimeout: Duration
+)(implicit materializer: Materializer)
+    extends StandaloneWSResponse {
+  import StandaloneJdkWSResponse._
+
+  override lazy val headers: Map[String, Seq[String]] = headersToMap(response.headers)
+
+  override def underlying[T]: T = response.asInstanceOf[T]
+
+  override def uri = response.uri
+
+  override def status: Int = response.statusCode
+
+  override def statusText: String = ""
+
+  override lazy val cookies: Seq[WSCookie] = cookiesOf(headers)
+
+  override def cookie(name: String): Option[WSCookie] = cookies.find(_.name == name)
+
+  override def toString: String = s"StreamedJdkWSResponse($status)"
+
+  override lazy val body: String = bodyAsBytes.decodeString(charsetOf(contentType))
+
+  override lazy val bodyAsBytes: ByteString = {
+    Await.result(bodyAsSource.runFold(ByteString.empty)(_ ++ _), blockingTimeout)
+  }
+
+  // The publisher can only be subscribed to once.
+  override lazy val bodyAsSource: Source[ByteString, ?] = {
+    JavaFlowSupport.Source
+      .fromPublisher(response.body)
+      .mapConcat(_.asScala.map(ByteString(_)))
+  }
+}
+
+object StandaloneJdkWSResponse {
+
+  private[jdk] def headersToMap(headers: HttpHeaders): Map[String, Seq[String]] = {
+    TreeMap.empty[String, Seq[String]](Ordering.comparatorToOrdering(String.CASE_INSENSITIVE_ORDER)) ++
+      headers.map.asScala.map { case (name, values) => name -> values.asScala.toSeq }
+  }
+
+  private[jdk] def cookiesOf(headers: Map[String, Seq[String]]): Seq[WSCookie] = {
+    for {
+      header <- headers.getOrElse("Set-Cookie", Seq.empty)
+      cookie <- Try(HttpCookie.parse(header).asScala).getOrElse(Nil)
+    } yield DefaultWSCookie(
+      name = cookie.getName,
+      value = cookie.getValue,
+      domain = Option(cookie.getDomain),
+      path = Option(cookie.getPath),
+      maxAge = Some(cookie.getMaxAge).filter(_ >= 0),
+      secure = cookie.getSecure,
+      httpOnly = cookie.isHttpOnly
+    )
+  }
+
+  private[jdk] def charsetOf(contentType: String): Charset = {
+    contentType
+      .split(';')
+      .iterator
+      .map(_.trim)
+      .collectFirst {
+        case parameter if parameter.toLowerCase.startsWith("charset=") =>
+          Try(Charset.forName(parameter.substring("charset=".length).replace("\"", ""))).toOption
+      }
+      .flatten
+      .getOrElse {
+        if (contentType.startsWith("text/")) StandardCharsets.ISO_8859_1 else StandardCharsets.UTF_8
+      }
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.jdk
+
+import java.net.http.HttpClient
+
+import com.typesafe.config.ConfigFactory
+import org.apache.pekko.actor.ActorSystem
+import org.apache.pekko.stream.Materializer
+import org.specs2.mutable.Specification
+import org.specs2.specification.AfterAll
+import play.api.libs.ws.DefaultBodyWritables
+import play.api.libs.ws.DefaultWSCookie
+import play.api.libs.ws.DefaultWSProxyServer
+import play.api.libs.ws.WSAuthScheme
+
+import scala.jdk.CollectionConverters._
+import scala.jdk.OptionConverters._
+
+class StandaloneJdkWSRequestSpec extends Specification with AfterAll with DefaultBodyWritables {
+
+  val system                              = ActorSystem("StandaloneJdkWSRequestSpec")
+  implicit val materializer: Materializer = Materializer.matFromSystem(system)
+  val client                              = new StandaloneJdkWSClient(HttpClient.newHttpClient(), JdkWSClientConfig())
+
+  def request(url: String): StandaloneJdkWSRequest = client.url(url).asInstanceOf[StandaloneJdkWSRequest]
+
+  override def afterAll(): Unit = {
+    system.terminate()
+    ()
+  }
+
+  "StandaloneJdkWSRequest" should {
+
+    "build the URI with the query string" in {
+      val built = request("http://example.com/path").addQueryStringParameters("q" -> "a b").buildRequest()
+
+      built.uri.toString must_== "http://example.com/path?q=a+b"
+    }
+
+    "append the query string to a URL that already has a query" in {
+      val built = request("http://example.com/path?p=1").addQueryStringParameters("q" -> "a b").buildRequest()
+
+      built.uri.toString must_== "http://example.com/path?p=1&q=a+b"
+    }
+
+    "send the headers, cookies and basic credentials" in {
+      val built = request("http://example.com")
+        .addHttpHeaders("X-Test" -> "1", "x-test" -> "2")
+        .addCookies(DefaultWSCookie("a", "1"), DefaultWSCookie("b", "2"))
+        .withAuth("user", "password", WSAuthScheme.BASIC)
+        .buildRequest()
+
+      (built.headers.allValues("X-Test").asScala must_== Seq("1", "2"))
+        .and(built.headers.firstValue("Cookie").toScala must beSome("a=1; b=2"))
+        .and(built.headers.firstValue("Authorization").toScala must beSome("Basic dXNlcjpwYXNzd29yZA=="))
+    }
+
+    "not send the headers java.net.http sets itself" in {
+      val built = request("http://example.com")
+        .addHttpHeaders("Host" -> "other.com", "Connection" -> "close", "Expect" -> "100-continue", "X-Test" -> "1")
+        .buildRequest()
+
+      built.headers.map.asScala.keySet.map(_.toLowerCase) must_== Set("x-test")
+    }
+
+    "send the body with its content type" in {
+      val built = request("http://example.com").withBody("hello").withMethod("POST").buildRequest()
+
+      (built.method must_== "POST")
+        .and(built.bodyPublisher.toScala.map(_.contentLength) must beSome(5L))
+        .and(built.headers.firstValue("Content-Type").toScala must beSome("text/plain"))
+    }
+
+    "reject the features java.net.http does not support" in {
+      (request("http://example.com").withVirtualHost("other.com").buildRequest() must
+        throwA[UnsupportedOperationException])
+        .and(
+          request("http://example.com").withProxyServer(DefaultWSProxyServer("proxy", 8080)).buildRequest() must
+            throwA[UnsupportedOperationException]
+        )
+        .and(
+          request("http://example.com").withAuth("user", "password", WSAuthScheme.DIGEST).buildRequest() must
+            throwA[UnsupportedOperationException]
+        )
+    }
+
+    "parse its configuration" in {
+      val config = ConfigFactory
+        .parseString("play.ws.jdk.http2 = false")
+        .withFallback(ConfigFactory.defaultReference())
+
+      JdkWSClientConfigFactory.forConfig(config).http2 must beFalse
+    }
+  }
+}
@@ -4,6 +4,9 @@
 
 package play.api.libs.ws
 
+import org.apache.pekko.stream.scaladsl.Source
+import org.apache.pekko.util.ByteString
+
 /**
  * Provides implicit for converting a response to JsValue.
  *
@@ -26,6 +29,51 @@ trait JsonBodyReadables {
   implicit val readableAsJson: BodyReadable[JsValue] = BodyReadable { response =>
     Json.parse(response.body)
   }
+
+  /**
+   * Converts a response body into Play JSON format by parsing the body bytes directly, without decoding them to a
+   * String first:
+   *
+   * {{{
+   * import play.api.libs.ws.StandaloneWSResponse
+   * import play.api.libs.ws.JsonBodyReadables._
+   *
+   * def json(r: StandaloneWSResponse) = r.body(readableAsJsonFromBytes)
+   * }}}
+   *
+   * Bodies encoded as UTF-16 or UTF-32 are handed to `Json.parse`, which detects their encoding.
+   */
+  val readableAsJsonFromBytes: BodyReadable[JsValue] = BodyReadable { response =>
+    val bytes = response.bodyAsBytes
+    if (isUtf8(bytes)) JsonStreamParser.parse(bytes.drop(utf8BomLength(bytes))) else Json.parse(bytes.toArrayUnsafe())
+  }
+
+  /**
+   * Emits the elements of a top level JSON array one at a time as they are read, so that large arrays can be
+   * processed without holding the whole body in memory. The body must be encoded as UTF-8:
+   *
+   * {{{
+   * import org.apache.pekko.stream.scaladsl.Source
+   * import play.api.libs.ws.StandaloneWSResponse
+   * import play.api.libs.ws.JsonBodyReadables._
+   *
+   * def elements(r: StandaloneWSResponse) = r.body[Source[JsValue, ?]]
+   * }}}
+   */
+  implicit val readableAsJsonElements: BodyReadable[Source[JsValue, ?]] = BodyReadable { response =>
+    response.bodyAsSource.via(JsonStreamParser.arrayElements)
+  }
+
+  // JSON text starts with an ASCII character, so a zero byte among the first two means UTF-16 or UTF-32 (RFC 4627)
+  private def isUtf8(bytes: ByteString): Boolean = {
+    val utf16Bom = bytes.length >= 2 && ((bytes(0) == 0xfe.toByte && bytes(1) == 0xff.toByte) ||
+      (bytes(0) == 0xff.toByte && bytes(1) == 0xfe.toByte))
+    !utf16Bom && !bytes.take(2).contains(0.toByte)
+  }
+
+  private def utf8BomLength(bytes: ByteString): Int = {
+    if (bytes.startsWith(ByteString(0xef.toByte, 0xbb.toByte, 0xbf.toByte))) 3 else 0
+  }
 }
 
 object JsonBodyReadables extends JsonBodyReadables
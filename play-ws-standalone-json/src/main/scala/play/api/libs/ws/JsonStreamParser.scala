@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws
+
+import java.util
+
+import com.fasterxml.jackson.core.JsonFactory
+import com.fasterxml.jackson.core.JsonParseException
+import com.fasterxml.jackson.core.JsonParser
+import com.fasterxml.jackson.core.JsonToken
+import com.fasterxml.jackson.core.async.ByteArrayFeeder
+import org.apache.pekko.NotUsed
+import org.apache.pekko.stream.Attributes
+import org.apache.pekko.stream.FlowShape
+import org.apache.pekko.stream.Inlet
+import org.apache.pekko.stream.Outlet
+import org.apache.pekko.stream.scaladsl.Flow
+import org.apache.pekko.stream.stage.GraphStage
+import org.apache.pekko.stream.stage.GraphStageLogic
+import org.apache.pekko.stream.stage.InHandler
+import org.apache.pekko.stream.stage.OutHandler
+import org.apache.pekko.util.ByteString
+import play.api.libs.json._
+
+import scala.collection.immutable.VectorBuilder
+import scala.collection.mutable
+
+/**
+ * Parses UTF-8 encoded JSON straight from bytes with Jackson's non-blocking parser, without decoding the body to a
+ * String first.
+ *
+ * {{{
+ * import play.api.libs.ws.JsonStreamParser
+ *
+ * def names(response: play.api.libs.ws.StandaloneWSResponse) =
+ *   response.bodyAsSource.via(JsonStreamParser.arrayElements).map(js => (js \ "name").as[String])
+ * }}}
+ */
+object JsonStreamParser {
+
+  private val factory = new JsonFactory()
+
+  /**
+   * Parses a complete JSON document.
+   */
+  def parse(bytes: ByteString): JsValue = {
+    val reader = new JsonValueReader(factory, arrayElements = false)
+    var result = Option.empty[JsValue]
+    reader.feed(bytes)
+    reader.endOfInput()
+    reader.read(value => if (result.isEmpty) result = Some(value))
+    result.getOrElse(throw new JsonParseException(null: JsonParser, "No content to parse"))
+  }
+
+  /**
+   * A flow that emits the top level JSON value once it has been read.
+   */
+  def document: Flow[ByteString, JsValue, NotUsed] = Flow.fromGraph(new JsonStreamParserStage(arrayElements = false))
+
+  /**
+   * A flow that emits the elements of a top level JSON array one at a time, as soon as each has been read. Only the
+   * element being read is held in memory.
+   */
+  def arrayElements: Flow[ByteString, JsValue, NotUsed] =
+    Flow.fromGraph(new JsonStreamParserStage(arrayElements = true))
+
+  private final class JsonStreamParserStage(arrayElements: Boolean) extends GraphStage[FlowShape[ByteString, JsValue]] {
+    val in: Inlet[ByteString] = Inlet("JsonStreamParser.in")
+    val out: Outlet[JsValue]  = Outlet("JsonStreamParser.out")
+
+    override val shape: FlowShape[ByteString, JsValue] = FlowShape(in, out)
+
+    override def createLogic(inheritedAttributes: Attributes): GraphStageLogic =
+      new GraphStageLogic(shape) with InHandler with OutHandler {
+        private val reader = new JsonValueReader(factory, arrayElements)
+        private val ready  = mutable.Queue.empty[JsValue]
+
+        override def onPush(): Unit = {
+          reader.feed(grab(in))
+          reader.read(value => ready.enqueue(value))
+          if (ready.nonEmpty) push(out, ready.dequeue()) else pull(in)
+        }
+
+        override def onPull(): Unit = {
+          if (ready.nonEmpty) push(out, ready.dequeue()) else pull(in)
+        }
+
+        override def onUpstreamFinish(): Unit = {
+          reader.endOfInput()
+          reader.read(value => ready.enqueue(value))
+          emitMultiple(out, ready.iterator, () => completeStage())
+        }
+
+        setHandlers(in, out, this)
+      }
+  }
+
+  /**
+   * Turns the tokens of a non-blocking parser into values, keeping a stack of the arrays and objects being read.
+   */
+  private final class JsonValueReader(factory: JsonFactory, arrayElements: Boolean) {
+    private val parser: JsonParser = factory.createNonBlockingByteArrayParser()
+    private val feeder             = parser.getNonBlockingInputFeeder.asInstanceOf[ByteArrayFeeder]
+    private val stack              = new util.ArrayDeque[Container]()
+    private val completedValues    = mutable.Queue.empty[JsValue]
+    private val numberSettings     = JsonParserSettings.settings.bigDecimalParseSettings
+    private var rootArrayOpened    = false
+    private var rootArrayClosed    = false
+
+    /**
+     * Tokenizes the given bytes. The feeder only accepts more input once everything fed before has been
+     * tokenized, so each buffer is tokenized as soon as it is fed.
+     */
+    def feed(bytes: ByteString): Unit = {
+      bytes.asByteBuffers.foreach { buffer =>
+        if (buffer.hasArray) {
+          val start = buffer.arrayOffset() + buffer.position()
+          feeder.feedInput(buffer.array(), start, start + buffer.remaining())
+        } else {
+          val array = new Array[Byte](buffer.remaining())
+          buffer.duplicate().get(array)
+          feeder.feedInput(array, 0, array.length)
+        }
+        tokenize()
+      }
+    }
+
+    def endOfInput(): Unit = {
+      feeder.endOfInput()
+      tokenize()
+    }
+
+    /**
+     * Hands over the values completed so far.
+     */
+    def read(onValue: JsValue => Unit): Unit = {
+      while (completedValues.nonEmpty) onValue(completedValues.dequeue())
+    }
+
+    private def tokenize(): Unit = {
+      var token = parser.nextToken()
+      while (token != null && token != JsonToken.NOT_AVAILABLE) {
+        onToken(token)
+        token = parser.nextToken()
+      }
+    }
+
+    private def onToken(token: JsonToken): Unit = {
+      token match {
+        case JsonToken.START_ARRAY if arrayElements && !rootArrayOpened =>
+          rootArrayOpened = true
+        case JsonToken.START_ARRAY =>
+          checkRoot()
+          stack.push(new ArrayContainer)
+        case JsonToken.START_OBJECT =>
+          checkRoot()
+          stack.push(new ObjectContainer)
+        case JsonToken.END_ARRAY if stack.isEmpty =>
+          rootArrayClosed = true
+        case JsonToken.END_ARRAY | JsonToken.END_OBJECT =>
+          completed(stack.pop().result())
+        case JsonToken.FIELD_NAME =>
+          stack.peek().asInstanceOf[ObjectContainer].name = parser.getText
+        case JsonToken.VALUE_STRING =>
+          scalar(JsString(parser.getText))
+        case JsonToken.VALUE_NUMBER_INT | JsonToken.VALUE_NUMBER_FLOAT =>
+          scalar(number(parser.getText))
+        case JsonToken.VALUE_TRUE =>
+          scalar(JsTrue)
+        case JsonToken.VALUE_FALSE =>
+          scalar(JsFalse)
+        case JsonToken.VALUE_NULL =>
+          scalar(JsNull)
+        case other =>
+          throw new JsonParseException(parser, s"Unexpected token $other")
+      }
+    }
+
+    private def checkRoot(): Unit = {
+      if (arrayElements && stack.isEmpty && (!rootArrayOpened || rootArrayClosed)) {
+        throw new JsonParseException(parser, "Expected a top level JSON array")
+      }
+    }
+
+    private def scalar(value: JsValue): Unit = {
+      checkRoot()
+      completed(value)
+    }
+
+    private def completed(value: JsValue): Unit = {
+      if (stack.isEmpty) completedValues.enqueue(value) else stack.peek().add(value)
+    }
+
+    private def number(text: String): JsNumber = {
+      // Same limit as Play JSON, so that huge numbers cannot be used to exhaust the CPU.
+      if (text.length > numberSettings.digitsLimit) {
+        throw new JsonParseException(parser, s"Number is larger than supported, ${text.length} digits")
+      }
+      JsNumber(BigDecimal(text, numberSettings.mathContext))
+    }
+  }
+
+  private sealed trait Container {
+    def add(value: JsValue): Unit
+    def result(): JsValue
+  }
+
+  private final class ArrayContainer extends Container {
+    private val values = new VectorBuilder[JsValue]
+
+    override def add(value: JsValue): Unit = values += value
+
+    override def result(): JsValue = JsArray(values.result())
+  }
+
+  private final class ObjectContainer extends Container {
+    var name: String = _
+
+    private val fields = mutable.ArrayBuffer.empty[(String, JsValue)]
+
+    override def add(value: JsValue): Unit = fields.addOne(name -> value)
+
+    override def result(): JsValue = JsObject(fields.toSeq)
+  }
+}
@@ -97,4 +97,30 @@ class JsonBodyReadablesSpec extends Specification with MustMatchers {
 
   }
 
+  "readableAsJsonFromBytes" should {
+
+    "read an encoding of UTF-8" in {
+      val readables      = new JsonBodyReadables() {}
+      val json           = """{"menu": {"id": "file", "value": "File"} }"""
+      val value: JsValue = readables.readableAsJsonFromBytes.transform(new StubResponse(json.getBytes(UTF_8)))
+      (value \ "menu" \ "id").validate[String] must beEqualTo(JsSuccess("file"))
+    }
+
+    "read an encoding of UTF-8 with a byte order mark" in {
+      val readables      = new JsonBodyReadables() {}
+      val json           = "\uFEFF{\"id\": \"file\"}"
+      val value: JsValue = readables.readableAsJsonFromBytes.transform(new StubResponse(json.getBytes(UTF_8)))
+      (value \ "id").validate[String] must beEqualTo(JsSuccess("file"))
+    }
+
+    "read an encoding of UTF-16LE" in {
+      val readables      = new JsonBodyReadables() {}
+      val json           = """{"menu": {"id": "file", "value": "File"} }"""
+      val charset        = UTF_16LE
+      val value: JsValue =
+        readables.readableAsJsonFromBytes.transform(new StubResponse(json.getBytes(charset), charset))
+      (value \ "menu" \ "id").validate[String] must beEqualTo(JsSuccess("file"))
+    }
+  }
+
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws
+
+import com.fasterxml.jackson.core.JsonParseException
+import org.apache.pekko.actor.ActorSystem
+import org.apache.pekko.stream.Materializer
+import org.apache.pekko.stream.scaladsl.Sink
+import org.apache.pekko.stream.scaladsl.Source
+import org.apache.pekko.util.ByteString
+import org.specs2.mutable.Specification
+import org.specs2.specification.AfterAll
+import play.api.libs.json.Json
+
+import scala.concurrent.Await
+import scala.concurrent.duration._
+
+class JsonStreamParserSpec extends Specification with AfterAll {
+
+  val system: ActorSystem        = ActorSystem()
+  val materializer: Materializer = Materializer.matFromSystem(system)
+
+  override def afterAll(): Unit = system.terminate()
+
+  // Splits the json into chunks of the given size, so that tokens are cut across chunk boundaries
+  def chunked(json: String, size: Int): Source[ByteString, ?] =
+    Source(ByteString(json).grouped(size).toList)
+
+  "parse" should {
+
+    "parse a document with nested objects and arrays" in {
+      val json = """{"menu": {"id": "file", "items": [1, 2.5, true, null, {"name": "été"}]}}"""
+      JsonStreamParser.parse(ByteString(json)) must_== Json.parse(json)
+    }
+
+    "fail on malformed json" in {
+      JsonStreamParser.parse(ByteString("""{"id": }""")) must throwA[JsonParseException]
+    }
+
+    "fail on empty content" in {
+      JsonStreamParser.parse(ByteString.empty) must throwA[JsonParseException]
+    }
+  }
+
+  "document" should {
+
+    "emit the document once it has been read" in {
+      val json   = """{"id": "file", "values": [1, 2, 3]}"""
+      val result = chunked(json, 3).via(JsonStreamParser.document).runWith(Sink.seq)(materializer)
+      Await.result(result, 5.seconds) must_== Seq(Json.parse(json))
+    }
+  }
+
+  "arrayElements" should {
+
+    "emit each element of the top level array" in {
+      val json   = """[{"id": 1, "tags": ["a", "b"]}, "two", 3, [4, 5], {}]"""
+      val result = chunked(json, 4).via(JsonStreamParser.arrayElements).runWith(Sink.seq)(materializer)
+      Await.result(result, 5.seconds) must_== Json.parse(json).as[Seq[play.api.libs.json.JsValue]]
+    }
+
+    "emit nothing for an empty array" in {
+      val result = chunked("[]", 1).via(JsonStreamParser.arrayElements).runWith(Sink.seq)(materializer)
+      Await.result(result, 5.seconds) must beEmpty
+    }
+
+    "fail when the top level value is not an array" in {
+      val result = chunked("""{"id": 1}""", 2).via(JsonStreamParser.arrayElements).runWith(Sink.seq)(materializer)
+      Await.result(result, 5.seconds) must throwA[JsonParseException]
+    }
+
+    "fail on a truncated array" in {
+      val result = chunked("""[1, 2, {"id": """, 2).via(JsonStreamParser.arrayElements).runWith(Sink.seq)(materializer)
+      Await.result(result, 5.seconds) must throwA[JsonParseException]
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.libs.ws.metrics;
+
+import play.api.libs.ws.ahc.metrics.RequestTiming;
+import play.api.libs.ws.ahc.metrics.RequestTimingListener;
+import play.api.libs.ws.metrics.TimingHistograms;
+import play.libs.ws.WSRequestExecutor;
+import play.libs.ws.WSRequestFilter;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the phases of the requests it filters into HDR histograms. Only the AHC client reports the phases of a
+ * request.
+ *
+ * <pre>{@code
+ * HdrHistogramTimingFilter timings = new HdrHistogramTimingFilter();
+ * client.url("https://api.example.com/users/" + id).setRequestFilter(timings).get();
+ * // called at every interval
+ * long timeToFirstByteP99 = timings.intervalHistograms().timeToFirstByte().getValueAtPercentile(99);
+ * }</pre>
+ *
+ * The filter should be created once and shared by all the requests it records. It can also be registered with
+ * {@code StandaloneAhcWSClient.addRequestTimingListener} to record every request of a client.
+ */
+public class HdrHistogramTimingFilter implements WSRequestFilter, RequestTimingListener {
+
+    private final play.api.libs.ws.metrics.HdrHistogramTimingFilter histograms;
+
+    /**
+     * Creates a filter that tells apart durations of up to a minute, with two significant digits.
+     */
+    public HdrHistogramTimingFilter() {
+        this.histograms = new play.api.libs.ws.metrics.HdrHistogramTimingFilter();
+    }
+
+    /**
+     * @param highestTrackableValue the longest duration that can be told apart from longer ones. Longer durations are
+     *                              recorded as this value.
+     * @param numberOfSignificantValueDigits the precision of the recorded values, between 0 and 5.
+     */
+    public HdrHistogramTimingFilter(Duration highestTrackableValue, int numberOfSignificantValueDigits) {
+        this.histograms = new play.api.libs.ws.metrics.HdrHistogramTimingFilter(
+                FiniteDuration.apply(highestTrackableValue.toNanos(), TimeUnit.NANOSECONDS),
+                numberOfSignificantValueDigits
+        );
+    }
+
+    // The client reports the timing of the request to the filters of the request that are timing listeners.
+    @Override
+    public WSRequestExecutor apply(WSRequestExecutor executor) {
+        return executor;
+    }
+
+    @Override
+    public void onRequestTiming(RequestTiming timing) {
+        histograms.onRequestTiming(timing);
+    }
+
+    /**
+     * @return the durations recorded since the previous call, and starts a new interval.
+     */
+    public TimingHistograms intervalHistograms() {
+        return histograms.intervalHistograms();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.libs.ws.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.pekko.util.ByteString;
+import play.api.libs.ws.metrics.RouteTemplates;
+import play.api.libs.ws.metrics.WSClientMeters;
+import play.libs.ws.BodyWritable;
+import play.libs.ws.InMemoryBodyWritable;
+import play.libs.ws.StandaloneWSRequest;
+import play.libs.ws.StandaloneWSResponse;
+import play.libs.ws.WSRequestExecutor;
+import play.libs.ws.WSRequestFilter;
+import play.shaded.ahc.org.asynchttpclient.Response;
+import scala.jdk.javaapi.OptionConverters;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Records the requests going through it in {@link WSClientMeters}.
+ *
+ * <pre>{@code
+ * MetricsRequestFilter metrics = new MetricsRequestFilter(registry, RouteTemplates.create(List.of("/users/{id}")));
+ * client.url("https://api.example.com/users/" + id).setRequestFilter(metrics).get();
+ * }</pre>
+ *
+ * The filter should be created once and shared by all the requests it records.
+ */
+public class MetricsRequestFilter implements WSRequestFilter {
+
+    private final WSClientMeters meters;
+    private final Function<StandaloneWSRequest, Optional<String>> routeTemplate;
+
+    /**
+     * Creates a filter that tags every request with the {@code none} route.
+     *
+     * @param registry the registry to register the meters with.
+     */
+    public MetricsRequestFilter(MeterRegistry registry) {
+        this(new WSClientMeters(registry), request -> Optional.empty());
+    }
+
+    /**
+     * Creates a filter that tags requests with the template their URL matches.
+     *
+     * @param registry the registry to register the meters with.
+     * @param routes the route templates.
+     */
+    public MetricsRequestFilter(MeterRegistry registry, RouteTemplates routes) {
+        this(new WSClientMeters(registry), request -> OptionConverters.toJava(routes.find(request.getUrl())));
+    }
+
+    /**
+     * @param meters the meters to record the requests in.
+     * @param routeTemplate returns the route template of a request, if it has one.
+     */
+    public MetricsRequestFilter(WSClientMeters meters, Function<StandaloneWSRequest, Optional<String>> routeTemplate) {
+        this.meters = meters;
+        this.routeTemplate = routeTemplate;
+    }
+
+    @Override
+    public WSRequestExecutor apply(WSRequestExecutor executor) {
+        return request -> {
+            WSClientMeters.InFlight inFlight = meters.start(
+                    request.getMethod(),
+                    request.getUrl(),
+                    routeTemplate.apply(request).orElse(null),
+                    requestSize(request)
+            );
+            CompletionStage<StandaloneWSResponse> result;
+            try {
+                result = executor.apply(request);
+            } catch (RuntimeException e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+            result.whenComplete((response, t) -> {
+                if (t != null) {
+                    inFlight.failed(t);
+                } else {
+                    inFlight.succeeded(response.getStatus(), responseSize(response));
+                }
+            });
+            return result;
+        };
+    }
+
+    private static long requestSize(StandaloneWSRequest request) {
+        Optional<BodyWritable> body = request.getBody();
+        if (body.isEmpty()) {
+            return 0L;
+        } else if (body.get() instanceof InMemoryBodyWritable) {
+            return ((ByteString) body.get().body().get()).size();
+        } else {
+            return -1L;
+        }
+    }
+
+    // The header map of a response is built on first access, so the header is read from the AHC response if possible.
+    private static long responseSize(StandaloneWSResponse response) {
+        Object underlying = response.getUnderlying();
+        Optional<String> contentLength = underlying instanceof Response
+                ? Optional.ofNullable(((Response) underlying).getHeader("Content-Length"))
+                : response.getSingleHeader("Content-Length");
+        try {
+            return contentLength.map(Long::parseLong).orElse(-1L);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+}
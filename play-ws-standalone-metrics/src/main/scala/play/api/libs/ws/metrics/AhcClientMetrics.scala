@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.metrics
+
+import java.util.concurrent.TimeUnit
+
+import io.micrometer.core.instrument.FunctionCounter
+import io.micrometer.core.instrument.FunctionTimer
+import io.micrometer.core.instrument.Gauge
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.MultiGauge
+import io.micrometer.core.instrument.Tags
+import io.micrometer.core.instrument.binder.MeterBinder
+import play.api.libs.ws.ahc.StandaloneAhcWSClient
+import play.api.libs.ws.ahc.cache.CachingAsyncHttpClient
+import play.api.libs.ws.ahc.metrics.ConnectionPoolReporter
+import play.api.libs.ws.ahc.metrics.ConnectionPoolSnapshot
+import play.api.libs.ws.ahc.metrics.HostPoolMetrics
+import play.shaded.ahc.org.asynchttpclient.AsyncHttpClient
+
+import scala.jdk.CollectionConverters._
+
+/**
+ * Exports the connection pool and HTTP cache of an AHC client:
+ *
+ *  - `play.ws.client.pool.connections`: a gauge of the pooled connections, tagged with `state` (`active` or `idle`).
+ *  - `play.ws.client.pool.host.connections`: the same per host, also tagged with `host`. It is updated with every
+ *    snapshot reported to this binder, see below.
+ *  - `play.ws.client.pool.leases`: a timer of the waits to lease a connection from the pool.
+ *  - `play.ws.client.pool.opened` and `play.ws.client.pool.closed`: counters of the connections opened and closed.
+ *  - `play.ws.client.cache.requests`: a counter of the requests that went through the cache, tagged with `result`
+ *    (`hit`, `stale`, `miss`, `validation` or `timeout`), if the client has an HTTP cache.
+ *  - `play.ws.client.cache.coalesced`: a counter of the requests that were served the response of an identical
+ *    request already on its way to the origin server, if the client has an HTTP cache.
+ *
+ * Lease waits and opened and closed connections are only counted when `play.ws.ahc.poolMetrics.enabled` is set.
+ * The per host gauges are updated from the reported snapshots, so the binder should also be given to the client as
+ * a reporter:
+ *
+ * {{{
+ * import scala.concurrent.duration._
+ * import io.micrometer.core.instrument.MeterRegistry
+ * import play.api.libs.ws.ahc.StandaloneAhcWSClient
+ * import play.api.libs.ws.metrics.AhcClientMetrics
+ *
+ * def bind(client: StandaloneAhcWSClient, registry: MeterRegistry) = {
+ *   val metrics = new AhcClientMetrics(client)
+ *   metrics.bindTo(registry)
+ *   client.reportConnectionPool(metrics, 10.seconds)
+ * }
+ * }}}
+ *
+ * @param client the client to export the metrics of.
+ */
+class AhcClientMetrics(client: StandaloneAhcWSClient) extends MeterBinder with ConnectionPoolReporter {
+
+  @volatile private var hostConnections: Option[MultiGauge] = None
+
+  override def bindTo(registry: MeterRegistry): Unit = {
+    connectionGauge(registry, "active", _.totalActiveConnections.toDouble)
+    connectionGauge(registry, "idle", _.totalIdleConnections.toDouble)
+
+    FunctionTimer
+      .builder(
+        "play.ws.client.pool.leases",
+        client,
+        (_: StandaloneAhcWSClient) => hostTotal(_.leaseCount),
+        (_: StandaloneAhcWSClient) => hostTotal(_.leaseWaitNanos).toDouble,
+        TimeUnit.NANOSECONDS
+      )
+      .description("The waits to lease a connection from the pool")
+      .register(registry)
+
+    poolCounter(registry, "play.ws.client.pool.opened", "The connections opened")(_.openedConnections)
+    poolCounter(registry, "play.ws.client.pool.closed", "The connections closed")(_.closedConnections)
+
+    client.underlying[AsyncHttpClient] match {
+      case caching: CachingAsyncHttpClient =>
+        cacheCounter(registry, caching, "hit")(_.hitCount)
+        cacheCounter(registry, caching, "stale")(_.staleHitCount)
+        cacheCounter(registry, caching, "miss")(_.missCount)
+        cacheCounter(registry, caching, "validation")(_.validationCount)
+        cacheCounter(registry, caching, "timeout")(_.timeoutCount)
+        FunctionCounter
+          .builder(
+            "play.ws.client.cache.coalesced",
+            caching,
+            (c: CachingAsyncHttpClient) => c.coalescingStats.waiterCount.toDouble
+          )
+          .description("The requests served the response of an identical request in flight")
+          .register(registry)
+      case _ =>
+    }
+
+    hostConnections = Some(
+      MultiGauge
+        .builder("play.ws.client.pool.host.connections")
+        .description("The pooled connections per host")
+        .register(registry)
+    )
+  }
+
+  /**
+   * Updates the per host gauges from the snapshot. Hosts that are no longer in the pool are removed.
+   */
+  override def report(snapshot: ConnectionPoolSnapshot): Unit = {
+    hostConnections.foreach { gauge =>
+      val rows = snapshot.hosts.toSeq.flatMap { case (host, metrics) =>
+        Seq(row(host, "active", metrics.activeConnections), row(host, "idle", metrics.idleConnections))
+      }
+      gauge.register(rows.asJava, true)
+    }
+  }
+
+  private def row(host: String, state: String, connections: Long): MultiGauge.Row[Number] = {
+    MultiGauge.Row.of(Tags.of("host", host, "state", state), java.lang.Long.valueOf(connections))
+  }
+
+  private def hostTotal(f: HostPoolMetrics => Long): Long = {
+    client.connectionPoolSnapshot.hosts.valuesIterator.map(f).sum
+  }
+
+  private def connectionGauge(registry: MeterRegistry, state: String, f: ConnectionPoolSnapshot => Double): Unit = {
+    Gauge
+      .builder("play.ws.client.pool.connections", client, (c: StandaloneAhcWSClient) => f(c.connectionPoolSnapshot))
+      .description("The pooled connections")
+      .tag("state", state)
+      .register(registry)
+  }
+
+  private def poolCounter(registry: MeterRegistry, name: String, description: String)(
+      f: HostPoolMetrics => Long
+  ): Unit = {
+    FunctionCounter
+      .builder(name, client, (_: StandaloneAhcWSClient) => hostTotal(f).toDouble)
+      .description(description)
+      .register(registry)
+  }
+
+  private def cacheCounter(registry: MeterRegistry, caching: CachingAsyncHttpClient, result: String)(
+      f: CachingAsyncHttpClient.Stats => Long
+  ): Unit = {
+    FunctionCounter
+      .builder("play.ws.client.cache.requests", caching, (c: CachingAsyncHttpClient) => f(c.cacheStats).toDouble)
+      .description("The requests that went through the HTTP cache")
+      .tag("result", result)
+      .register(registry)
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.metrics
+
+import java.util.concurrent.ConcurrentHashMap
+
+import io.micrometer.core.instrument.Counter
+import io.micrometer.core.instrument.Gauge
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.binder.MeterBinder
+import play.api.libs.ws.filters.AdaptiveConcurrencyLimiter
+import play.api.libs.ws.filters.ConcurrencyLimitListener
+import play.api.libs.ws.filters.HostConcurrency
+
+/**
+ * Exports the limits of an [[play.api.libs.ws.filters.AdaptiveConcurrencyLimiter]], tagged with `host`:
+ *
+ *  - `play.ws.client.concurrency.limit`: a gauge of the limit of each host.
+ *  - `play.ws.client.concurrency.inflight` and `play.ws.client.concurrency.queued`: gauges of the requests in flight
+ *    and waiting.
+ *  - `play.ws.client.concurrency.rejected`: a counter of the requests rejected because their host was at its limit.
+ *
+ * Hosts are added as they are first requested.
+ *
+ * @param limiter the limiter to export the limits of.
+ */
+class ConcurrencyLimiterMetrics(limiter: AdaptiveConcurrencyLimiter) extends MeterBinder {
+
+  override def bindTo(registry: MeterRegistry): Unit = {
+    val hosts = new ConcurrentHashMap[String, Counter]()
+
+    def meters(host: String): Counter = hosts.computeIfAbsent(
+      host,
+      host => {
+        gauge(registry, "play.ws.client.concurrency.limit", "The limit of requests in flight", host)(_.limit)
+        gauge(registry, "play.ws.client.concurrency.inflight", "The requests in flight", host)(_.inFlight)
+        gauge(registry, "play.ws.client.concurrency.queued", "The requests waiting to be sent", host)(_.queued)
+        Counter
+          .builder("play.ws.client.concurrency.rejected")
+          .description("The requests rejected because their host was at its limit")
+          .tag("host", host)
+          .register(registry)
+      }
+    )
+
+    limiter.addListener(new ConcurrencyLimitListener {
+      override def onLimitChanged(host: String, limit: Int): Unit = {
+        meters(host)
+        ()
+      }
+
+      override def onRejected(host: String): Unit = meters(host).increment()
+    })
+    limiter.limits.keys.foreach(meters)
+  }
+
+  private def gauge(registry: MeterRegistry, name: String, description: String, host: String)(
+      f: HostConcurrency => Int
+  ): Unit = {
+    Gauge
+      .builder(name, limiter, (l: AdaptiveConcurrencyLimiter) => l.limit(host).fold(0.0)(f(_).toDouble))
+      .description(description)
+      .tag("host", host)
+      .register(registry)
+  }
+}
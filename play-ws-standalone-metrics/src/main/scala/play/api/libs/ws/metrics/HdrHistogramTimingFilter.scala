@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.metrics
+
+import org.HdrHistogram.Histogram
+import org.HdrHistogram.Recorder
+import play.api.libs.ws.WSRequestExecutor
+import play.api.libs.ws.WSRequestFilter
+import play.api.libs.ws.ahc.metrics.RequestTiming
+import play.api.libs.ws.ahc.metrics.RequestTimingListener
+
+import scala.concurrent.duration._
+
+/**
+ * The durations of each request phase recorded over an interval, in microseconds.
+ */
+case class TimingHistograms(
+    nameResolution: Histogram,
+    connect: Histogram,
+    tlsHandshake: Histogram,
+    timeToFirstByte: Histogram,
+    bodyTransfer: Histogram,
+    total: Histogram
+)
+
+/**
+ * Records the phases of the requests it filters into HDR histograms. Recording does not allocate and does not block,
+ * so it is safe on the I/O threads the timings are reported on. Only the AHC client reports the phases of a request.
+ *
+ * {{{
+ * import play.api.libs.ws.StandaloneWSClient
+ * import play.api.libs.ws.metrics.HdrHistogramTimingFilter
+ *
+ * class Users(client: StandaloneWSClient) {
+ *   val timings = new HdrHistogramTimingFilter()
+ *
+ *   def get(id: Long) = client.url(s"https://api.example.com/users/$id").withRequestFilter(timings).get()
+ *
+ *   // called at every interval
+ *   def timeToFirstByteP99(): Long = timings.intervalHistograms().timeToFirstByte.getValueAtPercentile(99)
+ * }
+ * }}}
+ *
+ * The filter should be created once and shared by all the requests it records. It can also be registered with
+ * `StandaloneAhcWSClient.addRequestTimingListener` to record every request of a client.
+ *
+ * @param highestTrackableValue the longest duration that can be told apart from longer ones. Longer durations are
+ *                              recorded as this value.
+ * @param numberOfSignificantValueDigits the precision of the recorded values, between 0 and 5.
+ */
+class HdrHistogramTimingFilter(highestTrackableValue: FiniteDuration, numberOfSignificantValueDigits: Int)
+    extends WSRequestFilter
+    with RequestTimingListener {
+
+  def this() = this(1.minute, 2)
+
+  private val highest = highestTrackableValue.toMicros
+
+  private val nameResolution  = newRecorder()
+  private val connect         = newRecorder()
+  private val tlsHandshake    = newRecorder()
+  private val timeToFirstByte = newRecorder()
+  private val bodyTransfer    = newRecorder()
+  private val total           = newRecorder()
+
+  // The client reports the timing of the request to the filters of the request that are timing listeners.
+  override def apply(executor: WSRequestExecutor): WSRequestExecutor = executor
+
+  override def onRequestTiming(timing: RequestTiming): Unit = {
+    timing.nameResolution.foreach(record(nameResolution, _))
+    timing.connect.foreach(record(connect, _))
+    timing.tlsHandshake.foreach(record(tlsHandshake, _))
+    timing.timeToFirstByte.foreach(record(timeToFirstByte, _))
+    timing.bodyTransfer.foreach(record(bodyTransfer, _))
+    record(total, timing.total)
+  }
+
+  /**
+   * Returns the durations recorded since the previous call, and starts a new interval.
+   */
+  def intervalHistograms(): TimingHistograms = TimingHistograms(
+    nameResolution = nameResolution.getIntervalHistogram,
+    connect = connect.getIntervalHistogram,
+    tlsHandshake = tlsHandshake.getIntervalHistogram,
+    timeToFirstByte = timeToFirstByte.getIntervalHistogram,
+    bodyTransfer = bodyTransfer.getIntervalHistogram,
+    total = total.getIntervalHistogram
+  )
+
+  private def newRecorder(): Recorder = new Recorder(highest, numberOfSignificantValueDigits)
+
+  private def record(recorder: Recorder, duration: FiniteDuration): Unit = {
+    recorder.recordValue(math.min(math.max(duration.toMicros, 0L), highest))
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.metrics
+
+import io.micrometer.core.instrument.FunctionCounter
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.binder.MeterBinder
+import play.api.libs.ws.filters.Hedging
+import play.api.libs.ws.filters.HedgingStats
+
+/**
+ * Exports what a [[play.api.libs.ws.filters.Hedging]] did:
+ *
+ *  - `play.ws.client.hedging.requests`: a counter of the requests that could be hedged.
+ *  - `play.ws.client.hedging.hedges`: a counter of the hedges sent.
+ *  - `play.ws.client.hedging.wins`: a counter of the hedges that answered before the request they hedged.
+ *  - `play.ws.client.hedging.budget.exhausted`: a counter of the hedges not sent because too many were sent already.
+ *
+ * @param hedging the hedging to export the counters of.
+ */
+class HedgingMetrics(hedging: Hedging) extends MeterBinder {
+
+  override def bindTo(registry: MeterRegistry): Unit = {
+    counter(registry, "play.ws.client.hedging.requests", "The requests that could be hedged")(_.requestCount)
+    counter(registry, "play.ws.client.hedging.hedges", "The hedges sent")(_.hedgeCount)
+    counter(registry, "play.ws.client.hedging.wins", "The hedges that answered first")(_.hedgeWinCount)
+    counter(registry, "play.ws.client.hedging.budget.exhausted", "The hedges not sent for lack of budget")(
+      _.budgetExhaustedCount
+    )
+  }
+
+  private def counter(registry: MeterRegistry, name: String, description: String)(f: HedgingStats => Long): Unit = {
+    FunctionCounter
+      .builder(name, hedging, (h: Hedging) => f(h.stats).toDouble)
+      .description(description)
+      .register(registry)
+  }
+}
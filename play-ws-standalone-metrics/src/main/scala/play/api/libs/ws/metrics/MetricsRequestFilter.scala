@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.metrics
+
+import io.micrometer.core.instrument.MeterRegistry
+import play.api.libs.ws._
+import play.shaded.ahc.org.asynchttpclient.{ Response => AHCResponse }
+
+import scala.concurrent.ExecutionContext
+import scala.concurrent.Future
+import scala.util.Failure
+import scala.util.Success
+import scala.util.control.NonFatal
+
+/**
+ * Records the requests going through it in [[WSClientMeters]].
+ *
+ * {{{
+ * import io.micrometer.core.instrument.MeterRegistry
+ * import play.api.libs.ws.StandaloneWSClient
+ * import play.api.libs.ws.metrics.{ MetricsRequestFilter, RouteTemplates }
+ *
+ * def getUser(client: StandaloneWSClient, registry: MeterRegistry, id: Long) = {
+ *   val metrics = MetricsRequestFilter(registry, RouteTemplates("/users/{id}"))
+ *   client.url(s"https://api.example.com/users/$id").withRequestFilter(metrics).get()
+ * }
+ * }}}
+ *
+ * The filter should be created once and shared by all the requests it records.
+ *
+ * @param meters the meters to record the requests in.
+ * @param routeTemplate returns the route template of a request, if it has one.
+ */
+class MetricsRequestFilter(meters: WSClientMeters, routeTemplate: StandaloneWSRequest => Option[String])
+    extends WSRequestFilter {
+
+  override def apply(executor: WSRequestExecutor): WSRequestExecutor = {
+    WSRequestExecutor { request =>
+      val inFlight = meters.start(
+        request.method,
+        request.url,
+        routeTemplate(request).orNull,
+        MetricsRequestFilter.requestSize(request.body)
+      )
+      val result =
+        try executor(request)
+        catch { case NonFatal(e) => Future.failed(e) }
+      result.onComplete {
+        case Success(response) => inFlight.succeeded(response.status, MetricsRequestFilter.responseSize(response))
+        case Failure(e)        => inFlight.failed(e)
+      }(ExecutionContext.parasitic)
+      result
+    }
+  }
+}
+
+object MetricsRequestFilter {
+
+  /**
+   * Creates a filter that tags every request with the `none` route.
+   */
+  def apply(registry: MeterRegistry): MetricsRequestFilter = {
+    new MetricsRequestFilter(new WSClientMeters(registry), _ => None)
+  }
+
+  /**
+   * Creates a filter that tags requests with the template their URL matches.
+   */
+  def apply(registry: MeterRegistry, routes: RouteTemplates): MetricsRequestFilter = {
+    new MetricsRequestFilter(new WSClientMeters(registry), request => routes.find(request.url))
+  }
+
+  private def requestSize(body: WSBody): Long = body match {
+    case EmptyBody           => 0L
+    case InMemoryBody(bytes) => bytes.length.toLong
+    case _                   => -1L
+  }
+
+  // The header map of a response is built on first access, so the header is read from the AHC response if possible.
+  private def responseSize(response: StandaloneWSResponse): Long = {
+    val contentLength = response.underlying[AnyRef] match {
+      case ahcResponse: AHCResponse => Option(ahcResponse.getHeader("Content-Length"))
+      case _                        => response.header("Content-Length")
+    }
+    contentLength.flatMap(_.toLongOption).getOrElse(-1L)
+  }
+}
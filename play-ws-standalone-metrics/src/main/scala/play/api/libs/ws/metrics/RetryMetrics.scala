@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.metrics
+
+import io.micrometer.core.instrument.FunctionCounter
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.binder.MeterBinder
+import play.api.libs.ws.filters.Retrying
+import play.api.libs.ws.filters.RetryStats
+
+/**
+ * Exports what a [[play.api.libs.ws.filters.Retrying]] did:
+ *
+ *  - `play.ws.client.retry.requests`: a counter of the requests sent, not counting the retries.
+ *  - `play.ws.client.retry.retries`: a counter of the retries sent.
+ *  - `play.ws.client.retry.budget.exhausted`: a counter of the retries not sent because too many were sent already.
+ *
+ * @param retrying the retrying to export the counters of.
+ */
+class RetryMetrics(retrying: Retrying) extends MeterBinder {
+
+  override def bindTo(registry: MeterRegistry): Unit = {
+    counter(registry, "play.ws.client.retry.requests", "The requests sent, not counting the retries")(_.requestCount)
+    counter(registry, "play.ws.client.retry.retries", "The retries sent")(_.retryCount)
+    counter(registry, "play.ws.client.retry.budget.exhausted", "The retries not sent for lack of budget")(
+      _.budgetExhaustedCount
+    )
+  }
+
+  private def counter(registry: MeterRegistry, name: String, description: String)(f: RetryStats => Long): Unit = {
+    FunctionCounter
+      .builder(name, retrying, (r: Retrying) => f(r.stats).toDouble)
+      .description(description)
+      .register(registry)
+  }
+}
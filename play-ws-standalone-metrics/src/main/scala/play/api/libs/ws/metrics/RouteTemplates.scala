@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.metrics
+
+import java.util.Locale
+
+import scala.jdk.CollectionConverters._
+
+/**
+ * Maps the path of a request URL to one of a fixed set of route templates, such as `/users/{id}/orders`. A segment
+ * in braces matches any single non-empty segment, other segments must match exactly. The first matching template
+ * wins.
+ *
+ * {{{
+ * import play.api.libs.ws.metrics.RouteTemplates
+ *
+ * val routes = RouteTemplates("/users/{id}", "/users/{id}/orders/{orderId}")
+ * routes.find("https://api.example.com/users/42?verbose=true") // Some("/users/{id}")
+ * }}}
+ */
+final class RouteTemplates private (templates: Array[String], segments: Array[Array[String]]) {
+
+  /**
+   * Returns the template matching the path of the URL, if there is one.
+   */
+  def find(url: String): Option[String] = {
+    val path = RequestUrl.pathOf(url)
+    var i    = 0
+    while (i < segments.length && !RouteTemplates.matches(segments(i), path)) i += 1
+    if (i < segments.length) Some(templates(i)) else None
+  }
+
+  override def toString: String = templates.mkString("RouteTemplates(", ", ", ")")
+}
+
+object RouteTemplates {
+
+  def apply(templates: String*): RouteTemplates = {
+    val segments = templates.map { template =>
+      template.split('/').filter(_.nonEmpty).map { segment =>
+        // null stands for a variable segment
+        if (segment.startsWith("{") && segment.endsWith("}")) null else segment
+      }
+    }
+    new RouteTemplates(templates.toArray, segments.toArray)
+  }
+
+  /**
+   * Java API
+   */
+  def create(templates: java.util.List[String]): RouteTemplates = apply(templates.asScala.toSeq: _*)
+
+  private def matches(template: Array[String], path: String): Boolean = {
+    var pos     = if (path.startsWith("/")) 1 else 0
+    var i       = 0
+    var matched = true
+    while (matched && i < template.length) {
+      if (pos > path.length) matched = false
+      else {
+        val slash   = path.indexOf('/', pos)
+        val end     = if (slash == -1) path.length else slash
+        val segment = template(i)
+        matched =
+          if (segment == null) end > pos
+          else segment.length == end - pos && path.regionMatches(pos, segment, 0, segment.length)
+        pos = end + 1
+        i += 1
+      }
+    }
+    matched && pos >= path.length
+  }
+}
+
+/**
+ * Picks the parts of a URL the meters are tagged with, without parsing the whole URL.
+ */
+private[metrics] object RequestUrl {
+
+  def hostOf(url: String): String = {
+    val start = authorityStart(url)
+    val end   = authorityEnd(url, start)
+    val at    = url.lastIndexOf('@', end - 1)
+    val host  = if (at >= start) at + 1 else start
+    val hostEnd =
+      if (host < end && url.charAt(host) == '[') {
+        val bracket = url.indexOf(']', host)
+        if (bracket == -1 || bracket >= end) end else bracket + 1
+      } else {
+        val colon = url.indexOf(':', host)
+        if (colon == -1 || colon >= end) end else colon
+      }
+    url.substring(host, hostEnd).toLowerCase(Locale.ROOT)
+  }
+
+  def pathOf(url: String): String = {
+    val start = authorityEnd(url, authorityStart(url))
+    var end   = start
+    while (end < url.length && url.charAt(end) != '?' && url.charAt(end) != '#') end += 1
+    url.substring(start, end)
+  }
+
+  private def authorityStart(url: String): Int = {
+    val scheme = url.indexOf("://")
+    if (scheme == -1) 0 else scheme + 3
+  }
+
+  private def authorityEnd(url: String, start: Int): Int = {
+    var end = start
+    while (end < url.length && url.charAt(end) != '/' && url.charAt(end) != '?' && url.charAt(end) != '#') end += 1
+    end
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.metrics
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+import io.micrometer.core.instrument.Clock
+import io.micrometer.core.instrument.DistributionSummary
+import io.micrometer.core.instrument.Gauge
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.Tags
+import io.micrometer.core.instrument.Timer
+
+/**
+ * The meters of the requests made by WS clients, registered with a Micrometer registry:
+ *
+ *  - `play.ws.client.requests`: a timer of completed requests, with a percentile histogram, tagged with `method`,
+ *    `host`, `route`, `status`, `outcome` and `exception`.
+ *  - `play.ws.client.requests.active`: a gauge of the requests in flight, tagged with `host` and `route`.
+ *  - `play.ws.client.request.size` and `play.ws.client.response.size`: summaries of the body sizes in bytes, tagged
+ *    with `host` and `route`. Only bodies of a known size are recorded.
+ *
+ * The `route` tag is a template supplied by the caller, or `none`, and `host` is the host name without the port, so
+ * that the number of tag values stays bounded however many distinct URLs are requested. Meters are created once per
+ * combination of tags and then looked up, so recording a request does not go through the registry.
+ *
+ * @param registry the registry to register the meters with.
+ */
+final class WSClientMeters(registry: MeterRegistry) {
+  import WSClientMeters._
+
+  private val clock  = registry.config().clock()
+  private val routes = new ConcurrentHashMap[RouteKey, RouteMeters]()
+
+  /**
+   * Starts recording a request.
+   *
+   * @param method the method of the request.
+   * @param url the URL of the request.
+   * @param route the route template of the request, or null if it has none.
+   * @param requestSize the size of the request body in bytes, or -1 if it is not known up front.
+   * @return the request in flight, which must be told how it completed.
+   */
+  def start(method: String, url: String, route: String, requestSize: Long): InFlight = {
+    val key    = RouteKey(RequestUrl.hostOf(url), if (route == null) NoRoute else route)
+    val meters = routes.computeIfAbsent(key, new RouteMeters(registry, _))
+    meters.active.incrementAndGet()
+    if (requestSize >= 0) meters.requestSize.record(requestSize.toDouble)
+    new InFlight(meters, method, clock)
+  }
+}
+
+object WSClientMeters {
+
+  /**
+   * The value of the `route` tag for requests without a route template.
+   */
+  val NoRoute = "none"
+
+  /**
+   * The value of the `status` tag for requests that failed before a response was received.
+   */
+  val ClientError = "CLIENT_ERROR"
+
+  private final case class RouteKey(host: String, route: String)
+
+  private final case class TimerKey(method: String, status: Int, exception: String)
+
+  private final class RouteMeters(registry: MeterRegistry, key: RouteKey) {
+    private val tags = Tags.of("host", key.host, "route", key.route)
+
+    val active = new AtomicInteger()
+
+    Gauge
+      .builder("play.ws.client.requests.active", active, (active: AtomicInteger) => active.get.toDouble)
+      .description("The requests in flight")
+      .tags(tags)
+      .strongReference(true)
+      .register(registry)
+
+    val requestSize: DistributionSummary = DistributionSummary
+      .builder("play.ws.client.request.size")
+      .description("The size of request bodies")
+      .baseUnit("bytes")
+      .tags(tags)
+      .register(registry)
+
+    val responseSize: DistributionSummary = DistributionSummary
+      .builder("play.ws.client.response.size")
+      .description("The size of response bodies, as given by their Content-Length")
+      .baseUnit("bytes")
+      .tags(tags)
+      .register(registry)
+
+    private val timers = new ConcurrentHashMap[TimerKey, Timer]()
+
+    def timer(method: String, status: Int, exception: String): Timer = {
+      timers.computeIfAbsent(
+        TimerKey(method, status, exception),
+        key =>
+          Timer
+            .builder("play.ws.client.requests")
+            .description("The requests made by the client")
+            .tags(tags)
+            .tag("method", key.method)
+            .tag("status", if (key.status < 0) ClientError else key.status.toString)
+            .tag("outcome", outcome(key.status))
+            .tag("exception", key.exception)
+            .publishPercentileHistogram()
+            .register(registry)
+      )
+    }
+  }
+
+  private def outcome(status: Int): String = status / 100 match {
+    case 1 => "INFORMATIONAL"
+    case 2 => "SUCCESS"
+    case 3 => "REDIRECTION"
+    case 4 => "CLIENT_ERROR"
+    case 5 => "SERVER_ERROR"
+    case _ => "UNKNOWN"
+  }
+
+  /**
+   * A request whose completion has not been recorded yet. Only the first completion is recorded.
+   */
+  final class InFlight private[WSClientMeters] (meters: RouteMeters, method: String, clock: Clock) {
+    private val started   = clock.monotonicTime()
+    private val completed = new AtomicBoolean()
+
+    /**
+     * Records a response.
+     *
+     * @param status the status code of the response.
+     * @param responseSize the size of the response body in bytes, or -1 if it is not known.
+     */
+    def succeeded(status: Int, responseSize: Long): Unit = {
+      if (completed.compareAndSet(false, true)) {
+        val elapsed = clock.monotonicTime() - started
+        meters.active.decrementAndGet()
+        if (responseSize >= 0) meters.responseSize.record(responseSize.toDouble)
+        meters.timer(method, status, "none").record(elapsed, TimeUnit.NANOSECONDS)
+      }
+    }
+
+    /**
+     * Records a request that failed without a response.
+     */
+    def failed(cause: Throwable): Unit = {
+      if (completed.compareAndSet(false, true)) {
+        val elapsed = clock.monotonicTime() - started
+        meters.active.decrementAndGet()
+        meters.timer(method, -1, cause.getClass.getSimpleName).record(elapsed, TimeUnit.NANOSECONDS)
+      }
+    }
+  }
+}
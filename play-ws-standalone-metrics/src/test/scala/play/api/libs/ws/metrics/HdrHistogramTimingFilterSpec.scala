@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.metrics
+
+import java.net.URI
+
+import org.specs2.mutable.Specification
+import play.api.libs.ws.WSRequestExecutor
+import play.api.libs.ws.ahc.metrics.RequestTiming
+
+import scala.concurrent.Future
+import scala.concurrent.duration._
+
+class HdrHistogramTimingFilterSpec extends Specification {
+
+  "HdrHistogramTimingFilter" should {
+
+    "leave the requests it filters alone" in {
+      val executor = WSRequestExecutor(_ => Future.never)
+      new HdrHistogramTimingFilter()(executor) must beTheSameAs(executor)
+    }
+
+    "record the phases of each request" in {
+      val filter = new HdrHistogramTimingFilter(10.seconds, 2)
+      val timing = RequestTiming(
+        method = "GET",
+        uri = URI.create("http://localhost:9000/resource"),
+        statusCode = Some(200),
+        nameResolution = None,
+        connect = Some(2.millis),
+        tlsHandshake = None,
+        reusedConnection = false,
+        timeToFirstByte = Some(5.millis),
+        bodyTransfer = Some(1.minute),
+        total = 8.millis,
+        failure = None
+      )
+
+      filter.onRequestTiming(timing)
+      val histograms = filter.intervalHistograms()
+
+      (histograms.nameResolution.getTotalCount must_== 0)
+        .and(histograms.connect.getTotalCount must_== 1)
+        .and(histograms.bodyTransfer.getMaxValue must beGreaterThanOrEqualTo(9000000L))
+        .and(filter.intervalHistograms().total.getTotalCount must_== 0)
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.metrics
+
+import java.net.ConnectException
+import java.util.Collections
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.Tags
+import org.apache.pekko.stream.Materializer
+import org.mockito.Mockito
+import org.specs2.mutable.Specification
+import play.api.libs.ws.DefaultBodyWritables._
+import play.api.libs.ws.StandaloneWSResponse
+import play.api.libs.ws.WSRequestExecutor
+import play.api.libs.ws.ahc.StandaloneAhcWSClient
+import play.api.libs.ws.ahc.StandaloneAhcWSRequest
+import play.api.libs.ws.ahc.StandaloneAhcWSResponse
+import play.shaded.ahc.io.netty.handler.codec.http.DefaultHttpHeaders
+import play.shaded.ahc.io.netty.handler.codec.http.DefaultHttpResponse
+import play.shaded.ahc.io.netty.handler.codec.http.HttpResponseStatus
+import play.shaded.ahc.io.netty.handler.codec.http.HttpVersion
+import play.shaded.ahc.org.asynchttpclient.HttpResponseBodyPart
+import play.shaded.ahc.org.asynchttpclient.netty.NettyResponse
+import play.shaded.ahc.org.asynchttpclient.netty.NettyResponseStatus
+import play.shaded.ahc.org.asynchttpclient.uri.Uri
+
+import scala.concurrent.Future
+import scala.concurrent.Promise
+
+class MetricsRequestFilterSpec extends Specification {
+
+  implicit val materializer: Materializer = Mockito.mock(classOf[Materializer])
+
+  val client: StandaloneAhcWSClient = Mockito.mock(classOf[StandaloneAhcWSClient])
+
+  def request(url: String): StandaloneAhcWSRequest = StandaloneAhcWSRequest(client, url)
+
+  def response(status: HttpResponseStatus, contentLength: Option[Int]): StandaloneWSResponse = {
+    val headers = new DefaultHttpHeaders()
+    contentLength.foreach(length => headers.add("Content-Length", length.toString))
+    val responseStatus = new NettyResponseStatus(
+      Uri.create("http://example.com"),
+      new DefaultHttpResponse(HttpVersion.HTTP_1_1, status),
+      null
+    )
+    StandaloneAhcWSResponse(new NettyResponse(responseStatus, headers, Collections.emptyList[HttpResponseBodyPart]()))
+  }
+
+  def requestTimer(registry: MeterRegistry, tags: String*) = {
+    registry.find("play.ws.client.requests").tags(Tags.of(tags: _*)).timer()
+  }
+
+  "MetricsRequestFilter" should {
+
+    "time requests by host and route template" in {
+      val registry = new SimpleMeterRegistry()
+      val filter   = MetricsRequestFilter(registry, RouteTemplates("/users/{id}"))
+      val executor = filter(WSRequestExecutor(_ => Future.successful(response(HttpResponseStatus.OK, None))))
+
+      executor(request("http://Example.com:9000/users/1"))
+      executor(request("http://example.com/users/2?verbose=true"))
+
+      val timer = requestTimer(registry, "host", "example.com", "route", "/users/{id}", "method", "GET")
+      (timer must not(beNull))
+        .and(timer.count must_== 2)
+        .and(timer.getId.getTag("status") must_== "200")
+        .and(timer.getId.getTag("outcome") must_== "SUCCESS")
+        .and(timer.getId.getTag("exception") must_== "none")
+    }
+
+    "tag requests without a route template with none" in {
+      val registry = new SimpleMeterRegistry()
+      val executor = MetricsRequestFilter(registry)(
+        WSRequestExecutor(_ => Future.successful(response(HttpResponseStatus.NOT_FOUND, None)))
+      )
+
+      executor(request("http://example.com/users/1"))
+
+      requestTimer(registry, "route", "none", "status", "404", "outcome", "CLIENT_ERROR").count must_== 1
+    }
+
+    "record failed requests" in {
+      val registry = new SimpleMeterRegistry()
+      val executor = MetricsRequestFilter(registry)(
+        WSRequestExecutor(_ => Future.failed(new ConnectException("Connection refused")))
+      )
+
+      executor(request("http://example.com/"))
+
+      requestTimer(registry, "status", "CLIENT_ERROR", "exception", "ConnectException").count must_== 1
+    }
+
+    "record the requests in flight" in {
+      val registry = new SimpleMeterRegistry()
+      val result   = Promise[StandaloneWSResponse]()
+      val executor = MetricsRequestFilter(registry)(WSRequestExecutor(_ => result.future))
+
+      executor(request("http://example.com/"))
+      val active = registry.get("play.ws.client.requests.active").tag("host", "example.com").gauge()
+      val before = active.value
+      result.success(response(HttpResponseStatus.OK, None))
+
+      (before must_== 1.0).and(active.value must_== 0.0)
+    }
+
+    "record the body sizes" in {
+      val registry = new SimpleMeterRegistry()
+      val executor = MetricsRequestFilter(registry)(
+        WSRequestExecutor(_ => Future.successful(response(HttpResponseStatus.OK, Some(128))))
+      )
+
+      executor(request("http://example.com/").withBody("hello"))
+
+      (registry.get("play.ws.client.request.size").summary().totalAmount must_== 5.0)
+        .and(registry.get("play.ws.client.response.size").summary().totalAmount must_== 128.0)
+    }
+  }
+}
@@ -6,6 +6,10 @@ package play.api.libs.ws
 
 import javax.xml.XMLConstants
 import javax.xml.parsers.SAXParserFactory
+import javax.xml.stream.XMLInputFactory
+
+import com.fasterxml.aalto.AsyncXMLInputFactory
+import com.fasterxml.aalto.stax.InputFactoryImpl
 
 import scala.xml.Elem
 import scala.xml.factory.XMLLoader
@@ -32,4 +36,13 @@ object XML {
    */
   def parser: XMLLoader[Elem] = scala.xml.XML.withSAXParser(xercesSaxParserFactory.newSAXParser())
 
+  /*
+   * The non-blocking parser factory used by XMLStreamParser, with the StAX equivalents of the features above:
+   * no DTD processing and no external entities. StAX has no switch to reject a DOCTYPE, so XMLStreamParser fails
+   * when it reads one.
+   */
+  private[play] val asyncInputFactory: AsyncXMLInputFactory = new InputFactoryImpl()
+  asyncInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, java.lang.Boolean.FALSE)
+  asyncInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, java.lang.Boolean.FALSE)
+
 }
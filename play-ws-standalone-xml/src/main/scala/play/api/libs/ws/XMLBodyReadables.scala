@@ -6,6 +6,8 @@ package play.api.libs.ws
 
 import java.io.ByteArrayInputStream
 
+import org.apache.pekko.stream.scaladsl.Source
+
 import scala.xml.InputSource
 
 trait XMLBodyReadables {
@@ -28,6 +30,41 @@ trait XMLBodyReadables {
     XML.parser.load(new InputSource(new ByteArrayInputStream(response.bodyAsBytes.toArray)))
   }
 
+  /**
+   * Converts a response body into a stream of XML parse events, read as the body arrives:
+   *
+   * {{{
+   * import org.apache.pekko.stream.scaladsl.Source
+   *
+   * import play.api.libs.ws.StandaloneWSResponse
+   * import play.api.libs.ws.XMLBodyReadables._
+   * import play.api.libs.ws.XMLStreamParser.ParseEvent
+   *
+   * def foo(resp: StandaloneWSResponse): Source[ParseEvent, ?] = resp.body[Source[ParseEvent, ?]]
+   * }}}
+   */
+  implicit val readableAsXmlEvents: BodyReadable[Source[XMLStreamParser.ParseEvent, ?]] = BodyReadable { response =>
+    response.bodyAsSource.via(XMLStreamParser.events)
+  }
+
+  /**
+   * Converts a response body into a stream of the elements found at the given path, so that large feeds can be
+   * processed one element at a time:
+   *
+   * {{{
+   * import org.apache.pekko.stream.scaladsl.Source
+   * import scala.xml.Elem
+   *
+   * import play.api.libs.ws.StandaloneWSResponse
+   * import play.api.libs.ws.XMLBodyReadables._
+   *
+   * def entries(resp: StandaloneWSResponse): Source[Elem, ?] = resp.body(readableAsXmlSubtrees("feed", "entry"))
+   * }}}
+   */
+  def readableAsXmlSubtrees(path: String*): BodyReadable[Source[Elem, ?]] = BodyReadable { response =>
+    response.bodyAsSource.via(XMLStreamParser.subtrees(path: _*))
+  }
+
 }
 
 object XMLBodyReadables extends XMLBodyReadables
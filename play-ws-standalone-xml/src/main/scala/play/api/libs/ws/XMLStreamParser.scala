@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws
+
+import javax.xml.stream.XMLStreamConstants
+import javax.xml.stream.XMLStreamException
+import javax.xml.stream.XMLStreamReader
+
+import com.fasterxml.aalto.AsyncXMLStreamReader
+import org.apache.pekko.NotUsed
+import org.apache.pekko.stream.Attributes
+import org.apache.pekko.stream.FlowShape
+import org.apache.pekko.stream.Inlet
+import org.apache.pekko.stream.Outlet
+import org.apache.pekko.stream.scaladsl.Flow
+import org.apache.pekko.stream.stage.GraphStage
+import org.apache.pekko.stream.stage.GraphStageLogic
+import org.apache.pekko.stream.stage.InHandler
+import org.apache.pekko.stream.stage.OutHandler
+import org.apache.pekko.util.ByteString
+
+import scala.collection.mutable
+import scala.xml.Elem
+import scala.xml.MetaData
+import scala.xml.NamespaceBinding
+import scala.xml.Node
+import scala.xml.Null
+import scala.xml.PCData
+import scala.xml.PrefixedAttribute
+import scala.xml.Text
+import scala.xml.TopScope
+import scala.xml.UnprefixedAttribute
+
+/**
+ * Parses XML incrementally from bytes with Aalto's non-blocking parser, so that a body can be processed as it
+ * arrives instead of being loaded into a single document first.
+ *
+ * The parser is hardened like [[XML.parser]]: external entities are not resolved and DOCTYPE declarations are
+ * rejected.
+ *
+ * {{{
+ * import play.api.libs.ws.XMLStreamParser
+ *
+ * def titles(response: play.api.libs.ws.StandaloneWSResponse) =
+ *   response.bodyAsSource.via(XMLStreamParser.subtrees("feed", "entry")).map(entry => (entry \ "title").text)
+ * }}}
+ */
+object XMLStreamParser {
+
+  sealed trait ParseEvent
+
+  case object StartDocument extends ParseEvent
+
+  case object EndDocument extends ParseEvent
+
+  final case class StartElement(
+      localName: String,
+      prefix: Option[String],
+      namespace: Option[String],
+      attributes: Map[String, String]
+  ) extends ParseEvent
+
+  final case class EndElement(localName: String) extends ParseEvent
+
+  /**
+   * Text content of an element. The text of a single element may be split across several events.
+   */
+  final case class Characters(text: String) extends ParseEvent
+
+  /**
+   * A flow that emits the parse events of a document. Comments and processing instructions are skipped.
+   */
+  def events: Flow[ByteString, ParseEvent, NotUsed] =
+    Flow.fromGraph(new XMLStreamParserStage[ParseEvent]("XMLStreamParser.events", () => new EventCollector))
+
+  /**
+   * A flow that emits every element found at the given path of local names, starting from the root element, as a
+   * `scala.xml.Elem`. Only the element being read is held in memory.
+   */
+  def subtrees(path: String*): Flow[ByteString, Elem, NotUsed] = {
+    val target = path.toList
+    Flow.fromGraph(new XMLStreamParserStage[Elem]("XMLStreamParser.subtrees", () => new SubtreeCollector(target)))
+  }
+
+  private final class XMLStreamParserStage[T](name: String, newCollector: () => Collector[T])
+      extends GraphStage[FlowShape[ByteString, T]] {
+    val in: Inlet[ByteString] = Inlet(s"$name.in")
+    val out: Outlet[T]        = Outlet(s"$name.out")
+
+    override val shape: FlowShape[ByteString, T] = FlowShape(in, out)
+
+    override def createLogic(inheritedAttributes: Attributes): GraphStageLogic =
+      new GraphStageLogic(shape) with InHandler with OutHandler {
+        private val parser    = XML.asyncInputFactory.createAsyncForByteArray()
+        private val collector = newCollector()
+
+        override def onPush(): Unit = {
+          val bytes = grab(in).toArrayUnsafe()
+          if (bytes.nonEmpty) {
+            parser.getInputFeeder.feedInput(bytes, 0, bytes.length)
+            advance()
+          }
+          if (collector.ready.nonEmpty) push(out, collector.ready.dequeue()) else pull(in)
+        }
+
+        override def onPull(): Unit = {
+          if (collector.ready.nonEmpty) push(out, collector.ready.dequeue()) else pull(in)
+        }
+
+        override def onUpstreamFinish(): Unit = {
+          parser.getInputFeeder.endOfInput()
+          advance()
+          emitMultiple(out, collector.ready.iterator, () => completeStage())
+        }
+
+        // Reads events until the parser needs more input, so that it is ready to be fed again.
+        private def advance(): Unit = {
+          var event = if (parser.hasNext) parser.next() else AsyncXMLStreamReader.EVENT_INCOMPLETE
+          while (event != AsyncXMLStreamReader.EVENT_INCOMPLETE) {
+            if (event == XMLStreamConstants.DTD) {
+              throw new XMLStreamException("DOCTYPE is disallowed", parser.getLocation)
+            }
+            collector.onEvent(parser, event)
+            event = if (parser.hasNext) parser.next() else AsyncXMLStreamReader.EVENT_INCOMPLETE
+          }
+        }
+
+        setHandlers(in, out, this)
+      }
+  }
+
+  private sealed abstract class Collector[T] {
+    val ready: mutable.Queue[T] = mutable.Queue.empty[T]
+
+    def onEvent(reader: XMLStreamReader, event: Int): Unit
+  }
+
+  private final class EventCollector extends Collector[ParseEvent] {
+    override def onEvent(reader: XMLStreamReader, event: Int): Unit = event match {
+      case XMLStreamConstants.START_DOCUMENT =>
+        ready.enqueue(StartDocument)
+      case XMLStreamConstants.END_DOCUMENT =>
+        ready.enqueue(EndDocument)
+      case XMLStreamConstants.START_ELEMENT =>
+        val attributes = (0 until reader.getAttributeCount).map { i =>
+          reader.getAttributeLocalName(i) -> reader.getAttributeValue(i)
+        }.toMap
+        val prefix    = Option(reader.getPrefix).filter(_.nonEmpty)
+        val namespace = Option(reader.getNamespaceURI).filter(_.nonEmpty)
+        ready.enqueue(StartElement(reader.getLocalName, prefix, namespace, attributes))
+      case XMLStreamConstants.END_ELEMENT =>
+        ready.enqueue(EndElement(reader.getLocalName))
+      case XMLStreamConstants.CHARACTERS | XMLStreamConstants.CDATA | XMLStreamConstants.SPACE =>
+        ready.enqueue(Characters(reader.getText))
+      case _ =>
+    }
+  }
+
+  /**
+   * Builds the elements found at the target path. The namespace scope of every open element is tracked, so that an
+   * emitted element keeps the namespaces declared by its ancestors.
+   */
+  private final class SubtreeCollector(target: List[String]) extends Collector[Elem] {
+    private val depth      = target.length
+    private var path       = List.empty[String]
+    private var scopes     = List[NamespaceBinding](TopScope)
+    private var openNodes  = List.empty[OpenElement]
+    private var pathLength = 0
+
+    override def onEvent(reader: XMLStreamReader, event: Int): Unit = event match {
+      case XMLStreamConstants.START_ELEMENT =>
+        path = reader.getLocalName :: path
+        pathLength += 1
+        scopes = scope(reader, scopes.head) :: scopes
+        if (openNodes.nonEmpty || (pathLength == depth && path.reverse == target)) {
+          openNodes = new OpenElement(reader, scopes.head) :: openNodes
+        }
+      case XMLStreamConstants.END_ELEMENT =>
+        path = path.tail
+        pathLength -= 1
+        scopes = scopes.tail
+        if (openNodes.nonEmpty) {
+          val elem = openNodes.head.result()
+          openNodes = openNodes.tail
+          if (openNodes.isEmpty) ready.enqueue(elem) else openNodes.head.children += elem
+        }
+      case XMLStreamConstants.CHARACTERS | XMLStreamConstants.SPACE if openNodes.nonEmpty =>
+        openNodes.head.children += Text(reader.getText)
+      case XMLStreamConstants.CDATA if openNodes.nonEmpty =>
+        openNodes.head.children += PCData(reader.getText)
+      case _ =>
+    }
+
+    private def scope(reader: XMLStreamReader, parent: NamespaceBinding): NamespaceBinding = {
+      (0 until reader.getNamespaceCount).foldLeft(parent) { (scope, i) =>
+        val prefix = Option(reader.getNamespacePrefix(i)).filter(_.nonEmpty).orNull
+        NamespaceBinding(prefix, reader.getNamespaceURI(i), scope)
+      }
+    }
+  }
+
+  private final class OpenElement(reader: XMLStreamReader, scope: NamespaceBinding) {
+    private val prefix     = Option(reader.getPrefix).filter(_.nonEmpty).orNull
+    private val label      = reader.getLocalName
+    private val attributes = (reader.getAttributeCount - 1 to 0 by -1).foldLeft[MetaData](Null) { (next, i) =>
+      val attributePrefix = reader.getAttributePrefix(i)
+      val key             = reader.getAttributeLocalName(i)
+      val value           = reader.getAttributeValue(i)
+      if (attributePrefix == null || attributePrefix.isEmpty) new UnprefixedAttribute(key, value, next)
+      else new PrefixedAttribute(attributePrefix, key, value, next)
+    }
+
+    val children: mutable.ArrayBuffer[Node] = mutable.ArrayBuffer.empty[Node]
+
+    def result(): Elem = Elem(prefix, label, attributes, scope, children.isEmpty, children.toSeq: _*)
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.libs.ws;
+
+import java.util.Optional;
+
+/**
+ * A request executed in a batch, with its response or its failure.
+ *
+ * @param <R> the type of the request.
+ * @see StandaloneWSClient#executeAll(Iterable, BulkSettings)
+ */
+public final class BulkResult<R extends StandaloneWSRequest> {
+
+    private final R request;
+    private final StandaloneWSResponse response;
+    private final Throwable failure;
+
+    BulkResult(R request, StandaloneWSResponse response, Throwable failure) {
+        this.request = request;
+        this.response = response;
+        this.failure = failure;
+    }
+
+    public R getRequest() {
+        return request;
+    }
+
+    /**
+     * @return the response, if the request succeeded.
+     */
+    public Optional<StandaloneWSResponse> getResponse() {
+        return Optional.ofNullable(response);
+    }
+
+    /**
+     * @return the failure, if the request failed.
+     */
+    public Optional<Throwable> getFailure() {
+        return Optional.ofNullable(failure);
+    }
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.libs.ws;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Configures the execution of many requests at once.
+ *
+ * <pre>{@code
+ * BulkSettings settings = new BulkSettings().withParallelismPerHost(4).withOrdered(true);
+ * }</pre>
+ *
+ * @see StandaloneWSClient#executeAll(Iterable, BulkSettings)
+ */
+public final class BulkSettings {
+
+    private final int parallelism;
+    private final int parallelismPerHost;
+    private final boolean ordered;
+    private final List<WSRequestFilter> filters;
+
+    /**
+     * Creates the default settings: 64 requests in flight, at most 8 per host, emitted as they complete.
+     */
+    public BulkSettings() {
+        this(64, 8, false, Collections.emptyList());
+    }
+
+    private BulkSettings(int parallelism, int parallelismPerHost, boolean ordered, List<WSRequestFilter> filters) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        if (parallelismPerHost < 1) {
+            throw new IllegalArgumentException("parallelismPerHost must be at least 1");
+        }
+        this.parallelism = parallelism;
+        this.parallelismPerHost = parallelismPerHost;
+        this.ordered = ordered;
+        this.filters = filters;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int getParallelismPerHost() {
+        return parallelismPerHost;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    public List<WSRequestFilter> getFilters() {
+        return filters;
+    }
+
+    /**
+     * @param parallelism how many requests can be in flight at once.
+     * @return new settings with the parallelism.
+     */
+    public BulkSettings withParallelism(int parallelism) {
+        return new BulkSettings(parallelism, parallelismPerHost, ordered, filters);
+    }
+
+    /**
+     * @param parallelismPerHost how many requests to the same host can be in flight at once. Keeping it at or below
+     *                           the connections allowed per host lets the requests reuse the pooled connections.
+     * @return new settings with the parallelism per host.
+     */
+    public BulkSettings withParallelismPerHost(int parallelismPerHost) {
+        return new BulkSettings(parallelism, parallelismPerHost, ordered, filters);
+    }
+
+    /**
+     * @param ordered whether the results are emitted in the order of the requests, rather than as they complete.
+     * @return new settings with the ordering.
+     */
+    public BulkSettings withOrdered(boolean ordered) {
+        return new BulkSettings(parallelism, parallelismPerHost, ordered, filters);
+    }
+
+    /**
+     * @param filter a filter to apply to every request of the batch. The filters are composed once for the batch.
+     * @return new settings with the filter added.
+     */
+    public BulkSettings withFilter(WSRequestFilter filter) {
+        List<WSRequestFilter> added = new ArrayList<>(filters);
+        added.add(filter);
+        return new BulkSettings(parallelism, parallelismPerHost, ordered, Collections.unmodifiableList(added));
+    }
+}
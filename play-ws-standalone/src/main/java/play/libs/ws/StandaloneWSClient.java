@@ -4,7 +4,17 @@
 
 package play.libs.ws;
 
+import org.apache.pekko.NotUsed;
+import org.apache.pekko.stream.Materializer;
+import org.apache.pekko.stream.javadsl.Sink;
+import org.apache.pekko.stream.javadsl.Source;
+import play.api.libs.ws.BulkExecution;
+import scala.jdk.javaapi.FutureConverters;
+
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
 /**
  * This is the WS Client interface.
@@ -28,6 +38,86 @@ public interface StandaloneWSClient extends java.io.Closeable {
      */
     StandaloneWSRequest url(String url);
 
+    /**
+     * Executes many requests, with a bounded parallelism per host. The results are emitted with their requests, and a
+     * failed request does not fail the stream.
+     *
+     * <pre>{@code
+     * List<StandaloneWSRequest> requests = ids.stream()
+     *     .map(id -> client.url("https://api.example.com/users/" + id))
+     *     .collect(Collectors.toList());
+     * client.executeAll(requests, new BulkSettings().withParallelismPerHost(4))
+     *     .runForeach(result -> System.out.println(result.getResponse().map(r -> r.getStatus())), materializer);
+     * }</pre>
+     *
+     * @param requests the requests to execute, with their method set.
+     * @param settings how to execute the requests.
+     * @param <R> the type of the requests.
+     * @return the requests with their responses or failures.
+     */
+    default <R extends StandaloneWSRequest> Source<BulkResult<R>, NotUsed> executeAll(
+            Iterable<R> requests,
+            BulkSettings settings
+    ) {
+        return executeAll(Source.from(requests), settings);
+    }
+
+    /**
+     * Executes many requests, with a bounded parallelism per host, and collects the results.
+     *
+     * @param requests the requests to execute, with their method set.
+     * @param settings how to execute the requests.
+     * @param materializer the materializer to run the requests with.
+     * @param <R> the type of the requests.
+     * @return the requests with their responses or failures, once they all completed.
+     */
+    default <R extends StandaloneWSRequest> CompletionStage<List<BulkResult<R>>> executeAll(
+            Iterable<R> requests,
+            BulkSettings settings,
+            Materializer materializer
+    ) {
+        return executeAll(requests, settings).runWith(Sink.seq(), materializer);
+    }
+
+    /**
+     * Executes a stream of requests, with a bounded parallelism per host.
+     *
+     * @param requests the requests to execute, with their method set.
+     * @param settings how to execute the requests.
+     * @param <R> the type of the requests.
+     * @param <M> the materialized value of the requests.
+     * @return the requests with their responses or failures.
+     */
+    default <R extends StandaloneWSRequest, M> Source<BulkResult<R>, M> executeAll(
+            Source<R, M> requests,
+            BulkSettings settings
+    ) {
+        // The filters are composed once for the batch, the first filter being the outermost.
+        WSRequestExecutor composed = request -> request.execute().thenApply(response -> response);
+        List<WSRequestFilter> filters = settings.getFilters();
+        for (int i = filters.size() - 1; i >= 0; i--) {
+            composed = filters.get(i).apply(composed);
+        }
+        WSRequestExecutor executor = composed;
+        return BulkExecution.source(
+                requests.asScala(),
+                settings.getParallelism(),
+                settings.getParallelismPerHost(),
+                settings.isOrdered(),
+                (R request) -> request.getUrl(),
+                (R request) -> FutureConverters.asScala(executor.apply(request))
+        ).asJava().map(result -> {
+            if (result._2().isSuccess()) {
+                return new BulkResult<>(result._1(), result._2().get(), null);
+            }
+            Throwable failure = result._2().failed().get();
+            if (failure instanceof CompletionException && failure.getCause() != null) {
+                failure = failure.getCause();
+            }
+            return new BulkResult<>(result._1(), null, failure);
+        });
+    }
+
     /**
      * Closes this client, and releases underlying resources.
      * <p>
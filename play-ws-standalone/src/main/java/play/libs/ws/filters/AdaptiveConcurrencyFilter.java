@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.libs.ws.filters;
+
+import play.api.libs.ws.filters.AdaptiveConcurrencyLimiter;
+import play.libs.ws.StandaloneWSResponse;
+import play.libs.ws.WSRequestExecutor;
+import play.libs.ws.WSRequestFilter;
+import scala.jdk.javaapi.FutureConverters;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Limits the requests in flight to each host with an {@link AdaptiveConcurrencyLimiter}. Requests over the limit of
+ * their host wait in its queue, or fail with a
+ * {@link play.api.libs.ws.filters.ConcurrencyLimitExceededException} if the queue is full.
+ *
+ * <pre>{@code
+ * AdaptiveConcurrencyFilter filter = new AdaptiveConcurrencyFilter(new AdaptiveConcurrencyLimiter());
+ * client.url("https://api.example.com/users").setRequestFilter(filter).get();
+ * }</pre>
+ */
+public class AdaptiveConcurrencyFilter implements WSRequestFilter {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public AdaptiveConcurrencyFilter() {
+        this(new AdaptiveConcurrencyLimiter());
+    }
+
+    /**
+     * @param limiter the limiter holding the limit of each host.
+     */
+    public AdaptiveConcurrencyFilter(AdaptiveConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public WSRequestExecutor apply(WSRequestExecutor executor) {
+        return request -> FutureConverters.asJava(limiter.acquire(request.getUrl())).thenCompose(permit -> {
+            CompletionStage<StandaloneWSResponse> result;
+            try {
+                result = executor.apply(request);
+            } catch (RuntimeException e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+            result.whenComplete((response, t) -> {
+                if (t == null) {
+                    permit.completed(response.getStatus());
+                } else {
+                    permit.failed(t instanceof CompletionException && t.getCause() != null ? t.getCause() : t);
+                }
+            });
+            return result;
+        });
+    }
+}
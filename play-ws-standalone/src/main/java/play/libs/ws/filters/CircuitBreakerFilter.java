@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.libs.ws.filters;
+
+import play.api.libs.ws.filters.CircuitBreakers;
+import play.libs.ws.StandaloneWSRequest;
+import play.libs.ws.StandaloneWSResponse;
+import play.libs.ws.WSRequestExecutor;
+import play.libs.ws.WSRequestFilter;
+import scala.jdk.javaapi.FutureConverters;
+
+import java.util.function.Function;
+
+/**
+ * Sends the requests through the circuit breaker of their host, or of the key given by a function.
+ *
+ * <pre>{@code
+ * CircuitBreakerConfig config = CircuitBreakerConfigFactory.forConfig(ConfigFactory.load(), classLoader);
+ * CircuitBreakers breakers = new CircuitBreakers(config, materializer);
+ * client.url("https://api.example.com/users").setRequestFilter(new CircuitBreakerFilter(breakers)).get();
+ * }</pre>
+ *
+ * The same {@link CircuitBreakers} should be shared by all the requests of a client, so that they share its circuits.
+ */
+public class CircuitBreakerFilter implements WSRequestFilter {
+
+    private final CircuitBreakers breakers;
+    private final Function<StandaloneWSRequest, String> key;
+
+    /**
+     * Creates a filter with a circuit per host, including the port.
+     *
+     * @param breakers the circuit breakers of the hosts.
+     */
+    public CircuitBreakerFilter(CircuitBreakers breakers) {
+        this(breakers, request -> CircuitBreakers.hostOf(request.getUrl()));
+    }
+
+    /**
+     * @param breakers the circuit breakers of the keys.
+     * @param key returns the key of the circuit of a request.
+     */
+    public CircuitBreakerFilter(CircuitBreakers breakers, Function<StandaloneWSRequest, String> key) {
+        this.breakers = breakers;
+        this.key = key;
+    }
+
+    @Override
+    public WSRequestExecutor apply(WSRequestExecutor executor) {
+        return request -> FutureConverters.asJava(breakers.execute(
+                key.apply(request),
+                () -> FutureConverters.asScala(executor.apply(request)),
+                StandaloneWSResponse::getStatus
+        ));
+    }
+}
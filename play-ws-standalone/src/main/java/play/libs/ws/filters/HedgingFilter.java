@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.libs.ws.filters;
+
+import play.api.libs.ws.CancellableFuture;
+import play.api.libs.ws.filters.Hedging;
+import play.libs.ws.StandaloneWSResponse;
+import play.libs.ws.WSRequestExecutor;
+import play.libs.ws.WSRequestFilter;
+import scala.jdk.javaapi.FutureConverters;
+import scala.runtime.BoxedUnit;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Hedges the requests with {@link Hedging}, if their method can be hedged.
+ *
+ * The request that loses the race is only aborted if the filter is the last one added to the request, so that it gets
+ * the future of the client itself. Behind other filters, the loser runs to completion and the body of its response is
+ * cancelled.
+ *
+ * <pre>{@code
+ * client.url("https://api.example.com/users").setRequestFilter(new HedgingFilter(hedging)).get();
+ * }</pre>
+ *
+ * The same {@link Hedging} should be shared by all the requests to a service, so that they share its budget and
+ * latencies.
+ */
+public class HedgingFilter implements WSRequestFilter {
+
+    private final Hedging hedging;
+
+    /**
+     * @param hedging decides when to hedge and how many hedges can be sent.
+     */
+    public HedgingFilter(Hedging hedging) {
+        this.hedging = hedging;
+    }
+
+    @Override
+    public WSRequestExecutor apply(WSRequestExecutor executor) {
+        return request -> {
+            if (!hedging.hedges(request.getMethod())) {
+                return executor.apply(request);
+            }
+            return FutureConverters.asJava(hedging.execute(() -> {
+                CompletionStage<StandaloneWSResponse> result = executor.apply(request);
+                return CancellableFuture.apply(
+                        FutureConverters.asScala(result),
+                        () -> result.toCompletableFuture().cancel(true)
+                );
+            }, response -> {
+                hedging.cancelBody(response.getBodyAsSource().asScala());
+                return BoxedUnit.UNIT;
+            }));
+        };
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.libs.ws.filters;
+
+import play.api.libs.ws.filters.Retrying;
+import play.libs.ws.SourceBodyWritable;
+import play.libs.ws.StandaloneWSResponse;
+import play.libs.ws.WSRequestExecutor;
+import play.libs.ws.WSRequestFilter;
+import scala.jdk.javaapi.FutureConverters;
+import scala.jdk.javaapi.OptionConverters;
+import scala.runtime.BoxedUnit;
+
+/**
+ * Retries the requests with {@link Retrying}. Requests with a {@link SourceBodyWritable} body are never retried, as
+ * their body can only be read once. Empty and in memory bodies are sent again as they are. The body of a response
+ * that is retried is cancelled, which releases the connection of a streamed response.
+ *
+ * <pre>{@code
+ * client.url("https://api.example.com/users").setRequestFilter(new RetryFilter(retrying)).get();
+ * }</pre>
+ *
+ * The same {@link Retrying} should be shared by all the requests of a client, so that they share its budget.
+ */
+public class RetryFilter implements WSRequestFilter {
+
+    private final Retrying retrying;
+
+    /**
+     * @param retrying decides which requests to retry and when.
+     */
+    public RetryFilter(Retrying retrying) {
+        this.retrying = retrying;
+    }
+
+    @Override
+    public WSRequestExecutor apply(WSRequestExecutor executor) {
+        return request -> {
+            if (request.getBody().filter(body -> body instanceof SourceBodyWritable).isPresent()) {
+                return executor.apply(request);
+            }
+            return FutureConverters.asJava(retrying.execute(
+                    request.getMethod(),
+                    () -> FutureConverters.asScala(executor.apply(request)),
+                    StandaloneWSResponse::getStatus,
+                    response -> OptionConverters.toScala(response.getSingleHeader("Retry-After")),
+                    response -> {
+                        retrying.cancelBody(response.getBodyAsSource().asScala());
+                        return BoxedUnit.UNIT;
+                    }
+            ));
+        };
+    }
+}
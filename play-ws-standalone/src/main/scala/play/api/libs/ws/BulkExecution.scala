@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws
+
+import org.apache.pekko.NotUsed
+import org.apache.pekko.stream.Attributes
+import org.apache.pekko.stream.FlowShape
+import org.apache.pekko.stream.Inlet
+import org.apache.pekko.stream.Outlet
+import org.apache.pekko.stream.scaladsl.Flow
+import org.apache.pekko.stream.scaladsl.Source
+import org.apache.pekko.stream.stage.GraphStage
+import org.apache.pekko.stream.stage.GraphStageLogic
+import org.apache.pekko.stream.stage.InHandler
+import org.apache.pekko.stream.stage.OutHandler
+
+import scala.collection.mutable
+import scala.concurrent.ExecutionContext
+import scala.concurrent.Future
+import scala.util.Success
+import scala.util.Try
+import scala.util.control.NonFatal
+
+/**
+ * Configures the execution of many requests at once, see [[StandaloneWSClient.executeAll]].
+ *
+ * @param parallelism how many requests can be in flight at once.
+ * @param parallelismPerHost how many requests to the same host can be in flight at once. Keeping it at or below the
+ *                           connections allowed per host lets the requests reuse the pooled connections, instead of
+ *                           opening new ones that are closed again once the batch is done.
+ * @param ordered whether the results are emitted in the order of the requests. Otherwise they are emitted as they
+ *                complete, so that a slow request does not hold back the results of the others.
+ * @param filters the filters to apply to every request of the batch. They are composed once for the whole batch.
+ */
+case class BulkSettings(
+    parallelism: Int = 64,
+    parallelismPerHost: Int = 8,
+    ordered: Boolean = false,
+    filters: Seq[WSRequestFilter] = Nil
+) {
+  require(parallelism >= 1, "parallelism must be at least 1")
+  require(parallelismPerHost >= 1, "parallelismPerHost must be at least 1")
+}
+
+/**
+ * Executes a stream of requests with a bounded parallelism per host. This backs the bulk APIs of the Scala and Java
+ * clients, which should be used instead.
+ */
+object BulkExecution {
+
+  /**
+   * Executes the requests and emits each with its result.
+   *
+   * @param requests the requests to execute.
+   * @param parallelism how many requests can be in flight at once.
+   * @param parallelismPerHost how many requests to the same host can be in flight at once.
+   * @param ordered whether the results are emitted in the order of the requests.
+   * @param url returns the URL of a request.
+   * @param execute executes a request.
+   */
+  def source[R, T, M](requests: Source[R, M], parallelism: Int, parallelismPerHost: Int, ordered: Boolean)(
+      url: R => String,
+      execute: R => Future[T]
+  ): Source[(R, Try[T]), M] = {
+    requests.via(flow(parallelism, parallelismPerHost, ordered)(url, execute, _ => Future.unit))
+  }
+
+  /**
+   * A flow that executes the requests and emits each with its result.
+   *
+   * A request is sent once its host has a free permit. Requests to a host that has none wait in the flow without
+   * taking the place of a request in flight, and the flow keeps pulling, and sending the requests to other hosts, for
+   * as long as fewer than `parallelism` requests are in flight and fewer than `parallelism` requests are waiting.
+   *
+   * @param parallelism how many requests can be in flight at once, and how many can wait for a permit of their host.
+   * @param parallelismPerHost how many requests to the same host can be in flight at once.
+   * @param ordered whether the results are emitted in the order of the requests.
+   * @param url returns the URL of a request.
+   * @param execute executes a request.
+   * @param done returns when a request stops using its connection, after its response was received. A streamed
+   *             response uses its connection until its body has been read.
+   */
+  def flow[R, T](parallelism: Int, parallelismPerHost: Int, ordered: Boolean)(
+      url: R => String,
+      execute: R => Future[T],
+      done: T => Future[Any]
+  ): Flow[R, (R, Try[T]), NotUsed] = {
+    Flow.fromGraph(new HostAwareExecution(parallelism, parallelismPerHost, ordered, url, execute, done))
+  }
+
+  private final class HostAwareExecution[R, T](
+      parallelism: Int,
+      perHost: Int,
+      ordered: Boolean,
+      url: R => String,
+      execute: R => Future[T],
+      done: T => Future[Any]
+  ) extends GraphStage[FlowShape[R, (R, Try[T])]] {
+
+    private val in  = Inlet[R]("BulkExecution.in")
+    private val out = Outlet[(R, Try[T])]("BulkExecution.out")
+
+    override val shape: FlowShape[R, (R, Try[T])] = FlowShape(in, out)
+
+    // The permits are not shared between materializations, as they are not shared between batches.
+    override def createLogic(inheritedAttributes: Attributes): GraphStageLogic =
+      new GraphStageLogic(shape) with InHandler with OutHandler {
+
+        private final class Waiting(val seq: Long, val request: R)
+
+        private final class Host {
+          var inFlight = 0
+          val waiting  = new java.util.ArrayDeque[Waiting]()
+        }
+
+        private val hosts = mutable.HashMap.empty[String, Host]
+
+        // Requests holding a permit, until their connection is released.
+        private var inFlight = 0
+        // Requests whose result is not known yet.
+        private var executing = 0
+        private var waiting   = 0
+
+        private var nextSeq  = 0L
+        private var nextEmit = 0L
+        private val results  = mutable.HashMap.empty[Long, (R, Try[T])]
+        private val arrived  = new java.util.ArrayDeque[(R, Try[T])]()
+
+        private val completed = getAsyncCallback[(Long, String, R, Try[T])] { case (seq, host, request, result) =>
+          executing -= 1
+          if (ordered) results.put(seq, (request, result)) else arrived.add((request, result))
+          result match {
+            case Success(value) => done(value).onComplete(_ => released.invoke(host))(ExecutionContext.parasitic)
+            case _              => release(host)
+          }
+          emit()
+        }
+
+        private val released = getAsyncCallback[String](release)
+
+        setHandlers(in, out, this)
+
+        override def preStart(): Unit = pull(in)
+
+        override def onPush(): Unit = {
+          val request = grab(in)
+          val seq     = nextSeq
+          val host    = RequestHost.of(url(request))
+          val state   = hosts.getOrElseUpdate(host, new Host)
+          nextSeq += 1
+          if (inFlight < parallelism && state.inFlight < perHost) send(seq, host, state, request)
+          else {
+            state.waiting.add(new Waiting(seq, request))
+            waiting += 1
+          }
+          pullIfAdmitting()
+        }
+
+        override def onUpstreamFinish(): Unit = completeIfDone()
+
+        override def onPull(): Unit = emit()
+
+        private def send(seq: Long, host: String, state: Host, request: R): Unit = {
+          inFlight += 1
+          state.inFlight += 1
+          executing += 1
+          val result =
+            try execute(request)
+            catch { case NonFatal(e) => Future.failed(e) }
+          result.onComplete(response => completed.invoke((seq, host, request, response)))(ExecutionContext.parasitic)
+        }
+
+        /**
+         * Hands the permit over to the oldest request waiting for a host with a free permit, if any.
+         */
+        private def release(host: String): Unit = {
+          val state = hosts(host)
+          inFlight -= 1
+          state.inFlight -= 1
+          sendWaiting()
+          if (state.inFlight == 0 && state.waiting.isEmpty) hosts.remove(host)
+          pullIfAdmitting()
+        }
+
+        private def sendWaiting(): Unit = {
+          var next = oldestSendable
+          while (next.isDefined) {
+            val (host, state) = next.get
+            val oldest        = state.waiting.poll()
+            waiting -= 1
+            send(oldest.seq, host, state, oldest.request)
+            next = oldestSendable
+          }
+        }
+
+        private def oldestSendable: Option[(String, Host)] = {
+          if (inFlight >= parallelism) None
+          else {
+            val sendable = hosts.filter { case (_, state) => state.inFlight < perHost && !state.waiting.isEmpty }
+            if (sendable.isEmpty) None else Some(sendable.minBy(_._2.waiting.peek().seq))
+          }
+        }
+
+        private def emit(): Unit = {
+          if (isAvailable(out)) {
+            if (ordered) {
+              results.remove(nextEmit).foreach { result =>
+                nextEmit += 1
+                push(out, result)
+              }
+            } else if (!arrived.isEmpty) {
+              push(out, arrived.poll())
+            }
+          }
+          pullIfAdmitting()
+          completeIfDone()
+        }
+
+        private def unemitted: Int = if (ordered) results.size else arrived.size()
+
+        // Only pulls while a request to a host with a free permit could be sent right away.
+        private def pullIfAdmitting(): Unit = {
+          if (!hasBeenPulled(in) && !isClosed(in) &&
+              inFlight < parallelism && waiting < parallelism && unemitted < parallelism) pull(in)
+        }
+
+        private def completeIfDone(): Unit = {
+          if (isClosed(in) && executing == 0 && waiting == 0 && unemitted == 0) completeStage()
+        }
+      }
+  }
+}
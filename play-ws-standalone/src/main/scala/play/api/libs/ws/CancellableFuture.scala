@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws
+
+import scala.concurrent.duration.Duration
+import scala.concurrent.CanAwait
+import scala.concurrent.ExecutionContext
+import scala.concurrent.Future
+import scala.util.Try
+
+/**
+ * The future response of a request that can be cancelled, such as the one returned by a client before any filter
+ * transformed it. Cancelling a request aborts it and fails the future, unless it has already completed.
+ */
+trait CancellableFuture[T] extends Future[T] {
+
+  def cancel(): Unit
+}
+
+object CancellableFuture {
+
+  /**
+   * Adds cancellation to a future.
+   *
+   * @param future the future to complete with.
+   * @param cancel cancels the computation of the future.
+   */
+  def apply[T](future: Future[T], cancel: Runnable): CancellableFuture[T] = new DelegatingFuture(future, cancel)
+
+  /**
+   * Returns the future if it is cancellable, or adds a cancellation that does nothing.
+   */
+  def of[T](future: Future[T]): CancellableFuture[T] = future match {
+    case cancellable: CancellableFuture[T] => cancellable
+    case _                                 => new DelegatingFuture(future, () => ())
+  }
+
+  private final class DelegatingFuture[T](future: Future[T], cancellation: Runnable) extends CancellableFuture[T] {
+
+    override def cancel(): Unit = cancellation.run()
+
+    override def onComplete[U](f: Try[T] => U)(implicit executor: ExecutionContext): Unit = future.onComplete(f)
+
+    override def isCompleted: Boolean = future.isCompleted
+
+    override def value: Option[Try[T]] = future.value
+
+    override def transform[S](f: Try[T] => Try[S])(implicit executor: ExecutionContext): Future[S] = {
+      future.transform(f)
+    }
+
+    override def transformWith[S](f: Try[T] => Future[S])(implicit executor: ExecutionContext): Future[S] = {
+      future.transformWith(f)
+    }
+
+    override def ready(atMost: Duration)(implicit permit: CanAwait): this.type = {
+      future.ready(atMost)
+      this
+    }
+
+    override def result(atMost: Duration)(implicit permit: CanAwait): T = future.result(atMost)
+  }
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws
+
+import java.util.Locale
+
+private[ws] object RequestHost {
+
+  /**
+   * Returns the lower cased host of the URL, with its port, without parsing the whole URL.
+   */
+  def of(url: String): String = {
+    val scheme = url.indexOf("://")
+    val start  = if (scheme == -1) 0 else scheme + 3
+    var end    = start
+    while (end < url.length && "/?#".indexOf(url.charAt(end)) == -1) end += 1
+    // Keep the port, as different ports are usually different services.
+    url.substring(url.lastIndexOf('@', end - 1).max(start - 1) + 1, end).toLowerCase(Locale.ROOT)
+  }
+}
@@ -7,6 +7,11 @@ package play.api.libs.ws
 import java.io.Closeable
 import java.io.IOException
 
+import org.apache.pekko.NotUsed
+import org.apache.pekko.stream.scaladsl.Source
+
+import scala.util.Try
+
 /**
  * The WSClient holds the configuration information needed to build a request, and provides a way to get a request holder.
  */
@@ -29,6 +34,51 @@ trait StandaloneWSClient extends Closeable {
   @throws[IllegalArgumentException]
   def url(url: String): StandaloneWSRequest
 
+  /**
+   * Executes many requests, with a bounded parallelism per host. The results are emitted with their requests, and a
+   * failed request does not fail the stream.
+   *
+   * {{{
+   * import org.apache.pekko.stream.Materializer
+   * import play.api.libs.ws.{ BulkSettings, StandaloneWSClient }
+   *
+   * def fetchAll(client: StandaloneWSClient, ids: Seq[String])(implicit materializer: Materializer) = {
+   *   val requests = ids.map(id => client.url(s"https://api.example.com/users/$id"))
+   *   client
+   *     .executeAll(requests, BulkSettings(parallelismPerHost = 4))
+   *     .runFold(0) { case (count, (_, response)) => if (response.isSuccess) count + 1 else count }
+   * }
+   * }}}
+   *
+   * @param requests the requests to execute, with their method set.
+   * @param settings how to execute the requests.
+   * @return the requests with their responses, or the failures of the requests.
+   */
+  def executeAll[R <: StandaloneWSRequest](
+      requests: Iterable[R],
+      settings: BulkSettings = BulkSettings()
+  ): Source[(R, Try[StandaloneWSResponse]), NotUsed] = {
+    executeAll(Source(requests.toSeq), settings)
+  }
+
+  /**
+   * Executes a stream of requests, with a bounded parallelism per host, as [[executeAll]] does for a collection.
+   *
+   * @param requests the requests to execute, with their method set.
+   * @param settings how to execute the requests.
+   * @return the requests with their responses, or the failures of the requests.
+   */
+  def executeAll[R <: StandaloneWSRequest, M](
+      requests: Source[R, M],
+      settings: BulkSettings
+  ): Source[(R, Try[StandaloneWSResponse]), M] = {
+    val executor = settings.filters.foldRight(WSRequestExecutor(_.execute()))((filter, next) => filter(next))
+    BulkExecution.source(requests, settings.parallelism, settings.parallelismPerHost, settings.ordered)(
+      _.url,
+      executor
+    )
+  }
+
   /**
    * Closes this client, and releases underlying resources.
    */
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.filters
+
+import play.api.libs.ws.WSRequestExecutor
+import play.api.libs.ws.WSRequestFilter
+
+import scala.concurrent.ExecutionContext
+import scala.concurrent.Future
+import scala.util.Failure
+import scala.util.Success
+import scala.util.control.NonFatal
+
+/**
+ * Limits the requests in flight to each host with an [[AdaptiveConcurrencyLimiter]]. Requests over the limit of their
+ * host wait in its queue, or fail with a [[ConcurrencyLimitExceededException]] if the queue is full.
+ *
+ * {{{
+ * import play.api.libs.ws.StandaloneWSClient
+ * import play.api.libs.ws.filters.{ AdaptiveConcurrencyConfig, AdaptiveConcurrencyFilter, AdaptiveConcurrencyLimiter }
+ *
+ * val limiter = new AdaptiveConcurrencyLimiter(AdaptiveConcurrencyConfig(maxQueueSize = 50))
+ * val filter  = new AdaptiveConcurrencyFilter(limiter)
+ *
+ * def get(client: StandaloneWSClient) = client.url("https://api.example.com/users").withRequestFilter(filter).get()
+ * }}}
+ *
+ * @param limiter the limiter holding the limit of each host.
+ */
+class AdaptiveConcurrencyFilter(limiter: AdaptiveConcurrencyLimiter) extends WSRequestFilter {
+
+  def this() = this(new AdaptiveConcurrencyLimiter())
+
+  override def apply(executor: WSRequestExecutor): WSRequestExecutor = {
+    WSRequestExecutor { request =>
+      limiter
+        .acquire(request.url)
+        .flatMap { permit =>
+          val result =
+            try executor(request)
+            catch { case NonFatal(e) => Future.failed(e) }
+          result.onComplete {
+            case Success(response) => permit.completed(response.status)
+            case Failure(e)        => permit.failed(e)
+          }(ExecutionContext.parasitic)
+          result
+        }(ExecutionContext.parasitic)
+    }
+  }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.filters
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.TimeoutException
+
+import play.api.libs.ws.RequestHost
+
+import scala.concurrent.Future
+import scala.concurrent.Promise
+import scala.jdk.CollectionConverters._
+
+/**
+ * Configures an [[AdaptiveConcurrencyLimiter]].
+ *
+ * @param initialLimit the limit of a host before any request to it has completed.
+ * @param minLimit the lowest the limit of a host can go.
+ * @param maxLimit the highest the limit of a host can go.
+ * @param maxQueueSize how many requests over the limit can wait for a request to the same host to complete. Requests
+ *                     beyond that fail immediately. With 0, every request over the limit fails immediately.
+ * @param smoothing how much of a change to the limit is applied at once, between 0 and 1.
+ * @param probeMultiplier how many requests, in multiples of the limit, are sent before the latency without load is
+ *                        measured again, so that the limit can recover after the latency of a host went up for good.
+ */
+case class AdaptiveConcurrencyConfig(
+    initialLimit: Int = 20,
+    minLimit: Int = 1,
+    maxLimit: Int = 200,
+    maxQueueSize: Int = 0,
+    smoothing: Double = 1.0,
+    probeMultiplier: Int = 30
+) {
+  require(minLimit >= 1, "minLimit must be at least 1")
+  require(minLimit <= initialLimit && initialLimit <= maxLimit, "initialLimit must be between minLimit and maxLimit")
+  require(maxQueueSize >= 0, "maxQueueSize must not be negative")
+  require(smoothing > 0 && smoothing <= 1, "smoothing must be greater than 0 and at most 1")
+}
+
+/**
+ * The state of the limit of a host.
+ *
+ * @param limit how many requests to the host can be in flight.
+ * @param inFlight how many requests to the host are in flight.
+ * @param queued how many requests to the host are waiting for a request in flight to complete.
+ */
+case class HostConcurrency(limit: Int, inFlight: Int, queued: Int)
+
+/**
+ * Receives the changes to the limits of an [[AdaptiveConcurrencyLimiter]]. Listeners are called on the thread that
+ * completed a request, so they must not block.
+ */
+trait ConcurrencyLimitListener {
+
+  /**
+   * Called when the limit of a host changes, and with the initial limit when a host is first requested.
+   */
+  def onLimitChanged(host: String, limit: Int): Unit
+
+  /**
+   * Called when a request is rejected because its host is at its limit and its queue is full.
+   */
+  def onRejected(host: String): Unit
+}
+
+/**
+ * Thrown when a request is rejected because too many requests to its host are in flight.
+ */
+class ConcurrencyLimitExceededException(val host: String, val limit: Int)
+    extends RuntimeException(s"Too many requests in flight to $host, the limit is $limit")
+
+/**
+ * Limits the number of requests in flight to each host, adapting the limit to the latency of the host the way TCP
+ * Vegas adapts a congestion window.
+ *
+ * The lowest latency seen for a host is taken as its latency without load. While requests take about as long as
+ * that, the limit grows. Once they take longer, requests are queueing up somewhere on the way to the host, and the
+ * limit shrinks. It also shrinks when a request times out or the host answers with 429 or 503. This keeps a slow
+ * host from piling up requests in the client until they time out, which would only add to its load.
+ *
+ * The same limiter can be shared by several filters, to share the limits of the hosts they call.
+ */
+class AdaptiveConcurrencyLimiter private[filters] (config: AdaptiveConcurrencyConfig, nanoTime: () => Long) {
+  import AdaptiveConcurrencyLimiter._
+
+  def this(config: AdaptiveConcurrencyConfig) = this(config, () => System.nanoTime())
+
+  def this() = this(AdaptiveConcurrencyConfig())
+
+  private val hosts     = new ConcurrentHashMap[String, HostLimiter]()
+  private val listeners = new CopyOnWriteArrayList[ConcurrencyLimitListener]()
+
+  /**
+   * Acquires a permit to send a request to the host of the URL. The returned future completes once the request can
+   * be sent, or fails with a [[ConcurrencyLimitExceededException]] if the request is rejected.
+   */
+  def acquire(url: String): Future[Permit] = {
+    val host    = RequestHost.of(url)
+    var limiter = hosts.get(host)
+    if (limiter == null) {
+      val created = new HostLimiter(host)
+      limiter = hosts.putIfAbsent(host, created)
+      if (limiter == null) {
+        limiter = created
+        listeners.forEach(_.onLimitChanged(host, config.initialLimit))
+      }
+    }
+    limiter.acquire()
+  }
+
+  /**
+   * Returns the current limits of the hosts requested so far.
+   */
+  def limits: Map[String, HostConcurrency] = hosts.asScala.map { case (host, limiter) => host -> limiter.state }.toMap
+
+  /**
+   * Java API
+   */
+  def getLimits: java.util.Map[String, HostConcurrency] = limits.asJava
+
+  /**
+   * Returns the current limit of the host, if it has been requested.
+   */
+  def limit(host: String): Option[HostConcurrency] = Option(hosts.get(host)).map(_.state)
+
+  def addListener(listener: ConcurrencyLimitListener): Unit = listeners.add(listener)
+
+  def removeListener(listener: ConcurrencyLimitListener): Unit = listeners.remove(listener)
+
+  private final class HostLimiter(host: String) {
+    private var limit      = config.initialLimit.toDouble
+    private var inFlight   = 0
+    private val queue      = new java.util.ArrayDeque[Promise[Permit]]()
+    private var rttNoLoad  = 0L
+    private var probeCount = 0L
+    private var probeAt    = nextProbe()
+
+    def acquire(): Future[Permit] = {
+      var admittedAt              = 0
+      var queued: Promise[Permit] = null
+      var rejectedAt              = 0
+      synchronized {
+        if (inFlight < limit.toInt) {
+          inFlight += 1
+          admittedAt = inFlight
+        } else if (queue.size < config.maxQueueSize) {
+          queued = Promise[Permit]()
+          queue.add(queued)
+        } else {
+          rejectedAt = limit.toInt
+        }
+      }
+      if (admittedAt > 0) Future.successful(new HostPermit(this, admittedAt))
+      else if (queued != null) queued.future
+      else {
+        listeners.forEach(_.onRejected(host))
+        Future.failed(new ConcurrencyLimitExceededException(host, rejectedAt))
+      }
+    }
+
+    def release(rtt: Long, inFlightAtStart: Int, outcome: Outcome): Unit = {
+      var admitted: List[(Promise[Permit], Int)] = Nil
+      var before                                 = 0
+      var after                                  = 0
+      synchronized {
+        before = limit.toInt
+        if (outcome != Ignored) update(rtt, inFlightAtStart, outcome == Dropped)
+        after = limit.toInt
+        inFlight -= 1
+        while (inFlight < after && !queue.isEmpty) {
+          inFlight += 1
+          admitted = (queue.poll(), inFlight) :: admitted
+        }
+      }
+      admitted.foreach { case (promise, inFlightNow) => promise.success(new HostPermit(this, inFlightNow)) }
+      if (after != before) listeners.forEach(_.onLimitChanged(host, after))
+    }
+
+    def state: HostConcurrency = synchronized(HostConcurrency(limit.toInt, inFlight, queue.size))
+
+    // See https://en.wikipedia.org/wiki/TCP_Vegas and Netflix's concurrency-limits, which this follows.
+    private def update(rtt: Long, inFlightAtStart: Int, dropped: Boolean): Unit = {
+      probeCount += 1
+      if (probeCount >= probeAt) {
+        // Measure the latency without load again, in case it changed for good.
+        probeCount = 0
+        probeAt = nextProbe()
+        rttNoLoad = rtt
+      } else if (rttNoLoad == 0 || rtt < rttNoLoad) {
+        rttNoLoad = rtt
+      } else {
+        val log10 = math.max(1, math.log10(limit).toInt)
+        val next =
+          if (dropped) Some(limit - log10)
+          else if (inFlightAtStart * 2 < limit) None // not enough requests to tell whether the host is loaded
+          else {
+            val queueSize = math.ceil(limit * (1 - rttNoLoad.toDouble / rtt)).toInt
+            if (queueSize <= log10) Some(limit + 6 * log10)
+            else if (queueSize < 3 * log10) Some(limit + log10)
+            else if (queueSize > 6 * log10) Some(limit - log10)
+            else None
+          }
+        next.foreach { target =>
+          val bounded = math.max(config.minLimit.toDouble, math.min(config.maxLimit.toDouble, target))
+          limit = (1 - config.smoothing) * limit + config.smoothing * bounded
+        }
+      }
+    }
+
+    private def nextProbe(): Long = {
+      (config.probeMultiplier * limit * ThreadLocalRandom.current().nextDouble(0.5, 1.0)).toLong
+    }
+  }
+
+  private final class HostPermit(limiter: HostLimiter, inFlightAtStart: Int) extends Permit {
+    private val started  = nanoTime()
+    private var released = false
+
+    override def succeeded(): Unit = release(Succeeded)
+
+    override def dropped(): Unit = release(Dropped)
+
+    override def ignored(): Unit = release(Ignored)
+
+    override def completed(status: Int): Unit = if (status == 429 || status == 503) dropped() else succeeded()
+
+    override def failed(cause: Throwable): Unit = cause match {
+      case _: TimeoutException => dropped()
+      case _                   => ignored()
+    }
+
+    private def release(outcome: Outcome): Unit = {
+      val first = synchronized {
+        val first = !released
+        released = true
+        first
+      }
+      if (first) limiter.release(nanoTime() - started, inFlightAtStart, outcome)
+    }
+  }
+}
+
+object AdaptiveConcurrencyLimiter {
+
+  /**
+   * The right to send one request. Exactly one of its methods must be called once the request completes, which
+   * releases the permit and feeds the outcome of the request to the limit of its host.
+   */
+  trait Permit {
+
+    /**
+     * The request completed normally.
+     */
+    def succeeded(): Unit
+
+    /**
+     * The request timed out or the host shed it, which lowers the limit of the host.
+     */
+    def dropped(): Unit
+
+    /**
+     * The request failed in a way that says nothing about the load of the host.
+     */
+    def ignored(): Unit
+
+    /**
+     * The request completed with the given status. 429 and 503 count as dropped, anything else as succeeded.
+     */
+    def completed(status: Int): Unit
+
+    /**
+     * The request failed. Timeouts count as dropped, anything else is ignored.
+     */
+    def failed(cause: Throwable): Unit
+  }
+
+  private sealed trait Outcome
+  private case object Succeeded extends Outcome
+  private case object Dropped   extends Outcome
+  private case object Ignored   extends Outcome
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.filters
+
+import play.api.libs.ws.StandaloneWSRequest
+import play.api.libs.ws.WSRequestExecutor
+import play.api.libs.ws.WSRequestFilter
+
+/**
+ * Sends the requests through the circuit breaker of their host, or of the key given by `key`.
+ *
+ * {{{
+ * import org.apache.pekko.stream.Materializer
+ * import play.api.libs.ws.StandaloneWSClient
+ * import play.api.libs.ws.filters.{ CircuitBreakerConfigFactory, CircuitBreakerFilter, CircuitBreakers }
+ *
+ * def get(client: StandaloneWSClient)(implicit materializer: Materializer) = {
+ *   val breakers = new CircuitBreakers(CircuitBreakerConfigFactory.forConfig(), materializer)
+ *   client.url("https://api.example.com/users").withRequestFilter(new CircuitBreakerFilter(breakers)).get()
+ * }
+ * }}}
+ *
+ * The same [[CircuitBreakers]] should be shared by all the requests of a client, so that they share its circuits.
+ *
+ * @param breakers the circuit breakers of the keys.
+ * @param key returns the key of the circuit of a request.
+ */
+class CircuitBreakerFilter(breakers: CircuitBreakers, key: StandaloneWSRequest => String) extends WSRequestFilter {
+
+  /**
+   * Creates a filter with a circuit per host, including the port.
+   */
+  def this(breakers: CircuitBreakers) = this(breakers, request => CircuitBreakers.hostOf(request.url))
+
+  override def apply(executor: WSRequestExecutor): WSRequestExecutor = {
+    WSRequestExecutor { request =>
+      breakers.execute(key(request), () => executor(request))(_.status)
+    }
+  }
+}
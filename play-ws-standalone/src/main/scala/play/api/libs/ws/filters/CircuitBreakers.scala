@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.filters
+
+import java.util.concurrent.CompletionException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+
+import jakarta.inject.Inject
+import jakarta.inject.Provider
+import jakarta.inject.Singleton
+
+import com.typesafe.config.Config
+import com.typesafe.config.ConfigFactory
+import org.apache.pekko.actor.Scheduler
+import org.apache.pekko.pattern.CircuitBreaker
+import org.apache.pekko.stream.Materializer
+import play.api.libs.ws.RequestHost
+
+import scala.concurrent.ExecutionContext
+import scala.concurrent.Future
+import scala.concurrent.duration._
+import scala.jdk.CollectionConverters._
+import scala.util.Failure
+import scala.util.Success
+import scala.util.Try
+import scala.util.control.NonFatal
+
+/**
+ * Configures [[CircuitBreakers]].
+ *
+ * @param maxFailures the number of failures in a row after which the circuit opens and requests fail fast.
+ * @param callTimeout how long a request can take before it counts as a failure.
+ * @param resetTimeout how long the circuit stays open before a single request is let through to probe the host.
+ * @param maxResetTimeout the longest the circuit stays open, as the reset timeout doubles every time a probe fails.
+ * @param failureStatuses the statuses of the responses that count as failures.
+ * @param failureExceptions the exceptions, and their subclasses, that count as failures. Other exceptions count as
+ *                          successes, as they say nothing about the health of the host.
+ */
+case class CircuitBreakerConfig(
+    maxFailures: Int = 5,
+    callTimeout: FiniteDuration = 2.minutes,
+    resetTimeout: FiniteDuration = 30.seconds,
+    maxResetTimeout: FiniteDuration = 5.minutes,
+    failureStatuses: Set[Int] = Set(500, 502, 503, 504),
+    failureExceptions: Seq[Class[? <: Throwable]] =
+      Seq(classOf[java.io.IOException], classOf[java.util.concurrent.TimeoutException])
+) {
+  require(maxFailures >= 1, "maxFailures must be at least 1")
+  require(resetTimeout <= maxResetTimeout, "resetTimeout must be at most maxResetTimeout")
+}
+
+/**
+ * Factory for creating CircuitBreakerConfig, for use from Java.
+ */
+object CircuitBreakerConfigFactory {
+
+  /**
+   * Creates a CircuitBreakerConfig from a Typesafe Config object.
+   *
+   * @param config the config file containing the `play.ws.circuitBreaker` settings
+   * @param classLoader the class loader to load the failure exceptions with
+   * @return a CircuitBreakerConfig configuration object.
+   */
+  def forConfig(
+      config: Config = ConfigFactory.load(),
+      classLoader: ClassLoader = this.getClass.getClassLoader
+  ): CircuitBreakerConfig = {
+    new CircuitBreakerConfigParser(config, classLoader).parse()
+  }
+}
+
+/**
+ * This class creates a CircuitBreakerConfig object from configuration.
+ */
+@Singleton
+class CircuitBreakerConfigParser @Inject() (configuration: Config, classLoader: ClassLoader)
+    extends Provider[CircuitBreakerConfig] {
+
+  def get = parse()
+
+  def parse(): CircuitBreakerConfig = {
+    val config = configuration.getConfig("play.ws.circuitBreaker")
+
+    val maxFailures     = config.getInt("maxFailures")
+    val callTimeout     = config.getDuration("callTimeout").toNanos.nanos
+    val resetTimeout    = config.getDuration("resetTimeout").toNanos.nanos
+    val maxResetTimeout = config.getDuration("maxResetTimeout").toNanos.nanos
+
+    val failureStatuses   = config.getIntList("failureStatuses").asScala.map(_.intValue).toSet
+    val failureExceptions = config.getStringList("failureExceptions").asScala.toSeq.map { name =>
+      classLoader.loadClass(name).asSubclass(classOf[Throwable])
+    }
+
+    CircuitBreakerConfig(
+      maxFailures = maxFailures,
+      callTimeout = callTimeout,
+      resetTimeout = resetTimeout,
+      maxResetTimeout = maxResetTimeout,
+      failureStatuses = failureStatuses,
+      failureExceptions = failureExceptions
+    )
+  }
+}
+
+/**
+ * Receives the state changes of the circuits of [[CircuitBreakers]]. Listeners are called on the execution context of
+ * the circuit breakers.
+ */
+trait CircuitBreakerListener {
+
+  /**
+   * Called when the circuit of the key opens, and the requests with the key start failing fast.
+   */
+  def onOpen(key: String): Unit
+
+  /**
+   * Called when the reset timeout of the circuit of the key expired, and the next request probes the host.
+   */
+  def onHalfOpen(key: String): Unit
+
+  /**
+   * Called when a probe succeeded, and the circuit of the key closes again.
+   */
+  def onClose(key: String): Unit
+}
+
+/**
+ * A Pekko [[org.apache.pekko.pattern.CircuitBreaker]] per key, such as a host. Once `maxFailures` requests with the
+ * same key failed in a row, the circuit opens and the requests with the key fail fast with a
+ * [[org.apache.pekko.pattern.CircuitBreakerOpenException]], instead of each waiting for the connection timeout and
+ * holding a connection slot while the host is down. After `resetTimeout`, a single request is let through to probe
+ * the host: the circuit closes if it succeeds, and stays open for twice as long if it fails.
+ *
+ * @see [[CircuitBreakerFilter]]
+ */
+class CircuitBreakers(config: CircuitBreakerConfig, scheduler: Scheduler)(implicit ec: ExecutionContext) {
+  import CircuitBreakers._
+
+  def this(config: CircuitBreakerConfig, materializer: Materializer) =
+    this(config, materializer.system.scheduler)(materializer.executionContext)
+
+  private val breakers  = new ConcurrentHashMap[String, CircuitBreaker]()
+  private val listeners = new CopyOnWriteArrayList[CircuitBreakerListener]()
+
+  /**
+   * Returns the circuit breaker of the key, creating it if needed.
+   */
+  def breaker(key: String): CircuitBreaker = breakers.computeIfAbsent(
+    key,
+    key =>
+      new CircuitBreaker(scheduler, config.maxFailures, config.callTimeout, config.resetTimeout)
+        .withExponentialBackoff(config.maxResetTimeout)
+        .addOnOpenListener(listeners.forEach(_.onOpen(key)))
+        .addOnHalfOpenListener(listeners.forEach(_.onHalfOpen(key)))
+        .addOnCloseListener(listeners.forEach(_.onClose(key)))
+  )
+
+  /**
+   * Returns the keys of the circuits that are open or half open.
+   */
+  def openKeys: Set[String] = breakers.asScala.collect { case (key, breaker) if !breaker.isClosed => key }.toSet
+
+  def addListener(listener: CircuitBreakerListener): Unit = listeners.add(listener)
+
+  def removeListener(listener: CircuitBreakerListener): Unit = listeners.remove(listener)
+
+  /**
+   * Runs the attempt through the circuit breaker of the key.
+   *
+   * @param key the key of the circuit, such as the host of the request.
+   * @param attempt sends the request.
+   * @param status returns the status of a response.
+   * @return the result of the attempt, or a failed future if the circuit is open.
+   */
+  def execute[T](key: String, attempt: () => Future[T])(status: T => Int): Future[T] = {
+    breaker(key).withCircuitBreaker(
+      try attempt()
+      catch { case NonFatal(e) => Future.failed(e) },
+      isFailure(status)
+    )
+  }
+
+  private def isFailure[T](status: T => Int)(result: Try[T]): Boolean = result match {
+    case Success(response) => config.failureStatuses(status(response))
+    case Failure(e)        => config.failureExceptions.exists(_.isInstance(unwrap(e)))
+  }
+}
+
+object CircuitBreakers {
+
+  /**
+   * Returns the host of the URL, including the port, which is the default key of the circuit of a request.
+   */
+  def hostOf(url: String): String = RequestHost.of(url)
+
+  private def unwrap(e: Throwable): Throwable = e match {
+    case e: CompletionException if e.getCause != null => e.getCause
+    case e                                            => e
+  }
+}
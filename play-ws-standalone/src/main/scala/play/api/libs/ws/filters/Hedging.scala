@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.filters
+
+import java.util.Locale
+import java.util.concurrent.atomic.LongAdder
+
+import org.apache.pekko.actor.Cancellable
+import org.apache.pekko.stream.Materializer
+import org.apache.pekko.stream.scaladsl.Sink
+import org.apache.pekko.stream.scaladsl.Source
+import org.apache.pekko.util.ByteString
+import play.api.libs.ws.CancellableFuture
+
+import scala.concurrent.ExecutionContext
+import scala.concurrent.Future
+import scala.concurrent.Promise
+import scala.concurrent.duration._
+import scala.util.Try
+import scala.util.control.NonFatal
+
+/**
+ * Configures [[Hedging]].
+ *
+ * @param delay how long to wait for a response before sending the hedge.
+ * @param delayPercentile if set, the hedge is sent once a request takes longer than this percentile of the latencies
+ *                        of the latest requests, between 0 and 100. `delay` is used until enough requests completed.
+ * @param maxExtraLoad how many hedges can be sent, as a share of the requests, between 0 and 1.
+ * @param methods the methods of the requests that can be hedged. Only idempotent methods should be hedged.
+ */
+case class HedgingConfig(
+    delay: FiniteDuration = 50.millis,
+    delayPercentile: Option[Double] = None,
+    maxExtraLoad: Double = 0.05,
+    methods: Set[String] = Set("GET", "HEAD", "OPTIONS")
+) {
+  require(delay >= Duration.Zero, "delay must not be negative")
+  require(delayPercentile.forall(p => p > 0 && p < 100), "delayPercentile must be between 0 and 100")
+  require(maxExtraLoad >= 0 && maxExtraLoad <= 1, "maxExtraLoad must be between 0 and 1")
+}
+
+/**
+ * What [[Hedging]] did so far.
+ *
+ * @param requestCount the requests that could be hedged.
+ * @param hedgeCount the hedges sent.
+ * @param hedgeWinCount the hedges that answered before the request they hedged.
+ * @param budgetExhaustedCount the hedges that were not sent because too many were sent already.
+ */
+case class HedgingStats(requestCount: Long, hedgeCount: Long, hedgeWinCount: Long, budgetExhaustedCount: Long)
+
+/**
+ * Sends a second copy of a request, the hedge, if the first one takes longer than usual, and completes with whichever
+ * answers first. The other one is cancelled. This cuts the tail latency caused by a slow connection or a slow server
+ * instance, at the cost of some extra load.
+ *
+ * The extra load is bounded by a budget: every request adds `maxExtraLoad` to it and every hedge takes 1 from it, so
+ * at most `maxExtraLoad` of the requests are hedged in the long run. The budget holds at most 10 hedges, which bounds
+ * the bursts of hedges when a server slows down as a whole, when hedging would not help anyway.
+ *
+ * A failed request is not hedged, but if a request fails while its hedge is in flight, the hedge can still answer.
+ *
+ * @see [[HedgingFilter]]
+ */
+class Hedging private[filters] (
+    config: HedgingConfig,
+    schedule: (FiniteDuration, Runnable) => Cancellable,
+    nanoTime: () => Long,
+    cancel: Source[ByteString, ?] => Unit
+) {
+  import Hedging._
+
+  def this(config: HedgingConfig, materializer: Materializer) =
+    this(
+      config,
+      (delay, task) => materializer.scheduleOnce(delay, task),
+      () => System.nanoTime(),
+      _.runWith(Sink.cancelled)(materializer)
+    )
+
+  private val requests        = new LongAdder
+  private val hedges          = new LongAdder
+  private val wins            = new LongAdder
+  private val budgetExhausted = new LongAdder
+
+  private val budget = new TokenBucket(config.maxExtraLoad, MaxTokens, initialTokens = 0)
+
+  private val latencies = config.delayPercentile.map(new LatencyWindow(_))
+
+  private val methods = config.methods.map(_.toUpperCase(Locale.ROOT))
+
+  /**
+   * Returns whether requests with the method can be hedged.
+   */
+  def hedges(method: String): Boolean = methods.contains(method.toUpperCase(Locale.ROOT))
+
+  /**
+   * Runs the attempt, and runs it again if it did not complete after the hedging delay.
+   *
+   * @param attempt sends the request.
+   * @param discard releases the response of an attempt that lost the race, see [[cancelBody]].
+   * @return the result of the attempt that succeeded first, or the last failure if they all failed.
+   */
+  def execute[T](attempt: () => CancellableFuture[T], discard: T => Unit = (_: T) => ()): Future[T] = {
+    requests.increment()
+    budget.deposit()
+    val race = new Race(attempt, discard)
+    race.start()
+    race.result
+  }
+
+  def stats: HedgingStats = HedgingStats(requests.sum, hedges.sum, wins.sum, budgetExhausted.sum)
+
+  /**
+   * Cancels the body of a response that is not used. A streamed response holds on to its connection until its body is
+   * read or cancelled.
+   */
+  def cancelBody(body: Source[ByteString, ?]): Unit = cancel(body)
+
+  private def delay: FiniteDuration = latencies.flatMap(_.delay).getOrElse(config.delay)
+
+  private final class Race[T](attempt: () => CancellableFuture[T], discard: T => Unit) {
+    private val promise  = Promise[T]()
+    private val started  = nanoTime()
+    private var attempts = List.empty[CancellableFuture[T]]
+    private var pending  = 0
+    private var done     = false
+    private var timer    = Option.empty[Cancellable]
+
+    def result: Future[T] = promise.future
+
+    def start(): Unit = {
+      launch(hedge = false)
+      val scheduled = schedule(delay, () => sendHedge())
+      val lost = synchronized {
+        timer = Some(scheduled)
+        done
+      }
+      if (lost) scheduled.cancel()
+    }
+
+    private def sendHedge(): Unit = {
+      if (!synchronized(done)) {
+        if (budget.tryWithdraw()) {
+          hedges.increment()
+          launch(hedge = true)
+        } else budgetExhausted.increment()
+      }
+    }
+
+    private def launch(hedge: Boolean): Unit = {
+      val future =
+        try attempt()
+        catch { case NonFatal(e) => CancellableFuture.of(Future.failed[T](e)) }
+      val lost = synchronized {
+        attempts = future :: attempts
+        pending += 1
+        done
+      }
+      if (lost) {
+        future.cancel()
+        future.foreach(discard)(ExecutionContext.parasitic)
+      } else future.onComplete(complete(future, hedge, _))(ExecutionContext.parasitic)
+    }
+
+    private def complete(future: CancellableFuture[T], hedge: Boolean, result: Try[T]): Unit = {
+      val won = synchronized {
+        pending -= 1
+        if (done || (result.isFailure && pending > 0)) None
+        else {
+          done = true
+          Some((timer, attempts))
+        }
+      }
+      // A loser that answered anyway is not cancelled any more, its response must be released.
+      if (won.isEmpty) result.foreach(discard)
+      won.foreach { case (scheduled, all) =>
+        scheduled.foreach(_.cancel())
+        all.foreach(other => if (other ne future) other.cancel())
+        if (result.isSuccess) {
+          if (hedge) wins.increment()
+          latencies.foreach(_.record(nanoTime() - started))
+        }
+        promise.complete(result)
+      }
+    }
+  }
+}
+
+object Hedging {
+
+  private val MaxTokens = 10L
+
+  private val MinSamples = 100
+
+  /**
+   * The latencies of the latest requests, as seen by their callers.
+   */
+  private final class LatencyWindow(percentile: Double) {
+    private val samples = new Array[Long](1000)
+    private var count   = 0L
+
+    @volatile private var current: Option[FiniteDuration] = None
+
+    def delay: Option[FiniteDuration] = current
+
+    def record(nanos: Long): Unit = synchronized {
+      samples((count % samples.length).toInt) = nanos
+      count += 1
+      // Sorting the window is too slow to do for every request, and the percentile changes slowly anyway.
+      if (count >= MinSamples && count % MinSamples == 0) {
+        val sorted = java.util.Arrays.copyOf(samples, math.min(count, samples.length.toLong).toInt)
+        java.util.Arrays.sort(sorted)
+        current = Some(sorted(math.min(sorted.length - 1, (sorted.length * percentile / 100).toInt)).nanos)
+      }
+    }
+  }
+}
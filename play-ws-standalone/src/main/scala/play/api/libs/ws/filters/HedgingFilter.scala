@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.filters
+
+import play.api.libs.ws.CancellableFuture
+import play.api.libs.ws.StandaloneWSResponse
+import play.api.libs.ws.WSRequestExecutor
+import play.api.libs.ws.WSRequestFilter
+
+/**
+ * Hedges the requests with [[Hedging]], if their method can be hedged.
+ *
+ * The request that loses the race is only aborted if the filter is the last one added to the request, so that it gets
+ * the future of the client itself. Behind other filters, the loser runs to completion and the body of its response is
+ * cancelled.
+ *
+ * {{{
+ * import scala.concurrent.duration._
+ * import org.apache.pekko.stream.Materializer
+ * import play.api.libs.ws.StandaloneWSClient
+ * import play.api.libs.ws.filters.{ Hedging, HedgingConfig, HedgingFilter }
+ *
+ * def get(client: StandaloneWSClient)(implicit materializer: Materializer) = {
+ *   val hedging = new Hedging(HedgingConfig(delay = 20.millis, maxExtraLoad = 0.02), materializer)
+ *   client.url("https://api.example.com/users").withRequestFilter(new HedgingFilter(hedging)).get()
+ * }
+ * }}}
+ *
+ * The same [[Hedging]] should be shared by all the requests to a service, so that they share its budget and latencies.
+ *
+ * A caching client coalesces identical requests that miss the cache, so the hedge of such a request waits for the
+ * response of the request it hedges rather than sending its own. Hedging does not help those requests.
+ *
+ * @param hedging decides when to hedge and how many hedges can be sent.
+ */
+class HedgingFilter(hedging: Hedging) extends WSRequestFilter {
+
+  override def apply(executor: WSRequestExecutor): WSRequestExecutor = {
+    WSRequestExecutor { request =>
+      if (hedging.hedges(request.method)) {
+        hedging.execute(
+          () => CancellableFuture.of(executor(request)),
+          (response: StandaloneWSResponse) => hedging.cancelBody(response.bodyAsSource)
+        )
+      } else executor(request)
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.filters
+
+import play.api.libs.ws.SourceBody
+import play.api.libs.ws.WSRequestExecutor
+import play.api.libs.ws.WSRequestFilter
+
+/**
+ * Retries the requests with [[Retrying]]. Requests with a [[play.api.libs.ws.SourceBody]] are never retried, as their
+ * body can only be read once. Empty and in memory bodies are sent again as they are.
+ * The body of a response that is retried is cancelled, which releases the connection of a streamed response.
+ *
+ * {{{
+ * import scala.concurrent.duration._
+ * import org.apache.pekko.stream.Materializer
+ * import play.api.libs.ws.StandaloneWSClient
+ * import play.api.libs.ws.filters.{ RetryConfig, RetryFilter, Retrying }
+ *
+ * def get(client: StandaloneWSClient)(implicit materializer: Materializer) = {
+ *   val retrying = new Retrying(RetryConfig(maxRetries = 2, minBackoff = 50.millis), materializer)
+ *   client.url("https://api.example.com/users").withRequestFilter(new RetryFilter(retrying)).get()
+ * }
+ * }}}
+ *
+ * The same [[Retrying]] should be shared by all the requests of a client, so that they share its budget.
+ *
+ * @param retrying decides which requests to retry and when.
+ */
+class RetryFilter(retrying: Retrying) extends WSRequestFilter {
+
+  override def apply(executor: WSRequestExecutor): WSRequestExecutor = {
+    WSRequestExecutor { request =>
+      request.body match {
+        case _: SourceBody => executor(request)
+        case _ =>
+          retrying.execute(request.method, () => executor(request))(
+            _.status,
+            _.header("Retry-After"),
+            response => retrying.cancelBody(response.bodyAsSource)
+          )
+      }
+    }
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.filters
+
+import java.io.IOException
+import java.net.ConnectException
+import java.time.Clock
+import java.time.ZonedDateTime
+import java.time.format.DateTimeFormatter
+import java.util.Locale
+import java.util.concurrent.CompletionException
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.TimeoutException
+import java.util.concurrent.atomic.LongAdder
+
+import org.apache.pekko.actor.Cancellable
+import org.apache.pekko.stream.Materializer
+import org.apache.pekko.stream.scaladsl.Sink
+import org.apache.pekko.stream.scaladsl.Source
+import org.apache.pekko.util.ByteString
+
+import scala.concurrent.ExecutionContext
+import scala.concurrent.Future
+import scala.concurrent.Promise
+import scala.concurrent.duration._
+import scala.util.Failure
+import scala.util.Success
+import scala.util.Try
+import scala.util.control.NonFatal
+
+/**
+ * Configures [[Retrying]].
+ *
+ * @param maxRetries how many times a request is retried at most.
+ * @param minBackoff the shortest wait before a retry.
+ * @param maxBackoff the longest wait before a retry. A request is not retried if the server asks to wait longer
+ *                   with `Retry-After`.
+ * @param statuses the statuses of the responses to retry.
+ * @param idempotentMethods the methods of the requests that can be sent again whatever happened to them. Requests
+ *                          with other methods are only retried if they were not processed: when the connection could
+ *                          not be opened, or when the server answered with 429.
+ * @param budgetRatio how many retries can be sent, as a share of the requests, between 0 and 1.
+ */
+case class RetryConfig(
+    maxRetries: Int = 3,
+    minBackoff: FiniteDuration = 100.millis,
+    maxBackoff: FiniteDuration = 10.seconds,
+    statuses: Set[Int] = Set(429, 502, 503, 504),
+    idempotentMethods: Set[String] = Set("GET", "HEAD", "OPTIONS", "PUT", "DELETE", "TRACE"),
+    budgetRatio: Double = 0.1
+) {
+  require(maxRetries >= 0, "maxRetries must not be negative")
+  require(minBackoff >= Duration.Zero && minBackoff <= maxBackoff, "minBackoff must be between 0 and maxBackoff")
+  require(budgetRatio >= 0 && budgetRatio <= 1, "budgetRatio must be between 0 and 1")
+}
+
+/**
+ * What [[Retrying]] did so far.
+ *
+ * @param requestCount the requests sent, not counting the retries.
+ * @param retryCount the retries sent.
+ * @param budgetExhaustedCount the retries that were not sent because too many were sent already.
+ */
+case class RetryStats(requestCount: Long, retryCount: Long, budgetExhaustedCount: Long)
+
+/**
+ * Retries the requests that failed or were answered with a retryable status, after an exponential backoff with
+ * jitter, or after the delay the server asked for with `Retry-After`.
+ *
+ * The retries are bounded by a budget: every request adds `budgetRatio` to it and every retry takes 1 from it, so
+ * that at most `budgetRatio` of the requests are retried in the long run. The budget starts full and holds at most
+ * 10 retries. When a server goes down, the clients calling it then stop retrying once the budget is spent, instead of
+ * multiplying its load by `maxRetries` the moment it comes back up.
+ *
+ * @see [[RetryFilter]]
+ */
+class Retrying private[filters] (
+    config: RetryConfig,
+    schedule: (FiniteDuration, Runnable) => Cancellable,
+    random: () => Double,
+    clock: Clock,
+    cancel: Source[ByteString, ?] => Unit
+) {
+  import Retrying._
+
+  def this(config: RetryConfig, materializer: Materializer) = this(
+    config,
+    (delay, task) => materializer.scheduleOnce(delay, task),
+    () => ThreadLocalRandom.current().nextDouble(),
+    Clock.systemUTC(),
+    _.runWith(Sink.cancelled)(materializer)
+  )
+
+  private val requests        = new LongAdder
+  private val retries         = new LongAdder
+  private val budgetExhausted = new LongAdder
+
+  private val budget = new TokenBucket(config.budgetRatio, MaxTokens, initialTokens = MaxTokens)
+
+  private val idempotentMethods = config.idempotentMethods.map(_.toUpperCase(Locale.ROOT))
+
+  /**
+   * Runs the attempt, and runs it again as long as it should be retried.
+   *
+   * @param method the method of the request, which tells whether it can be sent again.
+   * @param attempt sends the request.
+   * @param status returns the status of a response.
+   * @param retryAfter returns the `Retry-After` header of a response.
+   * @param discard releases a response that is retried, see [[cancelBody]].
+   * @return the last response, or the last failure.
+   */
+  def execute[T](method: String, attempt: () => Future[T])(
+      status: T => Int,
+      retryAfter: T => Option[String],
+      discard: T => Unit = (_: T) => ()
+  ): Future[T] = {
+    requests.increment()
+    budget.deposit()
+    val idempotent = idempotentMethods.contains(method.toUpperCase(Locale.ROOT))
+
+    def run(retry: Int): Future[T] = {
+      val result =
+        try attempt()
+        catch { case NonFatal(e) => Future.failed(e) }
+      result.transformWith {
+        case Success(response) =>
+          val code = status(response)
+          val delay =
+            if (config.statuses(code) && (idempotent || code == 429)) retryDelay(retry, retryAfter(response))
+            else None
+          delay.fold(result) { d =>
+            discard(response)
+            after(d)(run(retry + 1))
+          }
+        case Failure(e) =>
+          val delay = if (retryable(e, idempotent)) retryDelay(retry, None) else None
+          delay.fold(result)(d => after(d)(run(retry + 1)))
+      }(ExecutionContext.parasitic)
+    }
+
+    run(0)
+  }
+
+  def stats: RetryStats = RetryStats(requests.sum, retries.sum, budgetExhausted.sum)
+
+  /**
+   * Cancels the body of a response that is not used. A streamed response holds on to its connection until its body is
+   * read or cancelled.
+   */
+  def cancelBody(body: Source[ByteString, ?]): Unit = cancel(body)
+
+  /**
+   * Returns how long to wait before the retry, if the request can be retried.
+   */
+  private def retryDelay(retry: Int, retryAfter: Option[String]): Option[FiniteDuration] = {
+    val delay = retryAfter.flatMap(parseRetryAfter).getOrElse(backoff(retry))
+    if (retry >= config.maxRetries || delay > config.maxBackoff) None
+    else if (budget.tryWithdraw()) {
+      retries.increment()
+      Some(delay)
+    } else {
+      budgetExhausted.increment()
+      None
+    }
+  }
+
+  // Full jitter, see https://aws.amazon.com/blogs/architecture/exponential-backoff-and-jitter/
+  private def backoff(retry: Int): FiniteDuration = {
+    val min = config.minBackoff.toNanos
+    val max = math.min(config.maxBackoff.toNanos.toDouble, min * math.pow(2, retry))
+    (min + (random() * (max - min)).toLong).nanos
+  }
+
+  private[filters] def parseRetryAfter(value: String): Option[FiniteDuration] = {
+    val trimmed = value.trim
+    if (trimmed.nonEmpty && trimmed.forall(Character.isDigit)) Try(trimmed.toLong.seconds).toOption
+    else {
+      Try(ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME)).toOption.map { date =>
+        math.max(0L, date.toInstant.toEpochMilli - clock.millis()).millis
+      }
+    }
+  }
+
+  private def after[T](delay: FiniteDuration)(next: => Future[T]): Future[T] = {
+    val promise = Promise[T]()
+    schedule(delay, () => promise.completeWith(next))
+    promise.future
+  }
+}
+
+object Retrying {
+
+  private val MaxTokens = 10L
+
+  /**
+   * Returns whether a request that failed with the exception can be sent again. A request that could not connect was
+   * never sent, so it can always be sent again. Other failures can happen after the server processed the request.
+   */
+  private def retryable(e: Throwable, idempotent: Boolean): Boolean = e match {
+    case e: CompletionException if e.getCause != null => retryable(e.getCause, idempotent)
+    case _: ConnectException                          => true
+    case _: IOException | _: TimeoutException         => idempotent
+    case _                                            => false
+  }
+}
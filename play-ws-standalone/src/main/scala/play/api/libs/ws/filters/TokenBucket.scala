@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.filters
+
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * A budget of extra requests, such as hedges or retries. Every request adds `depositPerRequest` tokens to it and every
+ * extra request takes one token from it, so that at most `depositPerRequest` extra requests are sent per request in
+ * the long run. The budget holds at most `maxTokens`, which bounds the bursts of extra requests.
+ */
+private[filters] final class TokenBucket(depositPerRequest: Double, maxTokens: Long, initialTokens: Long) {
+  import TokenBucket._
+
+  private val tokens     = new AtomicLong(initialTokens * Scale)
+  private val perRequest = math.round(depositPerRequest * Scale)
+  private val max        = maxTokens * Scale
+
+  def deposit(): Unit = {
+    tokens.accumulateAndGet(perRequest, (current, amount) => math.min(current + amount, max))
+    ()
+  }
+
+  def tryWithdraw(): Boolean = {
+    var current = tokens.get
+    while (current >= Scale) {
+      if (tokens.compareAndSet(current, current - Scale)) return true
+      current = tokens.get
+    }
+    false
+  }
+}
+
+private[filters] object TokenBucket {
+
+  /**
+   * Tokens are counted in thousandths.
+   */
+  private val Scale = 1000L
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicInteger
+
+import org.apache.pekko.actor.ActorSystem
+import org.apache.pekko.stream.scaladsl.Sink
+import org.apache.pekko.stream.scaladsl.Source
+import org.specs2.mutable.Specification
+import org.specs2.specification.AfterAll
+
+import scala.concurrent.Await
+import scala.concurrent.Future
+import scala.concurrent.Promise
+import scala.concurrent.duration._
+import scala.jdk.CollectionConverters._
+import scala.util.Failure
+import scala.util.Success
+import scala.util.Try
+
+class BulkExecutionSpec extends Specification with AfterAll {
+
+  implicit val system: ActorSystem = ActorSystem("BulkExecutionSpec")
+
+  override def afterAll(): Unit = {
+    system.terminate()
+    ()
+  }
+
+  /**
+   * Requests that complete when told to, and count how many are in flight per host.
+   */
+  class Fixture {
+    val pending     = new ConcurrentHashMap[String, Promise[Int]]()
+    val inFlight    = new ConcurrentHashMap[String, AtomicInteger]()
+    val maxInFlight = new ConcurrentHashMap[String, AtomicInteger]()
+
+    def execute(url: String): Future[Int] = {
+      val host    = RequestHost.of(url)
+      val current = inFlight.computeIfAbsent(host, _ => new AtomicInteger()).incrementAndGet()
+      maxInFlight.computeIfAbsent(host, _ => new AtomicInteger()).accumulateAndGet(current, (a, b) => math.max(a, b))
+      val promise = Promise[Int]()
+      pending.put(url, promise)
+      promise.future
+    }
+
+    def run(urls: Seq[String], ordered: Boolean, perHost: Int): Future[Seq[(String, Try[Int])]] = {
+      BulkExecution
+        .source(Source(urls), parallelism = 16, parallelismPerHost = perHost, ordered = ordered)(identity, execute)
+        .runWith(Sink.seq)
+    }
+
+    def complete(url: String, status: Int): Unit = {
+      val promise = awaitPending(url)
+      inFlight.get(RequestHost.of(url)).decrementAndGet()
+      promise.success(status)
+      ()
+    }
+
+    def awaitPending(url: String): Promise[Int] = {
+      val deadline = 5.seconds.fromNow
+      while (!pending.containsKey(url) && deadline.hasTimeLeft()) Thread.sleep(10)
+      pending.get(url)
+    }
+  }
+
+  "BulkExecution" should {
+
+    "bound the requests in flight to each host" in {
+      val fixture = new Fixture
+      val urls    = (1 to 6).map(i => s"http://a.com/$i") ++ (1 to 6).map(i => s"http://b.com/$i")
+      val result  = fixture.run(urls, ordered = false, perHost = 2)
+
+      urls.foreach(fixture.complete(_, 200))
+      val results = Await.result(result, 5.seconds)
+
+      (results must haveSize(12))
+        .and(fixture.maxInFlight.get("a.com").get must_== 2)
+        .and(fixture.maxInFlight.get("b.com").get must_== 2)
+    }
+
+    "emit the results in the order of the requests when ordered" in {
+      val fixture = new Fixture
+      val urls    = Seq("http://a.com/1", "http://b.com/2", "http://c.com/3")
+      val result  = fixture.run(urls, ordered = true, perHost = 1)
+
+      urls.reverse.foreach(fixture.complete(_, 200))
+
+      Await.result(result, 5.seconds).map(_._1) must_== urls
+    }
+
+    "emit the results as they complete when unordered" in {
+      val fixture = new Fixture
+      val urls    = Seq("http://a.com/1", "http://b.com/2")
+      val emitted = new ConcurrentLinkedQueue[String]()
+      val done    = BulkExecution
+        .source(Source(urls), parallelism = 2, parallelismPerHost = 1, ordered = false)(identity, fixture.execute)
+        .runForeach(result => emitted.add(result._1))
+
+      fixture.complete("http://b.com/2", 200)
+
+      (emitted.size must beEqualTo(1).eventually).and {
+        fixture.complete("http://a.com/1", 200)
+        Await.ready(done, 5.seconds)
+        emitted.asScala.toList must_== urls.reverse
+      }
+    }
+
+    "send the requests to other hosts while a host has no permit left" in {
+      val fixture = new Fixture
+      val urls    = Seq("http://a.com/1", "http://a.com/2", "http://b.com/1")
+      val result  = BulkExecution
+        .source(Source(urls), parallelism = 2, parallelismPerHost = 1, ordered = true)(identity, fixture.execute)
+        .runWith(Sink.seq)
+
+      (fixture.awaitPending("http://b.com/1") must not(beNull)).and {
+        urls.foreach(fixture.complete(_, 200))
+        Await.result(result, 5.seconds).map(_._1) must_== urls
+      }
+    }
+
+    "emit failed requests without failing the stream" in {
+      val result = BulkExecution
+        .source(Source(Seq("http://a.com/1", "http://a.com/2")), 4, 1, ordered = true)(
+          identity,
+          url => if (url.endsWith("1")) Future.failed(new RuntimeException("refused")) else Future.successful(200)
+        )
+        .runWith(Sink.seq)
+
+      Await.result(result, 5.seconds).map(_._2) must beLike[Seq[Try[Int]]] {
+        case Seq(Failure(e), Success(200)) => e.getMessage must_== "refused"
+      }
+    }
+  }
+}
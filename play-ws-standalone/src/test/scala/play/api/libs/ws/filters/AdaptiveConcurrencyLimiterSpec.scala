@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.filters
+
+import org.specs2.mutable.Specification
+import play.api.libs.ws.filters.AdaptiveConcurrencyLimiter.Permit
+
+import scala.concurrent.Future
+import scala.util.Failure
+import scala.util.Success
+import scala.util.Try
+
+class AdaptiveConcurrencyLimiterSpec extends Specification {
+
+  val url = "http://Example.com/users"
+
+  class Fixture(config: AdaptiveConcurrencyConfig) {
+    var now     = 0L
+    val limiter = new AdaptiveConcurrencyLimiter(config, () => now)
+
+    def acquire(): Future[Permit] = limiter.acquire(url)
+
+    def permit(): Permit = acquire().value match {
+      case Some(Success(permit)) => permit
+      case other                 => throw new IllegalStateException(s"No permit: $other")
+    }
+
+    def limit: Int = limiter.limits("example.com").limit
+  }
+
+  // Probes are pushed out of the way so that the tests only see the latency they set.
+  def config(initialLimit: Int, maxQueueSize: Int = 0) =
+    AdaptiveConcurrencyConfig(initialLimit = initialLimit, maxQueueSize = maxQueueSize, probeMultiplier = 1000)
+
+  "AdaptiveConcurrencyLimiter" should {
+
+    "reject requests over the limit" in {
+      val fixture = new Fixture(config(initialLimit = 2))
+      fixture.permit()
+      fixture.permit()
+
+      fixture.acquire().value must beSome(beLike[Try[Permit]] {
+        case Failure(e: ConcurrencyLimitExceededException) => (e.host must_== "example.com").and(e.limit must_== 2)
+      })
+    }
+
+    "queue requests over the limit until a request completes" in {
+      val fixture = new Fixture(config(initialLimit = 1, maxQueueSize = 1))
+      val first   = fixture.permit()
+      val queued  = fixture.acquire()
+      val state   = fixture.limiter.limits("example.com")
+
+      first.ignored()
+
+      (state must_== HostConcurrency(1, 1, 1))
+        .and(queued.isCompleted must beTrue)
+        .and(fixture.limiter.limits("example.com") must_== HostConcurrency(1, 1, 0))
+    }
+
+    "release a permit only once" in {
+      val fixture = new Fixture(config(initialLimit = 1))
+      val permit  = fixture.permit()
+
+      permit.ignored()
+      permit.ignored()
+
+      fixture.limiter.limits("example.com").inFlight must_== 0
+    }
+
+    "lower the limit when requests are dropped" in {
+      val fixture = new Fixture(config(initialLimit = 10))
+      val first   = fixture.permit()
+      val second  = fixture.permit()
+      fixture.now = 10
+      first.succeeded()
+      second.failed(new java.util.concurrent.TimeoutException("Request timeout"))
+
+      fixture.limit must_== 9
+    }
+
+    "raise the limit while the latency stays low" in {
+      val fixture = new Fixture(config(initialLimit = 4))
+      val permits = List.fill(4)(fixture.permit())
+      fixture.now = 10
+      permits.foreach(_.completed(200))
+
+      fixture.limit must beGreaterThan(4)
+    }
+
+    "lower the limit when the latency grows" in {
+      val fixture = new Fixture(config(initialLimit = 10))
+      val permits = List.fill(10)(fixture.permit())
+      fixture.now = 10
+      permits.head.succeeded()
+      fixture.now = 100
+      permits.tail.foreach(_.succeeded())
+
+      fixture.limit must beLessThan(10)
+    }
+
+    "not raise the limit when few requests are in flight" in {
+      val fixture = new Fixture(config(initialLimit = 10))
+      val first   = fixture.permit()
+      fixture.now = 10
+      first.succeeded()
+      val second = fixture.permit()
+      fixture.now = 20
+      second.succeeded()
+
+      fixture.limit must_== 10
+    }
+
+    "count 503 responses as dropped" in {
+      val fixture = new Fixture(config(initialLimit = 10))
+      val first   = fixture.permit()
+      val second  = fixture.permit()
+      fixture.now = 10
+      first.completed(200)
+      second.completed(503)
+
+      fixture.limit must_== 9
+    }
+  }
+}
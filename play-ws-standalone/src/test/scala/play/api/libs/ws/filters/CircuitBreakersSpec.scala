@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.filters
+
+import java.io.IOException
+import java.util.concurrent.CompletionException
+import java.util.concurrent.ConcurrentLinkedQueue
+
+import com.typesafe.config.ConfigFactory
+import org.apache.pekko.actor.ActorSystem
+import org.apache.pekko.pattern.CircuitBreakerOpenException
+import org.specs2.mutable.Specification
+import org.specs2.specification.AfterAll
+
+import scala.concurrent.Await
+import scala.concurrent.Future
+import scala.concurrent.duration._
+import scala.jdk.CollectionConverters._
+import scala.util.Failure
+import scala.util.Try
+
+class CircuitBreakersSpec extends Specification with AfterAll {
+
+  val system = ActorSystem("CircuitBreakersSpec")
+
+  override def afterAll(): Unit = {
+    system.terminate()
+    ()
+  }
+
+  class Fixture(config: CircuitBreakerConfig) {
+    val breakers = new CircuitBreakers(config, system.scheduler)(system.dispatcher)
+    var attempts = 0
+
+    def execute(result: => Future[Int]): Try[Int] = {
+      val future = breakers.execute("example.com", () => { attempts += 1; result })(identity)
+      Await.ready(future, 5.seconds).value.get
+    }
+  }
+
+  val config = CircuitBreakerConfig(maxFailures = 2, resetTimeout = 100.millis, maxResetTimeout = 100.millis)
+
+  "CircuitBreakers" should {
+
+    "open the circuit after maxFailures failing statuses in a row" in {
+      val fixture = new Fixture(config)
+      fixture.execute(Future.successful(503))
+      fixture.execute(Future.successful(500))
+
+      (fixture.breakers.openKeys must beEqualTo(Set("example.com")).eventually)
+        .and(fixture.execute(Future.successful(200)) must beLike[Try[Int]] {
+          case Failure(_: CircuitBreakerOpenException) => ok
+        })
+        .and(fixture.attempts must_== 2)
+    }
+
+    "count the configured exceptions as failures" in {
+      val fixture = new Fixture(config)
+      fixture.execute(Future.failed(new IOException("refused")))
+      fixture.execute(Future.failed(new CompletionException(new IOException("refused"))))
+
+      fixture.breakers.openKeys must beEqualTo(Set("example.com")).eventually
+    }
+
+    "not count other statuses and exceptions as failures" in {
+      val fixture = new Fixture(config)
+      fixture.execute(Future.successful(404))
+      fixture.execute(Future.failed(new IllegalArgumentException("bad url")))
+      fixture.execute(Future.successful(429))
+
+      (fixture.attempts must_== 3).and(fixture.breakers.openKeys must beEmpty)
+    }
+
+    "keep a circuit per key" in {
+      val fixture = new Fixture(config)
+      fixture.execute(Future.successful(503))
+      fixture.execute(Future.successful(503))
+      val other = fixture.breakers.execute("other.com", () => Future.successful(200))(identity)
+
+      Await.result(other, 5.seconds) must_== 200
+    }
+
+    "probe the host after resetTimeout and notify the listeners" in {
+      val fixture = new Fixture(config)
+      val events  = new ConcurrentLinkedQueue[String]()
+      fixture.breakers.addListener(new CircuitBreakerListener {
+        override def onOpen(key: String): Unit     = events.add(s"open $key")
+        override def onHalfOpen(key: String): Unit = events.add(s"half-open $key")
+        override def onClose(key: String): Unit    = events.add(s"close $key")
+      })
+      fixture.execute(Future.successful(503))
+      fixture.execute(Future.successful(503))
+
+      (events.asScala.toList must beEqualTo(List("open example.com", "half-open example.com")).eventually)
+        .and {
+          fixture.execute(Future.successful(200))
+          fixture.breakers.openKeys must beEmpty.eventually
+        }
+        .and(events.asScala.toList must contain("close example.com").eventually)
+    }
+
+    "parse its configuration" in {
+      val config = ConfigFactory
+        .parseString("""
+                       |play.ws.circuitBreaker.maxFailures = 10
+                       |play.ws.circuitBreaker.resetTimeout = 1 minute
+                       |play.ws.circuitBreaker.failureStatuses = [503]
+                       |play.ws.circuitBreaker.failureExceptions = ["java.net.ConnectException"]
+                     """.stripMargin)
+        .withFallback(ConfigFactory.defaultReference())
+
+      CircuitBreakerConfigFactory.forConfig(config) must_== CircuitBreakerConfig(
+        maxFailures = 10,
+        resetTimeout = 1.minute,
+        failureStatuses = Set(503),
+        failureExceptions = Seq(classOf[java.net.ConnectException])
+      )
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.filters
+
+import org.apache.pekko.actor.Cancellable
+import org.specs2.mutable.Specification
+import play.api.libs.ws.CancellableFuture
+
+import scala.concurrent.Future
+import scala.concurrent.Promise
+import scala.concurrent.duration._
+import scala.util.Failure
+import scala.util.Success
+import scala.util.Try
+
+class HedgingSpec extends Specification {
+
+  class Fixture(config: HedgingConfig) {
+    var now                                         = 0L
+    var scheduled: List[(FiniteDuration, Runnable)] = Nil
+    var attempts: List[Attempt]                     = Nil
+    var discarded: List[String]                     = Nil
+
+    val hedging = new Hedging(
+      config,
+      (delay, task) => {
+        scheduled = (delay, task) :: scheduled
+        Cancellable.alreadyCancelled
+      },
+      () => now,
+      _ => ()
+    )
+
+    def execute(): Future[String] = hedging.execute(
+      { () =>
+        val attempt = new Attempt
+        attempts = attempts :+ attempt
+        CancellableFuture(attempt.promise.future, () => attempt.cancelled = true)
+      },
+      (response: String) => discarded = discarded :+ response
+    )
+
+    def fireTimer(): Unit = scheduled.head._2.run()
+  }
+
+  class Attempt {
+    val promise   = Promise[String]()
+    var cancelled = false
+  }
+
+  // Every request adds a hedge to the budget.
+  val config = HedgingConfig(delay = 10.millis, maxExtraLoad = 1.0)
+
+  "Hedging" should {
+
+    "complete with the first request if it answers before the delay" in {
+      val fixture = new Fixture(config)
+      val result  = fixture.execute()
+
+      fixture.attempts.head.promise.success("first")
+
+      (result.value must beSome(Success("first")))
+        .and(fixture.scheduled.map(_._1) must_== List(10.millis))
+        .and(fixture.hedging.stats must_== HedgingStats(1, 0, 0, 0))
+    }
+
+    "send a hedge after the delay and cancel the request that loses" in {
+      val fixture = new Fixture(config)
+      val result  = fixture.execute()
+
+      fixture.fireTimer()
+      fixture.attempts(1).promise.success("hedge")
+
+      (result.value must beSome(Success("hedge")))
+        .and(fixture.attempts.map(_.cancelled) must_== List(true, false))
+        .and(fixture.hedging.stats must_== HedgingStats(1, 1, 1, 0))
+    }
+
+    "not count a hedge as a win if the first request answers first" in {
+      val fixture = new Fixture(config)
+      val result  = fixture.execute()
+
+      fixture.fireTimer()
+      fixture.attempts.head.promise.success("first")
+
+      (result.value must beSome(Success("first")))
+        .and(fixture.attempts.map(_.cancelled) must_== List(false, true))
+        .and(fixture.hedging.stats must_== HedgingStats(1, 1, 0, 0))
+    }
+
+    "discard the response of the request that loses if it answers anyway" in {
+      val fixture = new Fixture(config)
+      val result  = fixture.execute()
+
+      fixture.fireTimer()
+      fixture.attempts(1).promise.success("hedge")
+      fixture.attempts.head.promise.success("first")
+
+      (result.value must beSome(Success("hedge"))).and(fixture.discarded must_== List("first"))
+    }
+
+    "wait for the hedge if the first request fails" in {
+      val fixture = new Fixture(config)
+      val result  = fixture.execute()
+
+      fixture.fireTimer()
+      fixture.attempts.head.promise.failure(new RuntimeException("first"))
+      val pending = result.isCompleted
+      fixture.attempts(1).promise.success("hedge")
+
+      (pending must beFalse).and(result.value must beSome(Success("hedge")))
+    }
+
+    "fail with the last failure if every request fails" in {
+      val fixture = new Fixture(config)
+      val result  = fixture.execute()
+
+      fixture.fireTimer()
+      fixture.attempts(1).promise.failure(new RuntimeException("hedge"))
+      fixture.attempts.head.promise.failure(new RuntimeException("first"))
+
+      result.value must beSome(beLike[Try[String]] { case Failure(e) => e.getMessage must_== "first" })
+    }
+
+    "not hedge once the request completed" in {
+      val fixture = new Fixture(config)
+      fixture.execute()
+
+      fixture.attempts.head.promise.success("first")
+      fixture.fireTimer()
+
+      (fixture.attempts must haveSize(1)).and(fixture.hedging.stats.hedgeCount must_== 0)
+    }
+
+    "not send more hedges than the budget allows" in {
+      val fixture = new Fixture(HedgingConfig(delay = 10.millis, maxExtraLoad = 0.5))
+      fixture.execute()
+      fixture.fireTimer()
+      fixture.execute()
+      fixture.fireTimer()
+      fixture.execute()
+      fixture.fireTimer()
+
+      // Half a hedge per request: 0.5 after the first, 1 after the second, 0.5 after the third.
+      fixture.hedging.stats must_== HedgingStats(3, 1, 0, 2)
+    }
+
+    "delay the hedge by the percentile of the latencies" in {
+      val fixture = new Fixture(config.copy(delayPercentile = Some(90)))
+      (1 to 100).foreach { i =>
+        fixture.now = 0
+        fixture.execute()
+        fixture.now = i.millis.toNanos
+        fixture.attempts.last.promise.success("ok")
+      }
+      fixture.execute()
+
+      fixture.scheduled.map(_._1).take(2) must_== List(91.millis, 10.millis)
+    }
+
+    "only hedge the configured methods" in {
+      val hedging = new Fixture(config).hedging
+
+      (hedging.hedges("get") must beTrue).and(hedging.hedges("POST") must beFalse)
+    }
+  }
+}
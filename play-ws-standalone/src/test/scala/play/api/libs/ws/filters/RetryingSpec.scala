@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) from 2022 The Play Framework Contributors <https://github.com/playframework>, 2011-2021 Lightbend Inc. <https://www.lightbend.com>
+ */
+
+package play.api.libs.ws.filters
+
+import java.io.IOException
+import java.net.ConnectException
+import java.time.Clock
+import java.time.Instant
+import java.time.ZoneOffset
+
+import org.apache.pekko.actor.Cancellable
+import org.specs2.mutable.Specification
+
+import scala.concurrent.Future
+import scala.concurrent.duration._
+import scala.util.Failure
+import scala.util.Success
+import scala.util.Try
+
+class RetryingSpec extends Specification {
+
+  case class Response(status: Int, retryAfter: Option[String] = None)
+
+  class Fixture(config: RetryConfig) {
+    var scheduled: List[FiniteDuration] = Nil
+    var attempts                        = 0
+    var discarded: List[Response]       = Nil
+
+    // Tasks run right away, so that a request completes once it is not retried any more.
+    val retrying = new Retrying(
+      config,
+      (delay, task) => {
+        scheduled = scheduled :+ delay
+        task.run()
+        Cancellable.alreadyCancelled
+      },
+      () => 0.5,
+      Clock.fixed(Instant.parse("2015-10-21T07:28:00Z"), ZoneOffset.UTC),
+      _ => ()
+    )
+
+    def execute(method: String)(results: Try[Response]*): Future[Response] = {
+      val remaining = results.iterator
+      retrying.execute(
+        method,
+        () => {
+          attempts += 1
+          Future.fromTry(remaining.next())
+        }
+      )(_.status, _.retryAfter, response => discarded = discarded :+ response)
+    }
+  }
+
+  val config = RetryConfig(minBackoff = 100.millis, maxBackoff = 1.second)
+
+  "Retrying" should {
+
+    "retry a retryable status with a jittered exponential backoff" in {
+      val fixture = new Fixture(config)
+      val result  = fixture.execute("GET")(Success(Response(503)), Success(Response(503)), Success(Response(200)))
+
+      (result.value must beSome(Success(Response(200))))
+        .and(fixture.scheduled must_== List(100.millis, 150.millis))
+        .and(fixture.retrying.stats must_== RetryStats(1, 2, 0))
+    }
+
+    "discard the responses it retries, but not the last one" in {
+      val fixture = new Fixture(config.copy(maxRetries = 1))
+      fixture.execute("GET")(Success(Response(503)), Success(Response(502)))
+
+      fixture.discarded must_== List(Response(503))
+    }
+
+    "give up after maxRetries" in {
+      val fixture = new Fixture(config.copy(maxRetries = 1))
+      val result  = fixture.execute("GET")(Success(Response(503)), Success(Response(503)))
+
+      (result.value must beSome(Success(Response(503)))).and(fixture.attempts must_== 2)
+    }
+
+    "not retry other statuses" in {
+      val fixture = new Fixture(config)
+      val result  = fixture.execute("GET")(Success(Response(500)))
+
+      (result.value must beSome(Success(Response(500)))).and(fixture.attempts must_== 1)
+    }
+
+    "wait for the delay given in seconds by Retry-After" in {
+      val fixture = new Fixture(config)
+      fixture.execute("GET")(Success(Response(429, Some("1"))), Success(Response(200)))
+
+      fixture.scheduled must_== List(1.second)
+    }
+
+    "wait until the date given by Retry-After" in {
+      val fixture = new Fixture(config)
+      fixture.execute("GET")(Success(Response(503, Some("Wed, 21 Oct 2015 07:28:00 GMT"))), Success(Response(200)))
+
+      fixture.scheduled must_== List(Duration.Zero)
+    }
+
+    "not retry if Retry-After asks to wait longer than maxBackoff" in {
+      val fixture = new Fixture(config)
+      val result  = fixture.execute("GET")(Success(Response(503, Some("120"))))
+
+      (result.value must beSome(Success(Response(503, Some("120"))))).and(fixture.attempts must_== 1)
+    }
+
+    "retry an idempotent request that failed with an I/O error" in {
+      val fixture = new Fixture(config)
+      val result  = fixture.execute("PUT")(Failure(new IOException("reset")), Success(Response(200)))
+
+      result.value must beSome(Success(Response(200)))
+    }
+
+    "only retry a non-idempotent request if it was not processed" in {
+      val fixture = new Fixture(config)
+      val failed  = fixture.execute("POST")(Failure(new IOException("reset")))
+      val status  = fixture.execute("POST")(Success(Response(503)))
+      val refused = fixture.execute("POST")(
+        Failure(new ConnectException("refused")),
+        Success(Response(429)),
+        Success(Response(200))
+      )
+
+      (failed.value must beSome(beLike[Try[Response]] { case Failure(e) => e.getMessage must_== "reset" }))
+        .and(status.value must beSome(Success(Response(503))))
+        .and(refused.value must beSome(Success(Response(200))))
+        .and(fixture.attempts must_== 5)
+        .and(fixture.scheduled must haveSize(2))
+    }
+
+    "stop retrying once the budget is spent" in {
+      val fixture   = new Fixture(config.copy(maxRetries = 20, budgetRatio = 0))
+      val responses = Seq.fill(12)(Success(Response(503)))
+      fixture.execute("GET")(responses: _*)
+
+      (fixture.attempts must_== 11).and(fixture.retrying.stats must_== RetryStats(1, 10, 1))
+    }
+  }
+}
@@ -36,6 +36,8 @@ object Dependencies {
 
   val scalaXml = Seq("org.scala-lang.modules" %% "scala-xml" % "2.4.0")
 
+  val aaltoXml = Seq("com.fasterxml" % "aalto-xml" % "1.3.3")
+
   val oauth = Seq("oauth.signpost" % "signpost-core" % "2.1.1")
 
   val cachecontrol = Seq("org.playframework" %% "cachecontrol" % "3.1.0-M2")
@@ -58,7 +60,7 @@ object Dependencies {
 
   val pekkoStreams = Seq("org.apache.pekko" %% "pekko-stream" % pekkoVersion)
 
-  val backendServerTestDependencies = Seq(
+  val backendServerDependencies = Seq(
     "org.playframework" %% "play-netty-server" % "3.0.11",
     // Following dependencies are pulled in by play-netty-server, we just make sure
     // now that we use the same pekko version here like pekko-stream above.
@@ -68,10 +70,16 @@ object Dependencies {
     "org.apache.pekko" %% "pekko-actor-typed"           % pekkoVersion,
     "org.apache.pekko" %% "pekko-serialization-jackson" % pekkoVersion,
     "org.apache.pekko" %% "pekko-slf4j"                 % pekkoVersion
-  ).map(_ % Test)
+  )
+
+  val backendServerTestDependencies = backendServerDependencies.map(_ % Test)
 
   val reactiveStreams = Seq("org.reactivestreams" % "reactive-streams" % "1.0.4")
 
+  val hdrHistogram = Seq("org.hdrhistogram" % "HdrHistogram" % "2.2.2")
+
+  val micrometer = Seq("io.micrometer" % "micrometer-core" % "1.15.4")
+
   val testDependencies =
     (mockito ++ specsBuild ++ junitInterface ++ assertj ++ awaitility ++ slf4jtest ++ logback).map(_ % Test)
 
@@ -81,6 +89,8 @@ object Dependencies {
 
   val standaloneAhcWSJsonDependencies = playJson ++ testDependencies
 
-  val standaloneAhcWSXMLDependencies = scalaXml ++ testDependencies
+  val standaloneAhcWSXMLDependencies = scalaXml ++ aaltoXml ++ testDependencies
+
+  val standaloneWSMetricsDependencies = micrometer ++ hdrHistogram ++ testDependencies
 
 }